@@ -1132,6 +1132,12 @@ public static final int GLU_ERROR = 100103;
 //public static final int GLU_NURBS_TESSELLATOR_EXT = 100161;
 //public static final int GLU_NURBS_RENDERER = 100162;
 //public static final int GLU_NURBS_RENDERER_EXT = 100162;
+// JOGL-specific boolean property, false by default, that evaluates vertex
+// surfaces once into meshes cached by their knots and control points
+public static final int GLU_NURBS_CACHE_MESH = 100218;
+// JOGL-specific property, 0 by default, bounding the object space distance
+// between a cached mesh and its surface; 0 keeps the regular sampling grid
+public static final int GLU_NURBS_MESH_TOLERANCE = 100219;
 
 // NurbsSampling
 //public static final int GLU_OBJECT_PARAMETRIC_ERROR = 100208;
@@ -1180,6 +1186,9 @@ public static final int GLU_TESS_BOUNDARY_ONLY = 100141;
 public static final int GLU_TESS_TOLERANCE = 100142;
 // JOGL-specific boolean property, false by default, that may improve the tessellation
 public static final int GLU_TESS_AVOID_DEGENERATE_TRIANGLES = 100149;
+// JOGL-specific boolean property, false by default, that recycles the
+// tessellator's mesh storage across polygons instead of reallocating it
+public static final int GLU_TESS_REUSE_MESH_STORAGE = 100148;
 
 // TessError
 public static final int GLU_TESS_ERROR1 = 100151;
@@ -393,7 +393,9 @@ public final int gluScaleImage(int format, int wIn, int hIn, int typeIn, java.ni
 //
 
 /**
- * Sets a property on a NURBS object. (NOTE: this function is not currently implemented.)
+ * Sets a property on a NURBS object. (NOTE: only the JOGL-specific
+ * GLU_NURBS_CACHE_MESH and GLU_NURBS_MESH_TOLERANCE properties are
+ * currently implemented.)
  * 
  * @param r
  *            GLUnurbs object holding NURBS to which a property should be
@@ -407,6 +409,12 @@ public final void gluNurbsProperty(GLUnurbs r, int property, float value) {
   // TODO glunurbsproperty
   float nurbsValue;
   switch (property) {
+  case GLU_NURBS_CACHE_MESH:
+    ((GLUgl2nurbsImpl) r).setMeshCaching(value != 0);
+    break;
+  case GLU_NURBS_MESH_TOLERANCE:
+    ((GLUgl2nurbsImpl) r).setMeshTolerance(value);
+    break;
   default:
     //				System.out.println("TODO gluwnurbs.glunurbsproperty");
     break;
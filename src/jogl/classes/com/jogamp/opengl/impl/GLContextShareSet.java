@@ -136,6 +136,13 @@ public class GLContextShareSet {
     return share.getCreatedShare(contextToCreate);
   }
 
+  /** Returns an opaque key identifying the set of contexts sharing
+      textures and display lists with <code>context</code>, or null if
+      it does not share. Contexts of the same set return the same key. */
+  public static synchronized Object getShareSetKey(GLContext context) {
+    return entryFor(context);
+  }
+
   public static synchronized void contextCreated(GLContext context) {
     ShareSet share = entryFor(context);
     if (share != null) {
@@ -0,0 +1,98 @@
+/**
+ * Copyright 2010 JogAmp Community. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are
+ * permitted provided that the following conditions are met:
+ * 
+ *    1. Redistributions of source code must retain the above copyright notice, this list of
+ *       conditions and the following disclaimer.
+ * 
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *       of conditions and the following disclaimer in the documentation and/or other materials
+ *       provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY JogAmp Community ``AS IS'' AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL JogAmp Community OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are those of the
+ * authors and should not be interpreted as representing official policies, either expressed
+ * or implied, of JogAmp Community.
+ */
+
+package com.jogamp.opengl.impl.awt;
+
+/**
+ * Slot bookkeeping of a ring of pixel pack buffers for asynchronous readback.
+ * <p>
+ * Each frame is read into the {@link #current()} slot, and the oldest frame still
+ * in flight is delivered, so the transfer of a frame overlaps with rendering of
+ * the next one. If no other read is in flight, i.e. the ring was just (re)started,
+ * the current frame is delivered right away but stays queued, so from then on
+ * the ring runs one frame behind.</p>
+ */
+public class ReadbackRing {
+    private final boolean[] inFlight;
+    private final long[] issueTime;
+    private int index = 0;
+
+    public ReadbackRing(int size) {
+        if (size < 1) {
+            throw new IllegalArgumentException("Invalid ring size: "+size);
+        }
+        inFlight = new boolean[size];
+        issueTime = new long[size];
+    }
+
+    public int size() { return inFlight.length; }
+
+    /** @return the slot the next read is issued into */
+    public int current() { return index; }
+
+    /** @return true if a read of the slot has been issued and not yet delivered */
+    public boolean isInFlight(int slot) { return inFlight[slot]; }
+
+    /** @return the time passed to {@link #issue(long)} for the slot */
+    public long getIssueTime(int slot) { return issueTime[slot]; }
+
+    /**
+     * Marks the read into the {@link #current()} slot as issued.
+     *
+     * @return the slot to deliver, which is the current one only if no other read is in flight
+     */
+    public int issue(long time) {
+        inFlight[index] = true;
+        issueTime[index] = time;
+        for (int i = (index + 1) % inFlight.length; i != index; i = (i + 1) % inFlight.length) {
+            if (inFlight[i]) {
+                return i;
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Completes the delivery of the slot returned by {@link #issue(long)}
+     * and advances to the next slot.
+     */
+    public void delivered(int slot) {
+        if (slot != index) {
+            inFlight[slot] = false;
+        }
+        index = (index + 1) % inFlight.length;
+    }
+
+    /** Forgets all reads in flight and restarts at slot 0 */
+    public void reset() {
+        for (int i = 0; i < inFlight.length; i++) {
+            inFlight[i] = false;
+        }
+        index = 0;
+    }
+}
@@ -0,0 +1,68 @@
+/**
+ * Copyright 2010 JogAmp Community. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are
+ * permitted provided that the following conditions are met:
+ * 
+ *    1. Redistributions of source code must retain the above copyright notice, this list of
+ *       conditions and the following disclaimer.
+ * 
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *       of conditions and the following disclaimer in the documentation and/or other materials
+ *       provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY JogAmp Community ``AS IS'' AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL JogAmp Community OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are those of the
+ * authors and should not be interpreted as representing official policies, either expressed
+ * or implied, of JogAmp Community.
+ */
+
+package com.jogamp.opengl.impl.awt;
+
+import java.nio.IntBuffer;
+
+/**
+ * Copies pixel rows read back from OpenGL into the raster of an image,
+ * optionally flipping them vertically, since OpenGL's origin is the lower left corner.
+ */
+public class ReadbackUtil {
+
+    /**
+     * Copies <code>height</code> rows of <code>destWidth</code> pixels.
+     * The position of <code>src</code> is rewound afterwards.
+     *
+     * @param src the pixels read back, rows of <code>srcWidth</code> pixels, <code>srcWidth &gt;= destWidth</code>
+     * @param dest the image raster, rows of <code>destWidth</code> pixels
+     * @param flip if true the first row of src becomes the last row of dest
+     */
+    public static void copyRows(IntBuffer src, int srcWidth, int[] dest, int destWidth, int height, boolean flip) {
+        for (int row = 0; row < height; row++) {
+            src.position(row * srcWidth);
+            src.get(dest, (flip ? height - 1 - row : row) * destWidth, destWidth);
+        }
+        src.rewind();
+    }
+
+    /**
+     * Copies <code>height</code> rows of <code>destRowLength</code> bytes.
+     *
+     * @param src the pixels read back, rows of <code>srcRowLength</code> bytes, <code>srcRowLength &gt;= destRowLength</code>
+     * @param dest the image raster, rows of <code>destRowLength</code> bytes
+     * @param flip if true the first row of src becomes the last row of dest
+     */
+    public static void copyRows(byte[] src, int srcRowLength, byte[] dest, int destRowLength, int height, boolean flip) {
+        int destEnd = destRowLength * height;
+        for (int srcPos = 0, destPos = 0; destPos < destEnd; srcPos += srcRowLength, destPos += destRowLength) {
+            System.arraycopy(src, srcPos, dest, flip ? destEnd - destRowLength - destPos : destPos, destRowLength);
+        }
+    }
+}
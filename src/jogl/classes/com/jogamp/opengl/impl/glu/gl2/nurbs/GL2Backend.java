@@ -46,4 +46,12 @@ public class GL2Backend extends Backend {
     curveEvaluator = new GL2CurveEvaluator();
     surfaceEvaluator = new GL2SurfaceEvaluator();
   }
+
+  /**
+   * Draws an evaluated surface mesh
+   * @param mesh mesh to draw
+   */
+  public void drawMesh(NurbsMesh mesh) {
+    ((GL2SurfaceEvaluator) surfaceEvaluator).drawMesh(mesh);
+  }
 }
@@ -62,6 +62,11 @@ class GL2SurfaceEvaluator implements SurfaceEvaluator {
    */
   private int poradi;
 
+  /**
+   * Array and element array buffer bindings saved while drawing a mesh
+   */
+  private final int[] binding = new int[2];
+
   /**
    * Creates new evaluator
    */
@@ -214,4 +219,34 @@ class GL2SurfaceEvaluator implements SurfaceEvaluator {
     //DONE
     gl.glEnable(type);
   }
+
+  /**
+   * Draws an evaluated surface mesh from client vertex arrays, with
+   * normals if GL_AUTO_NORMAL is enabled
+   * @param mesh mesh to draw
+   */
+  public void drawMesh(NurbsMesh mesh) {
+    binding[0] = gl.glGetBoundBuffer(GL.GL_ARRAY_BUFFER);
+    binding[1] = gl.glGetBoundBuffer(GL.GL_ELEMENT_ARRAY_BUFFER);
+    if (binding[0] != 0)
+      gl.glBindBuffer(GL.GL_ARRAY_BUFFER, 0);
+    if (binding[1] != 0)
+      gl.glBindBuffer(GL.GL_ELEMENT_ARRAY_BUFFER, 0);
+
+    gl.glPushClientAttrib(GL2.GL_CLIENT_VERTEX_ARRAY_BIT);
+    gl.glEnableClientState(GL2.GL_VERTEX_ARRAY);
+    gl.glVertexPointer(3, GL.GL_FLOAT, 0, mesh.getVertexBuffer());
+    if (gl.glIsEnabled(GL2.GL_AUTO_NORMAL)) {
+      gl.glEnableClientState(GL2.GL_NORMAL_ARRAY);
+      gl.glNormalPointer(GL.GL_FLOAT, 0, mesh.getNormalBuffer());
+    }
+    gl.glDrawElements(GL.GL_TRIANGLES, mesh.getIndices().length,
+                      GL.GL_UNSIGNED_INT, mesh.getIndexBuffer());
+    gl.glPopClientAttrib();
+
+    if (binding[0] != 0)
+      gl.glBindBuffer(GL.GL_ARRAY_BUFFER, binding[0]);
+    if (binding[1] != 0)
+      gl.glBindBuffer(GL.GL_ELEMENT_ARRAY_BUFFER, binding[1]);
+  }
 }
@@ -189,6 +189,17 @@ public class GLUgl2nurbsImpl implements GLUnurbs {
    */
   private boolean isSurfaceModified;
 
+  /**
+   * Cache of evaluated surface meshes, null if disabled
+   */
+  private NurbsMeshCache meshCache;
+
+  /**
+   * Maximum distance between cached meshes and surfaces, 0 for the
+   * regular sampling grid
+   */
+  private float meshTolerance;
+
   /**
    * Initializes default GLUgl2nurbs object
    */
@@ -445,17 +456,56 @@ public class GLUgl2nurbsImpl implements GLUnurbs {
       //				System.out.println("TODO glunurbs.do_endsurface - numtrims > 0");
     }
 
-    subdivider.beginQuilts(new GL2Backend());
+    boolean cached = meshCache != null;
     for (O_nurbssurface n = currentSurface.o_nurbssurface; n != null; n = n.next) {
-      subdivider.addQuilt(n.bezier_patches);
+      if (n.meshKey == null)
+        cached = false;
+    }
+
+    if (cached) {
+      GL2Backend backend = new GL2Backend();
+      for (O_nurbssurface n = currentSurface.o_nurbssurface; n != null; n = n.next) {
+        if (n.mesh == null) {
+          MeshBackend meshBackend = new MeshBackend(maplist.locate(n.getType()), meshTolerance);
+          subdivider.beginQuilts(meshBackend);
+          subdivider.addQuilt(n.bezier_patches);
+          subdivider.endQuilts();
+          subdivider.drawSurfaces();
+          n.mesh = meshBackend.getMesh();
+          meshCache.put(n.meshKey, n.mesh);
+        }
+        backend.drawMesh(n.mesh);
+      }
+    } else {
+      subdivider.beginQuilts(new GL2Backend());
+      for (O_nurbssurface n = currentSurface.o_nurbssurface; n != null; n = n.next) {
+        if (n.bezier_patches == null) {
+          // cached mesh cannot be combined with the other maps of this surface
+          toBezier(n);
+        }
+        subdivider.addQuilt(n.bezier_patches);
+      }
+      subdivider.endQuilts();
+      subdivider.drawSurfaces();
     }
-    subdivider.endQuilts();
-    subdivider.drawSurfaces();
     if (!playBack)
       endrender();
 
   }
 
+  /**
+   * Converts a surface, whose conversion was skipped, to bezier patches
+   * 
+   * @param n
+   *            NURBS surface object
+   */
+  private void toBezier(O_nurbssurface n) {
+    Mapdesc mapdesc = maplist.locate(n.getType());
+    n.bezier_patches = new Quilt(mapdesc);
+    n.bezier_patches.toBezier(n.sknotvector, n.tknotvector, n.ctlarray,
+                              mapdesc.getNCoords());
+  }
+
   /**
    * Ends a curve
    */
@@ -852,11 +902,69 @@ public class GLUgl2nurbsImpl implements GLUnurbs {
       return;
 
     O_nurbssurface o_nurbssurface = new O_nurbssurface(type);
-    o_nurbssurface.bezier_patches = new Quilt(mapdesc);
-
     CArrayOfFloats ctrlarr = new CArrayOfFloats(ctlarray);
-    o_nurbssurface.bezier_patches.toBezier(sknotvector, tknotvector,
-                                           ctrlarr, mapdesc.getNCoords());
+
+    if (meshCache != null
+        && (type == GL2.GL_MAP2_VERTEX_3 || type == GL2.GL_MAP2_VERTEX_4)) {
+      o_nurbssurface.meshKey = NurbsMeshCache.key(type, sknot_count, sknot,
+                                                  tknot_count, tknot, s_stride, t_stride, ctlarray,
+                                                  mapdesc.getNCoords(), sorder, torder, meshTolerance);
+      o_nurbssurface.mesh = meshCache.get(o_nurbssurface.meshKey);
+    }
+
+    if (o_nurbssurface.mesh != null) {
+      o_nurbssurface.sknotvector = sknotvector;
+      o_nurbssurface.tknotvector = tknotvector;
+      o_nurbssurface.ctlarray = ctrlarr;
+    } else {
+      o_nurbssurface.bezier_patches = new Quilt(mapdesc);
+      o_nurbssurface.bezier_patches.toBezier(sknotvector, tknotvector,
+                                             ctrlarr, mapdesc.getNCoords());
+    }
     thread("do_nurbssurface", o_nurbssurface);
   }
+
+  /**
+   * Enables or disables caching of vertex surfaces as meshes, which are
+   * evaluated on the CPU once and drawn from vertex arrays afterwards
+   * 
+   * @param enable
+   *            use mesh cache
+   */
+  public void setMeshCaching(boolean enable) {
+    if (!enable) {
+      meshCache = null;
+    } else if (meshCache == null) {
+      meshCache = new NurbsMeshCache(NurbsMeshCache.DEFAULT_CAPACITY);
+    }
+  }
+
+  /**
+   * Tells whether surface meshes are cached
+   * 
+   * @return mesh caching enabled
+   */
+  public boolean isMeshCaching() {
+    return meshCache != null;
+  }
+
+  /**
+   * Sets the maximum distance in object coordinates between cached meshes
+   * and their surfaces; 0 samples the regular grid
+   * 
+   * @param tolerance
+   *            mesh tolerance
+   */
+  public void setMeshTolerance(float tolerance) {
+    meshTolerance = tolerance < 0 ? 0 : tolerance;
+  }
+
+  /**
+   * Returns the mesh tolerance
+   * 
+   * @return mesh tolerance
+   */
+  public float getMeshTolerance() {
+    return meshTolerance;
+  }
 }
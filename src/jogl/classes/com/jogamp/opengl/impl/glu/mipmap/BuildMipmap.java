@@ -380,63 +380,63 @@ public class BuildMipmap {
       if( dstImage != null ) {
         switch( type ) {
           case( GL2.GL_UNSIGNED_BYTE ):
-            HalveImage.halveImage_ubyte( cmpts, width, height, data, dstImage, element_size, rowsize, group_size );
+            MipmapKernels.halveImage_ubyte( cmpts, width, height, data, dstImage, element_size, rowsize, group_size );
             break;
           case( GL2.GL_BYTE ):
-            HalveImage.halveImage_byte( cmpts, width, height, data, dstImage, element_size, rowsize, group_size );
+            MipmapKernels.halveImage_byte( cmpts, width, height, data, dstImage, element_size, rowsize, group_size );
             break;
           case( GL2.GL_UNSIGNED_SHORT ):
-            HalveImage.halveImage_ushort( cmpts, width, height, data, dstImage.asShortBuffer(), element_size, rowsize, group_size, myswap_bytes );
+            MipmapKernels.halveImage_ushort( cmpts, width, height, data, dstImage.asShortBuffer(), element_size, rowsize, group_size, myswap_bytes );
             break;
           case( GL2.GL_SHORT ):
-            HalveImage.halveImage_short( cmpts, width, height, data, dstImage.asShortBuffer(), element_size, rowsize, group_size, myswap_bytes );
+            MipmapKernels.halveImage_short( cmpts, width, height, data, dstImage.asShortBuffer(), element_size, rowsize, group_size, myswap_bytes );
             break;
           case( GL2.GL_UNSIGNED_INT ):
-            HalveImage.halveImage_uint( cmpts, width, height, data, dstImage.asIntBuffer(), element_size, rowsize, group_size, myswap_bytes );
+            MipmapKernels.halveImage_uint( cmpts, width, height, data, dstImage.asIntBuffer(), element_size, rowsize, group_size, myswap_bytes );
             break;
           case( GL2.GL_INT ):
-            HalveImage.halveImage_int( cmpts, width, height, data, dstImage.asIntBuffer(), element_size, rowsize, group_size, myswap_bytes );
+            MipmapKernels.halveImage_int( cmpts, width, height, data, dstImage.asIntBuffer(), element_size, rowsize, group_size, myswap_bytes );
             break;
           case( GL2.GL_FLOAT ):
-            HalveImage.halveImage_float( cmpts, width, height, data, dstImage.asFloatBuffer(), element_size, rowsize, group_size, myswap_bytes );
+            MipmapKernels.halveImage_float( cmpts, width, height, data, dstImage.asFloatBuffer(), element_size, rowsize, group_size, myswap_bytes );
             break;
           case( GL2.GL_UNSIGNED_BYTE_3_3_2 ):
             assert( format == GL2.GL_RGB );
-            HalveImage.halveImagePackedPixel( 3, new Extract332(), width, height, data, dstImage, element_size, rowsize, myswap_bytes );
+            MipmapKernels.halveImagePackedPixel( 3, new Extract332(), width, height, data, dstImage, element_size, rowsize, myswap_bytes );
             break;
           case( GL2.GL_UNSIGNED_BYTE_2_3_3_REV ):
             assert( format == GL2.GL_RGB );
-            HalveImage.halveImagePackedPixel( 3, new Extract233rev(), width, height, data, dstImage, element_size, rowsize, myswap_bytes );
+            MipmapKernels.halveImagePackedPixel( 3, new Extract233rev(), width, height, data, dstImage, element_size, rowsize, myswap_bytes );
             break;
           case( GL2.GL_UNSIGNED_SHORT_5_6_5 ):
-            HalveImage.halveImagePackedPixel( 3, new Extract565(), width, height, data, dstImage, element_size, rowsize, myswap_bytes );
+            MipmapKernels.halveImagePackedPixel( 3, new Extract565(), width, height, data, dstImage, element_size, rowsize, myswap_bytes );
             break;
           case( GL2.GL_UNSIGNED_SHORT_5_6_5_REV ):
-            HalveImage.halveImagePackedPixel( 3, new Extract565rev(), width, height, data, dstImage, element_size, rowsize, myswap_bytes );
+            MipmapKernels.halveImagePackedPixel( 3, new Extract565rev(), width, height, data, dstImage, element_size, rowsize, myswap_bytes );
             break;
           case( GL2.GL_UNSIGNED_SHORT_4_4_4_4 ):
-            HalveImage.halveImagePackedPixel( 4, new Extract4444(), width, height, data, dstImage, element_size, rowsize, myswap_bytes );
+            MipmapKernels.halveImagePackedPixel( 4, new Extract4444(), width, height, data, dstImage, element_size, rowsize, myswap_bytes );
             break;
           case( GL2.GL_UNSIGNED_SHORT_4_4_4_4_REV ):
-            HalveImage.halveImagePackedPixel( 4, new Extract4444rev(), width, height, data, dstImage, element_size, rowsize, myswap_bytes );
+            MipmapKernels.halveImagePackedPixel( 4, new Extract4444rev(), width, height, data, dstImage, element_size, rowsize, myswap_bytes );
             break;
           case( GL2.GL_UNSIGNED_SHORT_5_5_5_1 ):
-            HalveImage.halveImagePackedPixel( 4, new Extract5551(), width, height, data, dstImage, element_size, rowsize, myswap_bytes );
+            MipmapKernels.halveImagePackedPixel( 4, new Extract5551(), width, height, data, dstImage, element_size, rowsize, myswap_bytes );
             break;
           case( GL2.GL_UNSIGNED_SHORT_1_5_5_5_REV ):
-            HalveImage.halveImagePackedPixel( 4, new Extract1555rev(), width, height, data, dstImage, element_size, rowsize, myswap_bytes );
+            MipmapKernels.halveImagePackedPixel( 4, new Extract1555rev(), width, height, data, dstImage, element_size, rowsize, myswap_bytes );
             break;
           case( GL2.GL_UNSIGNED_INT_8_8_8_8 ):
-            HalveImage.halveImagePackedPixel( 4, new Extract8888(), width, height, data, dstImage, element_size, rowsize, myswap_bytes );
+            MipmapKernels.halveImagePackedPixel( 4, new Extract8888(), width, height, data, dstImage, element_size, rowsize, myswap_bytes );
             break;
           case( GL2.GL_UNSIGNED_INT_8_8_8_8_REV ):
-            HalveImage.halveImagePackedPixel( 4, new Extract8888rev(), width, height, data, dstImage, element_size, rowsize, myswap_bytes );
+            MipmapKernels.halveImagePackedPixel( 4, new Extract8888rev(), width, height, data, dstImage, element_size, rowsize, myswap_bytes );
             break;
           case( GL2.GL_UNSIGNED_INT_10_10_10_2 ):
-            HalveImage.halveImagePackedPixel( 4, new Extract1010102(), width, height, data, dstImage, element_size, rowsize, myswap_bytes );
+            MipmapKernels.halveImagePackedPixel( 4, new Extract1010102(), width, height, data, dstImage, element_size, rowsize, myswap_bytes );
             break;
           case( GL2.GL_UNSIGNED_INT_2_10_10_10_REV ):
-            HalveImage.halveImagePackedPixel( 4, new Extract2101010rev(), width, height, data, dstImage, element_size, rowsize, myswap_bytes );
+            MipmapKernels.halveImagePackedPixel( 4, new Extract2101010rev(), width, height, data, dstImage, element_size, rowsize, myswap_bytes );
             break;
           default:
             assert( false );
@@ -535,7 +535,7 @@ public class BuildMipmap {
       data.position( mark );
       switch( type ) {
         case( GL2.GL_UNSIGNED_BYTE ):
-          ScaleInternal.scale_internal_ubyte( cmpts, width, height, data, 
+          MipmapKernels.scale_internal_ubyte( cmpts, width, height, data, 
                 newwidth, newheight, dstImage, element_size, rowsize, group_size );
           break;
         case( GL2.GL_BYTE ):
@@ -543,11 +543,11 @@ public class BuildMipmap {
                   newheight, dstImage, element_size, rowsize, group_size );
           break;
         case( GL2.GL_UNSIGNED_SHORT ):
-          ScaleInternal.scale_internal_ushort( cmpts, width, height, data, newwidth, 
+          MipmapKernels.scale_internal_ushort( cmpts, width, height, data, newwidth, 
                   newheight, dstImage.asShortBuffer(), element_size, rowsize, group_size, myswap_bytes );
           break;
         case( GL2.GL_SHORT ):
-          ScaleInternal.scale_internal_ushort( cmpts, width, height, data, newwidth,
+          MipmapKernels.scale_internal_ushort( cmpts, width, height, data, newwidth,
                   newheight, dstImage.asShortBuffer(), element_size, rowsize, group_size, myswap_bytes );
           break;
         case( GL2.GL_UNSIGNED_INT ):
@@ -559,7 +559,7 @@ public class BuildMipmap {
                   newheight, dstImage.asIntBuffer(), element_size, rowsize, group_size, myswap_bytes );
           break;
         case( GL2.GL_FLOAT ):
-          ScaleInternal.scale_internal_float( cmpts, width, height, data, newwidth,
+          MipmapKernels.scale_internal_float( cmpts, width, height, data, newwidth,
                   newheight, dstImage.asFloatBuffer(), element_size, rowsize, group_size, myswap_bytes );
           break;
         case( GL2.GL_UNSIGNED_BYTE_3_3_2 ):
@@ -692,63 +692,63 @@ public class BuildMipmap {
       dstImage.rewind();
       switch( type ) {
         case( GL2.GL_UNSIGNED_BYTE ):
-          HalveImage.halveImage_ubyte( cmpts, newwidth, newheight, srcImage, dstImage, element_size, rowsize, group_size );
+          MipmapKernels.halveImage_ubyte( cmpts, newwidth, newheight, srcImage, dstImage, element_size, rowsize, group_size );
           break;
         case( GL2.GL_BYTE ):
-          HalveImage.halveImage_byte( cmpts, newwidth, newheight, srcImage, dstImage, element_size, rowsize, group_size );
+          MipmapKernels.halveImage_byte( cmpts, newwidth, newheight, srcImage, dstImage, element_size, rowsize, group_size );
           break;
         case( GL2.GL_UNSIGNED_SHORT ):
-          HalveImage.halveImage_ushort( cmpts, newwidth, newheight, srcImage, dstImage.asShortBuffer(), element_size, rowsize, group_size, myswap_bytes );
+          MipmapKernels.halveImage_ushort( cmpts, newwidth, newheight, srcImage, dstImage.asShortBuffer(), element_size, rowsize, group_size, myswap_bytes );
           break;
         case( GL2.GL_SHORT ):
-          HalveImage.halveImage_short( cmpts, newwidth, newheight, srcImage, dstImage.asShortBuffer(), element_size, rowsize, group_size, myswap_bytes );
+          MipmapKernels.halveImage_short( cmpts, newwidth, newheight, srcImage, dstImage.asShortBuffer(), element_size, rowsize, group_size, myswap_bytes );
           break;
         case( GL2.GL_UNSIGNED_INT ):
-          HalveImage.halveImage_uint( cmpts, newwidth, newheight, srcImage, dstImage.asIntBuffer(), element_size, rowsize, group_size, myswap_bytes );
+          MipmapKernels.halveImage_uint( cmpts, newwidth, newheight, srcImage, dstImage.asIntBuffer(), element_size, rowsize, group_size, myswap_bytes );
           break;
         case( GL2.GL_INT ):
-          HalveImage.halveImage_int( cmpts, newwidth, newheight, srcImage, dstImage.asIntBuffer(), element_size, rowsize, group_size, myswap_bytes );
+          MipmapKernels.halveImage_int( cmpts, newwidth, newheight, srcImage, dstImage.asIntBuffer(), element_size, rowsize, group_size, myswap_bytes );
           break;
         case( GL2.GL_FLOAT ):
-          HalveImage.halveImage_float( cmpts, newwidth, newheight, srcImage, dstImage.asFloatBuffer(), element_size, rowsize, group_size, myswap_bytes );
+          MipmapKernels.halveImage_float( cmpts, newwidth, newheight, srcImage, dstImage.asFloatBuffer(), element_size, rowsize, group_size, myswap_bytes );
           break;
         case( GL2.GL_UNSIGNED_BYTE_3_3_2 ):
           assert( format == GL2.GL_RGB );
-          HalveImage.halveImagePackedPixel( 3, new Extract332(), newwidth, newheight, srcImage, dstImage, element_size, rowsize, myswap_bytes );
+          MipmapKernels.halveImagePackedPixel( 3, new Extract332(), newwidth, newheight, srcImage, dstImage, element_size, rowsize, myswap_bytes );
             break;
         case( GL2.GL_UNSIGNED_BYTE_2_3_3_REV ):
           assert( format == GL2.GL_RGB );
-          HalveImage.halveImagePackedPixel( 3, new Extract233rev(), newwidth, newheight, srcImage, dstImage, element_size, rowsize, myswap_bytes );
+          MipmapKernels.halveImagePackedPixel( 3, new Extract233rev(), newwidth, newheight, srcImage, dstImage, element_size, rowsize, myswap_bytes );
             break;
         case( GL2.GL_UNSIGNED_SHORT_5_6_5 ):
-          HalveImage.halveImagePackedPixel( 3, new Extract565(), newwidth, newheight, srcImage, dstImage, element_size, rowsize, myswap_bytes );
+          MipmapKernels.halveImagePackedPixel( 3, new Extract565(), newwidth, newheight, srcImage, dstImage, element_size, rowsize, myswap_bytes );
             break;
         case( GL2.GL_UNSIGNED_SHORT_5_6_5_REV ):
-          HalveImage.halveImagePackedPixel( 3, new Extract565rev(), newwidth, newheight, srcImage, dstImage, element_size, rowsize, myswap_bytes );
+          MipmapKernels.halveImagePackedPixel( 3, new Extract565rev(), newwidth, newheight, srcImage, dstImage, element_size, rowsize, myswap_bytes );
             break;
         case( GL2.GL_UNSIGNED_SHORT_4_4_4_4 ):
-          HalveImage.halveImagePackedPixel( 4, new Extract4444(), newwidth, newheight, srcImage, dstImage, element_size, rowsize, myswap_bytes );
+          MipmapKernels.halveImagePackedPixel( 4, new Extract4444(), newwidth, newheight, srcImage, dstImage, element_size, rowsize, myswap_bytes );
             break;
         case( GL2.GL_UNSIGNED_SHORT_4_4_4_4_REV ):
-          HalveImage.halveImagePackedPixel( 4, new Extract4444rev(), newwidth, newheight, srcImage, dstImage, element_size, rowsize, myswap_bytes );
+          MipmapKernels.halveImagePackedPixel( 4, new Extract4444rev(), newwidth, newheight, srcImage, dstImage, element_size, rowsize, myswap_bytes );
             break;
         case( GL2.GL_UNSIGNED_SHORT_5_5_5_1 ):
-          HalveImage.halveImagePackedPixel( 4, new Extract5551(), newwidth, newheight, srcImage, dstImage, element_size, rowsize, myswap_bytes );
+          MipmapKernels.halveImagePackedPixel( 4, new Extract5551(), newwidth, newheight, srcImage, dstImage, element_size, rowsize, myswap_bytes );
             break;
         case( GL2.GL_UNSIGNED_SHORT_1_5_5_5_REV ):
-          HalveImage.halveImagePackedPixel( 4, new Extract1555rev(), newwidth, newheight, srcImage, dstImage, element_size, rowsize, myswap_bytes );
+          MipmapKernels.halveImagePackedPixel( 4, new Extract1555rev(), newwidth, newheight, srcImage, dstImage, element_size, rowsize, myswap_bytes );
             break;
         case( GL2.GL_UNSIGNED_INT_8_8_8_8 ):
-          HalveImage.halveImagePackedPixel( 4, new Extract8888(), newwidth, newheight, srcImage, dstImage, element_size, rowsize, myswap_bytes );
+          MipmapKernels.halveImagePackedPixel( 4, new Extract8888(), newwidth, newheight, srcImage, dstImage, element_size, rowsize, myswap_bytes );
             break;
         case( GL2.GL_UNSIGNED_INT_8_8_8_8_REV ):
-          HalveImage.halveImagePackedPixel( 4, new Extract8888rev(), newwidth, newheight, srcImage, dstImage, element_size, rowsize, myswap_bytes );
+          MipmapKernels.halveImagePackedPixel( 4, new Extract8888rev(), newwidth, newheight, srcImage, dstImage, element_size, rowsize, myswap_bytes );
             break;
         case( GL2.GL_UNSIGNED_INT_10_10_10_2 ):
-          HalveImage.halveImagePackedPixel( 4, new Extract1010102(), newwidth, newheight, srcImage, dstImage, element_size, rowsize, myswap_bytes );
+          MipmapKernels.halveImagePackedPixel( 4, new Extract1010102(), newwidth, newheight, srcImage, dstImage, element_size, rowsize, myswap_bytes );
             break;
         case( GL2.GL_UNSIGNED_INT_2_10_10_10_REV ):
-          HalveImage.halveImagePackedPixel( 4, new Extract2101010rev(), newwidth, newheight, srcImage, dstImage, element_size, rowsize, myswap_bytes );
+          MipmapKernels.halveImagePackedPixel( 4, new Extract2101010rev(), newwidth, newheight, srcImage, dstImage, element_size, rowsize, myswap_bytes );
             break;
         default:
           assert( false );
@@ -1125,7 +1125,7 @@ public class BuildMipmap {
                       usersImage, dstImage, elementSize, 
                       groupSize, rowSize, imageSize, myswapBytes );
             } else {
-              HalveImage.halveImage_ubyte( cmpts, width, height, usersImage,
+              MipmapKernels.halveImage_ubyte( cmpts, width, height, usersImage,
                       dstImage, elementSize, rowSize, groupSize );
             }
             break;
@@ -1135,7 +1135,7 @@ public class BuildMipmap {
                       usersImage, dstImage, elementSize, groupSize, rowSize,
                       imageSize, myswapBytes );
             } else {
-              HalveImage.halveImage_byte( cmpts, width, height, usersImage,
+              MipmapKernels.halveImage_byte( cmpts, width, height, usersImage,
                       dstImage, elementSize, rowSize, groupSize );
             }
             break;
@@ -1145,7 +1145,7 @@ public class BuildMipmap {
                       usersImage, dstImage, elementSize, groupSize, rowSize,
                       imageSize, myswapBytes );
             } else {
-              HalveImage.halveImage_ushort( cmpts, width, height, usersImage, 
+              MipmapKernels.halveImage_ushort( cmpts, width, height, usersImage, 
                       dstImage.asShortBuffer(), elementSize, rowSize, groupSize, myswapBytes );
             }
             break;
@@ -1155,7 +1155,7 @@ public class BuildMipmap {
                       usersImage, dstImage, elementSize, groupSize, rowSize,
                       imageSize, myswapBytes );
             } else {
-              HalveImage.halveImage_short( cmpts, width, height, usersImage,
+              MipmapKernels.halveImage_short( cmpts, width, height, usersImage,
                       dstImage.asShortBuffer(), elementSize, rowSize, groupSize, myswapBytes );
             }
             break;
@@ -1165,7 +1165,7 @@ public class BuildMipmap {
                       usersImage, dstImage, elementSize, groupSize, rowSize,
                       imageSize, myswapBytes );
             } else {
-              HalveImage.halveImage_uint( cmpts, width, height, usersImage,
+              MipmapKernels.halveImage_uint( cmpts, width, height, usersImage,
                       dstImage.asIntBuffer(), elementSize, rowSize, groupSize, myswapBytes );
             }
             break;
@@ -1175,7 +1175,7 @@ public class BuildMipmap {
                       usersImage, dstImage, elementSize, groupSize, rowSize,
                       imageSize, myswapBytes );
             } else {
-              HalveImage.halveImage_int( cmpts, width, height, usersImage,
+              MipmapKernels.halveImage_int( cmpts, width, height, usersImage,
                       dstImage.asIntBuffer(), elementSize, rowSize, groupSize, myswapBytes );
             }
             break;
@@ -1185,7 +1185,7 @@ public class BuildMipmap {
                       usersImage, dstImage, elementSize, groupSize, rowSize,
                       imageSize, myswapBytes );
             } else {
-              HalveImage.halveImage_float( cmpts, width, height, usersImage,
+              MipmapKernels.halveImage_float( cmpts, width, height, usersImage,
                       dstImage.asFloatBuffer(), elementSize, rowSize, groupSize, myswapBytes );
             }
             break;
@@ -1425,7 +1425,7 @@ public class BuildMipmap {
                     usersImage, dstImage, elementSize, groupSize, rowSize,
                     imageSize, myswapBytes );
           } else {
-            HalveImage.halveImage_ubyte( cmpts, width, height, usersImage,
+            MipmapKernels.halveImage_ubyte( cmpts, width, height, usersImage,
                     dstImage, elementSize, rowSize, groupSize );
           }
           break;
@@ -1435,7 +1435,7 @@ public class BuildMipmap {
                     usersImage, dstImage, elementSize, groupSize, rowSize,
                     imageSize, myswapBytes );
           } else {
-            HalveImage.halveImage_byte( cmpts, width, height, usersImage,
+            MipmapKernels.halveImage_byte( cmpts, width, height, usersImage,
                     dstImage, elementSize, rowSize, groupSize );
           }
           break;
@@ -1445,7 +1445,7 @@ public class BuildMipmap {
                     usersImage, dstImage, elementSize, groupSize, rowSize,
                     imageSize, myswapBytes );
           } else {
-            HalveImage.halveImage_ushort( cmpts, width, height, usersImage,
+            MipmapKernels.halveImage_ushort( cmpts, width, height, usersImage,
                     dstImage.asShortBuffer(), elementSize, rowSize, groupSize, myswapBytes );
           }
           break;
@@ -1455,7 +1455,7 @@ public class BuildMipmap {
                     usersImage, dstImage, elementSize, groupSize, rowSize,
                     imageSize, myswapBytes );
           } else {
-            HalveImage.halveImage_short( cmpts, width, height, usersImage,
+            MipmapKernels.halveImage_short( cmpts, width, height, usersImage,
                     dstImage.asShortBuffer(), elementSize, rowSize, groupSize, myswapBytes );
           }
           break;
@@ -1465,7 +1465,7 @@ public class BuildMipmap {
                     usersImage, dstImage, elementSize, groupSize, rowSize,
                     imageSize, myswapBytes );
           } else {
-            HalveImage.halveImage_uint( cmpts, width, height, usersImage,
+            MipmapKernels.halveImage_uint( cmpts, width, height, usersImage,
                     dstImage.asIntBuffer(), elementSize, rowSize, groupSize, myswapBytes );
           }
           break;
@@ -1475,7 +1475,7 @@ public class BuildMipmap {
                     usersImage, dstImage, elementSize, groupSize, rowSize,
                     imageSize, myswapBytes );
           } else {
-            HalveImage.halveImage_int( cmpts, width, height, usersImage,
+            MipmapKernels.halveImage_int( cmpts, width, height, usersImage,
                     dstImage.asIntBuffer(), elementSize, rowSize, groupSize, myswapBytes );
           }
           break;
@@ -1485,7 +1485,7 @@ public class BuildMipmap {
                     usersImage, dstImage, elementSize, groupSize, rowSize,
                     imageSize, myswapBytes );
           } else {
-            HalveImage.halveImage_float( cmpts, width, height, usersImage,
+            MipmapKernels.halveImage_float( cmpts, width, height, usersImage,
                     dstImage.asFloatBuffer(), elementSize, rowSize, groupSize, myswapBytes );
           }
           break;
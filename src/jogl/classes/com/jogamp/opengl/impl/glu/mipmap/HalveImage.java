@@ -632,7 +632,7 @@ public class HalveImage {
             buf += ( 0x00000000FFFFFFFF & Mipmap.GLU_SWAP_4_BYTES( datain.getInt() ) );
             datain.position( t + ysize + group_size );
             buf += ( 0x00000000FFFFFFFF & Mipmap.GLU_SWAP_4_BYTES( datain.getInt() ) );
-            temp /= 4;
+            temp = buf / 4;
             temp += 0.5;
             dataout.put( (int)temp );
             t += element_size;
@@ -890,6 +890,7 @@ public class HalveImage {
             datain.position( t + ysize );
             temp += datain.getFloat();
             datain.position( t + ysize + group_size );
+            temp += datain.getFloat();
             temp /= 4.0f;
             dataout.put( temp );
             t += element_size;
@@ -0,0 +1,879 @@
+/*
+ * License Applicability. Except to the extent portions of this file are
+ * made subject to an alternative license as permitted in the SGI Free
+ * Software License B, Version 2.0 (the "License"), the contents of this
+ * file are subject only to the provisions of the License. You may not use
+ * this file except in compliance with the License. You may obtain a copy
+ * of the License at Silicon Graphics, Inc., attn: Legal Services, 1600
+ * Amphitheatre Parkway, Mountain View, CA 94043-1351, or at:
+ * 
+ * http://oss.sgi.com/projects/FreeB
+ * 
+ * Note that, as provided in the License, the Software is distributed on an
+ * "AS IS" basis, with ALL EXPRESS AND IMPLIED WARRANTIES AND CONDITIONS
+ * DISCLAIMED, INCLUDING, WITHOUT LIMITATION, ANY IMPLIED WARRANTIES AND
+ * CONDITIONS OF MERCHANTABILITY, SATISFACTORY QUALITY, FITNESS FOR A
+ * PARTICULAR PURPOSE, AND NON-INFRINGEMENT.
+ * 
+ * NOTE:  The Original Code (as defined below) has been licensed to Sun
+ * Microsystems, Inc. ("Sun") under the SGI Free Software License B
+ * (Version 1.1), shown above ("SGI License").   Pursuant to Section
+ * 3.2(3) of the SGI License, Sun is distributing the Covered Code to
+ * you under an alternative license ("Alternative License").  This
+ * Alternative License includes all of the provisions of the SGI License
+ * except that Section 2.2 and 11 are omitted.  Any differences between
+ * the Alternative License and the SGI License are offered solely by Sun
+ * and not by SGI.
+ *
+ * Original Code. The Original Code is: OpenGL Sample Implementation,
+ * Version 1.2.1, released January 26, 2000, developed by Silicon Graphics,
+ * Inc. The Original Code is Copyright (c) 1991-2000 Silicon Graphics, Inc.
+ * Copyright in any portions created by third parties is as indicated
+ * elsewhere herein. All Rights Reserved.
+ * 
+ * Additional Notice Provisions: The application programming interfaces
+ * established by SGI in conjunction with the Original Code are The
+ * OpenGL(R) Graphics System: A Specification (Version 1.2.1), released
+ * April 1, 1999; The OpenGL(R) Graphics System Utility Library (Version
+ * 1.3), released November 4, 1998; and OpenGL(R) Graphics with the X
+ * Window System(R) (Version 1.3), released October 19, 1998. This software
+ * was created using the OpenGL(R) version 1.2.1 Sample Implementation
+ * published by SGI, but has not been independently verified as being
+ * compliant with the OpenGL(R) version 1.2.1 Specification.
+ */
+
+package com.jogamp.opengl.impl.glu.mipmap;
+
+import java.nio.*;
+
+/**
+ * Bulk access variants of the {@link HalveImage} and {@link ScaleInternal}
+ * kernels. Halving covers all component types and the packed pixel formats,
+ * scaling unsigned byte, unsigned short and float components.
+ * <p>
+ * Halving reads whole row strips into arrays, scaling uses absolute index
+ * accessors instead of moving the buffer position for every tap.
+ * The results are bit identical to the per element reference kernels,
+ * which are still used for the other scaling types and for 1D images.
+ * Images with many output components are processed by several threads,
+ * each one computing a band of rows.
+ * </p>
+ */
+public class MipmapKernels {
+
+  /** Minimum number of output components per thread */
+  private static final int PARALLEL_THRESHOLD = 128 * 1024;
+
+  private static final int UBYTE  = 0;
+  private static final int USHORT = 1;
+  private static final int FLOAT  = 2;
+
+  private static int maxThreads = Runtime.getRuntime().availableProcessors();
+
+  /** Sets the maximum number of threads used per image, 1 disables parallel processing. */
+  public static void setMaxThreads( int n ) {
+    maxThreads = Math.max( 1, n );
+  }
+
+  public static int getMaxThreads() {
+    return( maxThreads );
+  }
+
+  public static void halveImage_ubyte( final int components, int width, int height,
+                                      final ByteBuffer datain, final ByteBuffer dataout,
+                                      int element_size, final int ysize, final int group_size ) {
+    if( width == 1 || height == 1 || element_size != 1 || group_size != components ) {
+      HalveImage.halveImage_ubyte( components, width, height, datain, dataout, element_size, ysize, group_size );
+      return;
+    }
+    final int newwidth = width / 2;
+    final int newheight = height / 2;
+    final int rowBytes = newwidth * 2 * group_size;
+    // same row stepping as the reference kernel
+    final int rowStep = rowBytes + ysize;
+    final int outBytes = newwidth * components;
+    final int outPos = dataout.position();
+
+    runRows( new RowKernel() {
+        void rows( int from, int to ) {
+          ByteBuffer in = datain.duplicate();
+          ByteBuffer out = dataout.duplicate();
+          byte[] row0 = new byte[ rowBytes ];
+          byte[] row1 = new byte[ rowBytes ];
+          byte[] dst = new byte[ outBytes ];
+          for( int i = from; i < to; i++ ) {
+            in.position( i * rowStep );
+            in.get( row0 );
+            in.position( i * rowStep + ysize );
+            in.get( row1 );
+            // the sums are never negative, so >> 2 equals the reference's / 4
+            switch( components ) {
+              case 4:
+                for( int s = 0, d = 0; d < outBytes; s += 8, d += 4 ) {
+                  dst[d]     = (byte)( ( ( 0xFF & row0[s] )     + ( 0xFF & row0[s + 4] ) +
+                                         ( 0xFF & row1[s] )     + ( 0xFF & row1[s + 4] ) + 2 ) >> 2 );
+                  dst[d + 1] = (byte)( ( ( 0xFF & row0[s + 1] ) + ( 0xFF & row0[s + 5] ) +
+                                         ( 0xFF & row1[s + 1] ) + ( 0xFF & row1[s + 5] ) + 2 ) >> 2 );
+                  dst[d + 2] = (byte)( ( ( 0xFF & row0[s + 2] ) + ( 0xFF & row0[s + 6] ) +
+                                         ( 0xFF & row1[s + 2] ) + ( 0xFF & row1[s + 6] ) + 2 ) >> 2 );
+                  dst[d + 3] = (byte)( ( ( 0xFF & row0[s + 3] ) + ( 0xFF & row0[s + 7] ) +
+                                         ( 0xFF & row1[s + 3] ) + ( 0xFF & row1[s + 7] ) + 2 ) >> 2 );
+                }
+                break;
+              case 3:
+                for( int s = 0, d = 0; d < outBytes; s += 6, d += 3 ) {
+                  dst[d]     = (byte)( ( ( 0xFF & row0[s] )     + ( 0xFF & row0[s + 3] ) +
+                                         ( 0xFF & row1[s] )     + ( 0xFF & row1[s + 3] ) + 2 ) >> 2 );
+                  dst[d + 1] = (byte)( ( ( 0xFF & row0[s + 1] ) + ( 0xFF & row0[s + 4] ) +
+                                         ( 0xFF & row1[s + 1] ) + ( 0xFF & row1[s + 4] ) + 2 ) >> 2 );
+                  dst[d + 2] = (byte)( ( ( 0xFF & row0[s + 2] ) + ( 0xFF & row0[s + 5] ) +
+                                         ( 0xFF & row1[s + 2] ) + ( 0xFF & row1[s + 5] ) + 2 ) >> 2 );
+                }
+                break;
+              default:
+                for( int s = 0, d = 0; d < outBytes; s += group_size ) {
+                  for( int e = s + components; s < e; s++, d++ ) {
+                    dst[d] = (byte)( ( ( 0xFF & row0[s] ) + ( 0xFF & row0[s + group_size] ) +
+                                       ( 0xFF & row1[s] ) + ( 0xFF & row1[s + group_size] ) + 2 ) >> 2 );
+                  }
+                }
+            }
+            out.position( outPos + i * outBytes );
+            out.put( dst );
+          }
+        }
+      }, newheight, outBytes );
+    dataout.position( outPos + newheight * outBytes );
+  }
+
+  public static void halveImage_ushort( final int components, int width, int height,
+                                       final ByteBuffer datain, final ShortBuffer dataout,
+                                       int element_size, final int ysize, final int group_size,
+                                       final boolean myswap_bytes ) {
+    if( width == 1 || height == 1 || element_size != 2 || group_size != components * 2 ) {
+      HalveImage.halveImage_ushort( components, width, height, datain, dataout, element_size,
+                                    ysize, group_size, myswap_bytes );
+      return;
+    }
+    final int newwidth = width / 2;
+    final int newheight = height / 2;
+    final int rowShorts = newwidth * 2 * components;
+    final int rowStep = rowShorts * 2 + ysize;
+    final int groupShorts = components;
+    final int outShorts = newwidth * components;
+    final int outPos = dataout.position();
+
+    runRows( new RowKernel() {
+        void rows( int from, int to ) {
+          ByteBuffer in = datain.duplicate();
+          ShortBuffer out = dataout.duplicate();
+          short[] row0 = new short[ rowShorts ];
+          short[] row1 = new short[ rowShorts ];
+          short[] dst = new short[ outShorts ];
+          for( int i = from; i < to; i++ ) {
+            getShorts( in, datain.order(), i * rowStep, row0 );
+            getShorts( in, datain.order(), i * rowStep + ysize, row1 );
+            if( myswap_bytes ) {
+              swapShorts( row0 );
+              swapShorts( row1 );
+            }
+            int s = 0;
+            int d = 0;
+            for( int j = 0; j < newwidth; j++ ) {
+              for( int e = s + components; s < e; s++, d++ ) {
+                dst[d] = (short)( ( ( 0xFFFF & row0[s] ) + ( 0xFFFF & row0[s + groupShorts] ) +
+                                    ( 0xFFFF & row1[s] ) + ( 0xFFFF & row1[s + groupShorts] ) + 2 ) / 4 );
+              }
+              s += groupShorts;
+            }
+            out.position( outPos + i * outShorts );
+            out.put( dst );
+          }
+        }
+      }, newheight, outShorts );
+    dataout.position( outPos + newheight * outShorts );
+  }
+
+  public static void halveImage_byte( final int components, int width, int height,
+                                     final ByteBuffer datain, final ByteBuffer dataout,
+                                     int element_size, final int ysize, final int group_size ) {
+    if( width == 1 || height == 1 || element_size != 1 || group_size != components ) {
+      HalveImage.halveImage_byte( components, width, height, datain, dataout, element_size, ysize, group_size );
+      return;
+    }
+    final int newwidth = width / 2;
+    final int newheight = height / 2;
+    final int rowBytes = newwidth * 2 * group_size;
+    final int rowStep = rowBytes + ysize;
+    final int outBytes = newwidth * components;
+    final int outPos = dataout.position();
+
+    runRows( new RowKernel() {
+        void rows( int from, int to ) {
+          ByteBuffer in = datain.duplicate();
+          ByteBuffer out = dataout.duplicate();
+          byte[] row0 = new byte[ rowBytes ];
+          byte[] row1 = new byte[ rowBytes ];
+          byte[] dst = new byte[ outBytes ];
+          for( int i = from; i < to; i++ ) {
+            in.position( i * rowStep );
+            in.get( row0 );
+            in.position( i * rowStep + ysize );
+            in.get( row1 );
+            for( int s = 0, d = 0; d < outBytes; s += group_size ) {
+              for( int e = s + components; s < e; s++, d++ ) {
+                // byte arithmetic of the reference kernel, wrapping included
+                byte temp = row0[s];
+                temp += row0[s + group_size];
+                temp += row1[s];
+                temp += row1[s + group_size];
+                temp += 2;
+                temp /= 4;
+                dst[d] = temp;
+              }
+            }
+            out.position( outPos + i * outBytes );
+            out.put( dst );
+          }
+        }
+      }, newheight, outBytes );
+    dataout.position( outPos + newheight * outBytes );
+  }
+
+  public static void halveImage_short( final int components, int width, int height,
+                                      final ByteBuffer datain, final ShortBuffer dataout,
+                                      int element_size, final int ysize, final int group_size,
+                                      final boolean myswap_bytes ) {
+    if( width == 1 || height == 1 || element_size != 2 || group_size != components * 2 ) {
+      HalveImage.halveImage_short( components, width, height, datain, dataout, element_size,
+                                   ysize, group_size, myswap_bytes );
+      return;
+    }
+    final int newwidth = width / 2;
+    final int newheight = height / 2;
+    final int rowShorts = newwidth * 2 * components;
+    final int rowStep = rowShorts * 2 + ysize;
+    final int groupShorts = components;
+    final int outShorts = newwidth * components;
+    final int outPos = dataout.position();
+
+    runRows( new RowKernel() {
+        void rows( int from, int to ) {
+          ByteBuffer in = datain.duplicate();
+          ShortBuffer out = dataout.duplicate();
+          short[] row0 = new short[ rowShorts ];
+          short[] row1 = new short[ rowShorts ];
+          short[] dst = new short[ outShorts ];
+          for( int i = from; i < to; i++ ) {
+            getShorts( in, datain.order(), i * rowStep, row0 );
+            getShorts( in, datain.order(), i * rowStep + ysize, row1 );
+            if( myswap_bytes ) {
+              swapShorts( row0 );
+              swapShorts( row1 );
+            }
+            for( int s = 0, d = 0; d < outShorts; s += groupShorts ) {
+              for( int e = s + components; s < e; s++, d++ ) {
+                // short arithmetic of the reference kernel, wrapping included
+                short temp = row0[s];
+                temp += row0[s + groupShorts];
+                temp += row1[s];
+                temp += row1[s + groupShorts];
+                temp += 2;
+                temp /= 4;
+                dst[d] = temp;
+              }
+            }
+            out.position( outPos + i * outShorts );
+            out.put( dst );
+          }
+        }
+      }, newheight, outShorts );
+    dataout.position( outPos + newheight * outShorts );
+  }
+
+  public static void halveImage_uint( final int components, int width, int height,
+                                     final ByteBuffer datain, final IntBuffer dataout,
+                                     int element_size, final int ysize, final int group_size,
+                                     final boolean myswap_bytes ) {
+    if( width == 1 || height == 1 || element_size != 4 || group_size != components * 4 ) {
+      HalveImage.halveImage_uint( components, width, height, datain, dataout, element_size,
+                                  ysize, group_size, myswap_bytes );
+      return;
+    }
+    final int newwidth = width / 2;
+    final int newheight = height / 2;
+    final int rowInts = newwidth * 2 * components;
+    final int rowStep = rowInts * 4 + ysize;
+    final int groupInts = components;
+    final int outInts = newwidth * components;
+    final int outPos = dataout.position();
+
+    runRows( new RowKernel() {
+        void rows( int from, int to ) {
+          ByteBuffer in = datain.duplicate();
+          IntBuffer out = dataout.duplicate();
+          int[] row0 = new int[ rowInts ];
+          int[] row1 = new int[ rowInts ];
+          int[] dst = new int[ outInts ];
+          for( int i = from; i < to; i++ ) {
+            getInts( in, datain.order(), i * rowStep, row0 );
+            getInts( in, datain.order(), i * rowStep + ysize, row1 );
+            for( int s = 0, d = 0; d < outInts; s += groupInts ) {
+              for( int e = s + components; s < e; s++, d++ ) {
+                double temp;
+                if( myswap_bytes ) {
+                  // the reference masks swapped values with an int constant,
+                  // so they are summed as signed
+                  temp = Mipmap.GLU_SWAP_4_BYTES( row0[s] );
+                  temp += Mipmap.GLU_SWAP_4_BYTES( row0[s + groupInts] );
+                  temp += Mipmap.GLU_SWAP_4_BYTES( row1[s] );
+                  temp += Mipmap.GLU_SWAP_4_BYTES( row1[s + groupInts] );
+                } else {
+                  temp = ( 0x000000007FFFFFFFL & row0[s] );
+                  temp += ( 0x000000007FFFFFFFL & row0[s + groupInts] );
+                  temp += ( 0x000000007FFFFFFFL & row1[s] );
+                  temp += ( 0x000000007FFFFFFFL & row1[s + groupInts] );
+                }
+                dst[d] = (int)( ( temp / 4 ) + 0.5 );
+              }
+            }
+            out.position( outPos + i * outInts );
+            out.put( dst );
+          }
+        }
+      }, newheight, outInts );
+    dataout.position( outPos + newheight * outInts );
+  }
+
+  public static void halveImage_int( final int components, int width, int height,
+                                    final ByteBuffer datain, final IntBuffer dataout,
+                                    int element_size, final int ysize, final int group_size,
+                                    final boolean myswap_bytes ) {
+    if( width == 1 || height == 1 || element_size != 4 || group_size != components * 4 ) {
+      HalveImage.halveImage_int( components, width, height, datain, dataout, element_size,
+                                 ysize, group_size, myswap_bytes );
+      return;
+    }
+    final int newwidth = width / 2;
+    final int newheight = height / 2;
+    final int rowInts = newwidth * 2 * components;
+    final int rowStep = rowInts * 4 + ysize;
+    final int groupInts = components;
+    final int outInts = newwidth * components;
+    final int outPos = dataout.position();
+
+    runRows( new RowKernel() {
+        void rows( int from, int to ) {
+          ByteBuffer in = datain.duplicate();
+          IntBuffer out = dataout.duplicate();
+          int[] row0 = new int[ rowInts ];
+          int[] row1 = new int[ rowInts ];
+          int[] dst = new int[ outInts ];
+          for( int i = from; i < to; i++ ) {
+            getInts( in, datain.order(), i * rowStep, row0 );
+            getInts( in, datain.order(), i * rowStep + ysize, row1 );
+            for( int s = 0, d = 0; d < outInts; s += groupInts ) {
+              for( int e = s + components; s < e; s++, d++ ) {
+                if( myswap_bytes ) {
+                  // the reference sums swapped values as float
+                  float buf = Mipmap.GLU_SWAP_4_BYTES( row0[s] );
+                  buf += Mipmap.GLU_SWAP_4_BYTES( row0[s + groupInts] );
+                  buf += Mipmap.GLU_SWAP_4_BYTES( row1[s] );
+                  buf += Mipmap.GLU_SWAP_4_BYTES( row1[s + groupInts] );
+                  dst[d] = (int)( ( buf / 4.0f ) + 0.5f );
+                } else {
+                  int temp = row0[s] + row0[s + groupInts] + row1[s] + row1[s + groupInts];
+                  dst[d] = (int)( ( temp / 4.0f ) + 0.5f );
+                }
+              }
+            }
+            out.position( outPos + i * outInts );
+            out.put( dst );
+          }
+        }
+      }, newheight, outInts );
+    dataout.position( outPos + newheight * outInts );
+  }
+
+  public static void halveImage_float( final int components, int width, int height,
+                                      final ByteBuffer datain, final FloatBuffer dataout,
+                                      int element_size, final int ysize, final int group_size,
+                                      final boolean myswap_bytes ) {
+    if( width == 1 || height == 1 || element_size != 4 || group_size != components * 4 ) {
+      HalveImage.halveImage_float( components, width, height, datain, dataout, element_size,
+                                   ysize, group_size, myswap_bytes );
+      return;
+    }
+    final int newwidth = width / 2;
+    final int newheight = height / 2;
+    final int rowFloats = newwidth * 2 * components;
+    final int rowStep = rowFloats * 4 + ysize;
+    final int groupFloats = components;
+    final int outFloats = newwidth * components;
+    final int outPos = dataout.position();
+
+    runRows( new RowKernel() {
+        void rows( int from, int to ) {
+          ByteBuffer in = datain.duplicate();
+          FloatBuffer out = dataout.duplicate();
+          float[] row0 = new float[ rowFloats ];
+          float[] row1 = new float[ rowFloats ];
+          float[] dst = new float[ outFloats ];
+          for( int i = from; i < to; i++ ) {
+            getFloats( in, datain.order(), i * rowStep, row0 );
+            getFloats( in, datain.order(), i * rowStep + ysize, row1 );
+            if( myswap_bytes ) {
+              swapFloats( row0 );
+              swapFloats( row1 );
+            }
+            int s = 0;
+            int d = 0;
+            for( int j = 0; j < newwidth; j++ ) {
+              for( int e = s + components; s < e; s++, d++ ) {
+                float temp = row0[s];
+                temp += row0[s + groupFloats];
+                temp += row1[s];
+                temp += row1[s + groupFloats];
+                dst[d] = temp / 4.0f;
+              }
+              s += groupFloats;
+            }
+            out.position( outPos + i * outFloats );
+            out.put( dst );
+          }
+        }
+      }, newheight, outFloats );
+    dataout.position( outPos + newheight * outFloats );
+  }
+
+  /**
+   * Halves packed pixels like {@link HalveImage#halveImagePackedPixel}, reusing
+   * the component arrays instead of allocating them for every output pixel.
+   * The extract is shared by all threads, which is fine since the extract
+   * implementations keep no state.
+   */
+  public static void halveImagePackedPixel( final int components, final Extract extract,
+                                            int width, int height,
+                                            final ByteBuffer datain, final ByteBuffer dataout,
+                                            final int pixelSizeInBytes, final int rowSizeInBytes,
+                                            final boolean isSwap ) {
+    if( width == 1 || height == 1 ) {
+      HalveImage.halveImagePackedPixel( components, extract, width, height, datain, dataout,
+                                        pixelSizeInBytes, rowSizeInBytes, isSwap );
+      return;
+    }
+    final int halfWidth = width / 2;
+    final int halfHeight = height / 2;
+    final int padBytes = rowSizeInBytes - ( width * pixelSizeInBytes );
+    // same row stepping as the reference kernel
+    final int rowStep = halfWidth * 2 * pixelSizeInBytes + padBytes + rowSizeInBytes;
+
+    runRows( new RowKernel() {
+        void rows( int from, int to ) {
+          // duplicate() resets the byte order, which the extracts depend on
+          ByteBuffer in = datain.duplicate().order( datain.order() );
+          ByteBuffer out = dataout.duplicate().order( dataout.order() );
+          float[] totals = new float[4];
+          float[][] extractTotals = new float[4][4];
+          for( int ii = from; ii < to; ii++ ) {
+            int src = ii * rowStep;
+            int outIndex = ii * halfWidth;
+            for( int jj = 0; jj < halfWidth; jj++ ) {
+              in.position( src );
+              extract.extract( isSwap, in, extractTotals[0] );
+              in.position( src + pixelSizeInBytes );
+              extract.extract( isSwap, in, extractTotals[1] );
+              in.position( src + rowSizeInBytes );
+              extract.extract( isSwap, in, extractTotals[2] );
+              in.position( src + rowSizeInBytes + pixelSizeInBytes );
+              extract.extract( isSwap, in, extractTotals[3] );
+              for( int cc = 0; cc < components; cc++ ) {
+                totals[cc] = 0.0f;
+                for( int kk = 0; kk < 4; kk++ ) {
+                  totals[cc] += extractTotals[kk][cc];
+                }
+                totals[cc] /= 4;
+              }
+              extract.shove( totals, outIndex, out );
+              outIndex++;
+              src += pixelSizeInBytes + pixelSizeInBytes;
+            }
+          }
+        }
+      }, halfHeight, halfWidth * components );
+  }
+
+  public static void scale_internal_ubyte( int components, int widthin, int heightin,
+                              ByteBuffer datain, int widthout, int heightout,
+                              ByteBuffer dataout, int element_size, int ysize, int group_size ) {
+    if( (widthin == (widthout * 2)) && (heightin == (heightout * 2)) ) {
+      halveImage_ubyte( components, widthin, heightin, datain, dataout,
+                        element_size, ysize, group_size );
+      return;
+    }
+    scaleImpl( UBYTE, false, components, widthin, heightin, datain, widthout, heightout,
+               dataout, element_size, ysize, group_size );
+  }
+
+  public static void scale_internal_ushort( int components, int widthin, int heightin,
+                              ByteBuffer datain, int widthout, int heightout,
+                              ShortBuffer dataout, int element_size, int ysize,
+                              int group_size, boolean myswap_bytes ) {
+    if( (widthin == (widthout * 2)) && (heightin == (heightout * 2)) ) {
+      halveImage_ushort( components, widthin, heightin, datain, dataout,
+                         element_size, ysize, group_size, myswap_bytes );
+      return;
+    }
+    scaleImpl( USHORT, myswap_bytes, components, widthin, heightin, datain, widthout, heightout,
+               dataout, element_size, ysize, group_size );
+  }
+
+  public static void scale_internal_float( int components, int widthin, int heightin,
+                              ByteBuffer datain, int widthout, int heightout,
+                              FloatBuffer dataout, int element_size, int ysize,
+                              int group_size, boolean myswap_bytes ) {
+    if( (widthin == (widthout * 2)) && (heightin == (heightout * 2)) ) {
+      halveImage_float( components, widthin, heightin, datain, dataout,
+                        element_size, ysize, group_size, myswap_bytes );
+      return;
+    }
+    scaleImpl( FLOAT, myswap_bytes, components, widthin, heightin, datain, widthout, heightout,
+               dataout, element_size, ysize, group_size );
+  }
+
+  /**
+   * Box filter of the ScaleInternal reference kernels, performing the same
+   * floating point operations in the same order.
+   */
+  private static void scaleImpl( final int type, final boolean myswap_bytes,
+                                 final int components, final int widthin, final int heightin,
+                                 final ByteBuffer datain, final int widthout, final int heightout,
+                                 final Buffer dataout, final int element_size, final int ysize,
+                                 final int group_size ) {
+    final float convy = (float)heightin / heightout;
+    final float convx = (float)widthin / widthout;
+    final int convy_int = (int)Math.floor( convy );
+    final float convy_float = convy - convy_int;
+    final int convx_int = (int)Math.floor( convx );
+    final float convx_float = convx - convx_int;
+    final float area = convx * convy;
+
+    runRows( new RowKernel() {
+        void rows( int from, int to ) {
+          float percent;
+          // Max components in a format is 4, so...
+          float[] totals = new float[4];
+          int j, k, xindex;
+          int temp, temp0;
+          int temp_index;
+          int outindex;
+          int lowx_int, highx_int;
+          float x_percent, y_percent;
+          float lowx_float, highx_float;
+          int l, m;
+          int left, right;
+          ByteBuffer out = ( type == UBYTE ) ? ((ByteBuffer)dataout).duplicate() : null;
+          ShortBuffer outs = ( type == USHORT ) ? ((ShortBuffer)dataout).duplicate() : null;
+          FloatBuffer outf = ( type == FLOAT ) ? ((FloatBuffer)dataout).duplicate() : null;
+
+          int lowy_int = 0;
+          float lowy_float = 0.0f;
+          int highy_int = convy_int;
+          float highy_float = convy_float;
+
+          for( int i = 0; i < to; i++ ) {
+            // Clamp here to be sure we don't read beyond input buffer.
+            if (highy_int >= heightin)
+              highy_int = heightin - 1;
+            if( i >= from ) {
+              lowx_int = 0;
+              lowx_float = 0.0f;
+              highx_int = convx_int;
+              highx_float = convx_float;
+
+              for( j = 0; j < widthout; j++ ) {
+                totals[0] = totals[1] = totals[2] = totals[3] = 0.0f;
+
+                // caulate the value for pixels in the 1st row
+                xindex = lowx_int * group_size;
+
+                if( ( highy_int > lowy_int ) && ( highx_int > lowx_int ) ) {
+
+                  y_percent = 1 - lowy_float;
+                  temp = xindex + lowy_int * ysize;
+                  percent = y_percent * ( 1 - lowx_float );
+                  for( k = 0, temp_index = temp; k < components; k++, temp_index += element_size ) {
+                    totals[k] += sample( datain, type, myswap_bytes, temp_index ) * percent;
+                  }
+                  left = temp;
+                  for( l = lowx_int + 1; l < highx_int; l++ ) {
+                    temp += group_size;
+                    for( k = 0, temp_index = temp; k < components; k++, temp_index += element_size ) {
+                      totals[k] += sample( datain, type, myswap_bytes, temp_index ) * y_percent;
+                    }
+                  }
+                  temp += group_size;
+                  right = temp;
+                  percent = y_percent * highx_float;
+                  for( k = 0, temp_index = temp; k < components; k++, temp_index += element_size ) {
+                    totals[k] += sample( datain, type, myswap_bytes, temp_index ) * percent;
+                  }
+
+                  // calculate the value for pixels in the last row
+                  y_percent = highy_float;
+                  percent = y_percent * ( 1 - lowx_float );
+                  temp = xindex + highy_int * ysize;
+                  for( k = 0, temp_index = temp; k < components; k++, temp_index += element_size ) {
+                    totals[k] += sample( datain, type, myswap_bytes, temp_index ) * percent;
+                  }
+                  for( l = lowx_int + 1; l < highx_int; l++ ) {
+                    temp += group_size;
+                    for( k = 0, temp_index = temp; k < components; k++, temp_index += element_size ) {
+                      totals[k] += sample( datain, type, myswap_bytes, temp_index ) * y_percent;
+                    }
+                  }
+                  temp += group_size;
+                  percent = y_percent * highx_float;
+                  for( k = 0, temp_index = temp; k < components; k++, temp_index += element_size ) {
+                    totals[k] += sample( datain, type, myswap_bytes, temp_index ) * percent;
+                  }
+
+                  // calculate the value for the pixels in the 1st and last column
+                  for( m = lowy_int + 1; m < highy_int; m++ ) {
+                    left += ysize;
+                    right += ysize;
+                    for( k = 0; k < components; k++, left += element_size, right += element_size ) {
+                      if( type == FLOAT ) {
+                        // the float reference kernel accumulates both taps separately
+                        totals[k] += sample( datain, type, myswap_bytes, left ) * ( 1 - lowx_float );
+                        totals[k] += sample( datain, type, myswap_bytes, right ) * highx_float;
+                      } else {
+                        float f = sample( datain, type, myswap_bytes, left ) * ( 1 - lowx_float );
+                        f += sample( datain, type, myswap_bytes, right ) * highx_float;
+                        totals[k] += f;
+                      }
+                    }
+                  }
+                } else if( highy_int > lowy_int ) {
+                  x_percent = highx_float - lowx_float;
+                  percent = ( 1 - lowy_float ) * x_percent;
+                  temp = xindex + (lowy_int * ysize);
+                  for( k = 0, temp_index = temp; k < components; k++, temp_index += element_size ) {
+                    totals[k] += sample( datain, type, myswap_bytes, temp_index ) * percent;
+                  }
+                  for( m = lowy_int + 1; m < highy_int; m++ ) {
+                    temp += ysize;
+                    for( k = 0, temp_index = temp; k < components; k++, temp_index += element_size ) {
+                      totals[k] += sample( datain, type, myswap_bytes, temp_index ) * x_percent;
+                    }
+                  }
+                  percent = x_percent * highy_float;
+                  temp += ysize;
+                  for( k = 0, temp_index = temp; k < components; k++, temp_index += element_size ) {
+                    totals[k] += sample( datain, type, myswap_bytes, temp_index ) * percent;
+                  }
+                } else if( highx_int > lowx_int ) {
+                  y_percent = highy_float - lowy_float;
+                  percent = ( 1 - lowx_float ) * y_percent;
+                  temp = xindex + (lowy_int * ysize);
+                  for( k = 0, temp_index = temp; k < components; k++, temp_index += element_size ) {
+                    totals[k] += sample( datain, type, myswap_bytes, temp_index ) * percent;
+                  }
+                  for( l = lowx_int + 1; l < highx_int; l++ ) {
+                    temp += group_size;
+                    for( k = 0, temp_index = temp; k < components; k++, temp_index += element_size ) {
+                      totals[k] += sample( datain, type, myswap_bytes, temp_index ) * y_percent;
+                    }
+                  }
+                  temp += group_size;
+                  percent = y_percent * highx_float;
+                  for( k = 0, temp_index = temp; k < components; k++, temp_index += element_size ) {
+                    totals[k] += sample( datain, type, myswap_bytes, temp_index ) * percent;
+                  }
+                } else {
+                  percent = ( highy_float - lowy_float ) * ( highx_float - lowx_float );
+                  temp = xindex + (lowy_int * ysize);
+                  for( k = 0, temp_index = temp; k < components; k++, temp_index += element_size ) {
+                    totals[k] += sample( datain, type, myswap_bytes, temp_index ) * percent;
+                  }
+                }
+
+                // this is for the pixels in the body
+                temp0 = xindex + group_size + ( lowy_int + 1 ) * ysize;
+                for( m = lowy_int + 1; m < highy_int; m++ ) {
+                  temp = temp0;
+                  for( l = lowx_int + 1; l < highx_int; l++ ) {
+                    for( k = 0, temp_index = temp; k < components; k++, temp_index += element_size ) {
+                      totals[k] += sample( datain, type, myswap_bytes, temp_index );
+                    }
+                    temp += group_size;
+                  }
+                  temp0 += ysize;
+                }
+
+                outindex = ( j + ( i * widthout ) ) * components;
+                for( k = 0; k < components; k++ ) {
+                  switch( type ) {
+                    case UBYTE:
+                      out.put( outindex + k, (byte)(totals[k] / area) );
+                      break;
+                    case USHORT:
+                      outs.put( outindex + k, (short)(totals[k] / area) );
+                      break;
+                    default:
+                      outf.put( outindex + k, totals[k] / area );
+                  }
+                }
+                lowx_int = highx_int;
+                lowx_float = highx_float;
+                highx_int += convx_int;
+                highx_float += convx_float;
+                if( highx_float > 1.0f ) {
+                  highx_float -= 1.0f;
+                  highx_int++;
+                }
+
+                // Clamp to make sure we don't run off the right edge
+                if (highx_int > widthin - 1) {
+                  int delta = (highx_int - widthin + 1);
+                  lowx_int -= delta;
+                  highx_int -= delta;
+                }
+              }
+            }
+            lowy_int = highy_int;
+            lowy_float = highy_float;
+            highy_int += convy_int;
+            highy_float += convy_float;
+            if( highy_float > 1.0f ) {
+              highy_float -= 1.0f;
+              highy_int++;
+            }
+          }
+        }
+      }, heightout, widthout * components );
+    dataout.position( widthout * heightout * components );
+  }
+
+  private static float sample( ByteBuffer datain, int type, boolean myswap_bytes, int index ) {
+    switch( type ) {
+      case UBYTE:
+        return( 0x000000FF & datain.get( index ) );
+      case USHORT:
+        if( myswap_bytes ) {
+          return( 0x0000FFFF & Mipmap.GLU_SWAP_2_BYTES( datain.getShort( index ) ) );
+        }
+        return( 0x0000FFFF & datain.getShort( index ) );
+      default:
+        if( myswap_bytes ) {
+          return( Mipmap.GLU_SWAP_4_BYTES( datain.getFloat( index ) ) );
+        }
+        return( datain.getFloat( index ) );
+    }
+  }
+
+  private static void getShorts( ByteBuffer in, ByteOrder order, int pos, short[] dst ) {
+    in.position( pos );
+    in.slice().order( order ).asShortBuffer().get( dst );
+  }
+
+  private static void getInts( ByteBuffer in, ByteOrder order, int pos, int[] dst ) {
+    in.position( pos );
+    in.slice().order( order ).asIntBuffer().get( dst );
+  }
+
+  private static void getFloats( ByteBuffer in, ByteOrder order, int pos, float[] dst ) {
+    in.position( pos );
+    in.slice().order( order ).asFloatBuffer().get( dst );
+  }
+
+  private static void swapShorts( short[] a ) {
+    for( int i = 0; i < a.length; i++ ) {
+      a[i] = Mipmap.GLU_SWAP_2_BYTES( a[i] );
+    }
+  }
+
+  private static void swapFloats( float[] a ) {
+    for( int i = 0; i < a.length; i++ ) {
+      a[i] = Mipmap.GLU_SWAP_4_BYTES( a[i] );
+    }
+  }
+
+  /** Computes the output rows [from, to) */
+  private static abstract class RowKernel {
+    abstract void rows( int from, int to );
+  }
+
+  private static class RowWorker extends Thread {
+    private final RowKernel kernel;
+    private final int from, to;
+    Throwable error;
+
+    RowWorker( RowKernel kernel, int from, int to ) {
+      super( "MipmapKernels-" + from );
+      this.kernel = kernel;
+      this.from = from;
+      this.to = to;
+      setDaemon( true );
+    }
+
+    public void run() {
+      try {
+        kernel.rows( from, to );
+      } catch( Throwable t ) {
+        error = t;
+      }
+    }
+  }
+
+  /**
+   * Runs the kernel over all rows, split into bands over several threads
+   * if there are enough output components per row.
+   */
+  private static void runRows( RowKernel kernel, int rows, int componentsPerRow ) {
+    int threads = (int)Math.min( Math.min( maxThreads, rows ),
+                                 ( (long)rows * componentsPerRow ) / PARALLEL_THRESHOLD );
+    if( threads <= 1 ) {
+      kernel.rows( 0, rows );
+      return;
+    }
+    int band = ( rows + threads - 1 ) / threads;
+    RowWorker[] workers = new RowWorker[ threads - 1 ];
+    int n = 0;
+    for( int from = band; from < rows; from += band ) {
+      workers[n] = new RowWorker( kernel, from, Math.min( rows, from + band ) );
+      workers[n++].start();
+    }
+    Throwable error = null;
+    try {
+      kernel.rows( 0, band );
+    } catch( Throwable t ) {
+      error = t;
+    }
+    boolean interrupted = false;
+    for( int i = 0; i < n; i++ ) {
+      while( workers[i].isAlive() ) {
+        try {
+          workers[i].join();
+        } catch( InterruptedException ie ) {
+          interrupted = true;
+        }
+      }
+      if( null == error ) {
+        error = workers[i].error;
+      }
+    }
+    if( interrupted ) {
+      Thread.currentThread().interrupt();
+    }
+    if( error instanceof RuntimeException ) {
+      throw (RuntimeException)error;
+    }
+    if( error instanceof Error ) {
+      throw (Error)error;
+    }
+    if( null != error ) {
+      throw new RuntimeException( error.toString() );
+    }
+  }
+}
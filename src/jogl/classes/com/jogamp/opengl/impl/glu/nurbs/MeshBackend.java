@@ -0,0 +1,61 @@
+/**
+ * Copyright 2010 JogAmp Community. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are
+ * permitted provided that the following conditions are met:
+ * 
+ *    1. Redistributions of source code must retain the above copyright notice, this list of
+ *       conditions and the following disclaimer.
+ * 
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *       of conditions and the following disclaimer in the documentation and/or other materials
+ *       provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY JogAmp Community ``AS IS'' AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL JogAmp Community OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are those of the
+ * authors and should not be interpreted as representing official policies, either expressed
+ * or implied, of JogAmp Community.
+ */
+
+package com.jogamp.opengl.impl.glu.nurbs;
+
+/**
+ * Backend evaluating surfaces on the CPU into a {@link NurbsMesh}.
+ * Curves are not supported.
+ */
+public class MeshBackend extends Backend {
+
+  /**
+   * Evaluator collecting the mesh
+   */
+  private MeshSurfaceEvaluator meshEvaluator;
+
+  /**
+   * Makes new backend
+   * @param mapdesc vertex map to evaluate
+   * @param tolerance maximum distance between mesh and surface in object
+   *                  coordinates, 0 to use the subdivider's grid
+   */
+  public MeshBackend(Mapdesc mapdesc, float tolerance) {
+    super();
+    meshEvaluator = new MeshSurfaceEvaluator(mapdesc, tolerance);
+    surfaceEvaluator = meshEvaluator;
+  }
+
+  /**
+   * Returns the mesh of the surfaces drawn so far
+   * @return mesh
+   */
+  public NurbsMesh getMesh() {
+    return meshEvaluator.getMesh();
+  }
+}
@@ -0,0 +1,517 @@
+/**
+ * Copyright 2010 JogAmp Community. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are
+ * permitted provided that the following conditions are met:
+ * 
+ *    1. Redistributions of source code must retain the above copyright notice, this list of
+ *       conditions and the following disclaimer.
+ * 
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *       of conditions and the following disclaimer in the documentation and/or other materials
+ *       provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY JogAmp Community ``AS IS'' AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL JogAmp Community OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are those of the
+ * authors and should not be interpreted as representing official policies, either expressed
+ * or implied, of JogAmp Community.
+ */
+
+package com.jogamp.opengl.impl.glu.nurbs;
+
+/**
+ * Surface evaluator computing the vertex map of each bezier patch on the
+ * CPU and collecting the result into a {@link NurbsMesh}, instead of
+ * issuing OpenGL evaluator calls.
+ * With a positive tolerance the number of steps of every patch is chosen
+ * from the second differences of its control net, so that flat patches
+ * get a single quad and strongly curved ones are refined until the
+ * estimated distance between triangles and surface is below the
+ * tolerance; otherwise the grid requested by the subdivider is used.
+ */
+public class MeshSurfaceEvaluator implements SurfaceEvaluator {
+
+  /**
+   * Maximum number of steps per patch and direction
+   */
+  public static final int MAX_STEPS = 512;
+
+  /**
+   * Evaluated vertex map
+   */
+  private final Mapdesc mapdesc;
+
+  /**
+   * Maximum distance between mesh and surface, 0 for grid sampling
+   */
+  private final float tolerance;
+
+  /**
+   * Control points of the current patch, coordinates of point (i, j)
+   * start at (i * vorder + j) * hcoords
+   */
+  private float[] cpts = new float[0];
+
+  private int hcoords, uorder, vorder;
+
+  private float ulo, uhi, vlo, vhi;
+
+  private boolean havePatch;
+
+  /**
+   * Grid defined by mapgrid2f
+   */
+  private int gridnu, gridnv;
+
+  private float gridu0, gridu1, gridv0, gridv1;
+
+  /**
+   * Mesh being built
+   */
+  private float[] vertices = new float[3 * 64];
+
+  private float[] normals = new float[3 * 64];
+
+  private float[] params = new float[2 * 64];
+
+  private int[] indices = new int[6 * 64];
+
+  private int vertexCount, indexCount, patchCount;
+
+  private float errorBound;
+
+  /**
+   * Bernstein basis values and derivatives
+   */
+  private double[] bu, dbu, bv, dbv;
+
+  /**
+   * Creates new evaluator
+   * @param mapdesc vertex map to evaluate, other maps are ignored
+   * @param tolerance maximum distance between mesh and surface in object
+   *                  coordinates, 0 to use the subdivider's grid
+   */
+  public MeshSurfaceEvaluator(Mapdesc mapdesc, float tolerance) {
+    this.mapdesc = mapdesc;
+    this.tolerance = tolerance;
+  }
+
+  /**
+   * Returns the mesh collected so far
+   * @return mesh
+   */
+  public NurbsMesh getMesh() {
+    float[] v = new float[3 * vertexCount];
+    float[] n = new float[3 * vertexCount];
+    float[] p = new float[2 * vertexCount];
+    int[] i = new int[indexCount];
+    System.arraycopy(vertices, 0, v, 0, v.length);
+    System.arraycopy(normals, 0, n, 0, n.length);
+    System.arraycopy(params, 0, p, 0, p.length);
+    System.arraycopy(indices, 0, i, 0, i.length);
+    return new NurbsMesh(v, n, p, i, patchCount, errorBound);
+  }
+
+  /**
+   * Empty method
+   */
+  public void bgnmap2f() {
+  }
+
+  /**
+   * Empty method, the mesh always consists of triangles
+   * @param style polygon mode (N_MESHFILL/N_MESHLINE/N_MESHPOINT)
+   */
+  public void polymode(int style) {
+  }
+
+  /**
+   * Empty method
+   */
+  public void endmap2f() {
+  }
+
+  /**
+   * Empty method
+   * @param ulo
+   * @param uhi
+   * @param vlo
+   * @param vhi
+   */
+  public void domain2f(float ulo, float uhi, float vlo, float vhi) {
+  }
+
+  /**
+   * Defines 2D mesh
+   * @param nu number of steps in u direction
+   * @param u0 lowest u
+   * @param u1 highest u
+   * @param nv number of steps in v direction
+   * @param v0 lowest v
+   * @param v1 highest v
+   */
+  public void mapgrid2f(int nu, float u0, float u1, int nv, float v0, float v1) {
+    gridnu = nu;
+    gridu0 = u0;
+    gridu1 = u1;
+    gridnv = nv;
+    gridv0 = v0;
+    gridv1 = v1;
+  }
+
+  /**
+   * Copies control points of the patch if it belongs to the vertex map
+   * @param type surface type
+   * @param ulo lowest u
+   * @param uhi highest u
+   * @param ustride number of objects between control points in u direction
+   * @param uorder surface order in u direction
+   * @param vlo lowest v
+   * @param vhi highest v
+   * @param vstride number of control points' coords
+   * @param vorder surface order in v direction
+   * @param pts control points
+   */
+  public void map2f(int type, float ulo, float uhi, int ustride, int uorder,
+                    float vlo, float vhi, int vstride, int vorder, CArrayOfFloats pts) {
+    if (type != mapdesc.getType())
+      return;
+    hcoords = mapdesc.getNCoords();
+    this.uorder = uorder;
+    this.vorder = vorder;
+    this.ulo = ulo;
+    this.uhi = uhi;
+    this.vlo = vlo;
+    this.vhi = vhi;
+    if (cpts.length < uorder * vorder * hcoords)
+      cpts = new float[uorder * vorder * hcoords];
+    float[] a = pts.getArray();
+    int p = pts.getPointer();
+    for (int i = 0, c = 0; i < uorder; i++)
+      for (int j = 0; j < vorder; j++)
+        for (int k = 0; k < hcoords; k++)
+          cpts[c++] = a[p + i * ustride + j * vstride + k];
+    havePatch = true;
+  }
+
+  /**
+   * Empty method
+   * @param type what to enable
+   */
+  public void enable(int type) {
+  }
+
+  /**
+   * Evaluates the current patch into the mesh
+   * @param style surface style
+   * @param umin minimum U
+   * @param umax maximum U
+   * @param vmin minimum V
+   * @param vmax maximum V
+   */
+  public void mapmesh2f(int style, int umin, int umax, int vmin, int vmax) {
+    if (!havePatch || gridnu <= 0 || gridnv <= 0 || umax <= umin || vmax <= vmin)
+      return;
+
+    float du = (gridu1 - gridu0) / gridnu;
+    float dv = (gridv1 - gridv0) / gridnv;
+    float ua = gridu0 + umin * du, ub = gridu0 + umax * du;
+    float va = gridv0 + vmin * dv, vb = gridv0 + vmax * dv;
+
+    // error terms of the bilinear interpolation over the whole range:
+    // (1/8) (h_u^2 |S_uu| + 2 h_u h_v |S_uv| + h_v^2 |S_vv|)
+    double[] terms = new double[3];
+    boolean bounded = estimate((ub - ua) / (uhi - ulo), (vb - va) / (vhi - vlo), terms);
+
+    int nu = umax - umin, nv = vmax - vmin;
+    if (tolerance > 0 && bounded) {
+      nu = steps(terms[0], tolerance / 2);
+      nv = steps(terms[2], tolerance / 2);
+      while (bound(terms, nu, nv) > tolerance && (nu < MAX_STEPS || nv < MAX_STEPS)) {
+        if ((nv >= MAX_STEPS || terms[0] / ((double) nu * nu) >= terms[2] / ((double) nv * nv))
+            && nu < MAX_STEPS)
+          nu++;
+        else
+          nv++;
+      }
+    }
+    float err = bounded ? (float) bound(terms, nu, nv) : Float.POSITIVE_INFINITY;
+    if (err > errorBound)
+      errorBound = err;
+
+    emitGrid(ua, ub, nu, va, vb, nv);
+    patchCount++;
+  }
+
+  /**
+   * Number of steps for one direction of the error estimate
+   * @param term error of a single step
+   * @param tol tolerance for this direction
+   * @return number of steps
+   */
+  private static int steps(double term, float tol) {
+    int n = (int) Math.ceil(Math.sqrt(term / tol));
+    return n < 1 ? 1 : (n > MAX_STEPS ? MAX_STEPS : n);
+  }
+
+  /**
+   * Error bound for given number of steps
+   * @param terms error terms
+   * @param nu steps in u direction
+   * @param nv steps in v direction
+   * @return error bound
+   */
+  private static double bound(double[] terms, int nu, int nv) {
+    return terms[0] / ((double) nu * nu) + terms[1] / ((double) nu * nv)
+      + terms[2] / ((double) nv * nv);
+  }
+
+  /**
+   * Estimates the interpolation error terms of the current patch from the
+   * second differences of its control net
+   * @param fu evaluated fraction of the patch in u direction
+   * @param fv evaluated fraction of the patch in v direction
+   * @param terms receives the uu, uv and vv terms
+   * @return false if no bound can be given (non-positive weights)
+   */
+  private boolean estimate(float fu, float fv, double[] terms) {
+    int n = uorder * vorder;
+    double[] p = new double[3 * n];
+    double wmin = 1, wmax = 1;
+    for (int c = 0; c < n; c++) {
+      double w = 1;
+      if (hcoords == 4) {
+        w = cpts[c * 4 + 3];
+        if (c == 0 || w < wmin) wmin = w;
+        if (c == 0 || w > wmax) wmax = w;
+      }
+      for (int k = 0; k < 3; k++)
+        p[3 * c + k] = (k < hcoords ? cpts[c * hcoords + k] : 0) / w;
+    }
+    if (wmin <= 0)
+      return false;
+
+    double muu = 0, mvv = 0, muv = 0;
+    for (int i = 0; i < uorder; i++) {
+      for (int j = 0; j < vorder; j++) {
+        int c = 3 * (i * vorder + j);
+        int cu = 3 * vorder, cv = 3;
+        if (i > 0 && i < uorder - 1)
+          muu = Math.max(muu, length(p, c + cu, c, -2, c - cu));
+        if (j > 0 && j < vorder - 1)
+          mvv = Math.max(mvv, length(p, c + cv, c, -2, c - cv));
+        if (i < uorder - 1 && j < vorder - 1) {
+          double s = 0;
+          for (int k = 0; k < 3; k++) {
+            double d = p[c + cu + cv + k] - p[c + cu + k] - p[c + cv + k] + p[c + k];
+            s += d * d;
+          }
+          muv = Math.max(muv, Math.sqrt(s));
+        }
+      }
+    }
+    // rational patches: the projected control net only approximates the
+    // derivatives, scale by the weight ratio
+    double r = wmax / wmin;
+    int du = uorder - 1, dv = vorder - 1;
+    terms[0] = r * du * (du - 1) * muu * fu * fu / 8;
+    terms[1] = r * 2 * du * dv * muv * Math.abs(fu * fv) / 8;
+    terms[2] = r * dv * (dv - 1) * mvv * fv * fv / 8;
+    return true;
+  }
+
+  /**
+   * Length of a + m * b + c for three points of p
+   */
+  private static double length(double[] p, int a, int b, double m, int c) {
+    double s = 0;
+    for (int k = 0; k < 3; k++) {
+      double d = p[a + k] + m * p[b + k] + p[c + k];
+      s += d * d;
+    }
+    return Math.sqrt(s);
+  }
+
+  /**
+   * Evaluates a (nu + 1) x (nv + 1) grid of the current patch and emits
+   * two triangles per cell, in the order glEvalMesh2 draws its quad strips
+   */
+  private void emitGrid(float ua, float ub, int nu, float va, float vb, int nv) {
+    int base = vertexCount;
+    ensureVertices(vertexCount + (nu + 1) * (nv + 1));
+    ensureIndices(indexCount + 6 * nu * nv);
+
+    if (bu == null || bu.length < uorder || bu.length < vorder) {
+      int m = Math.max(uorder, vorder);
+      bu = new double[m];
+      dbu = new double[m];
+      bv = new double[m];
+      dbv = new double[m];
+    }
+    double[] h = new double[4], hu = new double[4], hv = new double[4];
+
+    for (int a = 0; a <= nu; a++) {
+      float u = (a == nu) ? ub : ua + (ub - ua) * a / nu;
+      bernstein(uorder, (u - ulo) / (uhi - ulo), bu, dbu);
+      for (int b = 0; b <= nv; b++) {
+        float v = (b == nv) ? vb : va + (vb - va) * b / nv;
+        bernstein(vorder, (v - vlo) / (vhi - vlo), bv, dbv);
+        point(h, hu, hv);
+        put(u, v, h, hu, hv);
+      }
+    }
+
+    for (int a = 0; a < nu; a++) {
+      for (int b = 0; b < nv; b++) {
+        int v00 = base + a * (nv + 1) + b;
+        int v01 = v00 + 1;
+        int v10 = v00 + nv + 1;
+        int v11 = v10 + 1;
+        indices[indexCount++] = v00;
+        indices[indexCount++] = v01;
+        indices[indexCount++] = v11;
+        indices[indexCount++] = v00;
+        indices[indexCount++] = v11;
+        indices[indexCount++] = v10;
+      }
+    }
+  }
+
+  /**
+   * Evaluates homogeneous point and partial derivatives for the current
+   * basis values
+   */
+  private void point(double[] h, double[] hu, double[] hv) {
+    for (int k = 0; k < 4; k++) {
+      h[k] = hu[k] = hv[k] = 0;
+    }
+    for (int i = 0; i < uorder; i++) {
+      double r0 = 0, r1 = 0, r2 = 0, r3 = 0, s0 = 0, s1 = 0, s2 = 0, s3 = 0;
+      for (int j = 0; j < vorder; j++) {
+        int c = (i * vorder + j) * hcoords;
+        double x = cpts[c], y = hcoords > 1 ? cpts[c + 1] : 0;
+        double z = hcoords > 2 ? cpts[c + 2] : 0, w = hcoords > 3 ? cpts[c + 3] : 1;
+        r0 += bv[j] * x;
+        r1 += bv[j] * y;
+        r2 += bv[j] * z;
+        r3 += bv[j] * w;
+        s0 += dbv[j] * x;
+        s1 += dbv[j] * y;
+        s2 += dbv[j] * z;
+        s3 += dbv[j] * w;
+      }
+      h[0] += bu[i] * r0;
+      h[1] += bu[i] * r1;
+      h[2] += bu[i] * r2;
+      h[3] += bu[i] * r3;
+      hu[0] += dbu[i] * r0;
+      hu[1] += dbu[i] * r1;
+      hu[2] += dbu[i] * r2;
+      hu[3] += dbu[i] * r3;
+      hv[0] += bu[i] * s0;
+      hv[1] += bu[i] * s1;
+      hv[2] += bu[i] * s2;
+      hv[3] += bu[i] * s3;
+    }
+  }
+
+  /**
+   * Appends a vertex, projecting the homogeneous point and computing the
+   * normal as the cross product of the partial derivatives
+   */
+  private void put(float u, float v, double[] h, double[] hu, double[] hv) {
+    double w = h[3];
+    double x = h[0] / w, y = h[1] / w, z = h[2] / w;
+    double sux = (hu[0] - x * hu[3]) / w, suy = (hu[1] - y * hu[3]) / w, suz = (hu[2] - z * hu[3]) / w;
+    double svx = (hv[0] - x * hv[3]) / w, svy = (hv[1] - y * hv[3]) / w, svz = (hv[2] - z * hv[3]) / w;
+    if ((uhi - ulo) * (vhi - vlo) < 0) {
+      sux = -sux;
+      suy = -suy;
+      suz = -suz;
+    }
+    double nx = suy * svz - suz * svy;
+    double ny = suz * svx - sux * svz;
+    double nz = sux * svy - suy * svx;
+    double len = Math.sqrt(nx * nx + ny * ny + nz * nz);
+    if (len > 0) {
+      nx /= len;
+      ny /= len;
+      nz /= len;
+    }
+    int c = 3 * vertexCount;
+    vertices[c] = (float) x;
+    vertices[c + 1] = (float) y;
+    vertices[c + 2] = (float) z;
+    normals[c] = (float) nx;
+    normals[c + 1] = (float) ny;
+    normals[c + 2] = (float) nz;
+    params[2 * vertexCount] = u;
+    params[2 * vertexCount + 1] = v;
+    vertexCount++;
+  }
+
+  /**
+   * Computes Bernstein polynomials of given order and their derivatives
+   * @param order polynomial order (degree + 1)
+   * @param t parameter in [0, 1]
+   * @param b receives basis values
+   * @param db receives derivatives
+   */
+  static void bernstein(int order, double t, double[] b, double[] db) {
+    int d = order - 1;
+    if (d == 0) {
+      b[0] = 1;
+      db[0] = 0;
+      return;
+    }
+    // basis of degree d - 1 in b, by the de Casteljau recurrence
+    b[0] = 1;
+    for (int k = 1; k < d; k++) {
+      b[k] = t * b[k - 1];
+      for (int i = k - 1; i > 0; i--)
+        b[i] = (1 - t) * b[i] + t * b[i - 1];
+      b[0] = (1 - t) * b[0];
+    }
+    for (int i = 0; i <= d; i++) {
+      double lo = i > 0 ? b[i - 1] : 0;
+      double hi = i < d ? b[i] : 0;
+      db[i] = d * (lo - hi);
+    }
+    b[d] = t * b[d - 1];
+    for (int i = d - 1; i > 0; i--)
+      b[i] = (1 - t) * b[i] + t * b[i - 1];
+    b[0] = (1 - t) * b[0];
+  }
+
+  private void ensureVertices(int n) {
+    if (3 * n > vertices.length) {
+      int cap = Math.max(n, 2 * vertices.length / 3);
+      vertices = grow(vertices, 3 * cap);
+      normals = grow(normals, 3 * cap);
+      params = grow(params, 2 * cap);
+    }
+  }
+
+  private void ensureIndices(int n) {
+    if (n > indices.length) {
+      int[] a = new int[Math.max(n, 2 * indices.length)];
+      System.arraycopy(indices, 0, a, 0, indexCount);
+      indices = a;
+    }
+  }
+
+  private static float[] grow(float[] a, int length) {
+    float[] b = new float[length];
+    System.arraycopy(a, 0, b, 0, a.length);
+    return b;
+  }
+}
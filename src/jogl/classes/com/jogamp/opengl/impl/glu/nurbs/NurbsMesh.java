@@ -0,0 +1,221 @@
+/**
+ * Copyright 2010 JogAmp Community. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are
+ * permitted provided that the following conditions are met:
+ * 
+ *    1. Redistributions of source code must retain the above copyright notice, this list of
+ *       conditions and the following disclaimer.
+ * 
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *       of conditions and the following disclaimer in the documentation and/or other materials
+ *       provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY JogAmp Community ``AS IS'' AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL JogAmp Community OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are those of the
+ * authors and should not be interpreted as representing official policies, either expressed
+ * or implied, of JogAmp Community.
+ */
+
+package com.jogamp.opengl.impl.glu.nurbs;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+
+/**
+ * Triangle mesh of an evaluated NURBS surface, ready to be drawn from
+ * vertex arrays or uploaded into buffer objects.
+ * Vertices are xyz, normals xyz and parameters uv, one triple/pair per
+ * vertex; indices form counter clockwise triangles.
+ */
+public class NurbsMesh {
+
+  /**
+   * Vertex coordinates, 3 per vertex
+   */
+  private final float[] vertices;
+
+  /**
+   * Normals, 3 per vertex
+   */
+  private final float[] normals;
+
+  /**
+   * Surface parameters, 2 per vertex
+   */
+  private final float[] params;
+
+  /**
+   * Triangle indices, 3 per triangle
+   */
+  private final int[] indices;
+
+  /**
+   * Number of evaluated bezier patches
+   */
+  private final int patchCount;
+
+  /**
+   * Upper bound of the distance between mesh and surface
+   */
+  private final float errorBound;
+
+  /**
+   * Lazily created direct buffers
+   */
+  private FloatBuffer vertexBuffer, normalBuffer, paramBuffer;
+
+  private IntBuffer indexBuffer;
+
+  /**
+   * Makes new mesh, the arrays are used as is
+   * @param vertices vertex coordinates
+   * @param normals normals
+   * @param params surface parameters
+   * @param indices triangle indices
+   * @param patchCount number of patches
+   * @param errorBound distance bound between mesh and surface
+   */
+  public NurbsMesh(float[] vertices, float[] normals, float[] params,
+                   int[] indices, int patchCount, float errorBound) {
+    this.vertices = vertices;
+    this.normals = normals;
+    this.params = params;
+    this.indices = indices;
+    this.patchCount = patchCount;
+    this.errorBound = errorBound;
+  }
+
+  /**
+   * Returns vertex coordinates, 3 per vertex
+   * @return vertex coordinates
+   */
+  public float[] getVertices() {
+    return vertices;
+  }
+
+  /**
+   * Returns normals, 3 per vertex
+   * @return normals
+   */
+  public float[] getNormals() {
+    return normals;
+  }
+
+  /**
+   * Returns surface parameters, 2 per vertex
+   * @return (u, v) pairs
+   */
+  public float[] getParameters() {
+    return params;
+  }
+
+  /**
+   * Returns triangle indices
+   * @return indices, 3 per triangle
+   */
+  public int[] getIndices() {
+    return indices;
+  }
+
+  /**
+   * Returns number of vertices
+   * @return number of vertices
+   */
+  public int getVertexCount() {
+    return vertices.length / 3;
+  }
+
+  /**
+   * Returns number of triangles
+   * @return number of triangles
+   */
+  public int getTriangleCount() {
+    return indices.length / 3;
+  }
+
+  /**
+   * Returns number of bezier patches the mesh was evaluated from
+   * @return number of patches
+   */
+  public int getPatchCount() {
+    return patchCount;
+  }
+
+  /**
+   * Returns the estimated upper bound of the distance between the mesh
+   * and the surface, in object coordinates
+   * @return error bound
+   */
+  public float getErrorBound() {
+    return errorBound;
+  }
+
+  /**
+   * Returns vertex coordinates in a direct buffer
+   * @return vertex buffer
+   */
+  public FloatBuffer getVertexBuffer() {
+    if (vertexBuffer == null)
+      vertexBuffer = toBuffer(vertices);
+    return vertexBuffer;
+  }
+
+  /**
+   * Returns normals in a direct buffer
+   * @return normal buffer
+   */
+  public FloatBuffer getNormalBuffer() {
+    if (normalBuffer == null)
+      normalBuffer = toBuffer(normals);
+    return normalBuffer;
+  }
+
+  /**
+   * Returns surface parameters in a direct buffer
+   * @return parameter buffer
+   */
+  public FloatBuffer getParameterBuffer() {
+    if (paramBuffer == null)
+      paramBuffer = toBuffer(params);
+    return paramBuffer;
+  }
+
+  /**
+   * Returns triangle indices in a direct buffer
+   * @return index buffer
+   */
+  public IntBuffer getIndexBuffer() {
+    if (indexBuffer == null) {
+      indexBuffer = ByteBuffer.allocateDirect(indices.length * 4)
+        .order(ByteOrder.nativeOrder()).asIntBuffer();
+      indexBuffer.put(indices);
+      indexBuffer.rewind();
+    }
+    return indexBuffer;
+  }
+
+  /**
+   * Copies array into a new direct buffer
+   * @param a source array
+   * @return direct buffer
+   */
+  private static FloatBuffer toBuffer(float[] a) {
+    FloatBuffer b = ByteBuffer.allocateDirect(a.length * 4)
+      .order(ByteOrder.nativeOrder()).asFloatBuffer();
+    b.put(a);
+    b.rewind();
+    return b;
+  }
+}
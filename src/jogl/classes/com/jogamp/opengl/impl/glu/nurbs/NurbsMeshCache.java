@@ -0,0 +1,196 @@
+/**
+ * Copyright 2010 JogAmp Community. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are
+ * permitted provided that the following conditions are met:
+ * 
+ *    1. Redistributions of source code must retain the above copyright notice, this list of
+ *       conditions and the following disclaimer.
+ * 
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *       of conditions and the following disclaimer in the documentation and/or other materials
+ *       provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY JogAmp Community ``AS IS'' AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL JogAmp Community OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are those of the
+ * authors and should not be interpreted as representing official policies, either expressed
+ * or implied, of JogAmp Community.
+ */
+
+package com.jogamp.opengl.impl.glu.nurbs;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Least recently used cache of evaluated surface meshes, keyed by the
+ * complete input of a NURBS surface: map type, knots, control points,
+ * strides, orders and tolerance.
+ * Keys copy their inputs, so a changed control point or knot in the
+ * caller's arrays results in a miss.
+ */
+public class NurbsMeshCache {
+
+  /**
+   * Default number of cached surfaces
+   */
+  public static final int DEFAULT_CAPACITY = 64;
+
+  /**
+   * Key to mesh map in access order
+   */
+  private final LinkedHashMap map;
+
+  private int hits, misses;
+
+  /**
+   * Makes new cache holding up to capacity meshes
+   * @param capacity maximum number of meshes
+   */
+  public NurbsMeshCache(final int capacity) {
+    map = new LinkedHashMap(16, 0.75f, true) {
+        protected boolean removeEldestEntry(Map.Entry eldest) {
+          return size() > capacity;
+        }
+      };
+  }
+
+  /**
+   * Makes the key of a surface
+   * @param type map type
+   * @param sknot_count number of knots in s direction
+   * @param sknot knot vector in s direction
+   * @param tknot_count number of knots in t direction
+   * @param tknot knot vector in t direction
+   * @param s_stride s stride of control points
+   * @param t_stride t stride of control points
+   * @param ctlarray control points
+   * @param ncoords coordinates per control point
+   * @param sorder order in s direction
+   * @param torder order in t direction
+   * @param tolerance evaluation tolerance
+   * @return key
+   */
+  public static Object key(int type, int sknot_count, float[] sknot,
+                           int tknot_count, float[] tknot, int s_stride, int t_stride,
+                           float[] ctlarray, int ncoords, int sorder, int torder, float tolerance) {
+    int scount = sknot_count - sorder, tcount = tknot_count - torder;
+    int used = (scount - 1) * s_stride + (tcount - 1) * t_stride + ncoords;
+    return new Key(new int[] { type, s_stride, t_stride, sorder, torder,
+                               Float.floatToIntBits(tolerance) },
+      copy(sknot, sknot_count), copy(tknot, tknot_count), copy(ctlarray, used));
+  }
+
+  private static float[] copy(float[] a, int n) {
+    float[] b = new float[Math.max(0, Math.min(n, a.length))];
+    System.arraycopy(a, 0, b, 0, b.length);
+    return b;
+  }
+
+  /**
+   * Returns the cached mesh
+   * @param key surface key
+   * @return mesh or null
+   */
+  public NurbsMesh get(Object key) {
+    NurbsMesh mesh = (NurbsMesh) map.get(key);
+    if (mesh != null)
+      hits++;
+    else
+      misses++;
+    return mesh;
+  }
+
+  /**
+   * Stores a mesh, evicting the least recently used one if full
+   * @param key surface key
+   * @param mesh mesh
+   */
+  public void put(Object key, NurbsMesh mesh) {
+    map.put(key, mesh);
+  }
+
+  /**
+   * Removes all meshes
+   */
+  public void clear() {
+    map.clear();
+  }
+
+  /**
+   * Returns number of cached meshes
+   * @return number of meshes
+   */
+  public int size() {
+    return map.size();
+  }
+
+  /**
+   * Returns number of successful lookups
+   * @return hits
+   */
+  public int getHits() {
+    return hits;
+  }
+
+  /**
+   * Returns number of failed lookups
+   * @return misses
+   */
+  public int getMisses() {
+    return misses;
+  }
+
+  /**
+   * Surface key
+   */
+  private static class Key {
+    private final int[] ints;
+
+    private final float[] sknot, tknot, ctl;
+
+    private final int hash;
+
+    Key(int[] ints, float[] sknot, float[] tknot, float[] ctl) {
+      this.ints = ints;
+      this.sknot = sknot;
+      this.tknot = tknot;
+      this.ctl = ctl;
+      int h = 1;
+      for (int i = 0; i < ints.length; i++)
+        h = 31 * h + ints[i];
+      h = hash(h, sknot);
+      h = hash(h, tknot);
+      this.hash = hash(h, ctl);
+    }
+
+    private static int hash(int h, float[] a) {
+      for (int i = 0; i < a.length; i++)
+        h = 31 * h + Float.floatToIntBits(a[i]);
+      return h;
+    }
+
+    public int hashCode() {
+      return hash;
+    }
+
+    public boolean equals(Object o) {
+      if (!(o instanceof Key))
+        return false;
+      Key k = (Key) o;
+      return hash == k.hash && Arrays.equals(ints, k.ints)
+        && Arrays.equals(sknot, k.sknot) && Arrays.equals(tknot, k.tknot)
+        && Arrays.equals(ctl, k.ctl);
+    }
+  }
+}
@@ -66,6 +66,24 @@ public class O_nurbssurface {
    */
   private int type;
 
+  /**
+   * Evaluated mesh, when mesh caching is enabled
+   */
+  public NurbsMesh mesh;
+
+  /**
+   * Mesh cache key, when mesh caching is enabled
+   */
+  public Object meshKey;
+
+  /**
+   * Knot vectors and control points of a surface whose conversion to
+   * bezier patches was skipped because its mesh was cached
+   */
+  public Knotvector sknotvector, tknotvector;
+
+  public CArrayOfFloats ctlarray;
+
   /**
    * Makes new O_nurbssurface of type
    * @param type surface type
@@ -76,4 +94,12 @@ public class O_nurbssurface {
     this.next = null;
     this.used = false;
   }
+
+  /**
+   * Returns surface type
+   * @return surface type
+   */
+  public int getType() {
+    return type;
+  }
 }
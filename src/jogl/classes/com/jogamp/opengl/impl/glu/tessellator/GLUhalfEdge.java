@@ -64,6 +64,7 @@ class GLUhalfEdge {
     public com.jogamp.opengl.impl.glu.tessellator.ActiveRegion activeRegion;	/* a region with this upper edge (sweep.c) */
     public int winding;	/* change in winding number when crossing */
     public boolean first;
+    public MeshPool pool;	/* owning pool, null unless mesh storage is reused */
 
     public GLUhalfEdge(boolean first) {
         this.first = first;
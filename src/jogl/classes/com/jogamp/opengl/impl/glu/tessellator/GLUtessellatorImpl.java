@@ -88,6 +88,8 @@ public class GLUtessellatorImpl implements GLUtessellator {
     boolean avoidDegenerateTris; /* JOGL-specific hint to try to improve triangulation
                                     by avoiding producing degenerate (zero-area) triangles;
                                     has not been tested exhaustively and is therefore an option */
+    private MeshPool meshPool;	/* JOGL-specific: recycled mesh storage, null unless
+                                   GLU_TESS_REUSE_MESH_STORAGE is set */
 
     GLUface lonelyTriList;
     /* list of triangles which could not be rendered as strips or fans */
@@ -242,6 +244,14 @@ public class GLUtessellatorImpl implements GLUtessellator {
                 avoidDegenerateTris = (value != 0);
                 return;
 
+            case GLU.GLU_TESS_REUSE_MESH_STORAGE:
+                if (value == 0) {
+                    meshPool = null;
+                } else if (meshPool == null) {
+                    meshPool = new MeshPool();
+                }
+                return;
+
             default:
                 callErrorOrErrorData(GLU.GLU_INVALID_ENUM);
                 return;
@@ -272,6 +282,9 @@ public class GLUtessellatorImpl implements GLUtessellator {
             case GLU.GLU_TESS_AVOID_DEGENERATE_TRIANGLES:
                 value[value_offset] = avoidDegenerateTris ? 1 : 0;
                 break;
+            case GLU.GLU_TESS_REUSE_MESH_STORAGE:
+                value[value_offset] = meshPool != null ? 1 : 0;
+                break;
             default:
                 value[value_offset] = 0.0;
                 callErrorOrErrorData(GLU.GLU_INVALID_ENUM);
@@ -395,7 +408,7 @@ public class GLUtessellatorImpl implements GLUtessellator {
     private boolean flushCache() {
         CachedVertex[] v = cache;
 
-        mesh = Mesh.__gl_meshNewMesh();
+        mesh = Mesh.__gl_meshNewMesh(meshPool);
         if (mesh == null) return false;
 
         for (int i = 0; i < cacheCount; i++) {
@@ -57,6 +57,20 @@ class Mesh {
     }
 
     /************************ Utility Routines ************************/
+/* NewVertex( eOrig ) and NewFace( eOrig ) allocate the records for a new
+ * vertex or face, taking them from the pool of the mesh that eOrig belongs
+ * to when its storage is reused across polygons (see MeshPool).
+ */
+    static com.jogamp.opengl.impl.glu.tessellator.GLUvertex NewVertex(com.jogamp.opengl.impl.glu.tessellator.GLUhalfEdge eOrig) {
+        if (eOrig.pool != null) return eOrig.pool.allocVertex();
+        return new com.jogamp.opengl.impl.glu.tessellator.GLUvertex();
+    }
+
+    static com.jogamp.opengl.impl.glu.tessellator.GLUface NewFace(com.jogamp.opengl.impl.glu.tessellator.GLUhalfEdge eOrig) {
+        if (eOrig.pool != null) return eOrig.pool.allocFace();
+        return new com.jogamp.opengl.impl.glu.tessellator.GLUface();
+    }
+
 /* MakeEdge creates a new pair of half-edges which form their own loop.
  * No vertex or face structures are allocated, but these must be assigned
  * before the current edge operation is completed.
@@ -71,9 +85,14 @@ class Mesh {
 //        if (pair == NULL) return NULL;
 //
 //        e = &pair - > e;
-        e = new com.jogamp.opengl.impl.glu.tessellator.GLUhalfEdge(true);
 //        eSym = &pair - > eSym;
-        eSym = new com.jogamp.opengl.impl.glu.tessellator.GLUhalfEdge(false);
+        if (eNext.pool != null) {
+            e = eNext.pool.allocEdgePair();
+            eSym = e.Sym;
+        } else {
+            e = new com.jogamp.opengl.impl.glu.tessellator.GLUhalfEdge(true);
+            eSym = new com.jogamp.opengl.impl.glu.tessellator.GLUhalfEdge(false);
+        }
 
 
         /* Make sure eNext points to the first edge of the edge pair */
@@ -264,9 +283,9 @@ class Mesh {
  * The loop consists of the two new half-edges.
  */
     public static com.jogamp.opengl.impl.glu.tessellator.GLUhalfEdge __gl_meshMakeEdge(com.jogamp.opengl.impl.glu.tessellator.GLUmesh mesh) {
-        com.jogamp.opengl.impl.glu.tessellator.GLUvertex newVertex1 = new com.jogamp.opengl.impl.glu.tessellator.GLUvertex();
-        com.jogamp.opengl.impl.glu.tessellator.GLUvertex newVertex2 = new com.jogamp.opengl.impl.glu.tessellator.GLUvertex();
-        com.jogamp.opengl.impl.glu.tessellator.GLUface newFace = new com.jogamp.opengl.impl.glu.tessellator.GLUface();
+        com.jogamp.opengl.impl.glu.tessellator.GLUvertex newVertex1 = NewVertex(mesh.eHead);
+        com.jogamp.opengl.impl.glu.tessellator.GLUvertex newVertex2 = NewVertex(mesh.eHead);
+        com.jogamp.opengl.impl.glu.tessellator.GLUface newFace = NewFace(mesh.eHead);
         com.jogamp.opengl.impl.glu.tessellator.GLUhalfEdge e;
 
         e = MakeEdge(mesh.eHead);
@@ -323,7 +342,7 @@ class Mesh {
         Splice(eDst, eOrg);
 
         if (!joiningVertices) {
-            com.jogamp.opengl.impl.glu.tessellator.GLUvertex newVertex = new com.jogamp.opengl.impl.glu.tessellator.GLUvertex();
+            com.jogamp.opengl.impl.glu.tessellator.GLUvertex newVertex = NewVertex(eOrg);
 
             /* We split one vertex into two -- the new vertex is eDst.Org.
              * Make sure the old vertex points to a valid half-edge.
@@ -332,7 +351,7 @@ class Mesh {
             eOrg.Org.anEdge = eOrg;
         }
         if (!joiningLoops) {
-            com.jogamp.opengl.impl.glu.tessellator.GLUface newFace = new com.jogamp.opengl.impl.glu.tessellator.GLUface();
+            com.jogamp.opengl.impl.glu.tessellator.GLUface newFace = NewFace(eOrg);
 
             /* We split one loop into two -- the new loop is eDst.Lface.
              * Make sure the old face points to a valid half-edge.
@@ -377,7 +396,7 @@ class Mesh {
 
             Splice(eDel, eDel.Sym.Lnext);
             if (!joiningLoops) {
-                com.jogamp.opengl.impl.glu.tessellator.GLUface newFace = new com.jogamp.opengl.impl.glu.tessellator.GLUface();
+                com.jogamp.opengl.impl.glu.tessellator.GLUface newFace = NewFace(eDel);
 
                 /* We are splitting one loop into two -- create a new loop for eDel. */
                 MakeFace(newFace, eDel, eDel.Lface);
@@ -427,7 +446,7 @@ class Mesh {
         /* Set the vertex and face information */
         eNew.Org = eOrg.Sym.Org;
         {
-            com.jogamp.opengl.impl.glu.tessellator.GLUvertex newVertex = new com.jogamp.opengl.impl.glu.tessellator.GLUvertex();
+            com.jogamp.opengl.impl.glu.tessellator.GLUvertex newVertex = NewVertex(eOrg);
 
             MakeVertex(newVertex, eNewSym, eNew.Org);
         }
@@ -498,7 +517,7 @@ class Mesh {
         eOrg.Lface.anEdge = eNewSym;
 
         if (!joiningLoops) {
-            com.jogamp.opengl.impl.glu.tessellator.GLUface newFace = new com.jogamp.opengl.impl.glu.tessellator.GLUface();
+            com.jogamp.opengl.impl.glu.tessellator.GLUface newFace = NewFace(eOrg);
 
             /* We split one loop into two -- the new loop is eNew.Lface */
             MakeFace(newFace, eNew, eOrg.Lface);
@@ -562,11 +581,25 @@ class Mesh {
  * and no loops (what we usually call a "face").
  */
     public static com.jogamp.opengl.impl.glu.tessellator.GLUmesh __gl_meshNewMesh() {
+        return __gl_meshNewMesh(null);
+    }
+
+/* __gl_meshNewMesh( pool ) is the same, but all structures of the mesh are
+ * taken from the given pool (if not null) and go back to it when the mesh
+ * is deleted.
+ */
+    static com.jogamp.opengl.impl.glu.tessellator.GLUmesh __gl_meshNewMesh(com.jogamp.opengl.impl.glu.tessellator.MeshPool pool) {
         com.jogamp.opengl.impl.glu.tessellator.GLUvertex v;
         com.jogamp.opengl.impl.glu.tessellator.GLUface f;
         com.jogamp.opengl.impl.glu.tessellator.GLUhalfEdge e;
         com.jogamp.opengl.impl.glu.tessellator.GLUhalfEdge eSym;
-        com.jogamp.opengl.impl.glu.tessellator.GLUmesh mesh = new com.jogamp.opengl.impl.glu.tessellator.GLUmesh();
+        com.jogamp.opengl.impl.glu.tessellator.GLUmesh mesh;
+
+        if (pool != null) {
+            mesh = pool.newMesh();
+        } else {
+            mesh = new com.jogamp.opengl.impl.glu.tessellator.GLUmesh();
+        }
 
         v = mesh.vHead;
         f = mesh.fHead;
@@ -673,6 +706,10 @@ class Mesh {
             /* One call frees both e and e.Sym (see EdgePair above) */
             eNext = e.next;
         }
+
+        if (mesh.eHead.pool != null) {
+            mesh.eHead.pool.release(mesh);
+        }
     }
 
 /* __gl_meshCheckMesh( mesh ) checks a mesh for self-consistency.
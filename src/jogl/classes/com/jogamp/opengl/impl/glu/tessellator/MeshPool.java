@@ -0,0 +1,178 @@
+/**
+ * Copyright 2010 JogAmp Community. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are
+ * permitted provided that the following conditions are met:
+ * 
+ *    1. Redistributions of source code must retain the above copyright notice, this list of
+ *       conditions and the following disclaimer.
+ * 
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *       of conditions and the following disclaimer in the documentation and/or other materials
+ *       provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY JogAmp Community ``AS IS'' AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL JogAmp Community OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are those of the
+ * authors and should not be interpreted as representing official policies, either expressed
+ * or implied, of JogAmp Community.
+ */
+ 
+
+package com.jogamp.opengl.impl.glu.tessellator;
+
+/**
+ * Recycles the half-edge, vertex and face records of a tessellator mesh
+ * across polygons, enabled by the JOGL-specific
+ * <code>GLU_TESS_REUSE_MESH_STORAGE</code> tessellator property.
+ *
+ * <p>The records live in growable arrays and are handed out in array order,
+ * like a bump allocator, so the records of one polygon stay packed together
+ * in the order they are created.  Records destroyed while a polygon is being
+ * tessellated are simply left alone; the whole arena is recycled at once when
+ * the mesh is released at the end of the polygon.  A recycled record is reset
+ * to the state of a freshly constructed one, so the tessellation output does
+ * not depend on whether the pool is used.
+ */
+class MeshPool {
+    /* Upper bound on the number of records kept per kind, so that a single
+     * huge polygon does not pin its storage forever. */
+    static final int MAX_RETAINED = 1 << 15;
+
+    private GLUhalfEdge[] edges = new GLUhalfEdge[64];	/* first halves of edge pairs */
+    private GLUvertex[] vertices = new GLUvertex[64];
+    private GLUface[] faces = new GLUface[64];
+    private int edgeCount, vertexCount, faceCount;	/* records in use */
+    private int edgeTotal, vertexTotal, faceTotal;	/* records constructed */
+
+    private GLUmesh spareMesh;
+
+    /* Returns an empty mesh whose dummy edges refer to this pool, so that
+     * every record allocated on behalf of the mesh comes from here. */
+    GLUmesh newMesh() {
+        GLUmesh mesh = spareMesh;
+        if (mesh == null) {
+            mesh = new GLUmesh();
+        }
+        spareMesh = null;
+        mesh.eHead.pool = this;
+        mesh.eHeadSym.pool = this;
+        return mesh;
+    }
+
+    /* Returns the first half of an edge pair; e.Sym is its partner. */
+    GLUhalfEdge allocEdgePair() {
+        if (edgeCount < edgeTotal) {
+            return edges[edgeCount++];
+        }
+        GLUhalfEdge e = new GLUhalfEdge(true);
+        GLUhalfEdge eSym = new GLUhalfEdge(false);
+        e.Sym = eSym;
+        eSym.Sym = e;
+        e.pool = this;
+        eSym.pool = this;
+        if (edgeTotal == edges.length) {
+            GLUhalfEdge[] grown = new GLUhalfEdge[edgeTotal * 2];
+            System.arraycopy(edges, 0, grown, 0, edgeTotal);
+            edges = grown;
+        }
+        edges[edgeTotal++] = e;
+        edgeCount = edgeTotal;
+        return e;
+    }
+
+    GLUvertex allocVertex() {
+        if (vertexCount < vertexTotal) {
+            return vertices[vertexCount++];
+        }
+        GLUvertex v = new GLUvertex();
+        if (vertexTotal == vertices.length) {
+            GLUvertex[] grown = new GLUvertex[vertexTotal * 2];
+            System.arraycopy(vertices, 0, grown, 0, vertexTotal);
+            vertices = grown;
+        }
+        vertices[vertexTotal++] = v;
+        vertexCount = vertexTotal;
+        return v;
+    }
+
+    GLUface allocFace() {
+        if (faceCount < faceTotal) {
+            return faces[faceCount++];
+        }
+        GLUface f = new GLUface();
+        if (faceTotal == faces.length) {
+            GLUface[] grown = new GLUface[faceTotal * 2];
+            System.arraycopy(faces, 0, grown, 0, faceTotal);
+            faces = grown;
+        }
+        faces[faceTotal++] = f;
+        faceCount = faceTotal;
+        return f;
+    }
+
+    /* Resets every record handed out for the given mesh and makes them all
+     * available again.  The mesh must not be used again by the caller. */
+    void release(GLUmesh mesh) {
+        for (int i = 0; i < edgeCount; i++) {
+            GLUhalfEdge e = edges[i];
+            GLUhalfEdge eSym = e.Sym;
+            e.next = e.Onext = e.Lnext = null;
+            e.Org = null;
+            e.Lface = null;
+            e.activeRegion = null;
+            eSym.next = eSym.Onext = eSym.Lnext = null;
+            eSym.Org = null;
+            eSym.Lface = null;
+            eSym.activeRegion = null;
+        }
+        for (int i = 0; i < vertexCount; i++) {
+            GLUvertex v = vertices[i];
+            v.next = v.prev = null;
+            v.anEdge = null;
+            v.data = null;
+            v.coords[0] = v.coords[1] = v.coords[2] = 0;
+            v.s = v.t = 0;
+            v.pqHandle = 0;
+        }
+        for (int i = 0; i < faceCount; i++) {
+            GLUface f = faces[i];
+            f.next = f.prev = null;
+            f.anEdge = null;
+            f.data = null;
+            f.trail = null;
+        }
+        edgeCount = vertexCount = faceCount = 0;
+        if (edgeTotal > MAX_RETAINED) {
+            edgeTotal = trim(edges, edgeTotal, MAX_RETAINED);
+        }
+        if (vertexTotal > MAX_RETAINED) {
+            vertexTotal = trim(vertices, vertexTotal, MAX_RETAINED);
+        }
+        if (faceTotal > MAX_RETAINED) {
+            faceTotal = trim(faces, faceTotal, MAX_RETAINED);
+        }
+
+        mesh.vHead.next = mesh.vHead.prev = null;
+        mesh.vHead.anEdge = null;
+        mesh.fHead.next = mesh.fHead.prev = null;
+        mesh.fHead.anEdge = null;
+        mesh.eHead.next = mesh.eHeadSym.next = null;
+        spareMesh = mesh;
+    }
+
+    private static int trim(Object[] records, int total, int keep) {
+        for (int i = keep; i < total; i++) {
+            records[i] = null;
+        }
+        return keep;
+    }
+}
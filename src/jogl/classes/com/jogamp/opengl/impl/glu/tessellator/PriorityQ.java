@@ -55,19 +55,6 @@ package com.jogamp.opengl.impl.glu.tessellator;
 abstract class PriorityQ {
     public static final int INIT_SIZE = 32;
 
-    public static class PQnode {
-        int handle;
-    }
-
-    public static class PQhandleElem {
-        Object key;
-        int node;
-    }
-
-    public static interface Leq {
-        boolean leq(Object key1, Object key2);
-    }
-
     //    #ifdef FOR_TRITE_TEST_PROGRAM
 //    private static boolean LEQ(PriorityQCommon.Leq leq, Object x,Object y) {
 //        return pq.leq.leq(x,y);
@@ -75,12 +62,18 @@ abstract class PriorityQ {
 //    #else
 /* Violates modularity, but a little faster */
 //    #include "geom.h"
-    public static boolean LEQ(Leq leq, Object x, Object y) {
+    public static boolean LEQ(Object x, Object y) {
         return com.jogamp.opengl.impl.glu.tessellator.Geom.VertLeq((com.jogamp.opengl.impl.glu.tessellator.GLUvertex) x, (com.jogamp.opengl.impl.glu.tessellator.GLUvertex) y);
     }
 
-    static PriorityQ pqNewPriorityQ(Leq leq) {
-        return new PriorityQSort(leq);
+/* The keys are GLUvertex objects ordered by Geom.VertLeq(); their (s,t)
+ * is copied on insertion, so a vertex must not move while it is queued.
+ * The sweep never moves a queued vertex: intersection vertices get their
+ * position before insertion, and merged vertices are deleted first.
+ * sizeHint is the expected number of keys inserted before pqInit().
+ */
+    static PriorityQ pqNewPriorityQ(int sizeHint) {
+        return new PriorityQSort(sizeHint);
     }
 
     abstract void pqDeletePriorityQ();
@@ -52,86 +52,99 @@
 */
 package com.jogamp.opengl.impl.glu.tessellator;
 
+/* JAVA: the nodes and handles of the C version are kept in parallel
+ * primitive arrays instead of one PQnode and PQhandleElem object per
+ * slot, and the (s,t) key of each vertex is copied into keyS/keyT when it
+ * is inserted, so that comparisons do not dereference the vertices.
+ * The algorithm, and therefore the order of equal keys, is unchanged.
+ */
 class PriorityQHeap extends com.jogamp.opengl.impl.glu.tessellator.PriorityQ {
-    com.jogamp.opengl.impl.glu.tessellator.PriorityQ.PQnode[] nodes;
-    com.jogamp.opengl.impl.glu.tessellator.PriorityQ.PQhandleElem[] handles;
+    int[] nodes;	/* node -> handle */
+    Object[] keys;	/* handle -> key */
+    double[] keyS, keyT;	/* handle -> key.s, key.t */
+    int[] handleNodes;	/* handle -> node, or next free handle */
     int size, max;
     int freeList;
     boolean initialized;
-    com.jogamp.opengl.impl.glu.tessellator.PriorityQ.Leq leq;
 
 /* really __gl_pqHeapNewPriorityQ */
-    public PriorityQHeap(com.jogamp.opengl.impl.glu.tessellator.PriorityQ.Leq leq) {
+    public PriorityQHeap(int sizeHint) {
         size = 0;
         max = com.jogamp.opengl.impl.glu.tessellator.PriorityQ.INIT_SIZE;
-        nodes = new com.jogamp.opengl.impl.glu.tessellator.PriorityQ.PQnode[com.jogamp.opengl.impl.glu.tessellator.PriorityQ.INIT_SIZE + 1];
-        for (int i = 0; i < nodes.length; i++) {
-            nodes[i] = new PQnode();
-        }
-        handles = new com.jogamp.opengl.impl.glu.tessellator.PriorityQ.PQhandleElem[com.jogamp.opengl.impl.glu.tessellator.PriorityQ.INIT_SIZE + 1];
-        for (int i = 0; i < handles.length; i++) {
-            handles[i] = new PQhandleElem();
+        while (max < sizeHint) {
+            max <<= 1;
         }
+        nodes = new int[max + 1];
+        keys = new Object[max + 1];
+        keyS = new double[max + 1];
+        keyT = new double[max + 1];
+        handleNodes = new int[max + 1];
         initialized = false;
         freeList = 0;
-        this.leq = leq;
 
-        nodes[1].handle = 1;	/* so that Minimum() returns NULL */
-        handles[1].key = null;
+        nodes[1] = 1;	/* so that Minimum() returns NULL */
+        keys[1] = null;
     }
 
 /* really __gl_pqHeapDeletePriorityQ */
     void pqDeletePriorityQ() {
-        handles = null;
+        keys = null;
+        keyS = keyT = null;
+        handleNodes = null;
         nodes = null;
     }
 
+    /* Geom.VertLeq() on the keys of two handles */
+    final boolean LEQ(int h1, int h2) {
+        double s1 = keyS[h1], s2 = keyS[h2];
+        return s1 < s2 || (s1 == s2 && keyT[h1] <= keyT[h2]);
+    }
+
     void FloatDown(int curr) {
-        com.jogamp.opengl.impl.glu.tessellator.PriorityQ.PQnode[] n = nodes;
-        com.jogamp.opengl.impl.glu.tessellator.PriorityQ.PQhandleElem[] h = handles;
+        int[] n = nodes;
+        int[] h = handleNodes;
         int hCurr, hChild;
         int child;
 
-        hCurr = n[curr].handle;
+        hCurr = n[curr];
         for (; ;) {
             child = curr << 1;
-            if (child < size && LEQ(leq, h[n[child + 1].handle].key,
-                    h[n[child].handle].key)) {
+            if (child < size && LEQ(n[child + 1], n[child])) {
                 ++child;
             }
 
             assert (child <= max);
 
-            hChild = n[child].handle;
-            if (child > size || LEQ(leq, h[hCurr].key, h[hChild].key)) {
-                n[curr].handle = hCurr;
-                h[hCurr].node = curr;
+            hChild = n[child];
+            if (child > size || LEQ(hCurr, hChild)) {
+                n[curr] = hCurr;
+                h[hCurr] = curr;
                 break;
             }
-            n[curr].handle = hChild;
-            h[hChild].node = curr;
+            n[curr] = hChild;
+            h[hChild] = curr;
             curr = child;
         }
     }
 
 
     void FloatUp(int curr) {
-        com.jogamp.opengl.impl.glu.tessellator.PriorityQ.PQnode[] n = nodes;
-        com.jogamp.opengl.impl.glu.tessellator.PriorityQ.PQhandleElem[] h = handles;
+        int[] n = nodes;
+        int[] h = handleNodes;
         int hCurr, hParent;
         int parent;
 
-        hCurr = n[curr].handle;
+        hCurr = n[curr];
         for (; ;) {
             parent = curr >> 1;
-            hParent = n[parent].handle;
-            if (parent == 0 || LEQ(leq, h[hParent].key, h[hCurr].key)) {
-                n[curr].handle = hCurr;
-                h[hCurr].node = curr;
+            hParent = n[parent];
+            if (parent == 0 || LEQ(hParent, hCurr)) {
+                n[curr] = hCurr;
+                h[hCurr] = curr;
                 break;
             }
-            n[curr].handle = hParent;
-            h[hParent].node = curr;
+            n[curr] = hParent;
+            h[hParent] = curr;
             curr = parent;
         }
     }
@@ -158,46 +171,31 @@ class PriorityQHeap extends com.jogamp.opengl.impl.glu.tessellator.PriorityQ {
 
         curr = ++size;
         if ((curr * 2) > max) {
-            com.jogamp.opengl.impl.glu.tessellator.PriorityQ.PQnode[] saveNodes = nodes;
-            com.jogamp.opengl.impl.glu.tessellator.PriorityQ.PQhandleElem[] saveHandles = handles;
-
             /* If the heap overflows, double its size. */
             max <<= 1;
 //            pq->nodes = (PQnode *)memRealloc( pq->nodes, (size_t) ((pq->max + 1) * sizeof( pq->nodes[0] )));
-            PriorityQ.PQnode[] pqNodes = new PriorityQ.PQnode[max + 1];
-            System.arraycopy( nodes, 0, pqNodes, 0, nodes.length );
-            for (int i = nodes.length; i < pqNodes.length; i++) {
-                pqNodes[i] = new PQnode();
-            }
-            nodes = pqNodes;
-            if (nodes == null) {
-                nodes = saveNodes;	/* restore ptr to free upon return */
-                return Integer.MAX_VALUE;
-            }
-
 //            pq->handles = (PQhandleElem *)memRealloc( pq->handles,(size_t)((pq->max + 1) * sizeof( pq->handles[0] )));
-            PriorityQ.PQhandleElem[] pqHandles = new PriorityQ.PQhandleElem[max + 1];
-            System.arraycopy( handles, 0, pqHandles, 0, handles.length );
-            for (int i = handles.length; i < pqHandles.length; i++) {
-                pqHandles[i] = new PQhandleElem();
-            }
-            handles = pqHandles;
-            if (handles == null) {
-                handles = saveHandles; /* restore ptr to free upon return */
-                return Integer.MAX_VALUE;
-            }
+            nodes = grow(nodes, max + 1);
+            handleNodes = grow(handleNodes, max + 1);
+            keyS = grow(keyS, max + 1);
+            keyT = grow(keyT, max + 1);
+            Object[] k = new Object[max + 1];
+            System.arraycopy(keys, 0, k, 0, keys.length);
+            keys = k;
         }
 
         if (freeList == 0) {
             free = curr;
         } else {
             free = freeList;
-            freeList = handles[free].node;
+            freeList = handleNodes[free];
         }
 
-        nodes[curr].handle = free;
-        handles[free].node = curr;
-        handles[free].key = keyNew;
+        nodes[curr] = free;
+        handleNodes[free] = curr;
+        keys[free] = keyNew;
+        keyS[free] = ((com.jogamp.opengl.impl.glu.tessellator.GLUvertex) keyNew).s;
+        keyT[free] = ((com.jogamp.opengl.impl.glu.tessellator.GLUvertex) keyNew).t;
 
         if (initialized) {
             FloatUp(curr);
@@ -208,17 +206,17 @@ class PriorityQHeap extends com.jogamp.opengl.impl.glu.tessellator.PriorityQ {
 
 /* really __gl_pqHeapExtractMin */
     Object pqExtractMin() {
-        com.jogamp.opengl.impl.glu.tessellator.PriorityQ.PQnode[] n = nodes;
-        com.jogamp.opengl.impl.glu.tessellator.PriorityQ.PQhandleElem[] h = handles;
-        int hMin = n[1].handle;
-        Object min = h[hMin].key;
+        int[] n = nodes;
+        int[] h = handleNodes;
+        int hMin = n[1];
+        Object min = keys[hMin];
 
         if (size > 0) {
-            n[1].handle = n[size].handle;
-            h[n[1].handle].node = 1;
+            n[1] = n[size];
+            h[n[1]] = 1;
 
-            h[hMin].key = null;
-            h[hMin].node = freeList;
+            keys[hMin] = null;
+            h[hMin] = freeList;
             freeList = hMin;
 
             if (--size > 0) {
@@ -230,33 +228,45 @@ class PriorityQHeap extends com.jogamp.opengl.impl.glu.tessellator.PriorityQ {
 
 /* really __gl_pqHeapDelete */
     void pqDelete(int hCurr) {
-        com.jogamp.opengl.impl.glu.tessellator.PriorityQ.PQnode[] n = nodes;
-        com.jogamp.opengl.impl.glu.tessellator.PriorityQ.PQhandleElem[] h = handles;
+        int[] n = nodes;
+        int[] h = handleNodes;
         int curr;
 
-        assert (hCurr >= 1 && hCurr <= max && h[hCurr].key != null);
+        assert (hCurr >= 1 && hCurr <= max && keys[hCurr] != null);
 
-        curr = h[hCurr].node;
-        n[curr].handle = n[size].handle;
-        h[n[curr].handle].node = curr;
+        curr = h[hCurr];
+        n[curr] = n[size];
+        h[n[curr]] = curr;
 
         if (curr <= --size) {
-            if (curr <= 1 || LEQ(leq, h[n[curr >> 1].handle].key, h[n[curr].handle].key)) {
+            if (curr <= 1 || LEQ(n[curr >> 1], n[curr])) {
                 FloatDown(curr);
             } else {
                 FloatUp(curr);
             }
         }
-        h[hCurr].key = null;
-        h[hCurr].node = freeList;
+        keys[hCurr] = null;
+        h[hCurr] = freeList;
         freeList = hCurr;
     }
 
     Object pqMinimum() {
-        return handles[nodes[1].handle].key;
+        return keys[nodes[1]];
     }
 
     boolean pqIsEmpty() {
         return size == 0;
     }
+
+    static int[] grow(int[] a, int length) {
+        int[] b = new int[length];
+        System.arraycopy(a, 0, b, 0, a.length);
+        return b;
+    }
+
+    static double[] grow(double[] a, int length) {
+        double[] b = new double[length];
+        System.arraycopy(a, 0, b, 0, a.length);
+        return b;
+    }
 }
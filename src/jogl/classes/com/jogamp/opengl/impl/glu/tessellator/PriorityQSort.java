@@ -51,23 +51,35 @@ class PriorityQSort extends com.jogamp.opengl.impl.glu.tessellator.PriorityQ {
     com.jogamp.opengl.impl.glu.tessellator.PriorityQHeap heap;
     Object[] keys;
 
+    double[] keyS, keyT;	/* keys[i].s, keys[i].t */
+
     // JAVA: 'order' contains indices into the keys array.
     // This simulates the indirect pointers used in the original C code
     // (from Frank Suykens, Luciad.com).
+    // It is allocated together with keys, so pqInit() does not allocate.
     int[] order;
     int size, max;
     boolean initialized;
-    com.jogamp.opengl.impl.glu.tessellator.PriorityQ.Leq leq;
 
-    public PriorityQSort(com.jogamp.opengl.impl.glu.tessellator.PriorityQ.Leq leq) {
-        heap = new com.jogamp.opengl.impl.glu.tessellator.PriorityQHeap(leq);
+    /* quicksort stack, reused by every pqInit() */
+    private final int[] stackP = new int[50];
+    private final int[] stackR = new int[50];
 
-        keys = new Object[com.jogamp.opengl.impl.glu.tessellator.PriorityQ.INIT_SIZE];
+    public PriorityQSort(int sizeHint) {
+        max = com.jogamp.opengl.impl.glu.tessellator.PriorityQ.INIT_SIZE;
+        while (max <= sizeHint) {
+            max <<= 1;
+        }
+        /* the heap only receives the vertices created during the sweep */
+        heap = new com.jogamp.opengl.impl.glu.tessellator.PriorityQHeap(sizeHint >> 3);
+
+        keys = new Object[max];
+        keyS = new double[max];
+        keyT = new double[max];
+        order = new int[max + 1];
 
         size = 0;
-        max = com.jogamp.opengl.impl.glu.tessellator.PriorityQ.INIT_SIZE;
         initialized = false;
-        this.leq = leq;
     }
 
 /* really __gl_pqSortDeletePriorityQ */
@@ -75,38 +87,34 @@ class PriorityQSort extends com.jogamp.opengl.impl.glu.tessellator.PriorityQ {
         if (heap != null) heap.pqDeletePriorityQ();
         order = null;
         keys = null;
+        keyS = keyT = null;
     }
 
-    private static boolean LT(com.jogamp.opengl.impl.glu.tessellator.PriorityQ.Leq leq, Object x, Object y) {
-        return (!com.jogamp.opengl.impl.glu.tessellator.PriorityQHeap.LEQ(leq, y, x));
+    /* !LEQ(keys[y], keys[x]) */
+    private final boolean LT(int x, int y) {
+        double sx = keyS[x], sy = keyS[y];
+        return !(sy < sx || (sy == sx && keyT[y] <= keyT[x]));
     }
 
-    private static boolean GT(com.jogamp.opengl.impl.glu.tessellator.PriorityQ.Leq leq, Object x, Object y) {
-        return (!com.jogamp.opengl.impl.glu.tessellator.PriorityQHeap.LEQ(leq, x, y));
+    /* !LEQ(keys[x], keys[y]) */
+    private final boolean GT(int x, int y) {
+        double sx = keyS[x], sy = keyS[y];
+        return !(sx < sy || (sx == sy && keyT[x] <= keyT[y]));
     }
 
     private static void Swap(int[] array, int a, int b) {
-        if (true) {
-            int tmp = array[a];
-            array[a] = array[b];
-            array[b] = tmp;
-        } else {
-
-        }
-    }
-
-    private static class Stack {
-        int p, r;
+        int tmp = array[a];
+        array[a] = array[b];
+        array[b] = tmp;
     }
 
 /* really __gl_pqSortInit */
     boolean pqInit() {
         int p, r, i, j;
         int piv;
-        Stack[] stack = new Stack[50];
-        for (int k = 0; k < stack.length; k++) {
-            stack[k] = new Stack();
-        }
+        int[] order = this.order;
+        int[] stackP = this.stackP;
+        int[] stackR = this.stackR;
         int top = 0;
 
         int seed = 2016473283;
@@ -114,11 +122,6 @@ class PriorityQSort extends com.jogamp.opengl.impl.glu.tessellator.PriorityQ {
         /* Create an array of indirect pointers to the keys, so that we
          * the handles we have returned are still valid.
          */
-        order = new int[size + 1];
-/* the previous line is a patch to compensate for the fact that IBM */
-/* machines return a null on a malloc of zero bytes (unlike SGI),   */
-/* so we have to put in this defense to guard against a memory      */
-/* fault four lines down. from fossum@austin.ibm.com.               */
         p = 0;
         r = size - 1;
         for (piv = 0, i = p; i <= r; ++piv, ++i) {
@@ -129,12 +132,12 @@ class PriorityQSort extends com.jogamp.opengl.impl.glu.tessellator.PriorityQ {
         /* Sort the indirect pointers in descending order,
          * using randomized Quicksort
          */
-        stack[top].p = p;
-        stack[top].r = r;
+        stackP[top] = p;
+        stackR[top] = r;
         ++top;
         while (--top >= 0) {
-            p = stack[top].p;
-            r = stack[top].r;
+            p = stackP[top];
+            r = stackR[top];
             while (r > p + 10) {
                 seed = Math.abs( seed * 1539415821 + 1 );
                 i = p + seed % (r - p + 1);
@@ -146,21 +149,21 @@ class PriorityQSort extends com.jogamp.opengl.impl.glu.tessellator.PriorityQ {
                 do {
                     do {
                         ++i;
-                    } while (GT(leq, keys[order[i]], keys[piv]));
+                    } while (GT(order[i], piv));
                     do {
                         --j;
-                    } while (LT(leq, keys[order[j]], keys[piv]));
+                    } while (LT(order[j], piv));
                     Swap(order, i, j);
                 } while (i < j);
                 Swap(order, i, j);	/* Undo last swap */
                 if (i - p < r - j) {
-                    stack[top].p = j + 1;
-                    stack[top].r = r;
+                    stackP[top] = j + 1;
+                    stackR[top] = r;
                     ++top;
                     r = i - 1;
                 } else {
-                    stack[top].p = p;
-                    stack[top].r = i - 1;
+                    stackP[top] = p;
+                    stackR[top] = i - 1;
                     ++top;
                     p = j + 1;
                 }
@@ -168,7 +171,7 @@ class PriorityQSort extends com.jogamp.opengl.impl.glu.tessellator.PriorityQ {
             /* Insertion sort small lists */
             for (i = p + 1; i <= r; ++i) {
                 piv = order[i];
-                for (j = i; j > p && LT(leq, keys[order[j - 1]], keys[piv]); --j) {
+                for (j = i; j > p && LT(order[j - 1], piv); --j) {
                     order[j] = order[j - 1];
                 }
                 order[j] = piv;
@@ -199,21 +202,20 @@ class PriorityQSort extends com.jogamp.opengl.impl.glu.tessellator.PriorityQ {
         }
         curr = size;
         if (++size >= max) {
-            Object[] saveKey = keys;
-
             /* If the heap overflows, double its size. */
             max <<= 1;
 //            pq->keys = (PQHeapKey *)memRealloc( pq->keys,(size_t)(pq->max * sizeof( pq->keys[0] )));
             Object[] pqKeys = new Object[max];
             System.arraycopy( keys, 0, pqKeys, 0, keys.length );
             keys = pqKeys;
-            if (keys == null) {
-                keys = saveKey;	/* restore ptr to free upon return */
-                return Integer.MAX_VALUE;
-            }
+            keyS = com.jogamp.opengl.impl.glu.tessellator.PriorityQHeap.grow(keyS, max);
+            keyT = com.jogamp.opengl.impl.glu.tessellator.PriorityQHeap.grow(keyT, max);
+            order = new int[max + 1];
         }
         assert curr != Integer.MAX_VALUE;
         keys[curr] = keyNew;
+        keyS[curr] = ((com.jogamp.opengl.impl.glu.tessellator.GLUvertex) keyNew).s;
+        keyT[curr] = ((com.jogamp.opengl.impl.glu.tessellator.GLUvertex) keyNew).t;
 
         /* Negative handles index the sorted array. */
         return -(curr + 1);
@@ -229,7 +231,7 @@ class PriorityQSort extends com.jogamp.opengl.impl.glu.tessellator.PriorityQ {
         sortMin = keys[order[size - 1]];
         if (!heap.pqIsEmpty()) {
             heapMin = heap.pqMinimum();
-            if (LEQ(leq, heapMin, sortMin)) {
+            if (LEQ(heapMin, sortMin)) {
                 return heap.pqExtractMin();
             }
         }
@@ -249,7 +251,7 @@ class PriorityQSort extends com.jogamp.opengl.impl.glu.tessellator.PriorityQ {
         sortMin = keys[order[size - 1]];
         if (!heap.pqIsEmpty()) {
             heapMin = heap.pqMinimum();
-            if (com.jogamp.opengl.impl.glu.tessellator.PriorityQHeap.LEQ(leq, heapMin, sortMin)) {
+            if (LEQ(heapMin, sortMin)) {
                 return heapMin;
             }
         }
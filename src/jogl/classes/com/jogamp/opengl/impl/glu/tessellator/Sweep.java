@@ -1228,16 +1228,17 @@ class Sweep {
  */ {
         PriorityQ pq;
         GLUvertex v, vHead;
+        int vertexCount = 0;
 
-        /* __gl_pqSortNewPriorityQ */
-        pq = tess.pq = PriorityQ.pqNewPriorityQ(new PriorityQ.Leq() {
-            public boolean leq(Object key1, Object key2) {
-                return Geom.VertLeq(((GLUvertex) key1), (GLUvertex) key2);
-            }
-        });
+        vHead = tess.mesh.vHead;
+        for (v = vHead.next; v != vHead; v = v.next) {
+            ++vertexCount;
+        }
+
+        /* __gl_pqSortNewPriorityQ, sized for the input plus some intersections */
+        pq = tess.pq = PriorityQ.pqNewPriorityQ(vertexCount + (vertexCount >> 2));
         if (pq == null) return false;
 
-        vHead = tess.mesh.vHead;
         for (v = vHead.next; v != vHead; v = v.next) {
             v.pqHandle = pq.pqInsert(v); /* __gl_pqSortInsert */
             if (v.pqHandle == Long.MAX_VALUE) break;
@@ -66,6 +66,7 @@ class AWTAnimatorImpl extends AnimatorImpl {
             } else {
                 try {
                     drawable.display();
+                    animator.frameDisplayed(drawable);
                 } catch (RuntimeException e) {
                     if (ignoreExceptions) {
                         if (printExceptions) {
@@ -80,6 +81,9 @@ class AWTAnimatorImpl extends AnimatorImpl {
         if (lightweights.size() > 0) {
             try {
                 SwingUtilities.invokeAndWait(drawWithRepaintManagerRunnable);
+                for (Iterator iter2 = lightweights.iterator(); iter2.hasNext(); ) {
+                    animator.frameDisplayed((GLAutoDrawable) iter2.next());
+                }
             } catch (Exception e) {
                 e.printStackTrace();
             }
@@ -43,6 +43,7 @@ import java.util.*;
 
 import javax.media.opengl.*;
 
+import com.jogamp.nativewindow.impl.Clock;
 import com.jogamp.opengl.impl.Debug;
 
 /** <P> An Animator can be attached to one or more {@link
@@ -52,15 +53,34 @@ import com.jogamp.opengl.impl.Debug;
     calls to <code>display()</code> are performed. After each drawable
     has been redrawn, a brief pause is performed to avoid swamping the
     CPU, unless {@link #setRunAsFastAsPossible} has been called.  </P>
+
+    <P> Frames are paced by the Animator's {@link FrameScheduler},
+    which may be configured for a target frame rate,
+    see {@link #getFrameScheduler()} and {@link FPSAnimator}.
+    The frame times of each drawable are recorded,
+    see {@link #getFrameStatistics(GLAutoDrawable)}. </P>
+
+    <P> By default the drawables are displayed one after another.
+    With {@link #setParallelDisplay(int, boolean)} independent
+    drawables, e.g. many offscreen drawables, are displayed
+    concurrently by worker threads. </P>
 */
 
 public class Animator {
     protected static final boolean DEBUG = Debug.debug("Animator");
 
+    /** Worker count for {@link #setParallelDisplay(int, boolean)},
+        one worker per independent drawable. */
+    public static final int WORKER_PER_DRAWABLE = 0;
+
     private volatile ArrayList/*<GLAutoDrawable>*/ drawables = new ArrayList();
     private AnimatorImpl impl;
+    private ParallelAnimatorImpl parallelImpl;
     private Runnable runnable;
-    private boolean runAsFastAsPossible;
+    private final FrameScheduler scheduler = new FrameScheduler();
+    private Map/*<GLAutoDrawable,DrawableFrameTime>*/ frameTimes = new IdentityHashMap();
+    private long totalDrawableFrames = 0; // guarded by frameTimes
+    private long skippedDrawableFrames = 0; // guarded by frameTimes
     protected ThreadGroup threadGroup;
     protected Thread thread;
     protected volatile boolean shouldStop;
@@ -114,6 +134,9 @@ public class Animator {
         ArrayList newList = (ArrayList) drawables.clone();
         newList.remove(drawable);
         drawables = newList;
+        synchronized(frameTimes) {
+            frameTimes.remove(drawable);
+        }
     }
 
     /** Returns an iterator over the drawables managed by this
@@ -122,6 +145,12 @@ public class Animator {
         return drawables.iterator();
     }
 
+    /** Returns the current list of drawables, which is replaced
+        by a new instance on each modification. */
+    List/*<GLAutoDrawable>*/ getDrawableList() {
+        return drawables;
+    }
+
     /** Sets a flag causing this Animator to ignore exceptions produced
         while redrawing the drawables. By default this flag is set to
         false, causing any exception thrown to halt the Animator. */
@@ -142,7 +171,128 @@ public class Animator {
         animation loop which prevents the CPU from getting swamped.
         This method may not have an effect on subclasses. */
     public final void setRunAsFastAsPossible(boolean runFast) {
-        runAsFastAsPossible = runFast;
+        scheduler.setRunAsFastAsPossible(runFast);
+    }
+
+    /** Displays the drawables concurrently on worker threads.
+        Drawables whose contexts share textures and display lists
+        are displayed in turn by the same worker.
+
+        @param maxWorkers the maximum number of worker threads,
+               or {@link #WORKER_PER_DRAWABLE} for one worker per
+               independent drawable
+        @param frameBarrier if true, each frame completes after all
+               drawables have been displayed. Otherwise drawables
+               whose worker is still busy skip the frame, so a slow
+               drawable does not stall the others.
+        @throws GLException if this Animator is running */
+    public synchronized void setParallelDisplay(int maxWorkers, boolean frameBarrier) {
+        if (thread != null) {
+            throw new GLException("Already started");
+        }
+        if (maxWorkers < 0) {
+            throw new IllegalArgumentException("Negative worker count: "+maxWorkers);
+        }
+        parallelImpl = new ParallelAnimatorImpl(threadGroup, maxWorkers, frameBarrier);
+    }
+
+    /** Displays the drawables one after another on the Animator
+        thread, which is the default.
+        @throws GLException if this Animator is running */
+    public synchronized void setSerialDisplay() {
+        if (thread != null) {
+            throw new GLException("Already started");
+        }
+        parallelImpl = null;
+    }
+
+    public synchronized boolean isParallelDisplay() {
+        return null != parallelImpl;
+    }
+
+    /** Returns the scheduler pacing the frames of this Animator,
+        which is unpaced by default. */
+    public final FrameScheduler getFrameScheduler() {
+        return scheduler;
+    }
+
+    /** Returns the frame time statistics of the given drawable,
+        or null if it has not been displayed by this Animator. */
+    public FrameStatistics getFrameStatistics(GLAutoDrawable drawable) {
+        synchronized(frameTimes) {
+            DrawableFrameTime ft = (DrawableFrameTime) frameTimes.get(drawable);
+            return null!=ft ? ft.stats : null ;
+        }
+    }
+
+    /** Resets the frame time statistics of all drawables
+        and the counters of the {@link FrameScheduler}. */
+    public void resetFrameStatistics() {
+        synchronized(frameTimes) {
+            for(Iterator iter = frameTimes.values().iterator(); iter.hasNext(); ) {
+                ((DrawableFrameTime) iter.next()).stats.reset();
+            }
+            totalDrawableFrames = 0;
+            skippedDrawableFrames = 0;
+        }
+        scheduler.resetStatistics();
+    }
+
+    static class DrawableFrameTime {
+        FrameStatistics stats = new FrameStatistics();
+        long lastFrame;
+        boolean hasLastFrame = false;
+    }
+
+    /** Called by the {@link AnimatorImpl} after the drawable has been displayed. */
+    void frameDisplayed(GLAutoDrawable drawable) {
+        long now = Clock.currentTimeNanos();
+        synchronized(frameTimes) {
+            DrawableFrameTime ft = (DrawableFrameTime) frameTimes.get(drawable);
+            if(null==ft) {
+                ft = new DrawableFrameTime();
+                frameTimes.put(drawable, ft);
+            }
+            if(ft.hasLastFrame) {
+                long frameTime = now - ft.lastFrame;
+                long period = scheduler.getFramePeriod();
+                // late by more than half a period
+                ft.stats.addFrame(frameTime / 1000, period>0 && frameTime > period + period/2);
+            }
+            ft.lastFrame = now;
+            ft.hasLastFrame = true;
+            totalDrawableFrames++;
+        }
+    }
+
+    /** Called by the {@link ParallelAnimatorImpl} for drawables skipping a frame. */
+    void drawablesSkipped(int count) {
+        synchronized(frameTimes) {
+            skippedDrawableFrames += count;
+        }
+    }
+
+    /** Returns the number of <code>display()</code> calls
+        on all drawables. */
+    public long getTotalDrawableFrames() {
+        synchronized(frameTimes) {
+            return totalDrawableFrames;
+        }
+    }
+
+    /** Returns the number of frames skipped by drawables, whose
+        worker was still busy, see {@link #setParallelDisplay(int, boolean)}. */
+    public long getSkippedDrawableFrames() {
+        synchronized(frameTimes) {
+            return skippedDrawableFrames;
+        }
+    }
+
+    /** Returns the aggregate throughput, i.e. the
+        <code>display()</code> calls on all drawables per second. */
+    public float getDrawableFramesPerSecond() {
+        long duration = getDuration();
+        return duration > 0 ? getTotalDrawableFrames() * 1000f / duration : 0f ;
     }
 
     /** Called every frame to cause redrawing of all of the
@@ -151,7 +301,11 @@ public class Animator {
         components this Animator manages, in particular when multiple
         lightweight widgets are continually being redrawn. */
     protected void display() {
-        impl.display(this, ignoreExceptions, printExceptions);
+        if (null != parallelImpl) {
+            parallelImpl.display(this, ignoreExceptions, printExceptions);
+        } else {
+            impl.display(this, ignoreExceptions, printExceptions);
+        }
     }
 
     private long startTime = 0;
@@ -164,7 +318,7 @@ public class Animator {
                 if(DEBUG) {
                     System.out.println("Animator started: "+Thread.currentThread());
                 }
-                startTime = System.currentTimeMillis();
+                startTime = Clock.currentTimeNanos();
                 curTime   = startTime;
 
                 while (!shouldStop) {
@@ -178,19 +332,23 @@ public class Animator {
                                 }
                             }
                         }
+                        scheduler.reset();
+                        continue;
+                    }
+                    if (!scheduler.waitForNextFrame()) {
+                        continue;
                     }
                     display();
-                    curTime = System.currentTimeMillis();
+                    curTime = Clock.currentTimeNanos();
                     totalFrames++;
-                    if (!runAsFastAsPossible) {
-                        // Avoid swamping the CPU
-                        Thread.yield();
-                    }
                 }
                 if(DEBUG) {
                     System.out.println("Animator stopped: "+Thread.currentThread());
                 }
             } finally {
+                if (null != parallelImpl) {
+                    parallelImpl.stopWorkers();
+                }
                 shouldStop = false;
                 synchronized (Animator.this) {
                     thread = null;
@@ -200,9 +358,12 @@ public class Animator {
         }
     }
 
-    public long getStartTime()   { return startTime; }
-    public long getCurrentTime() { return curTime; }
-    public long getDuration()    { return curTime-startTime; }
+    /** Returns the start time in milliseconds, relative to an arbitrary origin. */
+    public long getStartTime()   { return startTime / 1000000L; }
+    /** Returns the time of the last frame in milliseconds, relative to the origin of {@link #getStartTime()}. */
+    public long getCurrentTime() { return curTime / 1000000L; }
+    /** Returns the duration of the animation in milliseconds. */
+    public long getDuration()    { return ( curTime - startTime ) / 1000000L; }
     public int  getTotalFrames() { return totalFrames; }
 
     /** Starts this animator. */
@@ -221,6 +382,12 @@ public class Animator {
         for(Iterator iter = drawables.iterator(); iter.hasNext(); ) {
             ((GLAutoDrawable) iter.next()).setAnimator(thread);
         }
+        synchronized(frameTimes) {
+            for(Iterator iter = frameTimes.values().iterator(); iter.hasNext(); ) {
+                ((DrawableFrameTime) iter.next()).hasLastFrame = false;
+            }
+        }
+        scheduler.reset();
         thread.start();
     }
 
@@ -239,6 +406,7 @@ public class Animator {
     public synchronized void stop() {
         shouldStop = true;
         notifyAll();
+        scheduler.wakeUp();
 
         // It's hard to tell whether the thread which calls stop() has
         // dependencies on the Animator's internal thread. Currently we
@@ -48,6 +48,7 @@ class AnimatorImpl {
             GLAutoDrawable drawable = (GLAutoDrawable) iter.next();
             try {
                 drawable.display();
+                animator.frameDisplayed(drawable);
             } catch (RuntimeException e) {
                 if (ignoreExceptions) {
                     if (printExceptions) {
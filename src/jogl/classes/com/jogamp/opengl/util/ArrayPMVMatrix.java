@@ -0,0 +1,571 @@
+/**
+ * Copyright 2010 JogAmp Community. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are
+ * permitted provided that the following conditions are met:
+ *
+ *    1. Redistributions of source code must retain the above copyright notice, this list of
+ *       conditions and the following disclaimer.
+ *
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *       of conditions and the following disclaimer in the documentation and/or other materials
+ *       provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY JogAmp Community ``AS IS'' AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL JogAmp Community OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * The views and conclusions contained in the software and documentation are those of the
+ * authors and should not be interpreted as representing official policies, either expressed
+ * or implied, of JogAmp Community.
+ */
+
+package com.jogamp.opengl.util;
+
+import com.jogamp.opengl.impl.ProjectFloat;
+
+import java.nio.*;
+
+import javax.media.opengl.*;
+import javax.media.opengl.fixedfunc.GLMatrixFunc;
+
+/**
+ * PMVMatrix variant backed by primitive <code>float[]</code> storage.
+ * <p>
+ * All matrices are column major 4x4 arrays, the normal matrix is a 3x3 array.
+ * The matrix stacks are preallocated and only grow (doubling) if
+ * the push depth exceeds the initial capacity, hence no garbage is produced in steady state.</p>
+ * <p>
+ * The derived matrices Mvi, Mvit, the normal matrix and Pmv are computed lazily,
+ * i.e. only when requested via {@link #glGetMviMatrixf()}, {@link #glGetMvitMatrixf()},
+ * {@link #glGetNormalMatrixf()} or {@link #glGetPmvMatrixf()} and their source matrices have been modified.</p>
+ * <p>
+ * The returned arrays are the internal storage and must be treated as read only.</p>
+ */
+public class ArrayPMVMatrix implements GLMatrixFunc {
+
+    /** Default number of stack entries preallocated per matrix mode. */
+    public static final int DEFAULT_STACK_DEPTH = 32;
+
+    public ArrayPMVMatrix() {
+        this(DEFAULT_STACK_DEPTH);
+    }
+
+    /**
+     * @param stackDepth number of stack entries preallocated per matrix mode
+     */
+    public ArrayPMVMatrix(int stackDepth) {
+          if(0>=stackDepth) {
+              throw new GLException("Invalid stack depth: "+stackDepth);
+          }
+          projectFloat = new ProjectFloat();
+
+          matrixT    = new float[16];
+          matrixP    = new float[16];
+          matrixMv   = new float[16];
+          matrixMvi  = new float[16];
+          matrixMvit = new float[16];
+          matrixPmv  = new float[16];
+          matrixMvit3 = new float[9];
+
+          matrixMult = new float[16];
+          matrixTmp  = new float[16];
+          vec3f      = new float[3];
+
+          matrixTStack  = new float[stackDepth*16];
+          matrixPStack  = new float[stackDepth*16];
+          matrixMvStack = new float[stackDepth*16];
+          matrixTStackPos = 0; matrixPStackPos = 0; matrixMvStackPos = 0;
+
+          // default values and mode
+          glMatrixMode(GL_PROJECTION);
+          glLoadIdentity();
+          glMatrixMode(GL_MODELVIEW);
+          glLoadIdentity();
+          glMatrixMode(GL.GL_TEXTURE);
+          glLoadIdentity();
+          setDirty();
+    }
+
+    public void destroy() {
+        if(null!=projectFloat) {
+            projectFloat.destroy(); projectFloat=null;
+        }
+        matrixT=null; matrixP=null; matrixMv=null; matrixMvi=null; matrixMvit=null; matrixPmv=null; matrixMvit3=null;
+        matrixMult=null; matrixTmp=null; vec3f=null;
+        matrixTStack=null; matrixPStack=null; matrixMvStack=null;
+    }
+
+    public void setDirty() {
+          modified   = PMVMatrix.DIRTY_MODELVIEW | PMVMatrix.DIRTY_PROJECTION | PMVMatrix.DIRTY_TEXTURE ;
+          derivedDirty = DIRTY_MVI | DIRTY_PMV ;
+          matrixMode = GL_MODELVIEW;
+    }
+
+    /**
+     * @return the modified bits since the last {@link #update()},
+     *         see {@link PMVMatrix#DIRTY_MODELVIEW}, {@link PMVMatrix#DIRTY_PROJECTION} and {@link PMVMatrix#DIRTY_TEXTURE}
+     */
+    public int getDirtyBits() {
+        return modified;
+    }
+
+    public boolean isDirty(final int matrixName) {
+        boolean res;
+        switch(matrixName) {
+            case GL_MODELVIEW:
+                res = (modified&PMVMatrix.DIRTY_MODELVIEW)!=0 ;
+                break;
+            case GL_PROJECTION:
+                res = (modified&PMVMatrix.DIRTY_PROJECTION)!=0 ;
+                break;
+            case GL.GL_TEXTURE:
+                res = (modified&PMVMatrix.DIRTY_TEXTURE)!=0 ;
+                break;
+            default:
+              throw new GLException("unsupported matrixName: "+matrixName);
+        }
+        return res;
+    }
+
+    public boolean isDirty() {
+        return modified!=0;
+    }
+
+    /**
+     * Clears the modified bits.
+     * <p>
+     * Unlike {@link PMVMatrix#update()}, the derived matrices are not computed here,
+     * but on demand by their getter.</p>
+     *
+     * @return true if any matrix was modified since the last call
+     */
+    public boolean update() {
+        boolean res = 0!=modified;
+        modified=0;
+        return res;
+    }
+
+    public final int glGetMatrixMode() {
+        return matrixMode;
+    }
+
+    public final float[] glGetTMatrixf() {
+        return matrixT;
+    }
+
+    public final float[] glGetPMatrixf() {
+        return matrixP;
+    }
+
+    public final float[] glGetMvMatrixf() {
+        return matrixMv;
+    }
+
+    /** @return the modelview inverse, computed if the modelview changed since the last request */
+    public final float[] glGetMviMatrixf() {
+        if( 0 != ( derivedDirty & DIRTY_MVI ) ) {
+            setMviMvit();
+        }
+        return matrixMvi;
+    }
+
+    /** @return the modelview inverse transpose, computed if the modelview changed since the last request */
+    public final float[] glGetMvitMatrixf() {
+        if( 0 != ( derivedDirty & DIRTY_MVI ) ) {
+            setMviMvit();
+        }
+        return matrixMvit;
+    }
+
+    /** @return the 3x3 normal matrix, computed if the modelview changed since the last request */
+    public final float[] glGetNormalMatrixf() {
+        if( 0 != ( derivedDirty & DIRTY_MVI ) ) {
+            setMviMvit();
+        }
+        return matrixMvit3;
+    }
+
+    /** @return P x Mv, computed if the projection or modelview changed since the last request */
+    public final float[] glGetPmvMatrixf() {
+        if( 0 != ( derivedDirty & DIRTY_PMV ) ) {
+            glMultMatrixf(matrixP, 0, matrixMv, 0, matrixPmv, 0);
+            derivedDirty &= ~DIRTY_PMV ;
+        }
+        return matrixPmv;
+    }
+
+   /*
+    * @return the current matrix
+    */
+    public final float[] glGetMatrixf() {
+        return glGetMatrixf(matrixMode);
+    }
+
+  /**
+   * @param matrixName GL_MODELVIEW, GL_PROJECTION or GL.GL_TEXTURE
+   * @return the given matrix
+   */
+    public final float[] glGetMatrixf(final int matrixName) {
+        if(matrixName==GL_MODELVIEW) {
+            return matrixMv;
+        } else if(matrixName==GL_PROJECTION) {
+            return matrixP;
+        } else if(matrixName==GL.GL_TEXTURE) {
+            return matrixT;
+        } else {
+            throw new GLException("unsupported matrixName: "+matrixName);
+        }
+    }
+
+    public final void gluPerspective(final float fovy, final float aspect, final float zNear, final float zFar) {
+      float top=(float)Math.tan(fovy*((float)Math.PI)/360.0f)*zNear;
+      float bottom=-1.0f*top;
+      float left=aspect*bottom;
+      float right=aspect*top;
+      glFrustumf(left, right, bottom, top, zNear, zFar);
+    }
+
+    /**
+     * p = a x b, all column major 4x4 matrices.
+     * <p>
+     * p must not overlap a or b.</p>
+     */
+    public static final void glMultMatrixf(final float[] a, int a_off, final float[] b, int b_off, float[] p, int p_off) {
+       for (int i = 0; i < 4; i++) {
+          final float ai0=a[a_off+i+0*4],  ai1=a[a_off+i+1*4],  ai2=a[a_off+i+2*4],  ai3=a[a_off+i+3*4];
+          p[p_off+i+0*4] = ai0 * b[b_off+0+0*4] + ai1 * b[b_off+1+0*4] + ai2 * b[b_off+2+0*4] + ai3 * b[b_off+3+0*4] ;
+          p[p_off+i+1*4] = ai0 * b[b_off+0+1*4] + ai1 * b[b_off+1+1*4] + ai2 * b[b_off+2+1*4] + ai3 * b[b_off+3+1*4] ;
+          p[p_off+i+2*4] = ai0 * b[b_off+0+2*4] + ai1 * b[b_off+1+2*4] + ai2 * b[b_off+2+2*4] + ai3 * b[b_off+3+2*4] ;
+          p[p_off+i+3*4] = ai0 * b[b_off+0+3*4] + ai1 * b[b_off+1+3*4] + ai2 * b[b_off+2+3*4] + ai3 * b[b_off+3+3*4] ;
+       }
+    }
+
+    //
+    // MatrixIf
+    //
+
+    public void glMatrixMode(final int matrixName) {
+        switch(matrixName) {
+            case GL_MODELVIEW:
+            case GL_PROJECTION:
+            case GL.GL_TEXTURE:
+                break;
+            default:
+              throw new GLException("unsupported matrixName: "+matrixName);
+        }
+        matrixMode = matrixName;
+    }
+
+    public void glGetFloatv(int matrixGetName, FloatBuffer params) {
+        int pos = params.position();
+        if(matrixGetName==GL_MATRIX_MODE) {
+            params.put((float)matrixMode);
+        } else {
+            float[] matrix = glGetMatrixf(PMVMatrix.matrixGetName2MatrixModeName(matrixGetName));
+            params.put(matrix, 0, 16);
+        }
+        params.position(pos);
+    }
+    public void glGetFloatv(int matrixGetName, float[] params, int params_offset) {
+        if(matrixGetName==GL_MATRIX_MODE) {
+            params[params_offset]=(float)matrixMode;
+        } else {
+            float[] matrix = glGetMatrixf(PMVMatrix.matrixGetName2MatrixModeName(matrixGetName));
+            System.arraycopy(matrix, 0, params, params_offset, 16);
+        }
+    }
+    public void glGetIntegerv(int pname, IntBuffer params) {
+        int pos = params.position();
+        if(pname==GL_MATRIX_MODE) {
+            params.put(matrixMode);
+        } else {
+            throw new GLException("unsupported pname: "+pname);
+        }
+        params.position(pos);
+    }
+    public void glGetIntegerv(int pname, int[] params, int params_offset) {
+        if(pname==GL_MATRIX_MODE) {
+            params[params_offset]=matrixMode;
+        } else {
+            throw new GLException("unsupported pname: "+pname);
+        }
+    }
+
+    public final void glLoadMatrixf(final float[] values, final int offset) {
+        System.arraycopy(values, offset, glGetMatrixf(matrixMode), 0, 16);
+        setModified();
+    }
+
+    public final void glLoadMatrixf(java.nio.FloatBuffer m) {
+        int spos = m.position();
+        m.get(glGetMatrixf(matrixMode), 0, 16);
+        m.position(spos);
+        setModified();
+    }
+
+    public final void glPopMatrix() {
+        if(matrixMode==GL_MODELVIEW) {
+            if(0==matrixMvStackPos) {
+                throw new GLException("stack underflow: GL_MODELVIEW");
+            }
+            matrixMvStackPos -= 16;
+            System.arraycopy(matrixMvStack, matrixMvStackPos, matrixMv, 0, 16);
+        } else if(matrixMode==GL_PROJECTION) {
+            if(0==matrixPStackPos) {
+                throw new GLException("stack underflow: GL_PROJECTION");
+            }
+            matrixPStackPos -= 16;
+            System.arraycopy(matrixPStack, matrixPStackPos, matrixP, 0, 16);
+        } else if(matrixMode==GL.GL_TEXTURE) {
+            if(0==matrixTStackPos) {
+                throw new GLException("stack underflow: GL_TEXTURE");
+            }
+            matrixTStackPos -= 16;
+            System.arraycopy(matrixTStack, matrixTStackPos, matrixT, 0, 16);
+        }
+        setModified();
+    }
+
+    public final void glPushMatrix() {
+        if(matrixMode==GL_MODELVIEW) {
+            matrixMvStack = growStackIfNecessary(matrixMvStack, matrixMvStackPos);
+            System.arraycopy(matrixMv, 0, matrixMvStack, matrixMvStackPos, 16);
+            matrixMvStackPos += 16;
+        } else if(matrixMode==GL_PROJECTION) {
+            matrixPStack = growStackIfNecessary(matrixPStack, matrixPStackPos);
+            System.arraycopy(matrixP, 0, matrixPStack, matrixPStackPos, 16);
+            matrixPStackPos += 16;
+        } else if(matrixMode==GL.GL_TEXTURE) {
+            matrixTStack = growStackIfNecessary(matrixTStack, matrixTStackPos);
+            System.arraycopy(matrixT, 0, matrixTStack, matrixTStackPos, 16);
+            matrixTStackPos += 16;
+        }
+    }
+
+    public final void glLoadIdentity() {
+        ProjectFloat.gluMakeIdentityf(glGetMatrixf(matrixMode));
+        setModified();
+    }
+
+    public final void glMultMatrixf(final FloatBuffer m) {
+        final int spos = m.position();
+        m.get(matrixTmp, 0, 16);
+        m.position(spos);
+        multMatrixTmp();
+    }
+
+    public final void glMultMatrixf(final float[] m, final int m_offset) {
+        final float[] matrix = glGetMatrixf(matrixMode);
+        glMultMatrixf(matrix, 0, m, m_offset, matrixMult, 0);
+        System.arraycopy(matrixMult, 0, matrix, 0, 16);
+        setModified();
+    }
+
+    public final void glTranslatef(final float x, final float y, final float z) {
+        // Translation matrix:
+        //  1 0 0 x
+        //  0 1 0 y
+        //  0 0 1 z
+        //  0 0 0 1
+        // only the 4th column of the product changes
+        final float[] m = glGetMatrixf(matrixMode);
+        for (int i = 0; i < 4; i++) {
+            m[i+4*3] += m[i+4*0]*x + m[i+4*1]*y + m[i+4*2]*z ;
+        }
+        setModified();
+    }
+
+    public final void glRotatef(final float angdeg, float x, float y, float z) {
+        float angrad = angdeg   * (float) Math.PI / 180;
+        float c = (float)Math.cos(angrad);
+        float ic= 1.0f - c;
+        float s = (float)Math.sin(angrad);
+
+        vec3f[0]=x; vec3f[1]=y; vec3f[2]=z;
+        ProjectFloat.normalize(vec3f);
+        x = vec3f[0]; y = vec3f[1]; z = vec3f[2];
+
+        // Rotation matrix:
+        //      xx(1−c)+c  xy(1−c)+zs xz(1−c)-ys 0
+        //      xy(1−c)-zs yy(1−c)+c  yz(1−c)+xs 0
+        //      xz(1−c)+ys yz(1−c)-xs zz(1−c)+c  0
+        //      0          0          0          1
+        float xy = x*y;
+        float xz = x*z;
+        float xs = x*s;
+        float ys = y*s;
+        float yz = y*z;
+        float zs = z*s;
+        final float[] r = matrixTmp;
+        ProjectFloat.gluMakeIdentityf(r);
+        r[0*4+0] = x*x*ic+c;
+        r[0*4+1] = xy*ic+zs;
+        r[0*4+2] = xz*ic-ys;
+
+        r[1*4+0] = xy*ic-zs;
+        r[1*4+1] = y*y*ic+c;
+        r[1*4+2] = yz*ic+xs;
+
+        r[2*4+0] = xz*ic+ys;
+        r[2*4+1] = yz*ic-xs;
+        r[2*4+2] = z*z*ic+c;
+
+        multMatrixTmp();
+    }
+
+    public final void glScalef(final float x, final float y, final float z) {
+        // Scale matrix:
+        //  x 0 0 0
+        //  0 y 0 0
+        //  0 0 z 0
+        //  0 0 0 1
+        // scales the first three columns of the product
+        final float[] m = glGetMatrixf(matrixMode);
+        for (int i = 0; i < 4; i++) {
+            m[i+4*0] *= x;
+            m[i+4*1] *= y;
+            m[i+4*2] *= z;
+        }
+        setModified();
+    }
+
+    public final void glOrthof(final float left, final float right, final float bottom, final float top, final float zNear, final float zFar) {
+        // Ortho matrix:
+        //  2/dx  0     0    tx
+        //  0     2/dy  0    ty
+        //  0     0     2/dz tz
+        //  0     0     0    1
+        float dx=right-left;
+        float dy=top-bottom;
+        float dz=zFar-zNear;
+        float tx=-1.0f*(right+left)/dx;
+        float ty=-1.0f*(top+bottom)/dy;
+        float tz=-1.0f*(zFar+zNear)/dz;
+
+        final float[] o = matrixTmp;
+        ProjectFloat.gluMakeIdentityf(o);
+        o[0+4*0] = 2.0f/dx;
+        o[1+4*1] = 2.0f/dy;
+        o[2+4*2] = -2.0f/dz;
+        o[0+4*3] = tx;
+        o[1+4*3] = ty;
+        o[2+4*3] = tz;
+
+        multMatrixTmp();
+    }
+
+    public final void glFrustumf(final float left, final float right, final float bottom, final float top, final float zNear, final float zFar) {
+        if(zNear<=0.0f||zFar<0.0f) {
+            throw new GLException("GL_INVALID_VALUE: zNear and zFar must be positive, and zNear>0");
+        }
+        if(left==right || top==bottom) {
+            throw new GLException("GL_INVALID_VALUE: top,bottom and left,right must not be equal");
+        }
+        // Frustum matrix:
+        //  2*zNear/dx   0          A  0
+        //  0            2*zNear/dy B  0
+        //  0            0          C  D
+        //  0            0         −1  0
+        float zNear2 = 2.0f*zNear;
+        float dx=right-left;
+        float dy=top-bottom;
+        float dz=zFar-zNear;
+        float A=(right+left)/dx;
+        float B=(top+bottom)/dy;
+        float C=-1.0f*(zFar+zNear)/dz;
+        float D=-2.0f*(zFar*zNear)/dz;
+
+        final float[] f = matrixTmp;
+        for (int i = 0; i < 16; i++) {
+            f[i] = 0f;
+        }
+        f[0+4*0] = zNear2/dx;
+        f[1+4*1] = zNear2/dy;
+        f[2+4*2] = C;
+
+        f[0+4*2] = A;
+        f[1+4*2] = B;
+
+        f[2+4*3] = D;
+        f[3+4*2] = -1.0f;
+
+        multMatrixTmp();
+    }
+
+    //
+    // private
+    //
+
+    /** current = current x matrixTmp */
+    private final void multMatrixTmp() {
+        final float[] matrix = glGetMatrixf(matrixMode);
+        glMultMatrixf(matrix, 0, matrixTmp, 0, matrixMult, 0);
+        System.arraycopy(matrixMult, 0, matrix, 0, 16);
+        setModified();
+    }
+
+    private final void setModified() {
+        if(matrixMode==GL_MODELVIEW) {
+            modified |= PMVMatrix.DIRTY_MODELVIEW ;
+            derivedDirty |= DIRTY_MVI | DIRTY_PMV ;
+        } else if(matrixMode==GL_PROJECTION) {
+            modified |= PMVMatrix.DIRTY_PROJECTION ;
+            derivedDirty |= DIRTY_PMV ;
+        } else if(matrixMode==GL.GL_TEXTURE) {
+            modified |= PMVMatrix.DIRTY_TEXTURE ;
+        }
+    }
+
+    private static final float[] growStackIfNecessary(float[] stack, int pos) {
+        if( pos + 16 <= stack.length ) {
+            return stack;
+        }
+        float[] newStack = new float[stack.length*2];
+        System.arraycopy(stack, 0, newStack, 0, pos);
+        return newStack;
+    }
+
+    private final void setMviMvit() {
+        if(!projectFloat.gluInvertMatrixf(matrixMv, matrixMvi)) {
+            throw new GLException("Invalid source Mv matrix, can't compute inverse");
+        }
+
+        // transpose matrix
+        for (int i = 0; i < 4; i++) {
+            for (int j = 0; j < 4; j++) {
+                matrixMvit[j+i*4] = matrixMvi[i+j*4];
+            }
+        }
+
+        // fetch 3x3
+        for (int i = 0; i < 3; i++) {
+            for (int j = 0; j < 3; j++) {
+                matrixMvit3[i+j*3] = matrixMvit[i+j*4];
+            }
+        }
+        derivedDirty &= ~DIRTY_MVI ;
+    }
+
+    protected float[] matrixT, matrixP, matrixMv, matrixMvi, matrixMvit, matrixPmv;
+    protected float[] matrixMvit3;
+    protected float[] matrixMult, matrixTmp;
+    protected float[] vec3f;
+    protected float[] matrixTStack, matrixPStack, matrixMvStack;
+    protected int matrixTStackPos, matrixPStackPos, matrixMvStackPos;
+    protected int matrixMode = GL_MODELVIEW;
+    protected int modified = 0;
+    protected int derivedDirty = 0;
+    protected ProjectFloat projectFloat;
+
+    /** derived Mvi, Mvit and normal matrix need to be recomputed */
+    private static final int DIRTY_MVI = 1 << 0;
+    /** derived Pmv needs to be recomputed */
+    private static final int DIRTY_PMV = 1 << 1;
+}
@@ -0,0 +1,520 @@
+/**
+ * Copyright 2010 JogAmp Community. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are
+ * permitted provided that the following conditions are met:
+ * 
+ *    1. Redistributions of source code must retain the above copyright notice, this list of
+ *       conditions and the following disclaimer.
+ * 
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *       of conditions and the following disclaimer in the documentation and/or other materials
+ *       provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY JogAmp Community ``AS IS'' AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL JogAmp Community OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are those of the
+ * authors and should not be interpreted as representing official policies, either expressed
+ * or implied, of JogAmp Community.
+ */
+package com.jogamp.opengl.util;
+
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+
+import javax.media.opengl.GL;
+import javax.media.opengl.glu.GLU;
+import javax.media.opengl.glu.GLUtessellator;
+import javax.media.opengl.glu.GLUtessellatorCallbackAdapter;
+
+/**
+ * Tessellates many polygons at once, spread over several threads, into
+ * packed vertex and triangle index buffers ready to be uploaded into
+ * vertex buffer objects.
+ * <p>
+ * The input is one coordinate array holding the vertices of all polygons,
+ * with 2 (x, y) or 3 (x, y, z) components per vertex, plus two offset
+ * tables: <code>contourStarts[c]</code> is the index of the first vertex of
+ * contour <code>c</code>, and <code>polygonStarts[p]</code> is the index of
+ * the first contour of polygon <code>p</code>.  Both tables carry one
+ * trailing entry holding the total count, so contour <code>c</code> spans
+ * the vertices <code>[contourStarts[c], contourStarts[c+1])</code>.</p>
+ * <p>
+ * Each worker thread owns one {@link GLUtessellator} with
+ * <code>GLU_TESS_REUSE_MESH_STORAGE</code> set and claims polygons in small
+ * batches, so the work balances across threads even if the polygon sizes
+ * vary a lot.  The output of a polygon does not depend on the number of
+ * threads.</p>
+ * <p>
+ * Instances may be shared between threads, the settings are captured
+ * when {@link #tessellate tessellate} is called.</p>
+ */
+public class BatchTessellator {
+    /** Number of polygons a worker claims at a time */
+    public static final int POLYGONS_PER_CLAIM = 16;
+
+    private int maxThreads = Runtime.getRuntime().availableProcessors();
+    private int windingRule = GLU.GLU_TESS_WINDING_ODD;
+    private double tolerance = 0.0;
+    private double normalX = 0.0, normalY = 0.0, normalZ = 0.0;
+
+    /** Limits the number of threads used per {@link #tessellate tessellate} call, including the caller's. */
+    public synchronized void setMaxThreads(int n) {
+        maxThreads = Math.max(1, n);
+    }
+
+    public synchronized int getMaxThreads() {
+        return maxThreads;
+    }
+
+    /** One of the <code>GLU_TESS_WINDING_*</code> rules, <code>GLU_TESS_WINDING_ODD</code> by default. */
+    public synchronized void setWindingRule(int windingRule) {
+        switch(windingRule) {
+            case GLU.GLU_TESS_WINDING_ODD:
+            case GLU.GLU_TESS_WINDING_NONZERO:
+            case GLU.GLU_TESS_WINDING_POSITIVE:
+            case GLU.GLU_TESS_WINDING_NEGATIVE:
+            case GLU.GLU_TESS_WINDING_ABS_GEQ_TWO:
+                this.windingRule = windingRule;
+                break;
+            default:
+                throw new IllegalArgumentException("Invalid winding rule: "+windingRule);
+        }
+    }
+
+    public synchronized int getWindingRule() {
+        return windingRule;
+    }
+
+    /** See <code>GLU_TESS_TOLERANCE</code>, 0 by default. */
+    public synchronized void setTolerance(double tolerance) {
+        if(tolerance < 0.0 || tolerance > 1.0) {
+            throw new IllegalArgumentException("Tolerance out of range [0..1]: "+tolerance);
+        }
+        this.tolerance = tolerance;
+    }
+
+    public synchronized double getTolerance() {
+        return tolerance;
+    }
+
+    /**
+     * Sets the polygon normal passed to <code>gluTessNormal</code>,
+     * all zero (computed per polygon) by default.
+     * Planar input, e.g. 2 component coordinates, should pass (0, 0, 1)
+     * which saves the normal computation and fixes the triangle orientation.
+     */
+    public synchronized void setNormal(double x, double y, double z) {
+        normalX = x;
+        normalY = y;
+        normalZ = z;
+    }
+
+    /**
+     * The packed output of one {@link BatchTessellator#tessellate tessellate} call.
+     * <p>
+     * {@link #getVertices()} holds 3 floats (x, y, z) per vertex: the input
+     * vertices of every successfully tessellated polygon, in input order,
+     * each polygon followed by the intersection vertices the tessellator
+     * created for it.  {@link #getIndices()} holds 3 vertex indices per
+     * triangle, suitable for <code>glDrawElements(GL_TRIANGLES, ...)</code>
+     * with <code>GL_UNSIGNED_INT</code> indices.  A polygon that raised a
+     * tessellator error contributes neither vertices nor triangles.</p>
+     */
+    public static class Result {
+        private final FloatBuffer vertices;
+        private final IntBuffer indices;
+        private final int[] vertexStarts;
+        private final int[] indexStarts;
+        private final int[] errors;
+        private final int errorCount;
+
+        Result(FloatBuffer vertices, IntBuffer indices, int[] vertexStarts, int[] indexStarts, int[] errors, int errorCount) {
+            this.vertices = vertices;
+            this.indices = indices;
+            this.vertexStarts = vertexStarts;
+            this.indexStarts = indexStarts;
+            this.errors = errors;
+            this.errorCount = errorCount;
+        }
+
+        /** Direct buffer of 3 floats per vertex, positioned at 0. */
+        public FloatBuffer getVertices() { return vertices; }
+
+        /** Direct buffer of 3 indices per triangle, positioned at 0. */
+        public IntBuffer getIndices() { return indices; }
+
+        public int getPolygonCount() { return errors.length; }
+
+        public int getVertexCount() { return vertexStarts[errors.length]; }
+
+        public int getTriangleCount() { return indexStarts[errors.length] / 3; }
+
+        /** Index of the first vertex of the given polygon. */
+        public int getVertexStart(int polygon) { return vertexStarts[polygon]; }
+
+        public int getVertexCount(int polygon) { return vertexStarts[polygon+1] - vertexStarts[polygon]; }
+
+        /** Position of the first index of the given polygon within {@link #getIndices()}. */
+        public int getIndexStart(int polygon) { return indexStarts[polygon]; }
+
+        public int getIndexCount(int polygon) { return indexStarts[polygon+1] - indexStarts[polygon]; }
+
+        /** The first GLU error raised for the given polygon, or 0. */
+        public int getError(int polygon) { return errors[polygon]; }
+
+        /** Number of polygons which raised a tessellator error. */
+        public int getErrorCount() { return errorCount; }
+    }
+
+    /**
+     * Tessellates all polygons, see the class documentation for the layout
+     * of the input arrays.
+     *
+     * @param coords vertex coordinates of all polygons
+     * @param components number of coordinates per vertex, 2 or 3
+     * @param contourStarts first vertex of each contour, plus the total vertex count
+     * @param polygonStarts first contour of each polygon, plus the total contour count
+     * @throws IllegalArgumentException if the offset tables are not monotonic or exceed the input
+     */
+    public Result tessellate(double[] coords, int components, int[] contourStarts, int[] polygonStarts) {
+        if(components != 2 && components != 3) {
+            throw new IllegalArgumentException("Components must be 2 or 3: "+components);
+        }
+        checkOffsets("contourStarts", contourStarts, coords.length / components);
+        checkOffsets("polygonStarts", polygonStarts, contourStarts.length - 1);
+
+        Job job;
+        int threads;
+        synchronized(this) {
+            job = new Job(coords, components, contourStarts, polygonStarts,
+                          windingRule, tolerance, normalX, normalY, normalZ);
+            threads = maxThreads;
+        }
+        int claims = (job.polygonCount + POLYGONS_PER_CLAIM - 1) / POLYGONS_PER_CLAIM;
+        threads = Math.min(threads, claims);
+        run(job, threads);
+        return job.assemble();
+    }
+
+    private static void checkOffsets(String name, int[] starts, int total) {
+        if(starts.length < 1 || starts[0] != 0 || starts[starts.length-1] > total) {
+            throw new IllegalArgumentException(name+" must start at 0 and end within "+total);
+        }
+        for(int i=1; i<starts.length; i++) {
+            if(starts[i] < starts[i-1]) {
+                throw new IllegalArgumentException(name+" not monotonic at "+i);
+            }
+        }
+    }
+
+    private static void run(Job job, int threads) {
+        if(threads <= 1) {
+            new Worker(job).work();
+            return;
+        }
+        WorkerThread[] workers = new WorkerThread[threads - 1];
+        for(int i=0; i<workers.length; i++) {
+            workers[i] = new WorkerThread(job, i+1);
+            workers[i].start();
+        }
+        Throwable error = null;
+        try {
+            new Worker(job).work();
+        } catch (Throwable t) {
+            error = t;
+            job.abort();
+        }
+        boolean interrupted = false;
+        for(int i=0; i<workers.length; i++) {
+            while(workers[i].isAlive()) {
+                try {
+                    workers[i].join();
+                } catch (InterruptedException ie) {
+                    interrupted = true;
+                }
+            }
+            if(null == error) {
+                error = workers[i].error;
+            }
+        }
+        if(interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        if(error instanceof RuntimeException) {
+            throw (RuntimeException) error;
+        }
+        if(error instanceof Error) {
+            throw (Error) error;
+        }
+        if(null != error) {
+            throw new RuntimeException(error.toString());
+        }
+    }
+
+    /** Input, settings and per polygon results of one tessellate call */
+    private static class Job {
+        final double[] coords;
+        final int components;
+        final int[] contourStarts;
+        final int[] polygonStarts;
+        final int polygonCount;
+        final int windingRule;
+        final double tolerance;
+        final double normalX, normalY, normalZ;
+
+        /* per polygon results, each slot is written by exactly one worker */
+        final int[][] triangles;
+        final double[][] extraCoords;
+        final int[] errors;
+
+        private int nextPolygon = 0;
+
+        Job(double[] coords, int components, int[] contourStarts, int[] polygonStarts,
+            int windingRule, double tolerance, double normalX, double normalY, double normalZ) {
+            this.coords = coords;
+            this.components = components;
+            this.contourStarts = contourStarts;
+            this.polygonStarts = polygonStarts;
+            this.polygonCount = polygonStarts.length - 1;
+            this.windingRule = windingRule;
+            this.tolerance = tolerance;
+            this.normalX = normalX;
+            this.normalY = normalY;
+            this.normalZ = normalZ;
+            triangles = new int[polygonCount][];
+            extraCoords = new double[polygonCount][];
+            errors = new int[polygonCount];
+        }
+
+        /** @return the first polygon of the next batch, or -1 if all are claimed */
+        synchronized int claim() {
+            if(nextPolygon >= polygonCount) {
+                return -1;
+            }
+            int first = nextPolygon;
+            nextPolygon += POLYGONS_PER_CLAIM;
+            return first;
+        }
+
+        /** Makes the remaining workers stop after their current batch */
+        synchronized void abort() {
+            nextPolygon = polygonCount;
+        }
+
+        int vertexCount(int polygon) {
+            int first = contourStarts[polygonStarts[polygon]];
+            int last = contourStarts[polygonStarts[polygon+1]];
+            return last - first;
+        }
+
+        /* Called on the caller's thread once all workers have been joined */
+        Result assemble() {
+            int[] vertexStarts = new int[polygonCount+1];
+            int[] indexStarts = new int[polygonCount+1];
+            int errorCount = 0;
+            for(int p=0; p<polygonCount; p++) {
+                int vertices = 0, indices = 0;
+                if(0 != errors[p]) {
+                    errorCount++;
+                } else {
+                    vertices = vertexCount(p) + extraCoords[p].length / 3;
+                    indices = triangles[p].length;
+                }
+                vertexStarts[p+1] = vertexStarts[p] + vertices;
+                indexStarts[p+1] = indexStarts[p] + indices;
+            }
+
+            FloatBuffer vertices = GLBuffers.newDirectFloatBuffer(3 * vertexStarts[polygonCount]);
+            IntBuffer indices = GLBuffers.newDirectIntBuffer(indexStarts[polygonCount]);
+            for(int p=0; p<polygonCount; p++) {
+                if(0 != errors[p]) {
+                    continue;
+                }
+                int first = contourStarts[polygonStarts[p]];
+                int last = contourStarts[polygonStarts[p+1]];
+                for(int v=first; v<last; v++) {
+                    int i = v * components;
+                    vertices.put((float) coords[i]);
+                    vertices.put((float) coords[i+1]);
+                    vertices.put(3 == components ? (float) coords[i+2] : 0f);
+                }
+                double[] extra = extraCoords[p];
+                for(int i=0; i<extra.length; i++) {
+                    vertices.put((float) extra[i]);
+                }
+                int base = vertexStarts[p];
+                int[] tris = triangles[p];
+                for(int i=0; i<tris.length; i++) {
+                    indices.put(base + tris[i]);
+                }
+            }
+            vertices.rewind();
+            indices.rewind();
+            return new Result(vertices, indices, vertexStarts, indexStarts, errors, errorCount);
+        }
+    }
+
+    /** Vertex data handed to the tessellator: the polygon local vertex index */
+    private static class VertexRef {
+        final int index;
+
+        VertexRef(int index) {
+            this.index = index;
+        }
+    }
+
+    /** Tessellates claimed polygons with its own tessellator, on whatever thread calls work() */
+    private static class Worker extends GLUtessellatorCallbackAdapter {
+        private final Job job;
+        private final GLUtessellator tess;
+        private final double[] xyz = new double[3];
+
+        private VertexRef[] refs = new VertexRef[0];
+        private int[] tris = new int[3 * 64];
+        private int triCount;		/* number of indices in tris */
+        private double[] extra = new double[3 * 16];
+        private int extraCount;		/* number of coordinates in extra */
+        private int inputVertices;	/* vertex count of the current polygon */
+        private int error;
+
+        Worker(Job job) {
+            this.job = job;
+            tess = GLU.gluNewTess();
+            GLU.gluTessProperty(tess, GLU.GLU_TESS_REUSE_MESH_STORAGE, 1);
+            GLU.gluTessProperty(tess, GLU.GLU_TESS_WINDING_RULE, job.windingRule);
+            GLU.gluTessProperty(tess, GLU.GLU_TESS_TOLERANCE, job.tolerance);
+            GLU.gluTessNormal(tess, job.normalX, job.normalY, job.normalZ);
+            GLU.gluTessCallback(tess, GLU.GLU_TESS_BEGIN, this);
+            GLU.gluTessCallback(tess, GLU.GLU_TESS_VERTEX, this);
+            // an edge flag callback makes the tessellator emit independent triangles only
+            GLU.gluTessCallback(tess, GLU.GLU_TESS_EDGE_FLAG, this);
+            GLU.gluTessCallback(tess, GLU.GLU_TESS_COMBINE, this);
+            GLU.gluTessCallback(tess, GLU.GLU_TESS_ERROR, this);
+        }
+
+        void work() {
+            try {
+                int first;
+                while((first = job.claim()) >= 0) {
+                    int last = Math.min(first + POLYGONS_PER_CLAIM, job.polygonCount);
+                    for(int p=first; p<last; p++) {
+                        tessellate(p);
+                    }
+                }
+            } finally {
+                GLU.gluDeleteTess(tess);
+            }
+        }
+
+        private void tessellate(int polygon) {
+            int vertexCount = job.vertexCount(polygon);
+            if(refs.length < vertexCount) {
+                VertexRef[] grown = new VertexRef[Math.max(vertexCount, 2 * refs.length)];
+                System.arraycopy(refs, 0, grown, 0, refs.length);
+                for(int i=refs.length; i<grown.length; i++) {
+                    grown[i] = new VertexRef(i);
+                }
+                refs = grown;
+            }
+            inputVertices = vertexCount;
+            triCount = 0;
+            extraCount = 0;
+            error = 0;
+
+            final double[] coords = job.coords;
+            final int components = job.components;
+            final int base = job.contourStarts[job.polygonStarts[polygon]];
+            GLU.gluTessBeginPolygon(tess, null);
+            for(int c=job.polygonStarts[polygon]; c<job.polygonStarts[polygon+1]; c++) {
+                GLU.gluTessBeginContour(tess);
+                for(int v=job.contourStarts[c]; v<job.contourStarts[c+1]; v++) {
+                    if(3 == components) {
+                        GLU.gluTessVertex(tess, coords, 3 * v, refs[v - base]);
+                    } else {
+                        xyz[0] = coords[2 * v];
+                        xyz[1] = coords[2 * v + 1];
+                        GLU.gluTessVertex(tess, xyz, 0, refs[v - base]);
+                    }
+                }
+                GLU.gluTessEndContour(tess);
+            }
+            GLU.gluTessEndPolygon(tess);
+
+            job.errors[polygon] = error;
+            if(0 == error) {
+                int[] t = new int[triCount];
+                System.arraycopy(tris, 0, t, 0, triCount);
+                job.triangles[polygon] = t;
+                double[] e = new double[extraCount];
+                System.arraycopy(extra, 0, e, 0, extraCount);
+                job.extraCoords[polygon] = e;
+            }
+        }
+
+        public void begin(int type) {
+            if(GL.GL_TRIANGLES != type && 0 == error) {
+                error = GLU.GLU_INVALID_OPERATION;
+            }
+        }
+
+        public void edgeFlag(boolean boundaryEdge) {
+        }
+
+        public void vertex(Object data) {
+            if(triCount == tris.length) {
+                int[] grown = new int[2 * tris.length];
+                System.arraycopy(tris, 0, grown, 0, triCount);
+                tris = grown;
+            }
+            tris[triCount++] = ((VertexRef) data).index;
+        }
+
+        public void combine(double[] coords, Object[] data, float[] weight, Object[] outData) {
+            if(extraCount + 3 > extra.length) {
+                double[] grown = new double[2 * extra.length];
+                System.arraycopy(extra, 0, grown, 0, extraCount);
+                extra = grown;
+            }
+            int index = inputVertices + extraCount / 3;
+            extra[extraCount++] = coords[0];
+            extra[extraCount++] = coords[1];
+            extra[extraCount++] = coords[2];
+            outData[0] = new VertexRef(index);
+        }
+
+        public void error(int errnum) {
+            if(0 == error) {
+                error = errnum;
+            }
+        }
+    }
+
+    private static class WorkerThread extends Thread {
+        private final Job job;
+        Throwable error;
+
+        WorkerThread(Job job, int n) {
+            super("BatchTessellator-"+n);
+            this.job = job;
+            setDaemon(true);
+        }
+
+        public void run() {
+            try {
+                new Worker(job).work();
+            } catch (Throwable t) {
+                error = t;
+                job.abort();
+            }
+        }
+    }
+}
@@ -0,0 +1,221 @@
+/**
+ * Copyright 2010 JogAmp Community. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are
+ * permitted provided that the following conditions are met:
+ * 
+ *    1. Redistributions of source code must retain the above copyright notice, this list of
+ *       conditions and the following disclaimer.
+ * 
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *       of conditions and the following disclaimer in the documentation and/or other materials
+ *       provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY JogAmp Community ``AS IS'' AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL JogAmp Community OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are those of the
+ * authors and should not be interpreted as representing official policies, either expressed
+ * or implied, of JogAmp Community.
+ */
+
+package com.jogamp.opengl.util;
+
+import com.jogamp.common.nio.Buffers;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+
+/**
+ * Pool of native ordered direct {@link ByteBuffer}s, keyed by power-of-two size classes.
+ * <p>
+ * Direct memory is only reclaimed by the garbage collector,
+ * hence reusing released buffers avoids direct memory churn
+ * of frequently grown or recreated vertex arrays.</p>
+ * <p>
+ * A buffer is handed out with its full size class capacity,
+ * which is at least the requested size.
+ * Buffers smaller than {@link #MIN_SIZE_CLASS} bytes share the smallest class,
+ * buffers larger than {@link #MAX_SIZE_CLASS} bytes are not pooled.
+ * The free buffers of all size classes together never exceed the pool's
+ * byte limit, surplus released buffers are left to the garbage collector.</p>
+ * <p>
+ * All methods are thread safe.</p>
+ */
+public class DirectBufferPool {
+    /** Smallest size class in bytes, 64 */
+    public static final int MIN_SIZE_CLASS = 1 << 6;
+    /** Largest pooled size class in bytes, 64 MB */
+    public static final int MAX_SIZE_CLASS = 1 << 26;
+
+    private static final int MIN_SIZE_CLASS_SHIFT = 6;
+    private static final int MAX_SIZE_CLASS_SHIFT = 26;
+
+    private static DirectBufferPool defaultPool = null;
+
+    /** @return the shared default pool */
+    public static synchronized DirectBufferPool getDefault() {
+        if(null==defaultPool) {
+            defaultPool = new DirectBufferPool(DEFAULT_MAX_PER_CLASS, DEFAULT_MAX_POOLED_BYTES);
+        }
+        return defaultPool;
+    }
+
+    /** Default maximum number of free buffers kept per size class */
+    public static final int DEFAULT_MAX_PER_CLASS = 8;
+
+    /** Default maximum number of free bytes kept over all size classes, 16 MB */
+    public static final long DEFAULT_MAX_POOLED_BYTES = 1 << 24;
+
+    /**
+     * Creates a pool keeping at most {@link #DEFAULT_MAX_POOLED_BYTES} free bytes.
+     *
+     * @param maxPerClass maximum number of free buffers kept per size class
+     */
+    public DirectBufferPool(int maxPerClass) {
+        this(maxPerClass, DEFAULT_MAX_POOLED_BYTES);
+    }
+
+    /**
+     * @param maxPerClass maximum number of free buffers kept per size class
+     * @param maxPooledBytes maximum number of free bytes kept over all size classes
+     */
+    public DirectBufferPool(int maxPerClass, long maxPooledBytes) {
+        this.maxPerClass = maxPerClass;
+        this.maxPooledBytes = maxPooledBytes;
+        this.freeLists = new ArrayList[MAX_SIZE_CLASS_SHIFT-MIN_SIZE_CLASS_SHIFT+1];
+        for(int i=0; i<freeLists.length; i++) {
+            freeLists[i] = new ArrayList();
+        }
+    }
+
+    /**
+     * @return the size class in bytes for the requested byte size
+     */
+    public static int getSizeClass(int bytes) {
+        if(bytes<=MIN_SIZE_CLASS) {
+            return MIN_SIZE_CLASS;
+        }
+        if(bytes>MAX_SIZE_CLASS) {
+            return bytes;
+        }
+        int sz = MIN_SIZE_CLASS;
+        while( sz < bytes ) {
+            sz <<= 1;
+        }
+        return sz;
+    }
+
+    private static int getSizeClassIndex(int sizeClass) {
+        int idx = 0;
+        while( ( MIN_SIZE_CLASS << idx ) < sizeClass ) {
+            idx++;
+        }
+        return idx;
+    }
+
+    /**
+     * Returns a cleared native ordered direct buffer with a capacity of at least <code>bytes</code>,
+     * either reused from the pool or newly allocated.
+     */
+    public synchronized ByteBuffer acquire(int bytes) {
+        final int sizeClass = getSizeClass(bytes);
+        ByteBuffer res = null;
+        if(sizeClass<=MAX_SIZE_CLASS) {
+            final ArrayList freeList = freeLists[getSizeClassIndex(sizeClass)];
+            if(freeList.size()>0) {
+                res = (ByteBuffer) freeList.remove(freeList.size()-1);
+                res.clear();
+                pooledBytes -= sizeClass;
+                hits++;
+            }
+        }
+        if(null==res) {
+            res = Buffers.newDirectByteBuffer(sizeClass);
+            allocatedBytes += sizeClass;
+            misses++;
+        }
+        heldBytes += sizeClass;
+        return res;
+    }
+
+    /**
+     * Returns a buffer previously {@link #acquire(int) acquired} from this pool.
+     * The caller must not use the buffer or any of its views afterwards.
+     */
+    public synchronized void release(ByteBuffer buffer) {
+        if(null==buffer) {
+            return;
+        }
+        final int sizeClass = buffer.capacity();
+        heldBytes -= sizeClass;
+        if(sizeClass<=MAX_SIZE_CLASS && sizeClass==getSizeClass(sizeClass)) {
+            final ArrayList freeList = freeLists[getSizeClassIndex(sizeClass)];
+            if(freeList.size()<maxPerClass && pooledBytes+sizeClass<=maxPooledBytes) {
+                freeList.add(buffer);
+                pooledBytes += sizeClass;
+                return;
+            }
+        }
+        allocatedBytes -= sizeClass;
+        dropped++;
+    }
+
+    /**
+     * Forgets a buffer previously {@link #acquire(int) acquired} from this pool
+     * without pooling it, e.g. because it may still be referenced elsewhere.
+     */
+    public synchronized void discard(ByteBuffer buffer) {
+        if(null==buffer) {
+            return;
+        }
+        heldBytes -= buffer.capacity();
+        allocatedBytes -= buffer.capacity();
+        dropped++;
+    }
+
+    /** Drops all free buffers, leaving them to the garbage collector. */
+    public synchronized void clear() {
+        for(int i=0; i<freeLists.length; i++) {
+            freeLists[i].clear();
+        }
+        allocatedBytes -= pooledBytes;
+        pooledBytes = 0;
+    }
+
+    /** @return the direct bytes currently handed out by this pool */
+    public synchronized long getHeldBytes() { return heldBytes; }
+
+    /** @return the maximum number of free bytes kept in this pool */
+    public final long getMaxPooledBytes() { return maxPooledBytes; }
+
+    /** @return the direct bytes currently kept free in this pool */
+    public synchronized long getPooledBytes() { return pooledBytes; }
+
+    /** @return the direct bytes referenced by this pool, i.e. held plus pooled */
+    public synchronized long getAllocatedBytes() { return allocatedBytes; }
+
+    /** @return the number of acquisitions satisfied by a pooled buffer */
+    public synchronized long getHits() { return hits; }
+
+    /** @return the number of acquisitions requiring a new allocation */
+    public synchronized long getMisses() { return misses; }
+
+    public synchronized String toString() {
+        return "DirectBufferPool[held "+heldBytes+"b, pooled "+pooledBytes+"b, allocated "+allocatedBytes+
+               "b, hits "+hits+", misses "+misses+", dropped "+dropped+"]";
+    }
+
+    private final int maxPerClass;
+    private final long maxPooledBytes;
+    private final ArrayList[] freeLists;
+    private long heldBytes, pooledBytes, allocatedBytes;
+    private long hits, misses, dropped;
+}
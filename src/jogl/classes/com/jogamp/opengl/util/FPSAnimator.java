@@ -39,18 +39,19 @@
 
 package com.jogamp.opengl.util;
 
-import java.util.*;
 import javax.media.opengl.*;
 
 /** An Animator subclass which attempts to achieve a target
-    frames-per-second rate to avoid using all CPU time. The target FPS
-    is only an estimate and is not guaranteed. */
+    frames-per-second rate to avoid using all CPU time.
 
-public class FPSAnimator extends Animator {
-  private Timer timer;
-  private int   fps;
-  private boolean scheduleAtFixedRate;
+    <P> Frames are paced by the {@link FrameScheduler} against
+    drift-free deadlines. With fixed-rate scheduling, missed frames
+    are caught up by rendering back to back, otherwise they are
+    skipped. The target FPS is not guaranteed, use
+    {@link #getFrameStatistics(GLAutoDrawable)} to observe the
+    achieved frame times. </P> */
 
+public class FPSAnimator extends Animator {
   /** Creates an FPSAnimator with a given target frames-per-second
       value. Equivalent to <code>FPSAnimator(null, fps)</code>. */
   public FPSAnimator(int fps) {
@@ -74,50 +75,26 @@ public class FPSAnimator extends Animator {
 
   /** Creates an FPSAnimator with a given target frames-per-second
       value, an initial drawable to animate, and a flag indicating
-      whether to use fixed-rate scheduling. */
+      whether to use fixed-rate scheduling, i.e. the
+      {@link FrameScheduler#CATCH_UP} policy instead of
+      {@link FrameScheduler#SKIP}. */
   public FPSAnimator(GLAutoDrawable drawable, int fps, boolean scheduleAtFixedRate) {
-    this.fps = fps;
+    FrameScheduler scheduler = getFrameScheduler();
+    scheduler.setFrameRate(fps);
+    scheduler.setPolicy(scheduleAtFixedRate ? FrameScheduler.CATCH_UP : FrameScheduler.SKIP);
     if (drawable != null) {
       add(drawable);
     }
-    this.scheduleAtFixedRate = scheduleAtFixedRate;
   }
 
-  /** Starts this FPSAnimator. */
-  public synchronized void start() {
-    if (timer != null) {
-      throw new GLException("Already started");
-    }
-    timer = new Timer();
-    long delay = (long) (1000.0f / (float) fps);
-    TimerTask task = new TimerTask() {
-        public void run() {
-          display();
-        }
-      };
-    if (scheduleAtFixedRate) {
-      timer.scheduleAtFixedRate(task, 0, delay);
-    } else {
-      timer.schedule(task, 0, delay);
-    }
+  /** Returns the target frames-per-second value. */
+  public int getFPS() {
+    return getFrameScheduler().getFrameRate();
   }
 
-  /** Indicates whether this FPSAnimator is currently running. This
-      should only be used as a heuristic to applications because in
-      some circumstances the FPSAnimator may be in the process of
-      shutting down and this method will still return true. */
-  public synchronized boolean isAnimating() {
-    return (timer != null);
-  }
-
-  /** Stops this FPSAnimator. Due to the implementation of the
-      FPSAnimator it is not guaranteed that the FPSAnimator will be
-      completely stopped by the time this method returns. */
-  public synchronized void stop() {
-    if (timer == null) {
-      throw new GLException("Already stopped");
-    }
-    timer.cancel();
-    timer = null;
+  /** Sets the target frames-per-second value,
+      which takes effect with the next frame. */
+  public void setFPS(int fps) {
+    getFrameScheduler().setFrameRate(fps);
   }
 }
@@ -0,0 +1,316 @@
+/**
+ * Copyright 2010 JogAmp Community. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are
+ * permitted provided that the following conditions are met:
+ * 
+ *    1. Redistributions of source code must retain the above copyright notice, this list of
+ *       conditions and the following disclaimer.
+ * 
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *       of conditions and the following disclaimer in the documentation and/or other materials
+ *       provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY JogAmp Community ``AS IS'' AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL JogAmp Community OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are those of the
+ * authors and should not be interpreted as representing official policies, either expressed
+ * or implied, of JogAmp Community.
+ */
+
+package com.jogamp.opengl.util;
+
+import com.jogamp.nativewindow.impl.Clock;
+
+/**
+ * Frame pacing for the {@link Animator} thread.
+ * <p>
+ * Frame deadlines are derived from the start time and the frame index,
+ * <code>start + index * period</code>, hence rounding errors and late frames do not
+ * accumulate drift. The schedule is kept in nanoseconds of the monotonic
+ * {@link Clock}, which allows periods of a few milliseconds, e.g. 4.167 ms at 240 fps.
+ * On Java ME CDC/FP the clock resolution is one millisecond.</p>
+ * <p>
+ * Waiting for a deadline parks the thread until {@link #getSpinThreshold()} milliseconds
+ * before the deadline and yields the remaining time, since the sleep granularity of
+ * many platforms is coarser than a frame.</p>
+ * <p>
+ * A frame which cannot start within one period of its deadline is missed,
+ * it is either rendered immediately ({@link #CATCH_UP}) or dropped ({@link #SKIP}).</p>
+ * <p>
+ * An unpaced scheduler, i.e. with a frame rate of 0, only yields between frames,
+ * unless {@link #setRunAsFastAsPossible(boolean)} is set.</p>
+ */
+public class FrameScheduler {
+    /** Missed frames are dropped, the schedule continues with the next deadline in the future. */
+    public static final int SKIP = 0;
+    /** Missed frames are rendered back to back until the schedule is met again, see {@link #setMaxCatchUpFrames(int)}. */
+    public static final int CATCH_UP = 1;
+
+    /** Default spin threshold in milliseconds */
+    public static final long DEFAULT_SPIN_THRESHOLD = 2;
+    /** Default maximum number of frames caught up, before the schedule is reset */
+    public static final int DEFAULT_MAX_CATCH_UP_FRAMES = 5;
+
+    // nextDeadline() result of a frame, which is due immediately,
+    // the clock origin is arbitrary and deadlines may be negative
+    private static final long DUE = Long.MIN_VALUE;
+
+    private long periodNanos;
+    private int policy;
+    private long spinThreshold = DEFAULT_SPIN_THRESHOLD;
+    private int maxCatchUpFrames = DEFAULT_MAX_CATCH_UP_FRAMES;
+    private volatile boolean runAsFastAsPossible = false;
+
+    private boolean started = false;
+    private long startNanos;
+    private long frameIndex;
+    private volatile boolean wakeUpRequested = false;
+
+    // metrics
+    private int frameCount = 0;
+    private int missedFrames = 0;
+    private int droppedFrames = 0;
+    private int resyncs = 0;
+
+    /** Creates an unpaced scheduler */
+    public FrameScheduler() {
+        this(0, SKIP);
+    }
+
+    /**
+     * @param fps the target frame rate, 0 for unpaced
+     * @param policy the missed frame policy, {@link #SKIP} or {@link #CATCH_UP}
+     */
+    public FrameScheduler(int fps, int policy) {
+        setFrameRate(fps);
+        setPolicy(policy);
+    }
+
+    /**
+     * Sets the target frame rate, the schedule restarts with the next frame.
+     * @param fps the target frame rate, 0 for unpaced
+     */
+    public synchronized void setFrameRate(int fps) {
+        if(fps<0) {
+            throw new IllegalArgumentException("Negative frame rate: "+fps);
+        }
+        periodNanos = fps>0 ? 1000000000L / fps : 0 ;
+        started = false;
+    }
+
+    /** @return the target frame rate, 0 if unpaced */
+    public synchronized int getFrameRate() {
+        return periodNanos>0 ? (int) Math.round(1000000000.0 / periodNanos) : 0 ;
+    }
+
+    /** @return the frame period in nanoseconds, 0 if unpaced */
+    public synchronized long getFramePeriod() { return periodNanos; }
+
+    public synchronized boolean isPaced() { return periodNanos>0; }
+
+    /** @param policy the missed frame policy, {@link #SKIP} or {@link #CATCH_UP} */
+    public synchronized void setPolicy(int policy) {
+        if(SKIP!=policy && CATCH_UP!=policy) {
+            throw new IllegalArgumentException("Unknown policy: "+policy);
+        }
+        this.policy = policy;
+    }
+
+    public synchronized int getPolicy() { return policy; }
+
+    /**
+     * @param ms time in milliseconds before a deadline,
+     *        which is spent yielding instead of sleeping.
+     */
+    public synchronized void setSpinThreshold(long ms) {
+        if(ms<0) {
+            throw new IllegalArgumentException("Negative spin threshold: "+ms);
+        }
+        spinThreshold = ms;
+    }
+
+    public synchronized long getSpinThreshold() { return spinThreshold; }
+
+    /**
+     * @param frames the maximum number of missed frames rendered back to back
+     *        with the {@link #CATCH_UP} policy. If more frames are behind,
+     *        they are dropped and the schedule is reset.
+     */
+    public synchronized void setMaxCatchUpFrames(int frames) {
+        if(frames<0) {
+            throw new IllegalArgumentException("Negative frame count: "+frames);
+        }
+        maxCatchUpFrames = frames;
+    }
+
+    public synchronized int getMaxCatchUpFrames() { return maxCatchUpFrames; }
+
+    /** Unpaced only: if set, there is no pause between frames. */
+    public void setRunAsFastAsPossible(boolean runFast) {
+        runAsFastAsPossible = runFast;
+    }
+
+    /**
+     * Restarts the schedule with the next frame,
+     * e.g. after the animation was paused.
+     */
+    public synchronized void reset() {
+        started = false;
+        wakeUpRequested = false;
+    }
+
+    /**
+     * Interrupts a pending {@link #waitForNextFrame()}.
+     */
+    public synchronized void wakeUp() {
+        wakeUpRequested = true;
+        notifyAll();
+    }
+
+    /**
+     * Blocks until the next frame is due.
+     *
+     * @return true if the next frame shall be rendered,
+     *         false if the wait was interrupted by {@link #wakeUp()}.
+     */
+    public boolean waitForNextFrame() {
+        long deadline;
+        synchronized(this) {
+            if(wakeUpRequested) {
+                wakeUpRequested = false;
+                return false;
+            }
+            if(0==periodNanos) {
+                frameCount++;
+                deadline = DUE;
+            } else {
+                deadline = nextDeadline(currentTimeNanos());
+                if(DUE==deadline) {
+                    return true;
+                }
+                long spinNanos = spinThreshold * 1000000L;
+                long remaining;
+                while( ( remaining = deadline - currentTimeNanos() ) > spinNanos ) {
+                    try {
+                        waitNanos(remaining - spinNanos);
+                    } catch (InterruptedException ie) { }
+                    if(wakeUpRequested) {
+                        wakeUpRequested = false;
+                        return false;
+                    }
+                }
+            }
+        }
+        if(DUE==deadline) {
+            if(!runAsFastAsPossible) {
+                // Avoid swamping the CPU
+                Thread.yield();
+            }
+            return true;
+        }
+        while( currentTimeNanos() - deadline < 0 ) {
+            spin();
+            if(wakeUpRequested) {
+                synchronized(this) {
+                    wakeUpRequested = false;
+                }
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the time base of the schedule in nanoseconds,
+     * by default {@link Clock#currentTimeNanos()}.
+     */
+    protected long currentTimeNanos() {
+        return Clock.currentTimeNanos();
+    }
+
+    /**
+     * Parks the calling thread, which holds the monitor of this scheduler,
+     * for the given time or until {@link #wakeUp()} is called.
+     */
+    protected void waitNanos(long nanos) throws InterruptedException {
+        wait(nanos / 1000000L, (int) (nanos % 1000000L));
+    }
+
+    /** Called repeatedly within the last {@link #getSpinThreshold()} milliseconds before a deadline. */
+    protected void spin() {
+        Thread.yield();
+    }
+
+    /**
+     * Advances the schedule to the next frame.
+     * @return the deadline of the next frame in nanoseconds, or <code>DUE</code> if it is due immediately
+     */
+    private long nextDeadline(long nowNanos) {
+        frameCount++;
+        if(!started) {
+            started = true;
+            startNanos = nowNanos;
+            frameIndex = 0;
+            return DUE;
+        }
+        frameIndex++;
+        long deadline = startNanos + frameIndex * periodNanos;
+        long late = nowNanos - deadline;
+        if(late >= periodNanos) {
+            long behind = late / periodNanos;
+            if(CATCH_UP==policy && behind <= maxCatchUpFrames) {
+                missedFrames++;
+            } else {
+                if(CATCH_UP==policy) {
+                    // too far behind, start over
+                    startNanos = nowNanos;
+                    frameIndex = 0;
+                    resyncs++;
+                } else {
+                    frameIndex += behind;
+                }
+                missedFrames += behind;
+                droppedFrames += behind;
+            }
+            return DUE;
+        }
+        if(late >= 0) {
+            return DUE;
+        }
+        return deadline;
+    }
+
+    /** @return the number of frames scheduled */
+    public synchronized int getFrameCount() { return frameCount; }
+
+    /** @return the number of frames which did not start within one period of their deadline */
+    public synchronized int getMissedFrames() { return missedFrames; }
+
+    /** @return the number of missed frames, which were dropped */
+    public synchronized int getDroppedFrames() { return droppedFrames; }
+
+    /** @return the number of schedule resets caused by exceeding {@link #getMaxCatchUpFrames()} */
+    public synchronized int getResyncCount() { return resyncs; }
+
+    public synchronized void resetStatistics() {
+        frameCount = 0;
+        missedFrames = 0;
+        droppedFrames = 0;
+        resyncs = 0;
+    }
+
+    public String toString() {
+        return "FrameScheduler[fps "+getFrameRate()+", policy "+(CATCH_UP==getPolicy()?"catch-up":"skip")+
+               ", frames "+getFrameCount()+", missed "+getMissedFrames()+", dropped "+getDroppedFrames()+
+               ", resyncs "+getResyncCount()+"]";
+    }
+}
@@ -0,0 +1,151 @@
+/**
+ * Copyright 2010 JogAmp Community. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are
+ * permitted provided that the following conditions are met:
+ * 
+ *    1. Redistributions of source code must retain the above copyright notice, this list of
+ *       conditions and the following disclaimer.
+ * 
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *       of conditions and the following disclaimer in the documentation and/or other materials
+ *       provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY JogAmp Community ``AS IS'' AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL JogAmp Community OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are those of the
+ * authors and should not be interpreted as representing official policies, either expressed
+ * or implied, of JogAmp Community.
+ */
+
+package com.jogamp.opengl.util;
+
+import java.util.Arrays;
+
+/**
+ * Frame time statistics of one animated drawable.
+ * <p>
+ * The frame time is the interval between two consecutive
+ * <code>display()</code> calls of the drawable, in microseconds.
+ * Count, average, maximum and missed deadlines cover all frames since the last {@link #reset()},
+ * percentiles are computed from a window of the most recent frame times,
+ * see {@link #DEFAULT_WINDOW_SIZE}.</p>
+ * <p>
+ * All methods are thread safe.</p>
+ */
+public class FrameStatistics {
+    /** Default number of recent frame times the percentiles are computed from */
+    public static final int DEFAULT_WINDOW_SIZE = 1024;
+
+    private final long[] window;
+    private long[] sorted = null; // lazily sorted copy of the window
+    private int windowCount = 0;
+    private int windowPos = 0;
+    private int frameCount = 0;
+    private int missedDeadlines = 0;
+    private long frameTimeSum = 0;
+    private long frameTimeMax = 0;
+
+    public FrameStatistics() {
+        this(DEFAULT_WINDOW_SIZE);
+    }
+
+    /** @param windowSize number of recent frame times the percentiles are computed from */
+    public FrameStatistics(int windowSize) {
+        if(windowSize<1) {
+            throw new IllegalArgumentException("Invalid window size: "+windowSize);
+        }
+        window = new long[windowSize];
+    }
+
+    /**
+     * @param frameTime the interval to the previous frame in microseconds
+     * @param missedDeadline true if the frame was presented later than scheduled
+     */
+    public synchronized void addFrame(long frameTime, boolean missedDeadline) {
+        if(frameTime<0) {
+            frameTime=0;
+        }
+        window[windowPos] = frameTime;
+        windowPos = ( windowPos + 1 ) % window.length;
+        if(windowCount<window.length) {
+            windowCount++;
+        }
+        sorted = null;
+        frameCount++;
+        frameTimeSum += frameTime;
+        if(frameTime>frameTimeMax) {
+            frameTimeMax = frameTime;
+        }
+        if(missedDeadline) {
+            missedDeadlines++;
+        }
+    }
+
+    public synchronized void reset() {
+        windowCount = 0;
+        windowPos = 0;
+        sorted = null;
+        frameCount = 0;
+        missedDeadlines = 0;
+        frameTimeSum = 0;
+        frameTimeMax = 0;
+    }
+
+    public synchronized int getFrameCount() { return frameCount; }
+
+    /** @return the number of frames presented later than scheduled */
+    public synchronized int getMissedDeadlines() { return missedDeadlines; }
+
+    /** @return the maximum frame time in microseconds */
+    public synchronized long getMaxFrameTime() { return frameTimeMax; }
+
+    /** @return the average frame time in microseconds */
+    public synchronized float getAverageFrameTime() {
+        return frameCount>0 ? (float)frameTimeSum/(float)frameCount : 0f ;
+    }
+
+    /**
+     * @param percentile in the range [0..100]
+     * @return the smallest frame time in microseconds of the recent frames,
+     *         which is not exceeded by the given percentage of them,
+     *         or 0 if no frame has been recorded.
+     */
+    public synchronized long getFrameTimePercentile(float percentile) {
+        if(percentile<0f || percentile>100f) {
+            throw new IllegalArgumentException("percentile not within [0..100]: "+percentile);
+        }
+        if(0==windowCount) {
+            return 0;
+        }
+        if(null==sorted) {
+            sorted = new long[windowCount];
+            System.arraycopy(window, 0, sorted, 0, windowCount);
+            Arrays.sort(sorted);
+        }
+        int rank = (int) Math.ceil( percentile * windowCount / 100f );
+        if(rank<1) {
+            rank=1;
+        }
+        return sorted[rank-1];
+    }
+
+    /** @return the median frame time in microseconds */
+    public long getP50FrameTime() { return getFrameTimePercentile(50f); }
+
+    /** @return the 99th percentile frame time in microseconds */
+    public long getP99FrameTime() { return getFrameTimePercentile(99f); }
+
+    public String toString() {
+        return "FrameStatistics[frames "+getFrameCount()+", avg "+getAverageFrameTime()+"us, p50 "+getP50FrameTime()+
+               "us, p99 "+getP99FrameTime()+"us, max "+getMaxFrameTime()+"us, missed "+getMissedDeadlines()+"]";
+    }
+}
@@ -8,6 +8,7 @@ import javax.media.opengl.*;
 
 import com.jogamp.opengl.util.glsl.*;
 
+import com.jogamp.opengl.impl.Debug;
 import com.jogamp.opengl.impl.SystemUtil;
 
 import java.nio.*;
@@ -90,12 +91,25 @@ public class GLArrayDataClient extends GLArrayDataWrapper implements GLArrayData
       return adc;
   }
 
+  private static final DirectBufferPool bufferPool = 
+      Debug.isPropertyDefined("jogl.glarray.pool", true, AccessController.getContext()) ? 
+          DirectBufferPool.getDefault() : null ;
+
   // 
   // Data read access
   //
 
   public final boolean isBufferWritten() { return bufferWritten; }
 
+  /**
+   * Returns the buffer. Once handed out, the buffer may be referenced
+   * by the caller, hence it is never returned to the {@link DirectBufferPool}.
+   */
+  public final Buffer getBuffer() {
+    bufferExposed = true;
+    return buffer;
+  }
+
   public final boolean sealed() { return sealed; }
 
   public int getBufferUsage() { return -1; }
@@ -106,8 +120,13 @@ public class GLArrayDataClient extends GLArrayDataWrapper implements GLArrayData
 
   public final void setBufferWritten(boolean written) { bufferWritten=written; }
 
+  /**
+   * Disables the array and returns an internally allocated buffer
+   * to the {@link DirectBufferPool}, unless it has been handed out via {@link #getBuffer()}.
+   */
   public void destroy(GL gl) {
     reset(gl);
+    releaseBuffer();
     buffer=null;
   }
 
@@ -154,6 +173,9 @@ public class GLArrayDataClient extends GLArrayDataWrapper implements GLArrayData
   // Data modification ..
   //
 
+  /**
+   * Clears the buffer for refilling, the buffer itself is kept for reuse.
+   */
   public void reset() {
     if(buffer!=null) {
         buffer.clear();
@@ -260,54 +282,111 @@ public class GLArrayDataClient extends GLArrayDataWrapper implements GLArrayData
 
   protected final boolean growBufferIfNecessary(int spare) {
     if(buffer==null || buffer.remaining()<spare) { 
-        growBuffer(initialSize);
+        growBuffer(spare);
         return true;
     }
     return false;
   }
 
+  /**
+   * Grows the buffer to hold at least <code>additional</code> more elements
+   * of the buffer's type.
+   * <p>
+   * The capacity grows geometrically, i.e. it is at least doubled,
+   * hence filling an array element by element copies each element an amortized constant number of times.
+   * The minimum growth is <code>initialSize</code> vertices.</p>
+   * <p>
+   * If pooling is enabled, the new buffer is taken from the {@link DirectBufferPool}
+   * and the replaced one is returned to it.</p>
+   */
   protected final void growBuffer(int additional) {
     if(sealed || 0==additional || 0==components) return;
 
-    // add the stride delta
-    additional += (additional/components)*(strideL-components);
-
     if(components>0) {
-        int osize = (buffer!=null)?buffer.capacity():0;
+        final int osize = (buffer!=null)?buffer.capacity():0;
+        final int opos  = (buffer!=null)?buffer.position():0;
+        final int required = opos + additional;
+        int nsize = Math.max( osize * 2, osize + initialSize * strideL );
+        if( nsize < required ) {
+            nsize = required;
+        }
+        final int elemSize = getComponentSize();
+
+        final DirectBufferPool pool = getPool();
+        final ByteBuffer newBBuffer;
+        if( null != pool ) {
+            newBBuffer = pool.acquire( nsize * elemSize );
+        } else {
+            newBBuffer = Buffers.newDirectByteBuffer( nsize * elemSize );
+        }
+        final Buffer newBuffer;
         if(clazz==ByteBuffer.class) {
-            ByteBuffer newBBuffer = Buffers.newDirectByteBuffer( (osize+additional) * components );
-            if(buffer!=null) {
-                buffer.flip();
-                newBBuffer.put((ByteBuffer)buffer);
-            }
-            buffer = newBBuffer;
+            newBuffer = newBBuffer;
         } else if(clazz==ShortBuffer.class) {
-            ShortBuffer newSBuffer = Buffers.newDirectShortBuffer( (osize+additional) * components );
-            if(buffer!=null) {
-                buffer.flip();
-                newSBuffer.put((ShortBuffer)buffer);
-            }
-            buffer = newSBuffer;
+            newBuffer = newBBuffer.asShortBuffer();
         } else if(clazz==IntBuffer.class) {
-            IntBuffer newIBuffer = Buffers.newDirectIntBuffer( (osize+additional) * components );
-            if(buffer!=null) {
-                buffer.flip();
-                newIBuffer.put((IntBuffer)buffer);
-            }
-            buffer = newIBuffer;
+            newBuffer = newBBuffer.asIntBuffer();
         } else if(clazz==FloatBuffer.class) {
-            FloatBuffer newFBuffer = Buffers.newDirectFloatBuffer( (osize+additional) * components );
-            if(buffer!=null) {
-                buffer.flip();
-                newFBuffer.put((FloatBuffer)buffer);
-            }
-            buffer = newFBuffer;
+            newBuffer = newBBuffer.asFloatBuffer();
         } else {
+            if( null != pool ) {
+                pool.release(newBBuffer);
+            }
             throw new GLException("Given Buffer Class not supported: "+clazz+":\n\t"+this);
         }
+        if(buffer!=null) {
+            buffer.flip();
+            Buffers.put(newBuffer, buffer);
+            bytesCopied += (long) opos * elemSize ;
+        }
+        releaseBuffer();
+        buffer = newBuffer;
+        pooledBuffer = ( null != pool ) ? newBBuffer : null ;
+        bufferExposed = false;
+        ownsBuffer = true;
     }
   }
 
+  /**
+   * Returns the buffer to the pool, if it has been acquired from it
+   * and never been handed out via {@link #getBuffer()}.
+   * The buffer reference itself is left untouched.
+   */
+  protected final void releaseBuffer() {
+    if( null != pooledBuffer ) {
+        if( bufferExposed ) {
+            getPool().discard(pooledBuffer);
+        } else {
+            getPool().release(pooledBuffer);
+        }
+        pooledBuffer = null;
+    }
+  }
+
+  /**
+   * @return the number of bytes copied by buffer growth so far
+   */
+  public final long getBytesCopied() { return bytesCopied; }
+
+  /**
+   * @return the number of direct bytes held by this instance's own buffer,
+   *         0 if the buffer was passed by the user
+   */
+  public final long getDirectBytesHeld() { 
+    return ( null != buffer && ownsBuffer ) ? (long) buffer.capacity() * getComponentSize() : 0 ;
+  }
+
+  /**
+   * @return the shared pool used for buffer allocation, or null if pooling is disabled,
+   *         i.e. the property <code>jogl.glarray.pool</code> is not set
+   */
+  public static DirectBufferPool getBufferPool() { return bufferPool; }
+
+  /**
+   * @return the pool this instance allocates its buffers from, or null for plain allocation
+   */
+  protected DirectBufferPool getPool() { return bufferPool; }
+
   protected final void checkSeal(boolean test) throws GLException {
     if(sealed!=test) {
         if(test) {
@@ -333,8 +412,12 @@ public class GLArrayDataClient extends GLArrayDataWrapper implements GLArrayData
     this.bufferEnabled=false;
     this.enableBufferAlways=false;
     this.bufferWritten=false;
+    this.pooledBuffer=null;
+    this.ownsBuffer=false;
+    this.bufferExposed=false;
+    this.bytesCopied=0;
     if(null==buffer) {
-        growBuffer(initialSize);
+        growBuffer(initialSize*strideL);
     }
   }
 
@@ -349,6 +432,14 @@ public class GLArrayDataClient extends GLArrayDataWrapper implements GLArrayData
 
   protected int initialSize;
 
+  /** backing buffer acquired from {@link #bufferPool}, null if none */
+  protected ByteBuffer pooledBuffer;
+  /** true if the buffer was allocated by this instance */
+  protected boolean ownsBuffer;
+  /** true if the buffer has been handed out via {@link #getBuffer()} */
+  protected boolean bufferExposed;
+  protected long bytesCopied;
+
   protected GLArrayHandler glArrayHandler;
 }
 
@@ -57,7 +57,7 @@ public class GLArrayDataWrapper implements GLArrayData {
 
   public final boolean isVBO() { return vboUsage; }
 
-  public final Buffer getBuffer() { return buffer; }
+  public Buffer getBuffer() { return buffer; }
 
   public final int getComponentNumber() { return components; }
 
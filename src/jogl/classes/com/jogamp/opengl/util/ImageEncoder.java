@@ -0,0 +1,512 @@
+/**
+ * Copyright 2010 JogAmp Community. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are
+ * permitted provided that the following conditions are met:
+ * 
+ *    1. Redistributions of source code must retain the above copyright notice, this list of
+ *       conditions and the following disclaimer.
+ * 
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *       of conditions and the following disclaimer in the documentation and/or other materials
+ *       provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY JogAmp Community ``AS IS'' AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL JogAmp Community OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are those of the
+ * authors and should not be interpreted as representing official policies, either expressed
+ * or implied, of JogAmp Community.
+ */
+
+package com.jogamp.opengl.util;
+
+import java.io.*;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Encodes pixels as read by <code>glReadPixels</code> into Targa or PNG files,
+ * spreading the work of an image over several threads.
+ * <p>
+ * The pixels are expected as 8 bit BGR or BGRA for the Targa formats
+ * and RGB or RGBA for PNG, tightly packed, rows from bottom to top.
+ * Hence no vertical flip is needed before encoding a read back framebuffer.
+ * </p>
+ * <p>
+ * Run length encoded Targa rows are encoded in blocks by several threads and
+ * concatenated. PNG rows are filtered with the adaptive filter heuristic in blocks
+ * by several threads, the single zlib stream PNG requires is deflated by the caller.
+ * </p>
+ * <p>
+ * Instances may be shared between threads, the settings are captured
+ * when {@link #encode encode} is called.
+ * </p>
+ */
+public class ImageEncoder {
+    /** Uncompressed Targa, BGR(A) pixels */
+    public static final int TGA = 1;
+    /** Run length encoded Targa, BGR(A) pixels */
+    public static final int TGA_RLE = 2;
+    /** PNG, RGB(A) pixels */
+    public static final int PNG = 3;
+
+    /** Number of rows a worker claims at a time */
+    public static final int ROWS_PER_CLAIM = 32;
+
+    private static final int TARGA_HEADER_SIZE = 18;
+    private static final int PNG_CHUNK_SIZE = 64 * 1024;
+    private static final byte[] PNG_SIGNATURE = { (byte) 137, 80, 78, 71, 13, 10, 26, 10 };
+
+    private final int format;
+    private int maxThreads = Runtime.getRuntime().availableProcessors();
+    private int compressionLevel = Deflater.DEFAULT_COMPRESSION;
+
+    public ImageEncoder(int format) {
+        switch(format) {
+            case TGA:
+            case TGA_RLE:
+            case PNG:
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown format: "+format);
+        }
+        this.format = format;
+    }
+
+    /**
+     * @return the format encoding files of the given suffix,
+     *         {@link #TGA_RLE} for "tga", {@link #PNG} for "png", otherwise 0
+     */
+    public static int getFormat(String suffix) {
+        if(null==suffix) {
+            return 0;
+        }
+        suffix = suffix.toLowerCase();
+        if(suffix.equals("tga")) {
+            return TGA_RLE;
+        }
+        if(suffix.equals("png")) {
+            return PNG;
+        }
+        return 0;
+    }
+
+    public int getFormat() { return format; }
+
+    /** @return true if the pixels are expected in BGR(A) order, otherwise RGB(A) */
+    public boolean isBGR() { return PNG!=format; }
+
+    /** Limits the number of threads used per {@link #encode encode} call, including the caller's. */
+    public synchronized void setMaxThreads(int n) {
+        maxThreads = Math.max(1, n);
+    }
+
+    public synchronized int getMaxThreads() {
+        return maxThreads;
+    }
+
+    /** The PNG deflate level, see {@link Deflater#setLevel(int)}. */
+    public synchronized void setCompressionLevel(int level) {
+        if(level<Deflater.DEFAULT_COMPRESSION || level>Deflater.BEST_COMPRESSION) {
+            throw new IllegalArgumentException("Invalid compression level: "+level);
+        }
+        compressionLevel = level;
+    }
+
+    public synchronized int getCompressionLevel() {
+        return compressionLevel;
+    }
+
+    /**
+     * Encodes the image.
+     *
+     * @param pixels the pixels starting at offset, rows from bottom to top
+     * @param bytesPerPixel 3 without, 4 with alpha channel
+     */
+    public void encode(OutputStream out, byte[] pixels, int offset,
+                       int width, int height, int bytesPerPixel) throws IOException {
+        if(0>=width || 0>=height || (3!=bytesPerPixel && 4!=bytesPerPixel)) {
+            throw new IllegalArgumentException("Invalid image: "+width+"x"+height+", bpp "+bytesPerPixel);
+        }
+        if(pixels.length - offset < width * height * bytesPerPixel) {
+            throw new IllegalArgumentException("Pixels too short for "+width+"x"+height+", bpp "+bytesPerPixel);
+        }
+        int threads;
+        int level;
+        synchronized(this) {
+            threads = maxThreads;
+            level = compressionLevel;
+        }
+        Image image = new Image(pixels, offset, width, height, bytesPerPixel);
+        switch(format) {
+            case TGA:
+            case TGA_RLE:
+                encodeTGA(out, image, threads);
+                break;
+            case PNG:
+                encodePNG(out, image, threads, level);
+                break;
+        }
+        out.flush();
+    }
+
+    public String toString() {
+        return "ImageEncoder["+(PNG==format ? "PNG" : ( TGA_RLE==format ? "TGA RLE" : "TGA" ))+
+               ", threads "+getMaxThreads()+", level "+getCompressionLevel()+"]";
+    }
+
+    //----------------------------------------------------------------------
+    // Targa
+    //
+
+    private void encodeTGA(OutputStream out, final Image image, int threads) throws IOException {
+        if(image.width>0xffff || image.height>0xffff) {
+            throw new IllegalArgumentException("Targa image size exceeds 65535: "+image.width+"x"+image.height);
+        }
+        boolean rle = TGA_RLE==format;
+        boolean alpha = 4==image.bpp;
+        byte[] header = new byte[TARGA_HEADER_SIZE];
+        header[2] = (byte) (rle ? 10 : 2); // (run length encoded) true color
+        header[12] = (byte) (image.width & 0xFF);
+        header[13] = (byte) (image.width >> 8);
+        header[14] = (byte) (image.height & 0xFF);
+        header[15] = (byte) (image.height >> 8);
+        header[16] = (byte) (alpha ? 32 : 24); // pixel size
+        header[17] = (byte) (alpha ? 8 : 0); // alpha bits, bottom left origin
+        out.write(header);
+
+        if(!rle) {
+            // rows are stored bottom to top as well
+            out.write(image.pixels, image.offset, image.height * image.stride);
+            return;
+        }
+        int blocks = (image.height + ROWS_PER_CLAIM - 1) / ROWS_PER_CLAIM;
+        final byte[][] encoded = new byte[blocks][];
+        final int[] encodedLength = new int[blocks];
+        run(blocks, threads, new BlockTask() {
+                public void run(int block) {
+                    int y0 = block * ROWS_PER_CLAIM;
+                    int y1 = Math.min(image.height, y0 + ROWS_PER_CLAIM);
+                    // worst case, a packet header per 128 pixels
+                    byte[] dst = new byte[(y1 - y0) * (image.stride + (image.width + 127) / 128)];
+                    int len = 0;
+                    for(int y=y0; y<y1; y++) {
+                        len = encodeRLERow(image, y, dst, len);
+                    }
+                    encoded[block] = dst;
+                    encodedLength[block] = len;
+                }
+            });
+        for(int i=0; i<blocks; i++) {
+            out.write(encoded[i], 0, encodedLength[i]);
+        }
+    }
+
+    /** Encodes one row into packets, which never cross rows. */
+    private static int encodeRLERow(Image image, int y, byte[] dst, int len) {
+        byte[] src = image.pixels;
+        int bpp = image.bpp;
+        int row = image.offset + y * image.stride;
+        int x = 0;
+        while(x < image.width) {
+            int p = row + x * bpp;
+            // length of the run of equal pixels starting at x
+            int run = 1;
+            while(x + run < image.width && run < 128 && samePixel(src, p, p + run * bpp, bpp)) {
+                run++;
+            }
+            if(run > 1) {
+                dst[len++] = (byte) (0x80 | (run - 1));
+                System.arraycopy(src, p, dst, len, bpp);
+                len += bpp;
+                x += run;
+            } else {
+                // raw packet up to the next run of two equal pixels
+                int raw = 1;
+                while(x + raw < image.width && raw < 128) {
+                    int q = row + (x + raw) * bpp;
+                    if(x + raw + 1 < image.width && samePixel(src, q, q + bpp, bpp)) {
+                        break;
+                    }
+                    raw++;
+                }
+                dst[len++] = (byte) (raw - 1);
+                System.arraycopy(src, p, dst, len, raw * bpp);
+                len += raw * bpp;
+                x += raw;
+            }
+        }
+        return len;
+    }
+
+    private static boolean samePixel(byte[] src, int p, int q, int bpp) {
+        for(int i=0; i<bpp; i++) {
+            if(src[p+i]!=src[q+i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    //----------------------------------------------------------------------
+    // PNG
+    //
+
+    private void encodePNG(OutputStream out, final Image image, int threads, int level) throws IOException {
+        out.write(PNG_SIGNATURE);
+
+        byte[] ihdr = new byte[13];
+        putInt(ihdr, 0, image.width);
+        putInt(ihdr, 4, image.height);
+        ihdr[8] = 8; // bit depth
+        ihdr[9] = (byte) (4==image.bpp ? 6 : 2); // RGBA or RGB
+        ihdr[10] = 0; // deflate
+        ihdr[11] = 0; // adaptive filtering
+        ihdr[12] = 0; // no interlace
+        writeChunk(out, "IHDR", ihdr, 0, ihdr.length);
+
+        // filter type byte plus row, rows from top to bottom
+        final int filteredStride = 1 + image.stride;
+        final byte[] filtered = new byte[image.height * filteredStride];
+        int blocks = (image.height + ROWS_PER_CLAIM - 1) / ROWS_PER_CLAIM;
+        run(blocks, threads, new BlockTask() {
+                public void run(int block) {
+                    int r0 = block * ROWS_PER_CLAIM;
+                    int r1 = Math.min(image.height, r0 + ROWS_PER_CLAIM);
+                    byte[] scratch = new byte[image.stride];
+                    for(int r=r0; r<r1; r++) {
+                        filterRow(image, r, filtered, r * filteredStride, scratch);
+                    }
+                }
+            });
+
+        Deflater deflater = new Deflater(level);
+        try {
+            deflater.setInput(filtered);
+            deflater.finish();
+            byte[] chunk = new byte[PNG_CHUNK_SIZE];
+            int len = 0;
+            while(!deflater.finished()) {
+                len += deflater.deflate(chunk, len, chunk.length - len);
+                if(len == chunk.length) {
+                    writeChunk(out, "IDAT", chunk, 0, len);
+                    len = 0;
+                }
+            }
+            if(len > 0) {
+                writeChunk(out, "IDAT", chunk, 0, len);
+            }
+        } finally {
+            deflater.end();
+        }
+        writeChunk(out, "IEND", new byte[0], 0, 0);
+    }
+
+    /**
+     * Filters PNG row r, counted from the top, choosing the filter
+     * with the minimum sum of absolute differences.
+     */
+    private static void filterRow(Image image, int r, byte[] dst, int dstOffset, byte[] scratch) {
+        byte[] src = image.pixels;
+        int bpp = image.bpp;
+        int n = image.stride;
+        int cur = image.offset + (image.height - 1 - r) * n;
+        // the prior row is the one above, ie the next one in bottom up order
+        int prev = 0 < r ? cur + n : -1;
+
+        int best = 0;
+        long bestSum = Long.MAX_VALUE;
+        for(int type=0; type<5; type++) {
+            if(0>prev && (2==type || 4==type)) {
+                // up and paeth equal sub or none on the first row
+                continue;
+            }
+            long sum = 0;
+            for(int i=0; i<n; i++) {
+                int v = filter(type, src, cur, prev, i, bpp);
+                scratch[i] = (byte) v;
+                sum += Math.abs((byte) v);
+            }
+            if(sum < bestSum) {
+                bestSum = sum;
+                best = type;
+                System.arraycopy(scratch, 0, dst, dstOffset + 1, n);
+            }
+        }
+        dst[dstOffset] = (byte) best;
+    }
+
+    private static int filter(int type, byte[] src, int cur, int prev, int i, int bpp) {
+        int x = src[cur + i] & 0xff;
+        int a = i >= bpp ? src[cur + i - bpp] & 0xff : 0;
+        int b = 0 <= prev ? src[prev + i] & 0xff : 0;
+        switch(type) {
+            case 1:
+                return x - a;
+            case 2:
+                return x - b;
+            case 3:
+                return x - ( (a + b) >> 1 );
+            case 4: {
+                int c = ( 0 <= prev && i >= bpp ) ? src[prev + i - bpp] & 0xff : 0;
+                int p = a + b - c;
+                int pa = Math.abs(p - a);
+                int pb = Math.abs(p - b);
+                int pc = Math.abs(p - c);
+                int pred = ( pa <= pb && pa <= pc ) ? a : ( pb <= pc ? b : c );
+                return x - pred;
+            }
+            default:
+                return x;
+        }
+    }
+
+    private static void writeChunk(OutputStream out, String type, byte[] data, int offset, int len) throws IOException {
+        byte[] head = new byte[8];
+        putInt(head, 0, len);
+        for(int i=0; i<4; i++) {
+            head[4+i] = (byte) type.charAt(i);
+        }
+        CRC32 crc = new CRC32();
+        crc.update(head, 4, 4);
+        crc.update(data, offset, len);
+        out.write(head);
+        out.write(data, offset, len);
+        byte[] tail = new byte[4];
+        putInt(tail, 0, (int) crc.getValue());
+        out.write(tail);
+    }
+
+    private static void putInt(byte[] dst, int offset, int v) {
+        dst[offset]   = (byte) (v >>> 24);
+        dst[offset+1] = (byte) (v >>> 16);
+        dst[offset+2] = (byte) (v >>> 8);
+        dst[offset+3] = (byte) v;
+    }
+
+    //----------------------------------------------------------------------
+    // Threading
+    //
+
+    private static class Image {
+        final byte[] pixels;
+        final int offset;
+        final int width, height;
+        final int bpp;
+        final int stride;
+
+        Image(byte[] pixels, int offset, int width, int height, int bpp) {
+            this.pixels = pixels;
+            this.offset = offset;
+            this.width = width;
+            this.height = height;
+            this.bpp = bpp;
+            this.stride = width * bpp;
+        }
+    }
+
+    private interface BlockTask {
+        void run(int block);
+    }
+
+    /** Runs the blocks on up to the given number of threads, the caller's included. */
+    private static void run(int blocks, int threads, BlockTask task) {
+        threads = Math.min(threads, blocks);
+        final Claims claims = new Claims(blocks);
+        if(threads <= 1) {
+            claims.work(task);
+            return;
+        }
+        WorkerThread[] workers = new WorkerThread[threads - 1];
+        for(int i=0; i<workers.length; i++) {
+            workers[i] = new WorkerThread(claims, task, i+1);
+            workers[i].start();
+        }
+        Throwable error = null;
+        try {
+            claims.work(task);
+        } catch (Throwable t) {
+            error = t;
+            claims.abort();
+        }
+        boolean interrupted = false;
+        for(int i=0; i<workers.length; i++) {
+            while(workers[i].isAlive()) {
+                try {
+                    workers[i].join();
+                } catch (InterruptedException ie) {
+                    interrupted = true;
+                }
+            }
+            if(null == error) {
+                error = workers[i].error;
+            }
+        }
+        if(interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        if(error instanceof RuntimeException) {
+            throw (RuntimeException) error;
+        }
+        if(error instanceof Error) {
+            throw (Error) error;
+        }
+        if(null != error) {
+            throw new RuntimeException(error.toString());
+        }
+    }
+
+    private static class Claims {
+        private final int blocks;
+        private int next = 0;
+
+        Claims(int blocks) {
+            this.blocks = blocks;
+        }
+
+        synchronized int claim() {
+            return next < blocks ? next++ : -1;
+        }
+
+        synchronized void abort() {
+            next = blocks;
+        }
+
+        void work(BlockTask task) {
+            int block;
+            while(0 <= (block = claim())) {
+                task.run(block);
+            }
+        }
+    }
+
+    private static class WorkerThread extends Thread {
+        private final Claims claims;
+        private final BlockTask task;
+        Throwable error;
+
+        WorkerThread(Claims claims, BlockTask task, int n) {
+            super("ImageEncoder-"+n);
+            this.claims = claims;
+            this.task = task;
+            setDaemon(true);
+        }
+
+        public void run() {
+            try {
+                claims.work(task);
+            } catch (Throwable t) {
+                error = t;
+                claims.abort();
+            }
+        }
+    }
+}
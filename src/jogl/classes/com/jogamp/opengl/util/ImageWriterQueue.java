@@ -0,0 +1,220 @@
+/**
+ * Copyright 2010 JogAmp Community. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are
+ * permitted provided that the following conditions are met:
+ * 
+ *    1. Redistributions of source code must retain the above copyright notice, this list of
+ *       conditions and the following disclaimer.
+ * 
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *       of conditions and the following disclaimer in the documentation and/or other materials
+ *       provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY JogAmp Community ``AS IS'' AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL JogAmp Community OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are those of the
+ * authors and should not be interpreted as representing official policies, either expressed
+ * or implied, of JogAmp Community.
+ */
+
+package com.jogamp.opengl.util;
+
+import java.io.*;
+import java.util.LinkedList;
+
+/**
+ * Encodes and writes images on background threads,
+ * so capturing a frame only costs the readback and a copy of the pixels.
+ * <p>
+ * The number of queued images is bounded, {@link #write write} blocks
+ * while the queue is full, which bounds the memory held by pending images.
+ * An I/O error of a background write is thrown by the next call of
+ * {@link #write write}, {@link #flush()} or {@link #close()}.
+ * </p>
+ */
+public class ImageWriterQueue {
+    /**
+     * @param threads the number of writer threads, at least 1
+     * @param maxPending the maximum number of queued images, at least 1
+     */
+    public ImageWriterQueue(int threads, int maxPending) {
+        if(1>threads || 1>maxPending) {
+            throw new IllegalArgumentException("threads and maxPending must be >= 1: "+threads+", "+maxPending);
+        }
+        this.workers = new Thread[threads];
+        this.maxPending = maxPending;
+    }
+
+    /**
+     * Queues the image, blocking while the queue is full.
+     * The pixel array is owned by the queue from now on.
+     *
+     * @see ImageEncoder#encode(OutputStream, byte[], int, int, int, int)
+     * @throws IOException if a previous write failed
+     */
+    public void write(File file, ImageEncoder encoder, byte[] pixels,
+                      int width, int height, int bytesPerPixel) throws IOException {
+        Job job = new Job(file, encoder, pixels, width, height, bytesPerPixel);
+        synchronized(this) {
+            if(closed) {
+                throw new IOException("Queue closed");
+            }
+            throwError();
+            while(pending >= maxPending) {
+                waitInterruptibly();
+                throwError();
+            }
+            startWorkers();
+            queue.addLast(job);
+            pending++;
+            notifyAll();
+        }
+    }
+
+    /**
+     * Waits until all queued images are written.
+     *
+     * @throws IOException the first error of a background write since the last call
+     */
+    public synchronized void flush() throws IOException {
+        while(pending > 0) {
+            waitInterruptibly();
+        }
+        throwError();
+    }
+
+    /**
+     * Writes all queued images and stops the writer threads.
+     */
+    public void close() throws IOException {
+        synchronized(this) {
+            if(closed) {
+                return;
+            }
+            try {
+                flush();
+            } finally {
+                closed = true;
+                notifyAll();
+            }
+        }
+    }
+
+    /** @return the number of queued images not yet written */
+    public synchronized int getPending() { return pending; }
+
+    /** @return the number of images written */
+    public synchronized int getWritten() { return written; }
+
+    public synchronized String toString() {
+        return "ImageWriterQueue[threads "+workers.length+", pending "+pending+"/"+maxPending+
+               ", written "+written+", closed "+closed+"]";
+    }
+
+    private void startWorkers() {
+        for(int i=0; i<workers.length; i++) {
+            if(null==workers[i]) {
+                workers[i] = new Thread("ImageWriterQueue-"+(i+1)) {
+                    public void run() {
+                        work();
+                    }
+                };
+                workers[i].setDaemon(true);
+                workers[i].start();
+            }
+        }
+    }
+
+    private void work() {
+        while(true) {
+            Job job;
+            synchronized(this) {
+                while(queue.isEmpty() && !closed) {
+                    try {
+                        wait();
+                    } catch (InterruptedException ie) {}
+                }
+                if(queue.isEmpty()) {
+                    return;
+                }
+                job = (Job) queue.removeFirst();
+            }
+            IOException ioe = null;
+            try {
+                job.write();
+            } catch (IOException e) {
+                ioe = e;
+            } catch (RuntimeException re) {
+                ioe = new IOException("Couldn't write "+job.file+": "+re);
+            }
+            synchronized(this) {
+                if(null!=ioe && null==error) {
+                    error = ioe;
+                }
+                if(null==ioe) {
+                    written++;
+                }
+                pending--;
+                notifyAll();
+            }
+        }
+    }
+
+    private void throwError() throws IOException {
+        if(null!=error) {
+            IOException e = error;
+            error = null;
+            throw e;
+        }
+    }
+
+    private void waitInterruptibly() throws IOException {
+        try {
+            wait();
+        } catch (InterruptedException ie) {
+            throw new InterruptedIOException("Interrupted while waiting for the image writers");
+        }
+    }
+
+    private static class Job {
+        final File file;
+        final ImageEncoder encoder;
+        final byte[] pixels;
+        final int width, height, bytesPerPixel;
+
+        Job(File file, ImageEncoder encoder, byte[] pixels, int width, int height, int bytesPerPixel) {
+            this.file = file;
+            this.encoder = encoder;
+            this.pixels = pixels;
+            this.width = width;
+            this.height = height;
+            this.bytesPerPixel = bytesPerPixel;
+        }
+
+        void write() throws IOException {
+            OutputStream out = new BufferedOutputStream(new FileOutputStream(file), 64 * 1024);
+            try {
+                encoder.encode(out, pixels, 0, width, height, bytesPerPixel);
+            } finally {
+                out.close();
+            }
+        }
+    }
+
+    private final Thread[] workers;
+    private final int maxPending;
+    private final LinkedList queue = new LinkedList();
+    private int pending = 0;
+    private int written = 0;
+    private boolean closed = false;
+    private IOException error = null;
+}
@@ -51,6 +51,46 @@ public class ImmModeSink {
 
   public static void setVBOUsage(boolean v) { vboUsage = v; }
 
+  /**
+   * Enables or disables the streaming mode, which is disabled by default.
+   * <p>
+   * In streaming mode all primitive batches, i.e. glBegin/glEnd pairs, 
+   * are appended to one shared vertex buffer, which is reused after {@link #reset(GL)}.
+   * Each batch is converted to an indexed list primitive (GL_POINTS, GL_LINES or GL_TRIANGLES),
+   * so consecutive batches of the same kind are merged and issued with a single glDrawElements call.
+   * GL_QUAD_STRIP and GL_POLYGON are triangulated.</p>
+   * <p>
+   * In streaming mode glEnd() never draws immediately, 
+   * all pending batches are issued by {@link #draw(GL, boolean)} until the next {@link #reset(GL)}.
+   * The vertex arrays are always disabled after the draw, 
+   * so the sink stays open for further batches.</p>
+   * <p>
+   * Indices are unsigned shorts, if a glEnd() exceeds {@link #MAX_STREAM_ELEMENTS} vertices, 
+   * the pending batches are drawn and dropped early.</p>
+   *
+   * @throws GLException if batches are pending
+   */
+  public void setStreaming(boolean enable) throws GLException {
+    if(streaming==enable) return;
+    if(vboSetList.size()>0 || streamBatchCount>0) {
+        throw new GLException("ImmModeSink streaming mode change with pending batches:\n\t"+this);
+    }
+    streaming = enable;
+    if(streaming && null==streamIndices) {
+        streamIndices = GLBuffers.newDirectShortBuffer(STREAM_INDICES_INITIAL_SIZE);
+    }
+  }
+
+  public final boolean isStreaming() { return streaming; }
+
+  /**
+   * @return the number of draw calls pending in streaming mode, i.e. the merged batch count
+   */
+  public final int getStreamBatchCount() { return streamBatchCount; }
+
+  /** Maximum number of vertices addressable by streaming mode's unsigned short indices */
+  public static final int MAX_STREAM_ELEMENTS = 0x10000;
+
   public void destroy(GL gl) {
     destroyList(gl);
 
@@ -64,10 +104,17 @@ public class ImmModeSink {
   public void reset(GL gl) {
     destroyList(gl);
     vboSet.reset(gl);
+    streamBatchCount=0;
+    if(null!=streamIndices) {
+        streamIndices.clear();
+    }
   }
 
   public String toString() {
     StringBuffer sb = new StringBuffer("ImmModeSink[");
+    if(streaming) {
+        sb.append("streaming, batches "+streamBatchCount+", indices "+(null!=streamIndices?streamIndices.position():0));
+    }
     sb.append(",\n\tVBO list: "+vboSetList.size()+" [");
     for(Iterator i=vboSetList.iterator(); i.hasNext() ; ) {
         sb.append("\n\t");
@@ -88,6 +135,10 @@ public class ImmModeSink {
         Exception e = new Exception("ImmModeSink.draw(disableBufferAfterDraw: "+disableBufferAfterDraw+"):\n\t"+this);
         e.printStackTrace();
     }
+    if(streaming) {
+        drawStream(gl);
+        return;
+    }
     int n=0;
     for(Iterator i=vboSetList.iterator(); i.hasNext() ; n++) {
         ((VBOSet)i.next()).draw(gl, null, disableBufferAfterDraw, n);
@@ -110,6 +161,13 @@ public class ImmModeSink {
         Exception e = new Exception("ImmModeSink.glBegin("+vboSet.mode+"):\n\t"+this);
         e.printStackTrace();
     }
+    if(streaming) {
+        vboSet.modeOrig = mode;
+        vboSet.mode = getStreamPrimitive(mode);
+        vboSet.checkSeal(false);
+        streamBatchStart = vboSet.getElementCount();
+        return;
+    }
     vboSet.modeOrig = mode;
     switch(mode) {
         // Needs data manipulation ..
@@ -144,6 +202,10 @@ public class ImmModeSink {
         Exception e = new Exception("ImmModeSink START glEnd(immediate: "+immediateDraw+"):\n\t"+this);
         e.printStackTrace();
     }
+    if(streaming) {
+        endStreamBatch(gl, indices);
+        return;
+    }
     if(immediateDraw) {
         vboSet.seal(gl, true);
         vboSet.draw(gl, indices, true, -1);
@@ -266,6 +328,173 @@ public class ImmModeSink {
     this.vboSetList   = new ArrayList();
   }
 
+  private static int getStreamPrimitive(int mode) {
+    switch(mode) {
+        case GL.GL_POINTS:
+            return GL.GL_POINTS;
+        case GL.GL_LINES:
+        case GL.GL_LINE_STRIP:
+        case GL.GL_LINE_LOOP:
+            return GL.GL_LINES;
+        case GL.GL_TRIANGLES:
+        case GL.GL_TRIANGLE_STRIP:
+        case GL.GL_TRIANGLE_FAN:
+        case GL_QUAD_STRIP:
+        case GL_POLYGON:
+            return GL.GL_TRIANGLES;
+        default:
+            throw new GLException("Unsupported streaming primitive mode: "+mode);
+    }
+  }
+
+  private void endStreamBatch(GL gl, Buffer indices) {
+    final int mode = vboSet.modeOrig;
+    final int primitive = vboSet.mode;
+    int end = vboSet.getElementCount();
+    if( end > MAX_STREAM_ELEMENTS ) {
+        if( 0 == streamBatchStart || end - streamBatchStart > MAX_STREAM_ELEMENTS ) {
+            throw new GLException("ImmModeSink batch exceeds "+MAX_STREAM_ELEMENTS+" vertices:\n\t"+this);
+        }
+        // flush the pending batches and move the current one to the buffer start
+        drawStream(gl);
+        vboSet.shiftElements(streamBatchStart, end - streamBatchStart);
+        end -= streamBatchStart;
+        streamBatchStart = 0;
+        streamBatchCount = 0;
+        streamIndices.clear();
+        vboSet.mode = primitive;
+        vboSet.modeOrig = mode;
+    }
+    final int first = streamBatchStart;
+    final int n = ( null != indices ) ? indices.remaining() : end - first ;
+    final int iStart = streamIndices.position();
+
+    switch(mode) {
+        case GL.GL_POINTS:
+            for(int i=0; i<n; i++) {
+                putStreamIndex(first, indices, i);
+            }
+            break;
+        case GL.GL_LINES:
+            for(int i=0; i+1<n; i+=2) {
+                putStreamIndex(first, indices, i);
+                putStreamIndex(first, indices, i+1);
+            }
+            break;
+        case GL.GL_LINE_STRIP:
+        case GL.GL_LINE_LOOP:
+            for(int i=0; i+1<n; i++) {
+                putStreamIndex(first, indices, i);
+                putStreamIndex(first, indices, i+1);
+            }
+            if(GL.GL_LINE_LOOP==mode && n>2) {
+                putStreamIndex(first, indices, n-1);
+                putStreamIndex(first, indices, 0);
+            }
+            break;
+        case GL.GL_TRIANGLES:
+            for(int i=0; i+2<n; i+=3) {
+                putStreamIndex(first, indices, i);
+                putStreamIndex(first, indices, i+1);
+                putStreamIndex(first, indices, i+2);
+            }
+            break;
+        case GL.GL_TRIANGLE_STRIP:
+            for(int i=0; i+2<n; i++) {
+                // keep the winding order of odd triangles
+                putStreamIndex(first, indices, ( 0 == ( i & 1 ) ) ? i : i+1 );
+                putStreamIndex(first, indices, ( 0 == ( i & 1 ) ) ? i+1 : i );
+                putStreamIndex(first, indices, i+2);
+            }
+            break;
+        case GL.GL_TRIANGLE_FAN:
+        case GL_POLYGON:
+            for(int i=1; i+1<n; i++) {
+                putStreamIndex(first, indices, 0);
+                putStreamIndex(first, indices, i);
+                putStreamIndex(first, indices, i+1);
+            }
+            break;
+        case GL_QUAD_STRIP:
+            // quad (v0, v1, v3, v2) of the strip -> (v0, v1, v2), (v2, v1, v3)
+            for(int i=0; i+3<n; i+=2) {
+                putStreamIndex(first, indices, i);
+                putStreamIndex(first, indices, i+1);
+                putStreamIndex(first, indices, i+2);
+                putStreamIndex(first, indices, i+2);
+                putStreamIndex(first, indices, i+1);
+                putStreamIndex(first, indices, i+3);
+            }
+            break;
+    }
+    final int iCount = streamIndices.position() - iStart;
+    if(0<iCount) {
+        if( 0 < streamBatchCount && streamBatches[(streamBatchCount-1)*3+0] == primitive ) {
+            // merge with the previous batch of the same primitive
+            streamBatches[(streamBatchCount-1)*3+2] += iCount;
+        } else {
+            if( ( streamBatchCount + 1 ) * 3 > streamBatches.length ) {
+                int[] tmp = new int[streamBatches.length*2];
+                System.arraycopy(streamBatches, 0, tmp, 0, streamBatchCount*3);
+                streamBatches = tmp;
+            }
+            streamBatches[streamBatchCount*3+0] = primitive;
+            streamBatches[streamBatchCount*3+1] = iStart;
+            streamBatches[streamBatchCount*3+2] = iCount;
+            streamBatchCount++;
+        }
+    }
+    vboSet.mode = -1;
+    vboSet.modeOrig = -1;
+  }
+
+  private void putStreamIndex(int first, Buffer indices, int i) {
+    int idx;
+    if(null==indices) {
+        idx = first + i;
+    } else if(indices instanceof ByteBuffer) {
+        ByteBuffer bb = (ByteBuffer) indices;
+        idx = first + ( bb.get(bb.position()+i) & 0xff );
+    } else if(indices instanceof ShortBuffer) {
+        ShortBuffer sb = (ShortBuffer) indices;
+        idx = first + ( sb.get(sb.position()+i) & 0xffff );
+    } else {
+        throw new GLException("Given Buffer Class not supported: "+indices.getClass()+", should be ubyte or ushort:\n\t"+this);
+    }
+    if(idx >= MAX_STREAM_ELEMENTS) {
+        throw new GLException("ImmModeSink index "+idx+" exceeds "+MAX_STREAM_ELEMENTS+" vertices:\n\t"+this);
+    }
+    if(!streamIndices.hasRemaining()) {
+        ShortBuffer tmp = GLBuffers.newDirectShortBuffer(streamIndices.capacity()*2);
+        streamIndices.flip();
+        tmp.put(streamIndices);
+        streamIndices = tmp;
+    }
+    streamIndices.put((short)idx);
+  }
+
+  private void drawStream(GL gl) {
+    if(0==streamBatchCount) return;
+    final int iPos = streamIndices.position();
+    vboSet.mode = streamBatches[0];
+    vboSet.seal(gl, true);
+    for(int i=0; i<streamBatchCount; i++) {
+        final int primitive = streamBatches[i*3+0];
+        final int offset = streamBatches[i*3+1];
+        final int count = streamBatches[i*3+2];
+        streamIndices.limit(offset+count);
+        streamIndices.position(offset);
+        if(DEBUG_DRAW) {
+            System.err.println("ImmModeSink.drawStream["+i+"]: primitive "+primitive+", indices ["+offset+".."+(offset+count)+"[");
+        }
+        gl.glDrawElements(primitive, count, GL.GL_UNSIGNED_SHORT, streamIndices);
+    }
+    streamIndices.limit(streamIndices.capacity());
+    streamIndices.position(iPos);
+    vboSet.seal(gl, false);
+    vboSet.mode = -1;
+  }
+
   private void destroyList(GL gl) {
     for(Iterator i=vboSetList.iterator(); i.hasNext() ; ) {
         ((VBOSet)i.next()).destroy(gl);
@@ -277,6 +506,14 @@ public class ImmModeSink {
   private ArrayList vboSetList;
   private static boolean vboUsage = true;
 
+  private static final int STREAM_INDICES_INITIAL_SIZE = 1024;
+  private boolean streaming = false;
+  private ShortBuffer streamIndices;
+  /** merged batches: triplets of primitive, index offset and index count */
+  private int[] streamBatches = new int[3*16];
+  private int streamBatchCount = 0;
+  private int streamBatchStart;
+
   protected static class VBOSet {
     protected VBOSet (GL gl, int glBufferUsage, int initialSize,
                       int vComps, int vDataType,
@@ -887,13 +1124,66 @@ public class ImmModeSink {
     }
 
     protected final boolean growBufferIfNecessary(int type, int spare) {
-        if(buffer==null || count < spare) { 
-            growBuffer(type, initialSize);
+        final Buffer dest = getArray(type);
+        if(buffer==null || ( null!=dest && dest.remaining() < spare ) ) { 
+            growBuffer(type, Math.max(initialSize, count));
             return true;
         }
         return false;
     }
 
+    protected final Buffer getArray(int type) {
+        switch (type) {
+            case VERTEX:
+                return vertexArray;
+            case COLOR:
+                return colorArray;
+            case NORMAL:
+                return normalArray;
+            case TEXTCOORD:
+                return textCoordArray;
+        }
+        return null;
+    }
+
+    /**
+     * @return the number of vertices written so far
+     */
+    protected final int getElementCount() {
+        return ( null!=vertexArray && vComps>0 ) ? vertexArray.position() / vComps : 0 ;
+    }
+
+    /**
+     * Moves the elements [first..first+n[ of all arrays to the start
+     * and positions the arrays after them.
+     */
+    protected final void shiftElements(int first, int n) {
+        shiftElements(vertexArray,    vComps, first, n);
+        shiftElements(colorArray,     cComps, first, n);
+        shiftElements(normalArray,    nComps, first, n);
+        shiftElements(textCoordArray, tComps, first, n);
+    }
+
+    private static void shiftElements(Buffer array, int comps, int first, int n) {
+        if(null==array) return;
+        final int src = first * comps;
+        final int len = n * comps;
+        if(array instanceof ByteBuffer) {
+            ByteBuffer b = (ByteBuffer) array;
+            for(int i=0; i<len; i++) { b.put(i, b.get(src+i)); }
+        } else if(array instanceof ShortBuffer) {
+            ShortBuffer b = (ShortBuffer) array;
+            for(int i=0; i<len; i++) { b.put(i, b.get(src+i)); }
+        } else if(array instanceof IntBuffer) {
+            IntBuffer b = (IntBuffer) array;
+            for(int i=0; i<len; i++) { b.put(i, b.get(src+i)); }
+        } else if(array instanceof FloatBuffer) {
+            FloatBuffer b = (FloatBuffer) array;
+            for(int i=0; i<len; i++) { b.put(i, b.get(src+i)); }
+        }
+        array.position(len);
+    }
+
     protected final void growBuffer(int type, int additional) {
         if(sealed || 0==additional) return;
 
@@ -924,22 +1214,7 @@ public class ImmModeSink {
     protected void padding(int type, int fill) {
         if ( sealed ) return;
 
-        Buffer dest = null;
-
-        switch (type) {
-            case VERTEX:
-                dest = vertexArray;
-                break;
-            case COLOR:
-                dest = colorArray;
-                break;
-            case NORMAL:
-                dest = normalArray;
-                break;
-            case TEXTCOORD:
-                dest = textCoordArray;
-                break;
-        }
+        final Buffer dest = getArray(type);
 
         if ( null==dest ) return;
 
@@ -0,0 +1,297 @@
+/**
+ * Copyright 2010 JogAmp Community. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are
+ * permitted provided that the following conditions are met:
+ * 
+ *    1. Redistributions of source code must retain the above copyright notice, this list of
+ *       conditions and the following disclaimer.
+ * 
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *       of conditions and the following disclaimer in the documentation and/or other materials
+ *       provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY JogAmp Community ``AS IS'' AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL JogAmp Community OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are those of the
+ * authors and should not be interpreted as representing official policies, either expressed
+ * or implied, of JogAmp Community.
+ */
+
+package com.jogamp.opengl.util;
+
+import java.util.*;
+
+import javax.media.opengl.*;
+
+import com.jogamp.opengl.impl.GLContextShareSet;
+
+/** Displays the drawables of an {@link Animator} concurrently on
+    worker threads, see {@link Animator#setParallelDisplay(int, boolean)}.
+
+    <P> Drawables whose contexts share textures and display lists
+    are grouped and displayed in turn by the same worker. Groups are
+    statically assigned to the workers round robin, so each drawable
+    is always displayed by the same thread, which is registered as its
+    animator thread. The assignment is recomputed whenever the
+    drawables of the Animator change. </P>
+
+    <P> With the frame barrier, a frame ends when all workers have
+    displayed their drawables. Without it, a worker still busy with a
+    previous frame skips the current one, so a slow drawable does not
+    stall the others. </P>
+
+    <P> An exception thrown by a drawable does not affect the other
+    drawables of the frame, it is reported on the Animator thread
+    after dispatching or completing the frame. </P> */
+
+class ParallelAnimatorImpl extends AnimatorImpl {
+    private int maxWorkers;
+    private boolean frameBarrier;
+    private ThreadGroup threadGroup;
+
+    private ArrayList/*<DisplayWorker>*/ workers = new ArrayList();
+    private int activeWorkers = 0;
+    private List/*<GLAutoDrawable>*/ partitionedList = null;
+
+    // guarded by this
+    private int busyWorkers = 0;
+    private ArrayList/*<RuntimeException>*/ exceptions = new ArrayList();
+
+    /**
+     * @param maxWorkers the maximum number of worker threads,
+     *        or {@link Animator#WORKER_PER_DRAWABLE}
+     * @param frameBarrier if true, a frame completes only after all drawables have been displayed
+     */
+    ParallelAnimatorImpl(ThreadGroup threadGroup, int maxWorkers, boolean frameBarrier) {
+        this.threadGroup = threadGroup;
+        this.maxWorkers = maxWorkers;
+        this.frameBarrier = frameBarrier;
+    }
+
+    int getMaxWorkers() { return maxWorkers; }
+
+    boolean hasFrameBarrier() { return frameBarrier; }
+
+    /** @return the number of workers with assigned drawables */
+    synchronized int getActiveWorkerCount() { return activeWorkers; }
+
+    public void display(Animator animator,
+                        boolean ignoreExceptions,
+                        boolean printExceptions) {
+        List list = animator.getDrawableList();
+        if (list != partitionedList) {
+            waitForWorkers();
+            partition(animator, list);
+        }
+        int dispatched = 0;
+        int skipped = 0;
+        for (int i = 0; i < activeWorkers; i++) {
+            DisplayWorker worker = (DisplayWorker) workers.get(i);
+            synchronized (this) {
+                if (worker.busy) {
+                    skipped += worker.drawables.size();
+                    continue;
+                }
+                worker.busy = true;
+                busyWorkers++;
+            }
+            worker.dispatch();
+            dispatched++;
+        }
+        if (skipped > 0) {
+            animator.drawablesSkipped(skipped);
+        }
+        if (frameBarrier) {
+            waitForWorkers();
+        } else if (0 == dispatched && activeWorkers > 0) {
+            // all workers are busy, don't spin
+            synchronized (this) {
+                while (busyWorkers >= activeWorkers) {
+                    try {
+                        wait();
+                    } catch (InterruptedException ie) {
+                    }
+                }
+            }
+        }
+        reportExceptions(ignoreExceptions, printExceptions);
+    }
+
+    private void reportExceptions(boolean ignoreExceptions, boolean printExceptions) {
+        RuntimeException[] pending;
+        synchronized (this) {
+            if (exceptions.size() == 0) {
+                return;
+            }
+            pending = (RuntimeException[]) exceptions.toArray(new RuntimeException[exceptions.size()]);
+            exceptions.clear();
+        }
+        if (!ignoreExceptions) {
+            throw pending[0];
+        }
+        if (printExceptions) {
+            for (int i = 0; i < pending.length; i++) {
+                pending[i].printStackTrace();
+            }
+        }
+    }
+
+    private synchronized void waitForWorkers() {
+        while (busyWorkers > 0) {
+            try {
+                wait();
+            } catch (InterruptedException ie) {
+            }
+        }
+    }
+
+    /** Groups the drawables by their context share set and assigns the groups to the workers. */
+    private void partition(Animator animator, List list) {
+        ArrayList/*<ArrayList<GLAutoDrawable>>*/ groups = new ArrayList();
+        Map/*<Object,ArrayList<GLAutoDrawable>>*/ shareGroups = new HashMap();
+        for (Iterator iter = list.iterator(); iter.hasNext(); ) {
+            GLAutoDrawable drawable = (GLAutoDrawable) iter.next();
+            GLContext context = drawable.getContext();
+            Object key = (null != context) ? GLContextShareSet.getShareSetKey(context) : null;
+            ArrayList group = (null != key) ? (ArrayList) shareGroups.get(key) : null;
+            if (null == group) {
+                group = new ArrayList();
+                groups.add(group);
+                if (null != key) {
+                    shareGroups.put(key, group);
+                }
+            }
+            group.add(drawable);
+        }
+        int n = groups.size();
+        if (maxWorkers > 0 && n > maxWorkers) {
+            n = maxWorkers;
+        }
+        while (workers.size() < n) {
+            workers.add(new DisplayWorker(animator, workers.size()));
+        }
+        for (int i = 0; i < workers.size(); i++) {
+            ((DisplayWorker) workers.get(i)).drawables.clear();
+        }
+        for (int i = 0; i < groups.size(); i++) {
+            DisplayWorker worker = (DisplayWorker) workers.get(i % n);
+            worker.drawables.addAll((ArrayList) groups.get(i));
+        }
+        for (int i = 0; i < n; i++) {
+            DisplayWorker worker = (DisplayWorker) workers.get(i);
+            for (Iterator iter = worker.drawables.iterator(); iter.hasNext(); ) {
+                GLAutoDrawable drawable = (GLAutoDrawable) iter.next();
+                if (drawable.getAnimator() != worker.thread) {
+                    drawable.setAnimator(null);
+                    drawable.setAnimator(worker.thread);
+                }
+            }
+        }
+        synchronized (this) {
+            activeWorkers = n;
+        }
+        partitionedList = list;
+    }
+
+    /** Terminates all workers, called by the Animator thread when it stops. */
+    void stopWorkers() {
+        waitForWorkers();
+        for (int i = 0; i < workers.size(); i++) {
+            ((DisplayWorker) workers.get(i)).stop();
+        }
+        for (int i = 0; i < workers.size(); i++) {
+            DisplayWorker worker = (DisplayWorker) workers.get(i);
+            try {
+                worker.thread.join();
+            } catch (InterruptedException ie) {
+            }
+        }
+        workers.clear();
+        synchronized (this) {
+            activeWorkers = 0;
+            exceptions.clear();
+        }
+        partitionedList = null;
+    }
+
+    class DisplayWorker implements Runnable {
+        final Animator animator;
+        final Thread thread;
+        final ArrayList/*<GLAutoDrawable>*/ drawables = new ArrayList();
+        // guarded by ParallelAnimatorImpl.this
+        boolean busy = false;
+        // guarded by this
+        private boolean frameRequested = false;
+        private boolean shouldStop = false;
+
+        DisplayWorker(Animator animator, int index) {
+            this.animator = animator;
+            String name = "AnimatorWorker-"+index;
+            if (null == threadGroup) {
+                thread = new Thread(this, name);
+            } else {
+                thread = new Thread(threadGroup, this, name);
+            }
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        /** Caller has marked this worker busy */
+        synchronized void dispatch() {
+            frameRequested = true;
+            notifyAll();
+        }
+
+        synchronized void stop() {
+            shouldStop = true;
+            notifyAll();
+        }
+
+        public void run() {
+            while (true) {
+                synchronized (this) {
+                    while (!frameRequested && !shouldStop) {
+                        try {
+                            wait();
+                        } catch (InterruptedException ie) {
+                        }
+                    }
+                    if (shouldStop) {
+                        break;
+                    }
+                    frameRequested = false;
+                }
+                for (int i = 0; i < drawables.size(); i++) {
+                    GLAutoDrawable drawable = (GLAutoDrawable) drawables.get(i);
+                    try {
+                        drawable.display();
+                        animator.frameDisplayed(drawable);
+                    } catch (RuntimeException e) {
+                        synchronized (ParallelAnimatorImpl.this) {
+                            exceptions.add(e);
+                        }
+                    } catch (Error e) {
+                        // rethrown on the Animator thread
+                        synchronized (ParallelAnimatorImpl.this) {
+                            exceptions.add(new GLException(e));
+                        }
+                    }
+                }
+                synchronized (ParallelAnimatorImpl.this) {
+                    busy = false;
+                    busyWorkers--;
+                    ParallelAnimatorImpl.this.notifyAll();
+                }
+            }
+        }
+    }
+}
@@ -44,6 +44,8 @@ import java.nio.channels.*;
  * Utility class which helps take fast screenshots of OpenGL rendering
  * results into Targa-format files. Used by the {@link com.jogamp.opengl.util.awt.Screenshot}
  * class; can also be used in conjunction with the {@link com.jogamp.opengl.util.gl2.TileRenderer} class.
+ * The whole file is mapped, images too large for that are written
+ * tile by tile with {@link TiledImageWriter}.
  */
 public class TGAWriter {
     
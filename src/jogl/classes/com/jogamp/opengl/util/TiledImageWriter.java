@@ -0,0 +1,256 @@
+/**
+ * Copyright 2010 JogAmp Community. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are
+ * permitted provided that the following conditions are met:
+ * 
+ *    1. Redistributions of source code must retain the above copyright notice, this list of
+ *       conditions and the following disclaimer.
+ * 
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *       of conditions and the following disclaimer in the documentation and/or other materials
+ *       provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY JogAmp Community ``AS IS'' AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL JogAmp Community OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are those of the
+ * authors and should not be interpreted as representing official policies, either expressed
+ * or implied, of JogAmp Community.
+ */
+
+package com.jogamp.opengl.util;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+
+/**
+ * Writes an image of arbitrary size to a file tile by tile,
+ * holding at most one row of tiles in memory.
+ * <p>
+ * Tiles are expected as read by <code>glReadPixels</code>: pixel rows from bottom to top,
+ * tightly packed, tile row 0 at the bottom of the image. The tiles of a tile row
+ * may arrive in any order, tile rows are expected in either vertical order.
+ * Each completed tile row is written to its position in the file,
+ * hence neither the image nor the file has to be mapped as a whole.
+ * </p>
+ * <p>
+ * Can be used in conjunction with {@link com.jogamp.opengl.util.gl2.TileRenderer#setImageWriter}.
+ * </p>
+ */
+public class TiledImageWriter {
+    private static final int TARGA_HEADER_SIZE = 18;
+
+    /**
+     * Opens a Targa file, overwriting any existing file.
+     * The tiles must be read in BGR or BGRA format depending on alpha.
+     *
+     * @param width the image width, at most 65535
+     * @param height the image height, at most 65535
+     * @param tileWidth the tile width without borders
+     * @param tileHeight the tile height without borders
+     */
+    public static TiledImageWriter openTGA(File file, int width, int height,
+                                           int tileWidth, int tileHeight, boolean alpha) throws IOException {
+        if(width>0xffff || height>0xffff) {
+            throw new IllegalArgumentException("Targa image size exceeds 65535: "+width+"x"+height);
+        }
+        ByteBuffer header = ByteBuffer.allocate(TARGA_HEADER_SIZE);
+        header.put(2, (byte) 2); // uncompressed type
+        header.put(12, (byte) (width & 0xFF)); // width
+        header.put(13, (byte) (width >> 8)); // width
+        header.put(14, (byte) (height & 0xFF)); // height
+        header.put(15, (byte) (height >> 8)); // height
+        header.put(16, (byte) (alpha ? 32 : 24)); // pixel size
+        header.put(17, (byte) (alpha ? 8 : 0)); // alpha bits
+        return new TiledImageWriter(open(file), header, width, height, tileWidth, tileHeight, alpha ? 4 : 3);
+    }
+
+    /**
+     * Opens a raw file without header, overwriting any existing file.
+     * Pixel rows are stored from bottom to top.
+     */
+    public static TiledImageWriter openRaw(File file, int width, int height,
+                                           int tileWidth, int tileHeight, int bytesPerPixel) throws IOException {
+        return new TiledImageWriter(open(file), null, width, height, tileWidth, tileHeight, bytesPerPixel);
+    }
+
+    /**
+     * @param ch the channel to write to at absolute positions, closed by {@link #close()}
+     * @param header written at position 0, may be null
+     */
+    protected TiledImageWriter(FileChannel ch, ByteBuffer header, int width, int height,
+                               int tileWidth, int tileHeight, int bytesPerPixel) throws IOException {
+        if(0>=width || 0>=height || 0>=tileWidth || 0>=tileHeight || 0>=bytesPerPixel) {
+            throw new IllegalArgumentException("Invalid dimensions: image "+width+"x"+height+
+                                               ", tile "+tileWidth+"x"+tileHeight+", bpp "+bytesPerPixel);
+        }
+        this.ch = ch;
+        this.width = width;
+        this.height = height;
+        this.tileWidth = tileWidth;
+        this.tileHeight = tileHeight;
+        this.bytesPerPixel = bytesPerPixel;
+        this.columns = ( width + tileWidth - 1 ) / tileWidth;
+        this.rows = ( height + tileHeight - 1 ) / tileHeight;
+        this.dataOffset = null!=header ? header.capacity() : 0;
+        this.rowStride = width * bytesPerPixel;
+        // a heap buffer, so large images don't exhaust direct memory
+        this.strip = ByteBuffer.allocate(rowStride * Math.min(tileHeight, height));
+        this.columnDone = new boolean[columns];
+
+        if(null!=header) {
+            header.clear();
+            writeFully(header, 0);
+        }
+    }
+
+    public int getWidth() { return width; }
+
+    public int getHeight() { return height; }
+
+    public int getTileWidth() { return tileWidth; }
+
+    public int getTileHeight() { return tileHeight; }
+
+    public int getBytesPerPixel() { return bytesPerPixel; }
+
+    public int getColumns() { return columns; }
+
+    public int getRows() { return rows; }
+
+    /** @return the width of the tiles in the given column */
+    public int getTileWidth(int column) {
+        return Math.min(tileWidth, width - column * tileWidth);
+    }
+
+    /** @return the height of the tiles in the given row */
+    public int getTileHeight(int row) {
+        return Math.min(tileHeight, height - row * tileHeight);
+    }
+
+    /** @return the size of the tile row buffer in bytes */
+    public int getBufferSize() { return strip.capacity(); }
+
+    /** @return true if all tiles have been written */
+    public boolean isComplete() { return rowsDone == rows; }
+
+    /**
+     * Copies the tile into the current tile row, writing the tile row once complete.
+     *
+     * @param column the tile column, 0 at the left
+     * @param row the tile row, 0 at the bottom
+     * @param data the tile pixels from its position on,
+     *        {@link #getTileWidth(int)} x {@link #getTileHeight(int)} pixels
+     *        with rows from bottom to top
+     * @throws IllegalStateException if a tile of another row is given before the current row is complete,
+     *         or the tile has already been written
+     */
+    public synchronized void writeTile(int column, int row, ByteBuffer data) throws IOException {
+        if(null==ch) {
+            throw new IOException("Writer closed");
+        }
+        if(0>column || column>=columns || 0>row || row>=rows) {
+            throw new IllegalArgumentException("Tile "+column+"/"+row+" out of "+columns+"x"+rows);
+        }
+        if(0>stripRow) {
+            stripRow = row;
+        } else if(row!=stripRow) {
+            throw new IllegalStateException("Tile row "+stripRow+" incomplete, got tile "+column+"/"+row);
+        }
+        if(columnDone[column]) {
+            throw new IllegalStateException("Tile "+column+"/"+row+" already written");
+        }
+        int tw = getTileWidth(column);
+        int th = getTileHeight(row);
+        int tileStride = tw * bytesPerPixel;
+        if(data.remaining() < tileStride * th) {
+            throw new IllegalArgumentException("Tile "+column+"/"+row+" needs "+(tileStride * th)+
+                                               " bytes, has "+data.remaining());
+        }
+
+        // copy the pixel rows into the strip at the column offset
+        ByteBuffer src = data.duplicate();
+        byte[] dst = strip.array();
+        int dstOffset = strip.arrayOffset() + column * tileWidth * bytesPerPixel;
+        for(int y=0; y<th; y++) {
+            src.get(dst, dstOffset + y * rowStride, tileStride);
+        }
+        columnDone[column] = true;
+
+        if(++columnsDone == columns) {
+            flushStrip(th);
+        }
+    }
+
+    /**
+     * Closes the file.
+     *
+     * @throws IOException if not all tiles have been written
+     */
+    public synchronized void close() throws IOException {
+        if(null!=ch) {
+            FileChannel c = ch;
+            ch = null;
+            c.close();
+            if(!isComplete()) {
+                throw new IOException("Image incomplete, "+rowsDone+" of "+rows+" tile rows written");
+            }
+        }
+    }
+
+    public String toString() {
+        return "TiledImageWriter["+width+"x"+height+", tiles "+tileWidth+"x"+tileHeight+
+               ", "+columns+"x"+rows+", bpp "+bytesPerPixel+", rows done "+rowsDone+"]";
+    }
+
+    private void flushStrip(int th) throws IOException {
+        long position = dataOffset + (long) stripRow * tileHeight * rowStride;
+        // write row by row, limiting the temporary direct buffer of the channel
+        for(int y=0; y<th; y++) {
+            strip.limit((y + 1) * rowStride);
+            strip.position(y * rowStride);
+            writeFully(strip, position + (long) y * rowStride);
+        }
+        strip.clear();
+        for(int i=0; i<columns; i++) {
+            columnDone[i] = false;
+        }
+        columnsDone = 0;
+        stripRow = -1;
+        rowsDone++;
+    }
+
+    private void writeFully(ByteBuffer buf, long position) throws IOException {
+        while(buf.hasRemaining()) {
+            position += ch.write(buf, position);
+        }
+    }
+
+    private static FileChannel open(File file) throws IOException {
+        RandomAccessFile out = new RandomAccessFile(file, "rw");
+        out.setLength(0);
+        return out.getChannel();
+    }
+
+    private FileChannel ch;
+    private final int width, height;
+    private final int tileWidth, tileHeight;
+    private final int bytesPerPixel;
+    private final int columns, rows;
+    private final long dataOffset;
+    private final int rowStride;
+    private final ByteBuffer strip;
+    private final boolean[] columnDone;
+    private int columnsDone = 0;
+    private int stripRow = -1;
+    private int rowsDone = 0;
+}
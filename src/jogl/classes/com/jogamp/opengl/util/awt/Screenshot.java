@@ -348,7 +348,10 @@ public class Screenshot {
    * double-buffered configurations). This is not the fastest
    * mechanism for taking a screenshot but may be more convenient than
    * others for getting images for consumption by other packages. The
-   * file format is inferred from the suffix of the given file. <P>
+   * file format is inferred from the suffix of the given file. Targa
+   * ("tga", run length encoded) and PNG files are encoded directly
+   * from the read back pixels by {@link ImageEncoder}, all other
+   * formats go through ImageIO. <P>
    *
    * Note that some file formats, in particular JPEG, can not handle
    * an alpha channel properly. If the "alpha" argument is specified
@@ -376,6 +379,19 @@ public class Screenshot {
                                  int height,
                                  boolean alpha) throws IOException, GLException {
     String fileSuffix = FileUtil.getFileSuffix(file);
+    int encoderFormat = ImageEncoder.getFormat(fileSuffix);
+    if (encoderFormat != 0) {
+      // Targa and PNG are encoded straight from the read back pixels
+      ImageEncoder encoder = new ImageEncoder(encoderFormat);
+      byte[] pixels = readPixels(x, y, width, height, alpha, encoder.isBGR());
+      OutputStream out = new BufferedOutputStream(new FileOutputStream(file), 64 * 1024);
+      try {
+        encoder.encode(out, pixels, 0, width, height, alpha ? 4 : 3);
+      } finally {
+        out.close();
+      }
+      return;
+    }
     if (alpha && (fileSuffix.equals("jpg") || fileSuffix.equals("jpeg"))) {
       // JPEGs can't deal properly with alpha channels
       alpha = false;
@@ -387,6 +403,74 @@ public class Screenshot {
     }
   }
 
+  /**
+   * Takes a screenshot of the current OpenGL drawable and queues it
+   * for encoding to the specified file on a background thread.
+   * Requires the OpenGL context for the desired drawable to be
+   * current. Returns as soon as the pixels are read back, or once the
+   * queue accepts another image. The file format is inferred from
+   * the suffix of the given file, either "tga" for run length encoded
+   * Targa or "png".
+   *
+   * @param queue the queue writing the image
+   * @param encoder the encoder to use, or null for one matching the file suffix
+   * @param file the file to write containing the screenshot
+   * @param x the starting x coordinate of the screenshot, measured from the lower-left
+   * @param y the starting y coordinate of the screenshot, measured from the lower-left
+   * @param width the width of the desired screenshot area
+   * @param height the height of the desired screenshot area
+   * @param alpha whether an alpha channel should be saved
+   *
+   * @throws GLException if an OpenGL context was not current or
+   *   another OpenGL-related error occurred
+   * @throws IOException if the file format is not supported or a
+   *   previous background write failed
+   */
+  public static void writeToFile(ImageWriterQueue queue,
+                                 ImageEncoder encoder,
+                                 File file,
+                                 int x,
+                                 int y,
+                                 int width,
+                                 int height,
+                                 boolean alpha) throws IOException, GLException {
+    if (encoder == null) {
+      int encoderFormat = ImageEncoder.getFormat(FileUtil.getFileSuffix(file));
+      if (encoderFormat == 0) {
+        throw new IOException("Unsupported file format " + FileUtil.getFileSuffix(file));
+      }
+      encoder = new ImageEncoder(encoderFormat);
+    }
+    byte[] pixels = readPixels(x, y, width, height, alpha, encoder.isBGR());
+    queue.write(file, encoder, pixels, width, height, alpha ? 4 : 3);
+  }
+
+  // Reads tightly packed 8 bit RGB(A) or BGR(A) pixels, rows from
+  // bottom to top, as the image encoders expect them
+  private static byte[] readPixels(int x, int y, int width, int height,
+                                   boolean alpha, boolean bgr) {
+    int readbackType;
+    if (bgr) {
+      readbackType = (alpha ? GL2.GL_BGRA : GL2.GL_BGR);
+    } else {
+      readbackType = (alpha ? GL2.GL_RGBA : GL2.GL_RGB);
+    }
+    byte[] pixels = new byte[width * height * (alpha ? 4 : 3)];
+
+    GL2 gl = GLUgl2.getCurrentGL2();
+
+    // Set up pixel storage modes
+    PixelStorageModes psm = new PixelStorageModes();
+    psm.save(gl);
+
+    gl.glReadPixels(x, y, width, height, readbackType,
+                    GL2.GL_UNSIGNED_BYTE, ByteBuffer.wrap(pixels));
+
+    // Restore pixel storage modes
+    psm.restore(gl);
+    return pixels;
+  }
+
   private static int glGetInteger(GL2 gl, int pname, int[] tmp) {
     gl.glGetIntegerv(pname, tmp, 0);
     return tmp[0];
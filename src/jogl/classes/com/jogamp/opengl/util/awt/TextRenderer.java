@@ -121,7 +121,12 @@ import javax.media.opengl.awt.*;
     currently implemented by flushing unused Strings' rendering
     results every few hundred rendering cycles, where a rendering
     cycle is defined as a pair of calls to {@link #beginRendering
-    beginRendering} / {@link #endRendering endRendering}.
+    beginRendering} / {@link #endRendering endRendering}. Individual
+    glyphs of any Unicode code point are cached in a {@link
+    com.jogamp.opengl.util.packrect.LRURectCache LRURectCache}; when
+    the backing store runs out of space, the least recently used
+    glyphs not drawn in the current rendering cycle are evicted before
+    the backing store is grown.
 
     @author John Burkey
     @author Kenneth Russell
@@ -142,6 +147,9 @@ public class TextRenderer {
     // The amount of vertical dead space on the backing store before we
     // force a compaction
     private static final float MAX_VERTICAL_FRAGMENTATION = 0.7f;
+    // The number of entries an incremental compaction may move before
+    // falling back to a full one
+    private static final int INCREMENTAL_COMPACTION_MOVES = 64;
     static final int kQuadsPerBuffer = 100;
     static final int kCoordsPerVertVerts = 3;
     static final int kCoordsPerVertTex = 2;
@@ -302,7 +310,7 @@ public class TextRenderer {
 
         this.renderDelegate = renderDelegate;
 
-        mGlyphProducer = new GlyphProducer(font.getNumGlyphs());
+        mGlyphProducer = new GlyphProducer();
     }
 
     /** Returns the bounding rectangle of the given String, assuming it
@@ -525,6 +533,29 @@ public class TextRenderer {
         return mGlyphProducer.getGlyphPixelWidth(inChar);
     }
 
+    /** Returns the number of glyphs drawn from the backing store
+        without being rasterized again. */
+    public long getGlyphCacheHits() {
+        return mGlyphProducer.cache.getHits();
+    }
+
+    /** Returns the number of glyphs which had to be rasterized onto the
+        backing store before being drawn. */
+    public long getGlyphCacheMisses() {
+        return mGlyphProducer.cache.getMisses();
+    }
+
+    /** Returns the number of glyphs evicted from the backing store to
+        make room for others. */
+    public long getGlyphCacheEvictions() {
+        return mGlyphProducer.cache.getEvictions();
+    }
+
+    /** Resets the glyph cache hit, miss and eviction counters. */
+    public void resetGlyphCacheStatistics() {
+        mGlyphProducer.cache.resetStatistics();
+    }
+
     /** Causes the TextRenderer to flush any internal caches it may be
         maintaining and draw its rendering results to the screen. This
         should be called after each call to draw() if you are setting
@@ -732,6 +763,8 @@ public class TextRenderer {
             getBackingStore().end3DRendering();
         }
 
+        mGlyphProducer.nextFrame();
+
         if (++numRenderCycles >= CYCLES_PER_FLUSH) {
             numRenderCycles = 0;
 
@@ -789,7 +822,12 @@ public class TextRenderer {
                                    frag);
             }
 
-            packer.compact();
+            // Try a bounded compaction of the current backing store first
+            packer.compactIncrementally(INCREMENTAL_COMPACTION_MOVES);
+
+            if (packer.verticalFragmentationRatio() > MAX_VERTICAL_FRAGMENTATION) {
+                packer.compact();
+            }
         }
 
         if (DEBUG) {
@@ -1164,7 +1202,21 @@ public class TextRenderer {
         }
 
         public boolean preExpand(Rect cause, int attemptNumber) {
-            // Only try this one time; clear out potentially obsolete entries
+            // First evict the least recently used glyphs which weren't
+            // drawn during the current rendering cycle. Glyphs drawn in
+            // this cycle are never evicted, so a working set larger
+            // than the backing store still causes expansion.
+            if (attemptNumber == 0) {
+                int evicted = mGlyphProducer.evict(cause.w() * cause.h());
+
+                if (DEBUG && evicted > 0) {
+                    System.err.println("Evicted " + evicted + " glyphs in preExpand()");
+                }
+
+                return true;
+            }
+
+            // Try this one more time; clear out potentially obsolete entries
             // NOTE: this heuristic and the fact that it clears the used bit
             // of all entries seems to cause cycling of entries in some
             // situations, where the backing store becomes small compared to
@@ -1178,7 +1230,7 @@ public class TextRenderer {
             // clear the used bit here, the backing store tends to increase
             // very quickly to its maximum size, at least with the TextFlow
             // demo when the text is being continually re-laid out.
-            if (attemptNumber == 0) {
+            if (attemptNumber == 1) {
                 if (DEBUG) {
                     System.err.println(
                         "Clearing unused entries in preExpand(): attempt number " +
@@ -1344,8 +1396,41 @@ public class TextRenderer {
     // Glyph-by-glyph rendering support
     //
 
-    // A temporary to prevent excessive garbage creation
+    // Temporaries to prevent excessive garbage creation
     private char[] singleUnicode = new char[1];
+    private char[] singleSurrogatePair = new char[2];
+
+    // Creates the GlyphVector of a single Unicode code point
+    private GlyphVector createSingleGlyphVector(int unicodeID) {
+        char[] chars;
+        if (unicodeID >= 0x10000) {
+            int v = unicodeID - 0x10000;
+            singleSurrogatePair[0] = (char) (0xD800 + (v >> 10));
+            singleSurrogatePair[1] = (char) (0xDC00 + (v & 0x3FF));
+            chars = singleSurrogatePair;
+        } else {
+            singleUnicode[0] = (char) unicodeID;
+            chars = singleUnicode;
+        }
+        return font.createGlyphVector(getFontRenderContext(), chars);
+    }
+
+    // Returns the code point at the given index, combining surrogate
+    // pairs (Character has no code point support in Java 1.4)
+    private static int codePointAt(CharSequence seq, int index) {
+        char c = seq.charAt(index);
+        if (c >= 0xD800 && c <= 0xDBFF && index + 1 < seq.length()) {
+            char low = seq.charAt(index + 1);
+            if (low >= 0xDC00 && low <= 0xDFFF) {
+                return 0x10000 + ((c - 0xD800) << 10) + (low - 0xDC00);
+            }
+        }
+        return c;
+    }
+
+    private static int charCount(int unicodeID) {
+        return (unicodeID >= 0x10000) ? 2 : 1;
+    }
 
     /** A Glyph represents either a single unicode glyph or a
         substring of characters to be drawn. The reason for the dual
@@ -1374,9 +1459,6 @@ public class TextRenderer {
         // in during construction but cleared during the upload
         // process
         private GlyphVector singleUnicodeGlyphVector;
-        // The rectangle of this glyph on the backing store, or null
-        // if it has been cleared due to space pressure
-        private Rect glyphRectForTextureMapping;
         // If this Glyph represents a String, this is the sequence of
         // characters
         private String str;
@@ -1436,9 +1518,11 @@ public class TextRenderer {
                 return totalAdvance;
             }
 
-            // This is the code path taken for individual glyphs
-            if (glyphRectForTextureMapping == null) {
-                upload();
+            // This is the code path taken for individual glyphs; the
+            // rectangle is null if the glyph isn't on the backing store
+            Rect rect = producer.use(this);
+            if (rect == null) {
+                rect = upload();
             }
 
             try {
@@ -1452,7 +1536,6 @@ public class TextRenderer {
                 float xScale = wholeImageTexCoords.right();
                 float yScale = wholeImageTexCoords.bottom();
 
-                Rect rect = glyphRectForTextureMapping;
                 TextData data = (TextData) rect.getUserData();
                 data.markUsed();
 
@@ -1491,12 +1574,7 @@ public class TextRenderer {
             return advance;
         }
 
-        /** Notifies this glyph that it's been cleared out of the cache */
-        public void clear() {
-            glyphRectForTextureMapping = null;
-        }
-
-        private void upload() {
+        private Rect upload() {
             GlyphVector gv = getGlyphVector();
             Rectangle2D origBBox = preNormalize(renderDelegate.getBounds(gv, getFontRenderContext()));
             Rectangle2D bbox = normalize(origBBox);
@@ -1506,7 +1584,6 @@ public class TextRenderer {
                                  (int) bbox.getHeight(),
                                  new TextData(null, origin, origBBox, unicodeID));
             packer.add(rect);
-            glyphRectForTextureMapping = rect;
             Graphics2D g = getGraphics2D();
             // OK, should now have an (x, y) for this rectangle; rasterize
             // the glyph
@@ -1538,7 +1615,8 @@ public class TextRenderer {
             getBackingStore().markDirty(rect.x(), rect.y(), rect.w(),
                                         rect.h());
             // Re-register ourselves with our producer
-            producer.register(this);
+            producer.register(this, rect);
+            return rect;
         }
 
         private GlyphVector getGlyphVector() {
@@ -1547,83 +1625,87 @@ public class TextRenderer {
                 singleUnicodeGlyphVector = null; // Don't need this anymore
                 return gv;
             }
-            singleUnicode[0] = (char) unicodeID;
-            return font.createGlyphVector(getFontRenderContext(), singleUnicode);
+            return createSingleGlyphVector(unicodeID);
         }
     }
 
     class GlyphProducer {
-        final int undefined = -2;
-        FontRenderContext fontRenderContext;
         List/*<Glyph>*/ glyphsOutput = new ArrayList/*<Glyph>*/();
-        // The mapping from unicode character to font-specific glyph ID
-        int[] unicodes2Glyphs;
-        // The mapping from glyph ID to Glyph
-        Glyph[] glyphCache;
+        // The mapping from Unicode code point to Glyph, which also
+        // tracks the glyphs' rectangles on the backing store
+        LRURectCache cache = new LRURectCache(packer);
         // We re-use this for each incoming string
         CharSequenceIterator iter = new CharSequenceIterator();
 
-        GlyphProducer(int fontLengthInGlyphs) {
-            unicodes2Glyphs = new int[512];
-            glyphCache = new Glyph[fontLengthInGlyphs];
-            clearAllCacheEntries();
-        }
-
         public List/*<Glyph>*/ getGlyphs(CharSequence inString) {
             glyphsOutput.clear();
             iter.initFromCharSequence(inString);
             GlyphVector fullRunGlyphVector = font.createGlyphVector(getFontRenderContext(), iter);
             boolean complex = (fullRunGlyphVector.getLayoutFlags() != 0);
-            if (complex || DISABLE_GLYPH_CACHE) {
+            int lengthInGlyphs = fullRunGlyphVector.getNumGlyphs();
+            int lengthInChars = inString.length();
+            if (complex || DISABLE_GLYPH_CACHE ||
+                lengthInGlyphs != codePointCount(inString)) {
                 // Punt to the robust version of the renderer
                 glyphsOutput.add(new Glyph(inString.toString(), false));
                 return glyphsOutput;
             }
 
-            int lengthInGlyphs = fullRunGlyphVector.getNumGlyphs();
             int i = 0;
-            while (i < lengthInGlyphs) {
-                Glyph glyph = getGlyph(inString, fullRunGlyphVector, i);
+            int glyphIndex = 0;
+            while (i < lengthInChars) {
+                Glyph glyph = getGlyph(inString, i, fullRunGlyphVector, glyphIndex);
                 if (glyph != null) {
                     glyphsOutput.add(glyph);
-                    i++;
+                    i += charCount(glyph.getUnicodeID());
+                    glyphIndex++;
                 } else {
                     // Assemble a run of characters that don't fit in
                     // the cache
                     StringBuffer buf = new StringBuffer();
-                    while (i < lengthInGlyphs &&
-                           getGlyph(inString, fullRunGlyphVector, i) == null) {
-                        buf.append(inString.charAt(i++));
+                    while (i < lengthInChars &&
+                           getGlyph(inString, i, fullRunGlyphVector, glyphIndex) == null) {
+                        int n = charCount(codePointAt(inString, i));
+                        for (int j = 0; j < n; j++) {
+                            buf.append(inString.charAt(i++));
+                        }
+                        glyphIndex++;
                     }
                     glyphsOutput.add(new Glyph(buf.toString(),
                                                // Any more glyphs after this run?
-                                               i < lengthInGlyphs));
+                                               i < lengthInChars));
                 }
             }
             return glyphsOutput;
         }
 
+        /** Forgets the backing store rectangle of the given glyph, which
+            the caller has already removed from the packer */
         public void clearCacheEntry(int unicodeID) {
-            int glyphID = unicodes2Glyphs[unicodeID];
-            if (glyphID != undefined) {
-                Glyph glyph = glyphCache[glyphID];
-                if (glyph != null) {
-                    glyph.clear();
-                }
-                glyphCache[glyphID] = null;
-            }
-            unicodes2Glyphs[unicodeID] = undefined;
+            cache.release(unicodeID);
         }
 
         public void clearAllCacheEntries() {
-            for (int i = 0; i < unicodes2Glyphs.length; i++) {
-                clearCacheEntry(i);
-            }
+            cache.clear();
+        }
+
+        public void register(Glyph glyph, Rect rect) {
+            cache.setRect(glyph.getUnicodeID(), glyph, rect);
+        }
+
+        /** Returns the glyph's rectangle on the backing store, or null
+            if it has to be uploaded */
+        public Rect use(Glyph glyph) {
+            return cache.use(glyph.getUnicodeID());
+        }
+
+        /** Evicts least recently used glyphs to free the given area */
+        public int evict(int area) {
+            return cache.evict(area);
         }
 
-        public void register(Glyph glyph) {
-            unicodes2Glyphs[glyph.getUnicodeID()] = glyph.getGlyphCode();
-            glyphCache[glyph.getGlyphCode()] = glyph;
+        public void nextFrame() {
+            cache.nextFrame();
         }
 
         public float getGlyphPixelWidth(char unicodeID) {
@@ -1633,66 +1715,62 @@ public class TextRenderer {
             }
 
             // Have to do this the hard / uncached way
-            singleUnicode[0] = unicodeID;
-            GlyphVector gv = font.createGlyphVector(fontRenderContext,
-                                                                    singleUnicode);
+            GlyphVector gv = createSingleGlyphVector(unicodeID);
             return gv.getGlyphMetrics(0).getAdvance();
         }
 
-        // Returns a glyph object for this single glyph. Returns null
-        // if the unicode or glyph ID would be out of bounds of the
-        // glyph cache.
+        private int codePointCount(CharSequence inString) {
+            int count = 0;
+            for (int i = 0; i < inString.length(); i += charCount(codePointAt(inString, i))) {
+                count++;
+            }
+            return count;
+        }
+
+        // Returns a glyph object for the code point at the given char
+        // index, which is rendered as the given glyph of the full run.
+        // Returns null if the code point doesn't map to a single glyph.
         private Glyph getGlyph(CharSequence inString,
+                               int charIndex,
                                GlyphVector fullRunGlyphVector,
-                               int index) {
-            char unicodeID = inString.charAt(index);
+                               int glyphIndex) {
+            int unicodeID = codePointAt(inString, charIndex);
 
-            if (unicodeID >= unicodes2Glyphs.length) {
-                return null;
-            }
-
-            int glyphID = unicodes2Glyphs[unicodeID];
-            if (glyphID != undefined) {
-                return glyphCache[glyphID];
+            Glyph glyph = (Glyph) cache.get(unicodeID);
+            if (glyph != null) {
+                return glyph;
             }
 
             // Must fabricate the glyph
-            singleUnicode[0] = unicodeID;
-            GlyphVector gv = font.createGlyphVector(getFontRenderContext(), singleUnicode);
-            return getGlyph(unicodeID, gv, fullRunGlyphVector.getGlyphMetrics(index));
+            GlyphVector gv = createSingleGlyphVector(unicodeID);
+            return getGlyph(unicodeID, gv, fullRunGlyphVector.getGlyphMetrics(glyphIndex));
         }
 
         // It's unclear whether this variant might produce less
         // optimal results than if we can see the entire GlyphVector
         // for the incoming string
         private Glyph getGlyph(int unicodeID) {
-            if (unicodeID >= unicodes2Glyphs.length) {
-                return null;
-            }
-
-            int glyphID = unicodes2Glyphs[unicodeID];
-            if (glyphID != undefined) {
-                return glyphCache[glyphID];
+            Glyph glyph = (Glyph) cache.get(unicodeID);
+            if (glyph != null) {
+                return glyph;
             }
-            singleUnicode[0] = (char) unicodeID;
-            GlyphVector gv = font.createGlyphVector(getFontRenderContext(), singleUnicode);
+            GlyphVector gv = createSingleGlyphVector(unicodeID);
             return getGlyph(unicodeID, gv, gv.getGlyphMetrics(0));
         }
 
         private Glyph getGlyph(int unicodeID,
                                GlyphVector singleUnicodeGlyphVector,
                                GlyphMetrics metrics) {
-            int glyphCode = singleUnicodeGlyphVector.getGlyphCode(0);
-            // Have seen huge glyph codes (65536) coming out of some fonts in some Unicode situations
-            if (glyphCode >= glyphCache.length) {
+            if (singleUnicodeGlyphVector.getNumGlyphs() != 1) {
                 return null;
             }
+            int glyphCode = singleUnicodeGlyphVector.getGlyphCode(0);
             Glyph glyph = new Glyph(unicodeID,
                                     glyphCode,
                                     metrics.getAdvance(),
                                     singleUnicodeGlyphVector,
                                     this);
-            register(glyph);
+            cache.put(unicodeID, glyph);
             return glyph;
         }
     }
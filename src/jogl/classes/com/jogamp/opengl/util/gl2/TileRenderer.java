@@ -1,12 +1,16 @@
 package com.jogamp.opengl.util.gl2;
 
 import java.awt.Dimension;
+import java.io.IOException;
 import java.nio.Buffer;
+import java.nio.ByteBuffer;
 
 import javax.media.opengl.*;
 import javax.media.opengl.glu.*;
 import javax.media.opengl.glu.gl2.*;
 
+import com.jogamp.opengl.util.TiledImageWriter;
+
 /**
  * A fairly direct port of Brian Paul's tile rendering library, found
  * at <a href = "http://www.mesa3d.org/brianp/TR.html">
@@ -100,6 +104,10 @@ public class TileRenderer
 
   private Buffer imageBuffer;
 
+  private TiledImageWriter imageWriter;
+
+  private int writerFormat, writerType;
+
   /* Tile parameters */
   private Dimension tileSize = new Dimension();
 
@@ -139,6 +147,20 @@ public class TileRenderer
 
   private int[] viewportSave = new int[ 4 ];
 
+  /* Streaming readback, see setImageWriter */
+  private ByteBuffer streamBuffer;
+
+  private int[] pbos;
+
+  private int pboIndex;
+
+  private int pboTileBytes;
+
+  /* column and row of the tile read into each pixel buffer object */
+  private final int[][] pboTiles = new int[ 2 ][ 2 ];
+
+  private final boolean[] pboPending = new boolean[ 2 ];
+
   /**
    * Creates a new TileRenderer object
    */
@@ -249,6 +271,35 @@ public class TileRenderer
     imageBuffer = image;
   }
 
+  /**
+   * Sets a writer streaming the final image to a file, tile row by
+   * tile row, instead of reading it into an image buffer. Only a row
+   * of tiles is held in memory, hence the final image may be larger
+   * than any buffer.
+   * <p>
+   * If pixel buffer objects are available, the readback of a tile is
+   * issued asynchronously and the tile is handed to the writer while
+   * the next tile is rendered; the last tile is written by the final
+   * call of endTile. The writer is not closed.
+   * </p>
+   * 
+   * @param format
+   *           Interpreted as in glReadPixels, must match the writer,
+   *           eg GL_BGR for a 24 bit Targa file
+   * @param type
+   *           Interpreted as in glReadPixels
+   * @param writer
+   *           the writer, its image size must match the image size
+   *           and its tile size the tile size without borders
+   */
+  public void setImageWriter( int format, int type, TiledImageWriter writer )
+  {
+    writerFormat = format;
+    writerType = type;
+    imageWriter = writer;
+    streamBuffer = null;
+  }
+
   /**
    * Gets the parameters of this TileRenderer object
    * 
@@ -406,6 +457,11 @@ public class TileRenderer
        * rendered
        */
       gl.glGetIntegerv( GL2.GL_VIEWPORT, viewportSave, 0 );
+
+      /* drop tiles still pending from an aborted image */
+      pboPending[ 0 ] = false;
+      pboPending[ 1 ] = false;
+      pboIndex = 0;
     }
 
     /* which tile (by row and column) we're about to render */
@@ -518,6 +574,10 @@ public class TileRenderer
       gl.glReadPixels( srcX, srcY, srcWidth, srcHeight, imageFormat, imageType, imageBuffer );
     }
 
+    if( imageWriter != null ) {
+      streamTile( gl );
+    }
+
     /* restore previous glPixelStore values */
     gl.glPixelStorei( GL2.GL_PACK_ROW_LENGTH, prevRowLength[ 0 ] );
     gl.glPixelStorei( GL2.GL_PACK_SKIP_ROWS, prevSkipRows[ 0 ] );
@@ -536,6 +596,147 @@ public class TileRenderer
     }
   }
 
+  /**
+   * Aborts rendering the current image. Tiles not yet passed to the
+   * image writer are dropped and the pixel buffer objects used for
+   * streaming are deleted. The user's viewport is restored if tiles
+   * have been rendered. The next beginTile starts a new image.
+   * 
+   * @param gl
+   *           the gl context
+   */
+  public void abort( GL2 gl )
+  {
+    if( pbos != null ) {
+      deletePBOs( gl );
+    }
+    if( currentTile > 0 ) {
+      gl.glViewport( viewportSave[ 0 ], viewportSave[ 1 ], viewportSave[ 2 ], viewportSave[ 3 ] );
+    }
+    currentTile = -1;
+  }
+
+  /**
+   * Reads the current tile for the image writer. With pixel buffer
+   * objects the readback goes to one of two buffers, and the tile
+   * read before is passed to the writer, so the transfer overlaps
+   * with rendering the next tile.
+   */
+  private void streamTile( GL2 gl )
+  {
+    int srcX = tileBorder;
+    int srcY = tileBorder;
+    int srcWidth = currentTileWidth - 2 * tileBorder;
+    int srcHeight = currentTileHeight - 2 * tileBorder;
+    boolean last = currentTile + 1 >= rows * columns;
+
+    if( imageWriter.getWidth() != imageSize.width || imageWriter.getHeight() != imageSize.height ||
+        imageWriter.getTileWidth() != tileSizeNB.width || imageWriter.getTileHeight() != tileSizeNB.height ) {
+      throw new GLException( "Image writer doesn't match image and tile size: " + imageWriter );
+    }
+
+    gl.glPixelStorei( GL2.GL_PACK_ROW_LENGTH, 0 );
+    gl.glPixelStorei( GL2.GL_PACK_SKIP_ROWS, 0 );
+    gl.glPixelStorei( GL2.GL_PACK_SKIP_PIXELS, 0 );
+    gl.glPixelStorei( GL2.GL_PACK_ALIGNMENT, 1 );
+
+    int tileBytes = tileSizeNB.width * tileSizeNB.height * imageWriter.getBytesPerPixel();
+
+    if( pbos != null && pboTileBytes != tileBytes ) {
+      /* left from an aborted image with another tile size */
+      deletePBOs( gl );
+    }
+    if( pbos == null && isPBOAvailable( gl ) && rows * columns > 1 ) {
+      pbos = new int[ 2 ];
+      pboIndex = 0;
+      pboTileBytes = tileBytes;
+      gl.glGenBuffers( 2, pbos, 0 );
+      int bound = gl.glGetBoundBuffer( GL2.GL_PIXEL_PACK_BUFFER );
+      for( int i = 0; i < pbos.length; i++ ) {
+        gl.glBindBuffer( GL2.GL_PIXEL_PACK_BUFFER, pbos[ i ] );
+        gl.glBufferData( GL2.GL_PIXEL_PACK_BUFFER, tileBytes, null, GL2.GL_STREAM_READ );
+      }
+      gl.glBindBuffer( GL2.GL_PIXEL_PACK_BUFFER, bound );
+    }
+
+    if( pbos != null ) {
+      int bound = gl.glGetBoundBuffer( GL2.GL_PIXEL_PACK_BUFFER );
+      gl.glBindBuffer( GL2.GL_PIXEL_PACK_BUFFER, pbos[ pboIndex ] );
+      gl.glReadPixels( srcX, srcY, srcWidth, srcHeight, writerFormat, writerType, 0 );
+      pboTiles[ pboIndex ][ 0 ] = currentColumn;
+      pboTiles[ pboIndex ][ 1 ] = currentRow;
+      pboPending[ pboIndex ] = true;
+
+      /* the previous tile has been transferred meanwhile */
+      int prev = 1 - pboIndex;
+      if( pboPending[ prev ] ) {
+        writePBOTile( gl, prev );
+      }
+      if( last ) {
+        writePBOTile( gl, pboIndex );
+        gl.glBindBuffer( GL2.GL_PIXEL_PACK_BUFFER, bound );
+        deletePBOs( gl );
+      } else {
+        gl.glBindBuffer( GL2.GL_PIXEL_PACK_BUFFER, bound );
+        pboIndex = prev;
+      }
+    } else {
+      if( streamBuffer == null || streamBuffer.capacity() < tileBytes ) {
+        streamBuffer = ByteBuffer.allocateDirect( tileBytes );
+      }
+      streamBuffer.clear();
+      gl.glReadPixels( srcX, srcY, srcWidth, srcHeight, writerFormat, writerType, streamBuffer );
+      writeTile( currentColumn, currentRow, streamBuffer );
+      if( last ) {
+        streamBuffer = null;
+      }
+    }
+  }
+
+  private void writePBOTile( GL2 gl, int index )
+  {
+    int[] tile = pboTiles[ index ];
+    pboPending[ index ] = false;
+    gl.glBindBuffer( GL2.GL_PIXEL_PACK_BUFFER, pbos[ index ] );
+    ByteBuffer pixels = gl.glMapBuffer( GL2.GL_PIXEL_PACK_BUFFER, GL2.GL_READ_ONLY );
+    if( pixels == null ) {
+      throw new GLException( "Couldn't map pixel buffer of tile " + tile[ 0 ] + "/" + tile[ 1 ] );
+    }
+    try {
+      writeTile( tile[ 0 ], tile[ 1 ], pixels );
+    } finally {
+      gl.glUnmapBuffer( GL2.GL_PIXEL_PACK_BUFFER );
+    }
+  }
+
+  /**
+   * Deletes the pixel buffer objects, dropping their pending tiles.
+   * They are never left mapped, see writePBOTile.
+   */
+  private void deletePBOs( GL2 gl )
+  {
+    gl.glDeleteBuffers( pbos.length, pbos, 0 );
+    pbos = null;
+    pboPending[ 0 ] = false;
+    pboPending[ 1 ] = false;
+  }
+
+  private void writeTile( int column, int row, ByteBuffer pixels )
+  {
+    try {
+      imageWriter.writeTile( column, row, pixels );
+    } catch (IOException ioe) {
+      throw new GLException( "Couldn't write tile " + column + "/" + row, ioe );
+    }
+  }
+
+  private static boolean isPBOAvailable( GL gl )
+  {
+    return gl.isFunctionAvailable( "glMapBuffer" ) &&
+      ( gl.isExtensionAvailable( "GL_VERSION_2_1" ) ||
+        gl.isExtensionAvailable( "GL_ARB_pixel_buffer_object" ) );
+  }
+
   /**
    * Tile rendering causes problems with using glRasterPos3f, so you
    * should use this replacement instead
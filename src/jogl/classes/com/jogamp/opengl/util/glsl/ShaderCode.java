@@ -263,8 +263,17 @@ public class ShaderCode {
         }
     }
 
+    /**
+     * Appends the source of the URL with its <code>#include</code> directives expanded,
+     * memoized by the {@link ShaderSourceCache#getDefault() default source cache}
+     * if {@link ShaderSourceCache#ENABLED enabled}.
+     */
     public static void readShaderSource(ClassLoader context, String path, URL url, StringBuffer result) {
         try {
+            if(ShaderSourceCache.ENABLED) {
+                result.append(ShaderSourceCache.getDefault().get(context, path, url));
+                return;
+            }
             BufferedReader reader = new BufferedReader(new InputStreamReader(url.openStream()));
             String line = null;
             while ((line = reader.readLine()) != null) {
@@ -321,7 +330,13 @@ public class ShaderCode {
             if (url == null) {
                 return null;
             }
-            return StreamUtil.readAll2Buffer(new BufferedInputStream(url.openStream()));
+            URLConnection conn = url.openConnection();
+            InputStream stream = conn.getInputStream();
+            try {
+                return StreamUtil.readAll2Buffer(stream, conn.getContentLength());
+            } finally {
+                stream.close();
+            }
         } catch (IOException e) {
             throw new RuntimeException(e);
         }
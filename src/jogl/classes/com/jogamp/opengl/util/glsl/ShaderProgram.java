@@ -6,6 +6,7 @@ import javax.media.opengl.*;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.io.PrintStream;
+import java.nio.Buffer;
 
 public class ShaderProgram {
     public ShaderProgram() {
@@ -35,6 +36,15 @@ public class ShaderProgram {
      */
     public Integer    key() { return id; }
 
+    /**
+     * returns the number of times this program has been linked,
+     * allowing users to drop cached locations after a relink
+     *
+     * @see #link(GL2ES2, PrintStream)
+     * @see #glReplaceShader(GL2ES2, int, ShaderCode, PrintStream)
+     */
+    public int linkCount() { return linkCount; }
+
     /**
      * Detaches all shader codes and deletes the program.
      * Destroys the shader codes as well.
@@ -64,7 +74,9 @@ public class ShaderProgram {
         glUseProgram(gl, false);
         for(Iterator iter=shaderMap.values().iterator(); iter.hasNext(); ) {
             ShaderCode shaderCode = (ShaderCode) iter.next();
-            ShaderUtil.detachShader(gl, shaderProgram, shaderCode.shader());
+            if(shaderCode.isValid()) {
+                ShaderUtil.detachShader(gl, shaderProgram, shaderCode.shader());
+            }
             if(releaseShaderToo) {
                 shaderCode.destroy(gl);
             }
@@ -133,8 +145,19 @@ public class ShaderProgram {
         }
         add(newShader);
 
+        // a program loaded from its binary has no shaders attached yet
+        for(Iterator iter=shaderMap.values().iterator(); iter.hasNext(); ) {
+            ShaderCode shaderCode = (ShaderCode) iter.next();
+            if(shaderCode!=newShader && !shaderCode.isValid()) {
+                if(!shaderCode.compile(gl, verboseOut)) {
+                    return false;
+                }
+                ShaderUtil.attachShader(gl, shaderProgram, shaderCode.shader());
+            }
+        }
         ShaderUtil.attachShader(gl, shaderProgram, newShader.shader());
         gl.glLinkProgram(shaderProgram);
+        linkCount++;
         if ( ! ShaderUtil.isProgramValid(gl, shaderProgram, System.err) )  {
             return false;
         }
@@ -145,9 +168,31 @@ public class ShaderProgram {
         return true;
     }
 
+    /**
+     * Compiles the shaders and links the program.
+     * <p>
+     * If the {@link ShaderProgramCache#getDefault() default program cache} is enabled,
+     * the program is loaded from its cached binary if valid, skipping compilation,
+     * otherwise the binary of the freshly linked program is stored.
+     * </p>
+     */
     public synchronized boolean link(GL2ES2 gl, PrintStream verboseOut) {
+        return link(gl, verboseOut, ShaderProgramCache.getDefault());
+    }
+
+    /**
+     * Compiles the shaders and links the program,
+     * using the given program cache if not null.
+     *
+     * @see #link(GL2ES2, PrintStream)
+     */
+    public synchronized boolean link(GL2ES2 gl, PrintStream verboseOut, ShaderProgramCache cache) {
         if(programLinked) throw new GLException("Program is already linked");
 
+        if(null!=cache && cache.load(gl, this, verboseOut)) {
+            return true;
+        }
+
         if(0>shaderProgram) {
             shaderProgram = gl.glCreateProgram();
         }
@@ -160,11 +205,46 @@ public class ShaderProgram {
             ShaderUtil.attachShader(gl, shaderProgram, shaderCode.shader());
         }
 
+        if(null!=cache && ShaderProgramCache.isAvailable(gl)) {
+            gl.getGL2GL3().glProgramParameteri(shaderProgram, ShaderProgramCache.GL_PROGRAM_BINARY_RETRIEVABLE_HINT, GL.GL_TRUE);
+        }
+
         // Link the program
         gl.glLinkProgram(shaderProgram);
+        linkCount++;
 
         programLinked = ShaderUtil.isProgramValid(gl, shaderProgram, System.err);
 
+        if(programLinked && null!=cache) {
+            cache.store(gl, this);
+        }
+        return programLinked;
+    }
+
+    /**
+     * Links the program from a program binary retrieved by <code>glGetProgramBinary</code>,
+     * leaving the shaders uncompiled.
+     *
+     * @return false if the binary has been rejected, the program may be linked from source then.
+     * @see ShaderProgramCache
+     */
+    public synchronized boolean linkBinary(GL2ES2 gl, int binFormat, Buffer binary, PrintStream verboseOut) {
+        if(programLinked) throw new GLException("Program is already linked");
+
+        if(0>shaderProgram) {
+            shaderProgram = gl.glCreateProgram();
+        }
+        // drain pending errors, only the binary's rejection shall be seen below
+        for(int i=0; i<MAX_PENDING_ERRORS && GL.GL_NO_ERROR!=gl.glGetError(); i++) ;
+        gl.getGL2GL3().glProgramBinary(shaderProgram, binFormat, binary, binary.remaining());
+        linkCount++;
+
+        // a rejected binary is not an error, don't report it
+        programLinked = GL.GL_NO_ERROR==gl.glGetError() &&
+                        ShaderUtil.isProgramStatusValid(gl, shaderProgram, GL2ES2.GL_LINK_STATUS);
+        if(!programLinked && null!=verboseOut) {
+            verboseOut.println("Program binary rejected: "+shaderProgram);
+        }
         return programLinked;
     }
 
@@ -203,6 +283,7 @@ public class ShaderProgram {
 
     protected boolean programLinked = false;
     protected boolean programInUse = false;
+    protected int linkCount = 0;
     protected int shaderProgram=-1;
     protected HashMap shaderMap = new HashMap();
     protected Integer    id = null;
@@ -211,5 +292,8 @@ public class ShaderProgram {
         return new Integer(nextID++);
     }
     protected static int nextID = 1;
+
+    // a lost context may report its error forever
+    private static final int MAX_PENDING_ERRORS = 8;
 }
 
@@ -0,0 +1,495 @@
+/**
+ * Copyright 2010 JogAmp Community. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are
+ * permitted provided that the following conditions are met:
+ * 
+ *    1. Redistributions of source code must retain the above copyright notice, this list of
+ *       conditions and the following disclaimer.
+ * 
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *       of conditions and the following disclaimer in the documentation and/or other materials
+ *       provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY JogAmp Community ``AS IS'' AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL JogAmp Community OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are those of the
+ * authors and should not be interpreted as representing official policies, either expressed
+ * or implied, of JogAmp Community.
+ */
+
+package com.jogamp.opengl.util.glsl;
+
+import javax.media.opengl.*;
+import com.jogamp.opengl.impl.Debug;
+
+import java.util.*;
+import java.nio.*;
+import java.io.*;
+import java.security.*;
+
+/**
+ * Persistent cache of linked program binaries, using
+ * <code>GL_ARB_get_program_binary</code>.
+ * <p>
+ * Entries are content addressed, keyed by the digest of the programs' preprocessed
+ * shader sources, the GL vendor, renderer and version strings and the supported
+ * program binary formats. A stale or rejected binary is dropped and the program
+ * is compiled from source again, storing the fresh binary.
+ * </p>
+ * <p>
+ * The cache directory is bounded by size; the least recently used entries
+ * are removed first, using the file modification time as the access time.
+ * </p>
+ * <p>
+ * The default cache used by {@link ShaderProgram#link(GL2ES2, PrintStream)}
+ * is enabled by the property <code>jogl.glsl.cachedir</code>,
+ * its size in kilobytes is set by <code>jogl.glsl.cachesize</code>.
+ * </p>
+ */
+public class ShaderProgramCache {
+    public static final boolean DEBUG = Debug.debug("GLSLCache");
+
+    public static final String SUFFIX = ".bin";
+    public static final long DEFAULT_MAX_SIZE = 16 * 1024 * 1024;
+
+    /** GL_ARB_get_program_binary tokens */
+    public static final int GL_PROGRAM_BINARY_LENGTH       = 0x8741;
+    public static final int GL_NUM_PROGRAM_BINARY_FORMATS  = 0x87FE;
+    public static final int GL_PROGRAM_BINARY_FORMATS      = 0x87FF;
+    public static final int GL_PROGRAM_BINARY_RETRIEVABLE_HINT = 0x8257;
+
+    /**
+     * @param directory the cache directory, created if not existing
+     * @param maxSize the maximum size of all entries in bytes
+     */
+    public ShaderProgramCache(File directory, long maxSize) {
+        if(0>=maxSize) {
+            throw new IllegalArgumentException("maxSize must be > 0, is: "+maxSize);
+        }
+        this.directory = directory;
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * @return the cache configured by <code>jogl.glsl.cachedir</code>,
+     *         or null if not configured.
+     */
+    public static synchronized ShaderProgramCache getDefault() {
+        if(!defaultInitialized) {
+            defaultInitialized = true;
+            AccessControlContext acc = AccessController.getContext();
+            String dir = Debug.getProperty("jogl.glsl.cachedir", true, acc);
+            if(null!=dir && dir.length()>0) {
+                int kbytes = Debug.getIntProperty("jogl.glsl.cachesize", true, acc);
+                defaultCache = new ShaderProgramCache(new File(dir),
+                                                      0<kbytes ? kbytes * 1024L : DEFAULT_MAX_SIZE);
+            }
+        }
+        return defaultCache;
+    }
+
+    public File getDirectory() { return directory; }
+
+    public long getMaxSize() { return maxSize; }
+
+    public synchronized int getHits() { return hits; }
+
+    public synchronized int getMisses() { return misses; }
+
+    /**
+     * @return true if the context can retrieve and load program binaries
+     */
+    public static boolean isAvailable(GL gl) {
+        return getContextInfo(gl).available;
+    }
+
+    /**
+     * Returns the key of the program on the given context,
+     * or null if one of its shaders has no source.
+     */
+    public static String key(GL gl, ShaderProgram prog) {
+        return key(getContextInfo(gl).ident, prog);
+    }
+
+    /**
+     * Program binary support and GL identification of a context,
+     * queried once and attached to the context.
+     */
+    static class ContextInfo {
+        ContextInfo(GL gl) {
+            boolean avail = gl.isGL2GL3() &&
+                            ( gl.isExtensionAvailable("GL_ARB_get_program_binary") ||
+                              gl.isFunctionAvailable("glGetProgramBinary") );
+            StringBuffer ident = new StringBuffer();
+            ident.append(gl.glGetString(GL.GL_VENDOR)).append('\n');
+            ident.append(gl.glGetString(GL.GL_RENDERER)).append('\n');
+            ident.append(gl.glGetString(GL.GL_VERSION)).append('\n');
+            if(avail) {
+                int[] num = new int[1];
+                gl.glGetIntegerv(GL_NUM_PROGRAM_BINARY_FORMATS, num, 0);
+                avail = 0<num[0];
+                if(avail) {
+                    int[] formats = new int[num[0]];
+                    gl.glGetIntegerv(GL_PROGRAM_BINARY_FORMATS, formats, 0);
+                    for(int i=0; i<formats.length; i++) {
+                        ident.append(Integer.toHexString(formats[i])).append(' ');
+                    }
+                }
+            }
+            this.available = avail;
+            this.ident = ident.toString();
+        }
+
+        final boolean available;
+        final String ident;
+    }
+
+    private static ContextInfo getContextInfo(GL gl) {
+        GLContext context = gl.getContext();
+        ContextInfo info = (ContextInfo) context.getAttachedObject(CONTEXT_INFO_KEY);
+        if(null==info) {
+            info = new ContextInfo(gl);
+            context.putAttachedObject(CONTEXT_INFO_KEY, info);
+        }
+        return info;
+    }
+
+    /**
+     * Returns the key of the program's shader sources for the given GL identification,
+     * or null if one of its shaders has no source.
+     * The key does not depend on the order the shaders have been added.
+     */
+    public static String key(String glIdent, ShaderProgram prog) {
+        MessageDigest md = newDigest();
+        ArrayList shaderKeys = new ArrayList();
+        synchronized(prog) {
+            for(Iterator iter=prog.shaderMap.values().iterator(); iter.hasNext(); ) {
+                ShaderCode code = (ShaderCode) iter.next();
+                String[][] source = code.shaderSource();
+                if(null==source) {
+                    return null;
+                }
+                md.reset();
+                update(md, String.valueOf(code.shaderType()));
+                for(int i=0; i<source.length; i++) {
+                    update(md, String.valueOf(source[i].length));
+                    for(int j=0; j<source[i].length; j++) {
+                        update(md, source[i][j]);
+                    }
+                }
+                shaderKeys.add(toHex(md.digest()));
+            }
+        }
+        Collections.sort(shaderKeys);
+        md.reset();
+        update(md, glIdent);
+        for(Iterator iter=shaderKeys.iterator(); iter.hasNext(); ) {
+            update(md, (String) iter.next());
+        }
+        return toHex(md.digest());
+    }
+
+    /**
+     * Links the program from its cached binary.
+     *
+     * @return true if the program has been linked,
+     *         otherwise it shall be linked from source.
+     */
+    public boolean load(GL2ES2 gl, ShaderProgram prog, PrintStream verboseOut) {
+        if(!isAvailable(gl)) {
+            return false;
+        }
+        String key = key(gl, prog);
+        if(null==key) {
+            return false;
+        }
+        int[] format = new int[1];
+        ByteBuffer binary = read(key, format);
+        if(null==binary) {
+            synchronized(this) { misses++; }
+            return false;
+        }
+        boolean res = prog.linkBinary(gl, format[0], binary, verboseOut);
+        synchronized(this) {
+            if(res) {
+                hits++;
+            } else {
+                misses++;
+            }
+        }
+        if(!res) {
+            if(DEBUG) {
+                System.err.println("ShaderProgramCache: rejected binary "+key);
+            }
+            remove(key);
+        }
+        return res;
+    }
+
+    /**
+     * Stores the binary of the linked program.
+     *
+     * @return true if the binary has been stored
+     */
+    public boolean store(GL2ES2 gl, ShaderProgram prog) {
+        if(!prog.linked() || !isAvailable(gl)) {
+            return false;
+        }
+        String key = key(gl, prog);
+        if(null==key) {
+            return false;
+        }
+        GL2GL3 gl3 = gl.getGL2GL3();
+        int[] ires = new int[1];
+        gl3.glGetProgramiv(prog.program(), GL_PROGRAM_BINARY_LENGTH, ires, 0);
+        if(0>=ires[0]) {
+            return false;
+        }
+        ByteBuffer binary = ByteBuffer.allocateDirect(ires[0]);
+        int[] length = new int[1];
+        int[] format = new int[1];
+        gl3.glGetProgramBinary(prog.program(), ires[0], length, 0, format, 0, binary);
+        if(0>=length[0] || GL.GL_NO_ERROR!=gl3.glGetError()) {
+            return false;
+        }
+        binary.limit(length[0]);
+        return write(key, format[0], binary);
+    }
+
+    /**
+     * Reads the entry and marks it as recently used.
+     *
+     * @param format returns the binary format at index 0
+     * @return the binary, or null if not cached or unreadable
+     */
+    public synchronized ByteBuffer read(String key, int[] format) {
+        File file = new File(directory, key+SUFFIX);
+        if(!file.isFile()) {
+            return null;
+        }
+        try {
+            DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+            try {
+                if(MAGIC!=in.readInt() || VERSION!=in.readInt()) {
+                    throw new IOException("not a program binary");
+                }
+                int fmt = in.readInt();
+                int length = in.readInt();
+                if(0>=length || length > file.length()) {
+                    throw new IOException("bad length "+length);
+                }
+                byte[] data = new byte[length];
+                in.readFully(data);
+                ByteBuffer binary = ByteBuffer.allocateDirect(length);
+                binary.put(data);
+                binary.rewind();
+                format[0] = fmt;
+                file.setLastModified(nextAccessTime());
+                return binary;
+            } finally {
+                in.close();
+            }
+        } catch (IOException ioe) {
+            if(DEBUG) {
+                System.err.println("ShaderProgramCache: dropping "+file+": "+ioe);
+            }
+            file.delete();
+        } catch (SecurityException se) {
+            if(DEBUG) {
+                System.err.println("ShaderProgramCache: "+se);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Writes the entry, removing least recently used entries exceeding the maximum size.
+     * The binary is read from its position to its limit.
+     *
+     * @return true if the entry has been written
+     */
+    public synchronized boolean write(String key, int format, ByteBuffer binary) {
+        int length = binary.remaining();
+        if(length + HEADER_SIZE > maxSize) {
+            return false;
+        }
+        File file = new File(directory, key+SUFFIX);
+        File tmp = new File(directory, key+".tmp");
+        try {
+            if(!directory.isDirectory() && !directory.mkdirs()) {
+                throw new IOException("can't create "+directory);
+            }
+            byte[] data = new byte[length];
+            binary.duplicate().get(data);
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)));
+            try {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeInt(format);
+                out.writeInt(length);
+                out.write(data);
+            } finally {
+                out.close();
+            }
+            // replace atomically, concurrent readers never see a partial entry
+            file.delete();
+            if(!tmp.renameTo(file)) {
+                throw new IOException("can't rename "+tmp);
+            }
+            file.setLastModified(nextAccessTime());
+        } catch (IOException ioe) {
+            if(DEBUG) {
+                System.err.println("ShaderProgramCache: can't write "+file+": "+ioe);
+            }
+            tmp.delete();
+            return false;
+        } catch (SecurityException se) {
+            if(DEBUG) {
+                System.err.println("ShaderProgramCache: "+se);
+            }
+            return false;
+        }
+        evict(file);
+        return true;
+    }
+
+    public synchronized boolean contains(String key) {
+        return new File(directory, key+SUFFIX).isFile();
+    }
+
+    public synchronized void remove(String key) {
+        new File(directory, key+SUFFIX).delete();
+    }
+
+    /**
+     * @return the size of all entries in bytes
+     */
+    public synchronized long size() {
+        File[] files = entries();
+        long size = 0;
+        for(int i=0; i<files.length; i++) {
+            size += files[i].length();
+        }
+        return size;
+    }
+
+    /**
+     * Removes all entries.
+     */
+    public synchronized void clear() {
+        File[] files = entries();
+        for(int i=0; i<files.length; i++) {
+            files[i].delete();
+        }
+    }
+
+    public String toString() {
+        return "ShaderProgramCache["+directory+", max "+maxSize+" bytes, hits "+getHits()+
+               ", misses "+getMisses()+"]";
+    }
+
+    private void evict(File keep) {
+        File[] files = entries();
+        long size = 0;
+        for(int i=0; i<files.length; i++) {
+            size += files[i].length();
+        }
+        if(size <= maxSize) {
+            return;
+        }
+        Arrays.sort(files, new Comparator() {
+            public int compare(Object o1, Object o2) {
+                long t1 = ((File)o1).lastModified();
+                long t2 = ((File)o2).lastModified();
+                return t1<t2 ? -1 : ( t1>t2 ? 1 : 0 );
+            }
+        });
+        for(int i=0; size>maxSize && i<files.length; i++) {
+            if(!files[i].equals(keep)) {
+                long length = files[i].length();
+                if(files[i].delete()) {
+                    size -= length;
+                    if(DEBUG) {
+                        System.err.println("ShaderProgramCache: evicted "+files[i]);
+                    }
+                }
+            }
+        }
+    }
+
+    private File[] entries() {
+        File[] files = directory.listFiles(new FileFilter() {
+            public boolean accept(File f) {
+                return f.isFile() && f.getName().endsWith(SUFFIX);
+            }
+        });
+        return null!=files ? files : new File[0];
+    }
+
+    /**
+     * File systems may keep modification times in seconds,
+     * hence accesses within the same second are kept in order
+     * by never reusing a past time.
+     */
+    private long nextAccessTime() {
+        long now = System.currentTimeMillis();
+        if(now <= lastAccessTime) {
+            now = lastAccessTime + 1000;
+        }
+        lastAccessTime = now;
+        return now;
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException nsae) {
+            throw new GLException(nsae);
+        }
+    }
+
+    private static void update(MessageDigest md, String s) {
+        try {
+            md.update(s.getBytes("UTF-8"));
+        } catch (UnsupportedEncodingException uee) {
+            throw new GLException(uee);
+        }
+        md.update((byte)0);
+    }
+
+    private static String toHex(byte[] bytes) {
+        StringBuffer buf = new StringBuffer(bytes.length*2);
+        for(int i=0; i<bytes.length; i++) {
+            int b = bytes[i] & 0xff;
+            if(b<0x10) {
+                buf.append('0');
+            }
+            buf.append(Integer.toHexString(b));
+        }
+        return buf.toString();
+    }
+
+    private static final int MAGIC = 0x4a475342; // "JGSB"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 16;
+
+    private static final String CONTEXT_INFO_KEY = ContextInfo.class.getName();
+
+    private static boolean defaultInitialized = false;
+    private static ShaderProgramCache defaultCache = null;
+
+    protected File directory;
+    protected long maxSize;
+    protected int hits = 0;
+    protected int misses = 0;
+    private long lastAccessTime = 0;
+}
@@ -0,0 +1,533 @@
+/**
+ * Copyright 2010 JogAmp Community. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are
+ * permitted provided that the following conditions are met:
+ * 
+ *    1. Redistributions of source code must retain the above copyright notice, this list of
+ *       conditions and the following disclaimer.
+ * 
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *       of conditions and the following disclaimer in the documentation and/or other materials
+ *       provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY JogAmp Community ``AS IS'' AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL JogAmp Community OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are those of the
+ * authors and should not be interpreted as representing official policies, either expressed
+ * or implied, of JogAmp Community.
+ */
+
+package com.jogamp.opengl.util.glsl;
+
+import com.jogamp.opengl.util.Locator;
+import com.jogamp.opengl.impl.Debug;
+
+import java.util.*;
+import java.io.*;
+import java.lang.ref.*;
+import java.net.*;
+import java.security.*;
+
+/**
+ * Cache of shader sources with their <code>#include</code> directives expanded.
+ * <p>
+ * Each source file is read and split at its include directives once,
+ * the expanded source is memoized. The include graph is tracked,
+ * hence a modified file only invalidates itself and the sources including it.
+ * </p>
+ * <p>
+ * Sources are cached per ClassLoader resolving their includes,
+ * the ClassLoaders are only weakly referenced.
+ * The number of cached source files is bounded, the least recently used
+ * files are dropped first.
+ * </p>
+ * <p>
+ * {@link ShaderCode} only memoizes sources in the {@link #getDefault() default cache}
+ * if the property <code>jogl.glsl.sourcecache</code> is set.
+ * </p>
+ * <p>
+ * Sources read from <code>file:</code> URLs are checked for modification
+ * each time they are requested. In addition a watcher thread may poll them
+ * and notify {@link Listener}s of changed sources, allowing shaders to be reloaded
+ * during development. The {@link #getDefault() default cache} starts watching
+ * if the property <code>jogl.glsl.hotreload</code> is set,
+ * its value being the poll interval in milliseconds.
+ * </p>
+ */
+public class ShaderSourceCache {
+    public static final boolean DEBUG = Debug.debug("GLSLSourceCache");
+
+    public static final long DEFAULT_WATCH_INTERVAL = 1000;
+
+    /** Default maximum number of cached source files */
+    public static final int DEFAULT_MAX_ENTRIES = 256;
+
+    /**
+     * True if {@link ShaderCode} memoizes sources in the {@link #getDefault() default cache},
+     * ie the property <code>jogl.glsl.sourcecache</code> or <code>jogl.glsl.hotreload</code> is set.
+     */
+    public static final boolean ENABLED;
+
+    static {
+        AccessControlContext acc = AccessController.getContext();
+        ENABLED = Debug.isPropertyDefined("jogl.glsl.sourcecache", true, acc) ||
+                  Debug.isPropertyDefined("jogl.glsl.hotreload", true, acc);
+    }
+
+    public interface Listener {
+        /**
+         * Called by the watcher thread if the expanded source of the URL changed,
+         * either itself or one of its includes.
+         */
+        public void sourceChanged(URL url);
+    }
+
+    public static synchronized ShaderSourceCache getDefault() {
+        if(null==defaultCache) {
+            defaultCache = new ShaderSourceCache();
+            AccessControlContext acc = AccessController.getContext();
+            if(Debug.isPropertyDefined("jogl.glsl.hotreload", true, acc)) {
+                int interval = Debug.getIntProperty("jogl.glsl.hotreload", true, acc);
+                defaultCache.startWatching(0<interval ? interval : DEFAULT_WATCH_INTERVAL);
+            }
+        }
+        return defaultCache;
+    }
+
+    public ShaderSourceCache() {
+        this(DEFAULT_MAX_ENTRIES);
+    }
+
+    /**
+     * @param maxEntries maximum number of cached source files, at least 1
+     */
+    public ShaderSourceCache(int maxEntries) {
+        if(1>maxEntries) {
+            throw new IllegalArgumentException("maxEntries must be >= 1, is: "+maxEntries);
+        }
+        this.maxEntries = maxEntries;
+    }
+
+    /**
+     * Returns the expanded source of the URL.
+     *
+     * @param context the ClassLoader resolving includes, may be null
+     * @param path the path the URL has been resolved from, includes are relative to it
+     * @param url the source URL
+     * @throws IOException if the source or one of its includes can't be read
+     */
+    public synchronized String get(ClassLoader context, String path, URL url) throws IOException {
+        Entry e = entry(context, path, url);
+        HashSet changed = new HashSet();
+        refresh(e, new HashSet(), changed);
+        if(DEBUG && changed.size()>0) {
+            System.err.println("ShaderSourceCache: modified "+changed);
+        }
+        return expand(e);
+    }
+
+    /**
+     * Checks all file sources for modification, invalidating
+     * the modified sources and the sources including them.
+     *
+     * @return the URLs whose expanded source changed
+     */
+    public synchronized List checkModified() {
+        HashSet changed = new HashSet();
+        for(Iterator iter=new ArrayList(entries.keySet()).iterator(); iter.hasNext(); ) {
+            Entry e = (Entry) iter.next();
+            if(isModified(e)) {
+                reset(e);
+                invalidate(e, changed);
+            }
+        }
+        return toURLs(changed);
+    }
+
+    /**
+     * Drops the source of the URL for all ClassLoaders, and the expanded sources including it.
+     */
+    public synchronized void invalidate(URL url) {
+        String key = url.toExternalForm();
+        for(Iterator iter=new ArrayList(entries.keySet()).iterator(); iter.hasNext(); ) {
+            Entry e = (Entry) iter.next();
+            if(key.equals(e.key)) {
+                reset(e);
+                invalidate(e, new HashSet());
+            }
+        }
+    }
+
+    /** @return true if the expanded source of the URL is cached for any ClassLoader */
+    public synchronized boolean isCached(URL url) {
+        String key = url.toExternalForm();
+        for(Iterator iter=entries.keySet().iterator(); iter.hasNext(); ) {
+            Entry e = (Entry) iter.next();
+            if(key.equals(e.key) && null!=e.expanded) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        loaders.clear();
+    }
+
+    /** @return the maximum number of cached source files */
+    public final int getMaxEntries() { return maxEntries; }
+
+    /** @return the number of cached source files */
+    public synchronized int size() { return entries.size(); }
+
+    /** @return the number of source files read */
+    public synchronized int getReads() { return reads; }
+
+    public synchronized void addListener(Listener l) {
+        listeners.add(l);
+    }
+
+    public synchronized void removeListener(Listener l) {
+        listeners.remove(l);
+    }
+
+    /**
+     * Starts a daemon thread polling the file sources for modification,
+     * notifying the listeners.
+     */
+    public synchronized void startWatching(final long intervalMillis) {
+        if(null!=watcher) {
+            return;
+        }
+        watcher = new Thread("ShaderSourceCache-Watcher") {
+            public void run() {
+                while(this==watcher) {
+                    try {
+                        Thread.sleep(intervalMillis);
+                    } catch (InterruptedException ie) {}
+                    if(this==watcher) {
+                        poll();
+                    }
+                }
+            }
+        };
+        watcher.setDaemon(true);
+        watcher.start();
+    }
+
+    public synchronized void stopWatching() {
+        if(null!=watcher) {
+            Thread t = watcher;
+            watcher = null;
+            t.interrupt();
+        }
+    }
+
+    public synchronized boolean isWatching() { return null!=watcher; }
+
+    /**
+     * Checks for modification and notifies the listeners of the changed sources.
+     */
+    public void poll() {
+        List changed;
+        Listener[] ls;
+        synchronized(this) {
+            changed = checkModified();
+            if(0==changed.size() || 0==listeners.size()) {
+                return;
+            }
+            ls = (Listener[]) listeners.toArray(new Listener[listeners.size()]);
+        }
+        for(Iterator iter=changed.iterator(); iter.hasNext(); ) {
+            URL url = (URL) iter.next();
+            for(int i=0; i<ls.length; i++) {
+                try {
+                    ls[i].sourceChanged(url);
+                } catch (Throwable t) {
+                    t.printStackTrace();
+                }
+            }
+        }
+    }
+
+    public synchronized String toString() {
+        return "ShaderSourceCache[files "+entries.size()+", reads "+reads+", watching "+(null!=watcher)+"]";
+    }
+
+    /**
+     * A source file, split at its include directives:
+     * texts[i] precedes includes[i], texts has one element more.
+     */
+    static class Entry {
+        Entry(ClassLoader context, String path, URL url) {
+            this.context = new WeakReference(context);
+            this.systemContext = null==context;
+            this.path = path;
+            this.url = url;
+            this.key = url.toExternalForm();
+            this.file = toFile(url);
+        }
+
+        final WeakReference context;
+        final boolean systemContext;
+        final String path;
+        final URL url;
+        final String key;
+        final File file;
+        long lastModified = 0;
+        String[] texts = null;
+        String[] includes = null;
+        Entry[] children = null;
+        String expanded = null;
+        HashSet parents = new HashSet();
+        boolean expanding = false;
+    }
+
+    private Entry entry(ClassLoader context, String path, URL url) {
+        String key = url.toExternalForm();
+        HashMap files = (HashMap) loaders.get(context);
+        if(null==files) {
+            files = new HashMap();
+            loaders.put(context, files);
+        }
+        Entry e = (Entry) files.get(key);
+        if(null==e) {
+            e = new Entry(context, path, url);
+            files.put(key, e);
+            entries.put(e, e);
+            evict(e);
+        } else {
+            // touch
+            entries.get(e);
+        }
+        return e;
+    }
+
+    /**
+     * Drops the least recently used entries beyond the size bound,
+     * entries of collected ClassLoaders first.
+     * Entries taking part in an ongoing expansion are kept.
+     */
+    private void evict(Entry keep) {
+        if(entries.size()<=maxEntries) {
+            return;
+        }
+        ArrayList victims = new ArrayList();
+        int n = entries.size();
+        for(Iterator iter=entries.keySet().iterator(); iter.hasNext(); ) {
+            Entry e = (Entry) iter.next();
+            if(e!=keep && isCollected(e) && isEvictable(e)) {
+                victims.add(e);
+                n--;
+            }
+        }
+        for(Iterator iter=entries.keySet().iterator(); n>maxEntries && iter.hasNext(); ) {
+            Entry e = (Entry) iter.next();
+            if(e!=keep && !victims.contains(e) && isEvictable(e)) {
+                victims.add(e);
+                n--;
+            }
+        }
+        for(Iterator iter=victims.iterator(); iter.hasNext(); ) {
+            remove((Entry) iter.next());
+        }
+    }
+
+    private void remove(Entry e) {
+        entries.remove(e);
+        HashMap files = (HashMap) loaders.get(e.context.get());
+        if(null!=files && e==files.get(e.key)) {
+            files.remove(e.key);
+        }
+        invalidate(e, new HashSet());
+        // the sources including it resolve their includes again
+        Entry[] parents = (Entry[]) e.parents.toArray(new Entry[e.parents.size()]);
+        for(int i=0; i<parents.length; i++) {
+            unlink(parents[i]);
+        }
+        unlink(e);
+    }
+
+    private static boolean isCollected(Entry e) {
+        return !e.systemContext && null==e.context.get();
+    }
+
+    private static boolean isEvictable(Entry e) {
+        if(e.expanding) {
+            return false;
+        }
+        for(Iterator iter=e.parents.iterator(); iter.hasNext(); ) {
+            if(((Entry) iter.next()).expanding) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private String expand(Entry e) throws IOException {
+        if(null!=e.expanded) {
+            return e.expanded;
+        }
+        if(e.expanding) {
+            throw new IOException("Recursive include of "+e.key);
+        }
+        e.expanding = true;
+        try {
+            if(null==e.texts) {
+                load(e);
+            }
+            if(null==e.children) {
+                e.children = new Entry[e.includes.length];
+            }
+            StringBuffer buf = new StringBuffer();
+            buf.append(e.texts[0]);
+            for(int i=0; i<e.includes.length; i++) {
+                if(null==e.children[i]) {
+                    e.children[i] = resolve(e, e.includes[i]);
+                    e.children[i].parents.add(e);
+                }
+                buf.append(expand(e.children[i]));
+                buf.append(e.texts[i+1]);
+            }
+            e.expanded = buf.toString();
+        } finally {
+            e.expanding = false;
+        }
+        return e.expanded;
+    }
+
+    private Entry resolve(Entry parent, String includeFile) throws IOException {
+        // Try relative path first
+        ClassLoader context = (ClassLoader) parent.context.get();
+        String next = Locator.getRelativeOf(parent.path, includeFile);
+        URL nextURL = Locator.getResource(next, context);
+        if (nextURL == null) {
+            // Try absolute path
+            next = includeFile;
+            nextURL = Locator.getResource(next, context);
+        }
+        if (nextURL == null) {
+            // Fail
+            throw new FileNotFoundException("Can't find include file " + includeFile);
+        }
+        return entry(context, next, nextURL);
+    }
+
+    private void load(Entry e) throws IOException {
+        if(null!=e.file) {
+            e.lastModified = e.file.lastModified();
+        }
+        ArrayList texts = new ArrayList();
+        ArrayList includes = new ArrayList();
+        StringBuffer text = new StringBuffer();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(e.url.openStream()));
+        try {
+            String line = null;
+            while ((line = reader.readLine()) != null) {
+                if (line.startsWith("#include ")) {
+                    texts.add(text.toString());
+                    text.setLength(0);
+                    includes.add(line.substring(9).trim());
+                } else {
+                    text.append(line).append('\n');
+                }
+            }
+        } finally {
+            reader.close();
+        }
+        texts.add(text.toString());
+        e.texts = (String[]) texts.toArray(new String[texts.size()]);
+        e.includes = (String[]) includes.toArray(new String[includes.size()]);
+        reads++;
+    }
+
+    /** Checks the entry and its includes for modification */
+    private void refresh(Entry e, Set visited, Set changed) {
+        if(!visited.add(e.key)) {
+            return;
+        }
+        if(isModified(e)) {
+            reset(e);
+            invalidate(e, changed);
+        } else if(null!=e.children) {
+            for(int i=0; i<e.children.length; i++) {
+                if(null!=e.children[i]) {
+                    refresh(e.children[i], visited, changed);
+                }
+            }
+        }
+    }
+
+    private static boolean isModified(Entry e) {
+        return null!=e.file && null!=e.texts && e.file.lastModified()!=e.lastModified;
+    }
+
+    /** Drops the file content, its includes may have changed */
+    private static void reset(Entry e) {
+        unlink(e);
+        e.texts = null;
+        e.includes = null;
+    }
+
+    /** Drops the links to the includes, they are resolved again on expansion */
+    private static void unlink(Entry e) {
+        if(null!=e.children) {
+            for(int i=0; i<e.children.length; i++) {
+                if(null!=e.children[i]) {
+                    e.children[i].parents.remove(e);
+                }
+            }
+        }
+        e.children = null;
+    }
+
+    private static void invalidate(Entry e, Set changed) {
+        if(!changed.add(e)) {
+            return;
+        }
+        e.expanded = null;
+        for(Iterator iter=e.parents.iterator(); iter.hasNext(); ) {
+            invalidate((Entry) iter.next(), changed);
+        }
+    }
+
+    private static List toURLs(Set entries) {
+        ArrayList urls = new ArrayList();
+        for(Iterator iter=entries.iterator(); iter.hasNext(); ) {
+            urls.add(((Entry) iter.next()).url);
+        }
+        return urls;
+    }
+
+    private static File toFile(URL url) {
+        if(!"file".equals(url.getProtocol())) {
+            return null;
+        }
+        try {
+            return new File(URLDecoder.decode(url.getFile(), "UTF-8"));
+        } catch (UnsupportedEncodingException uee) {
+            return null;
+        }
+    }
+
+    private static ShaderSourceCache defaultCache = null;
+
+    /** All entries in access order, an entry maps to itself */
+    protected LinkedHashMap entries = new LinkedHashMap(16, 0.75f, true);
+    /** ClassLoader -> HashMap of URL -> Entry */
+    protected WeakHashMap loaders = new WeakHashMap();
+    protected final int maxEntries;
+    protected ArrayList listeners = new ArrayList();
+    protected int reads = 0;
+    private volatile Thread watcher = null;
+}
@@ -4,6 +4,7 @@ package com.jogamp.opengl.util.glsl;
 import javax.media.opengl.*;
 import com.jogamp.opengl.impl.Debug;
 
+import java.nio.*;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
@@ -113,6 +114,20 @@ public class ShaderState {
 
     public ShaderProgram shaderProgram() { return shaderProgram; }
 
+    /**
+     * Drops the locations and uniform values cached for a program
+     * which is no longer used with this state, ie after releasing it.
+     * Has no effect on the attached program.
+     */
+    public synchronized void forgetShaderProgram(ShaderProgram prog) {
+        if(null!=prog && prog!=shaderProgram) {
+            programStates.remove(prog);
+            if(null!=programState && programState.program==prog) {
+                programState = null;
+            }
+        }
+    }
+
     /**
      * Calls release(gl, true, true)
      *
@@ -152,6 +167,8 @@ public class ShaderState {
         glReleaseAllUniforms(gl);
         if(null!=shaderProgram) {
             if(releaseProgramToo) {
+                programStates.remove(shaderProgram);
+                programState = null;
                 shaderProgram.release(gl, releaseShaderToo);
             } else if(!prgInUse) {
                 shaderProgram.glUseProgram(gl, false);
@@ -180,9 +197,10 @@ public class ShaderState {
     public void glBindAttribLocation(GL2ES2 gl, int index, String name) {
         if(null==shaderProgram) throw new GLException("No program is attached");
         if(shaderProgram.linked()) throw new GLException("Program is already linked");
-        Integer idx = new Integer(index);
-        if(!attribMap2Idx.containsKey(name)) {
-            attribMap2Idx.put(name, idx);
+        int handle = getAttribHandle(name);
+        ProgramState ps = programState();
+        if(UNRESOLVED==ps.attribLocations[handle]) {
+            ps.attribLocations[handle] = index;
             gl.glBindAttribLocation(shaderProgram.program(), index, name);
         }
     }
@@ -203,13 +221,29 @@ public class ShaderState {
      * @see ShaderProgram#glReplaceShader
      */
     public int glGetAttribLocation(GL2ES2 gl, String name) {
+        return glGetAttribLocation(gl, getAttribHandle(name));
+    }
+
+    /**
+     * Gets the index of a shader attribute by its handle.
+     * The location is queried once per linked program and cached.
+     *
+     * @return -1 if there is no such attribute available, 
+     *         otherwise >= 0
+     * @throws GLException is the program is not linked
+     *
+     * @see #getAttribHandle
+     * @see #glGetAttribLocation(GL2ES2, String)
+     */
+    public int glGetAttribLocation(GL2ES2 gl, int handle) {
         if(!shaderProgram.linked()) throw new GLException("Program is not linked");
-        int index = getAttribLocation(name);
-        if(0>index) {
+        ProgramState ps = programState();
+        int index = ps.attribLocations[handle];
+        if(UNRESOLVED==index) {
+            String name = attribHandleNames[handle];
             index = gl.glGetAttribLocation(shaderProgram.program(), name);
+            ps.attribLocations[handle] = index;
             if(0<=index) {
-                Integer idx = new Integer(index);
-                attribMap2Idx.put(name, idx);
                 if(DEBUG) {
                     System.err.println("Info: glGetAttribLocation: "+name+", loc: "+index);
                 }
@@ -222,8 +256,35 @@ public class ShaderState {
     }
 
     protected int getAttribLocation(String name) {
-        Integer idx = (Integer) attribMap2Idx.get(name);
-        return (null!=idx)?idx.intValue():-1;
+        Integer handle = (Integer) attribName2Handle.get(name);
+        if(null==handle || null==shaderProgram) {
+            return -1;
+        }
+        int index = programState().attribLocations[handle.intValue()];
+        return (0<=index)?index:-1;
+    }
+
+    /**
+     * Returns the handle of the named shader attribute, registering it
+     * the first time. Handles are small integers valid for all programs
+     * attached to this state; the handle based methods avoid the name
+     * lookup and use a per program location cache.
+     *
+     * @see #glGetAttribLocation(GL2ES2, int)
+     */
+    public int getAttribHandle(String name) {
+        Integer handle = (Integer) attribName2Handle.get(name);
+        if(null==handle) {
+            if(attribHandleCount==attribHandleNames.length) {
+                String[] names = new String[2*attribHandleCount];
+                System.arraycopy(attribHandleNames, 0, names, 0, attribHandleCount);
+                attribHandleNames = names;
+            }
+            attribHandleNames[attribHandleCount] = name;
+            handle = new Integer(attribHandleCount++);
+            attribName2Handle.put(name, handle);
+        }
+        return handle.intValue();
     }
 
 
@@ -409,7 +470,9 @@ public class ShaderState {
         }
         vertexAttribMap2Data.clear();
         enabledVertexAttribArraySet.clear();
-        attribMap2Idx.clear();
+        if(null!=programState) {
+            programState.clearAttribLocations();
+        }
     }
         
     /**
@@ -462,7 +525,6 @@ public class ShaderState {
      */
     public void glResetAllVertexAttributes(GL2ES2 gl) {
         if(!shaderProgram.inUse()) throw new GLException("Program is not in use");
-        attribMap2Idx.clear();
 
         /**
          *
@@ -521,14 +583,17 @@ public class ShaderState {
      */
     protected int glGetUniformLocation(GL2ES2 gl, String name) {
         if(!shaderProgram.inUse()) throw new GLException("Program is not in use");
-        int index = getUniformLocation(name);
-        if(0>index) {
-            index = gl.glGetUniformLocation(shaderProgram.program(), name);
-            if(0<=index) {
-                Integer idx = new Integer(index);
-                uniformMap2Idx.put(name, idx);
-            } else if(verbose) {
-                Throwable tX = new Throwable("Info: glUniform failed, no location for: "+name+", index: "+index);
+        int handle = getUniformHandle(name);
+        return glGetUniformLocation(gl, programState(), handle);
+    }
+
+    private int glGetUniformLocation(GL2ES2 gl, ProgramState ps, int handle) {
+        int index = ps.uniformLocations[handle];
+        if(UNRESOLVED==index) {
+            index = gl.glGetUniformLocation(shaderProgram.program(), uniformHandleNames[handle]);
+            ps.uniformLocations[handle] = index;
+            if(0>index && verbose) {
+                Throwable tX = new Throwable("Info: glUniform failed, no location for: "+uniformHandleNames[handle]+", index: "+index);
                 tX.printStackTrace();
             }
         }
@@ -536,8 +601,43 @@ public class ShaderState {
     }
 
     protected int getUniformLocation(String name) {
-        Integer idx = (Integer) uniformMap2Idx.get(name);
-        return (null!=idx)?idx.intValue():-1;
+        Integer handle = (Integer) uniformName2Handle.get(name);
+        if(null==handle || null==shaderProgram) {
+            return -1;
+        }
+        int index = programState().uniformLocations[handle.intValue()];
+        return (0<=index)?index:-1;
+    }
+
+    /**
+     * Returns the handle of the named shader uniform, registering it
+     * the first time. Handles are small integers valid for all programs
+     * attached to this state and stay valid until this state is destroyed.
+     *
+     * @see #setUniform
+     * @see #glUniform(GL2ES2, int)
+     * @see #glFlushUniforms
+     */
+    public int getUniformHandle(String name) {
+        Integer handle = (Integer) uniformName2Handle.get(name);
+        if(null==handle) {
+            if(uniformHandleCount==uniformHandleNames.length) {
+                int n = 2*uniformHandleCount;
+                String[] names = new String[n];
+                GLUniformData[] datas = new GLUniformData[n];
+                boolean[] dirty = new boolean[n];
+                System.arraycopy(uniformHandleNames, 0, names, 0, uniformHandleCount);
+                System.arraycopy(uniformHandleData, 0, datas, 0, uniformHandleCount);
+                System.arraycopy(uniformDirty, 0, dirty, 0, uniformHandleCount);
+                uniformHandleNames = names;
+                uniformHandleData = datas;
+                uniformDirty = dirty;
+            }
+            uniformHandleNames[uniformHandleCount] = name;
+            handle = new Integer(uniformHandleCount++);
+            uniformName2Handle.put(name, handle);
+        }
+        return handle.intValue();
     }
 
     /**
@@ -546,6 +646,9 @@ public class ShaderState {
      * Even if the uniform is not found in the current shader,
      * it is stored in this state.
      *
+     * The data is only passed to GL if it differs from the value
+     * last passed for this uniform to the current program.
+     *
      * @param data the GLUniforms's name must match the uniform one,
      *      it's index will be set with the uniforms's location,
      *      if found.
@@ -562,11 +665,43 @@ public class ShaderState {
      */
     public boolean glUniform(GL2ES2 gl, GLUniformData data) {
         if(!shaderProgram.inUse()) throw new GLException("Program is not in use");
-        int location = glGetUniformLocation(gl, data.getName());
+        int handle = getUniformHandle(data.getName());
+        uniformHandleData[handle] = data;
+        glUniform(gl, programState(), handle);
+        return true;
+    }
+
+    /**
+     * Passes the uniform data set for the handle to GL right away,
+     * if it differs from the value last passed to the current program.
+     *
+     * @return false, if no data is set for the handle or the uniform
+     *         is not found in the current program, otherwise true
+     *
+     * @throws GLException if the program is not in use
+     *
+     * @see #getUniformHandle
+     * @see #setUniform
+     */
+    public boolean glUniform(GL2ES2 gl, int handle) {
+        if(!shaderProgram.inUse()) throw new GLException("Program is not in use");
+        if(null==uniformHandleData[handle]) {
+            return false;
+        }
+        return glUniform(gl, programState(), handle);
+    }
+
+    private boolean glUniform(GL2ES2 gl, ProgramState ps, int handle) {
+        GLUniformData data = uniformHandleData[handle];
+        int location = glGetUniformLocation(gl, ps, handle);
         data.setLocation(location);
-        uniformMap2Data.put(data.getName(), data);
-        if(0<=location) {
-            // only pass the data, if the uniform exists in the current shader
+        uniformDirty[handle] = false;
+        if(0>location) {
+            return false;
+        }
+        // only pass the data, if the uniform exists in the current shader
+        // and its value has changed
+        if(ps.updateUniformValue(handle, data)) {
             if(DEBUG) {
                 System.err.println("Info: glUniform: "+data);
             }
@@ -575,37 +710,264 @@ public class ShaderState {
         return true;
     }
 
+    /**
+     * Sets the uniform data for the handle without passing it to GL.
+     * The uniform is marked as changed and passed on by the next
+     * {@link #glFlushUniforms}.
+     *
+     * @throws GLException if the data's name does not match the handle's one
+     */
+    public void setUniform(int handle, GLUniformData data) {
+        if(!uniformHandleNames[handle].equals(data.getName())) {
+            throw new GLException("Uniform "+data.getName()+" does not match handle "+handle+": "+uniformHandleNames[handle]);
+        }
+        uniformHandleData[handle] = data;
+        uniformChanged(handle);
+    }
+
+    /**
+     * Marks the uniform as changed, ie after its data object
+     * has been modified in place, so that the next
+     * {@link #glFlushUniforms} passes it on.
+     */
+    public void uniformChanged(int handle) {
+        uniformDirty[handle] = true;
+        if(handle<uniformDirtyMin) {
+            uniformDirtyMin = handle;
+        }
+        if(handle>uniformDirtyMax) {
+            uniformDirtyMax = handle;
+        }
+    }
+
+    /**
+     * Passes all uniforms marked as changed to GL in one pass,
+     * skipping those whose value equals the one last passed
+     * to the current program. To be called before drawing.
+     *
+     * @throws GLException if the program is not in use
+     */
+    public void glFlushUniforms(GL2ES2 gl) {
+        if(uniformDirtyMin>uniformDirtyMax) {
+            return;
+        }
+        if(!shaderProgram.inUse()) throw new GLException("Program is not in use");
+        ProgramState ps = programState();
+        for(int handle=uniformDirtyMin; handle<=uniformDirtyMax; handle++) {
+            if(uniformDirty[handle] && null!=uniformHandleData[handle]) {
+                glUniform(gl, ps, handle);
+            }
+            uniformDirty[handle] = false;
+        }
+        uniformDirtyMin = Integer.MAX_VALUE;
+        uniformDirtyMax = -1;
+    }
+
     /**
      * Get the uniform data, previously set.
      *
      * @return the GLUniformData object, null if not previously set.
      */
     public GLUniformData getUniform(String name) {
-        return (GLUniformData) uniformMap2Data.get(name);
+        Integer handle = (Integer) uniformName2Handle.get(name);
+        return (null!=handle)?uniformHandleData[handle.intValue()]:null;
+    }
+
+    /**
+     * Get the uniform data, previously set for the handle.
+     *
+     * @return the GLUniformData object, null if not previously set.
+     */
+    public GLUniformData getUniform(int handle) {
+        return uniformHandleData[handle];
     }
 
     /**
      * Releases all mapped uniform data
-     * and loses all indices
+     * and forgets the values passed to GL.
+     * Uniform handles stay valid.
      *
      * @throws GLException is the program is not in use
      */
     public void glReleaseAllUniforms(GL2ES2 gl) {
-        uniformMap2Data.clear();
-        uniformMap2Idx.clear();
+        for(int i=0; i<uniformHandleCount; i++) {
+            uniformHandleData[i] = null;
+            uniformDirty[i] = false;
+        }
+        uniformDirtyMin = Integer.MAX_VALUE;
+        uniformDirtyMax = -1;
+        for(Iterator iter = programStates.values().iterator(); iter.hasNext(); ) {
+            ((ProgramState) iter.next()).clearUniformValues();
+        }
     }
         
     /**
-     * Reset all previously mapped uniform data
+     * Reset all previously mapped uniform data,
+     * passing those to GL which differ from the
+     * values last passed to the current program.
      *
      * @throws GLException is the program is not in use
      */
     public void glResetAllUniforms(GL2ES2 gl) {
         if(!shaderProgram.inUse()) throw new GLException("Program is not in use");
-        uniformMap2Idx.clear();
-        for(Iterator iter = uniformMap2Data.values().iterator(); iter.hasNext(); ) {
-            glUniform(gl, (GLUniformData) iter.next());
+        ProgramState ps = programState();
+        for(int handle=0; handle<uniformHandleCount; handle++) {
+            if(null!=uniformHandleData[handle]) {
+                glUniform(gl, ps, handle);
+            }
+        }
+        uniformDirtyMin = Integer.MAX_VALUE;
+        uniformDirtyMax = -1;
+    }
+
+    /**
+     * @return the location and value tables of the attached program,
+     *         reset if the program has been linked again since.
+     */
+    private ProgramState programState() {
+        ProgramState ps = programState;
+        if(null==ps || ps.program!=shaderProgram) {
+            ps = (ProgramState) programStates.get(shaderProgram);
+            if(null==ps) {
+                ps = new ProgramState(shaderProgram);
+                programStates.put(shaderProgram, ps);
+            }
+            programState = ps;
+        }
+        if(ps.linkCount!=shaderProgram.linkCount()) {
+            ps.reset(shaderProgram.linkCount());
+        }
+        ps.ensureCapacity(uniformHandleCount, attribHandleCount);
+        return ps;
+    }
+
+    /**
+     * Uniform and attribute locations of one program, indexed by handle,
+     * and a copy of the uniform values last passed to GL for it.
+     */
+    static class ProgramState {
+        ProgramState(ShaderProgram program) {
+            this.program = program;
+            this.linkCount = program.linkCount();
+        }
+
+        void reset(int linkCount) {
+            this.linkCount = linkCount;
+            for(int i=0; i<uniformLocations.length; i++) {
+                uniformLocations[i] = UNRESOLVED;
+                uniformValues[i] = null;
+            }
+            clearAttribLocations();
+        }
+
+        void clearAttribLocations() {
+            for(int i=0; i<attribLocations.length; i++) {
+                attribLocations[i] = UNRESOLVED;
+            }
+        }
+
+        void clearUniformValues() {
+            for(int i=0; i<uniformValues.length; i++) {
+                uniformValues[i] = null;
+            }
+        }
+
+        void ensureCapacity(int uniforms, int attribs) {
+            if(uniformLocations.length<uniforms) {
+                int n = Math.max(uniforms, 2*uniformLocations.length);
+                int[] locations = new int[n];
+                Object[] values = new Object[n];
+                System.arraycopy(uniformLocations, 0, locations, 0, uniformLocations.length);
+                System.arraycopy(uniformValues, 0, values, 0, uniformValues.length);
+                for(int i=uniformLocations.length; i<n; i++) {
+                    locations[i] = UNRESOLVED;
+                }
+                uniformLocations = locations;
+                uniformValues = values;
+            }
+            if(attribLocations.length<attribs) {
+                int n = Math.max(attribs, 2*attribLocations.length);
+                int[] locations = new int[n];
+                System.arraycopy(attribLocations, 0, locations, 0, attribLocations.length);
+                for(int i=attribLocations.length; i<n; i++) {
+                    locations[i] = UNRESOLVED;
+                }
+                attribLocations = locations;
+            }
+        }
+
+        /**
+         * Compares the data with the value last passed to GL
+         * for the handle and stores it.
+         *
+         * @return true if the value has changed and must be passed to GL
+         */
+        boolean updateUniformValue(int handle, GLUniformData data) {
+            Object obj = data.getObject();
+            // the values passed to GL start at the buffer's position
+            int n = (obj instanceof Buffer) ? ((Buffer)obj).remaining() : 1;
+            boolean changed = false;
+            if(obj instanceof FloatBuffer || obj instanceof Float) {
+                float[] value = (uniformValues[handle] instanceof float[]) ? (float[]) uniformValues[handle] : null;
+                if(null==value || value.length!=n) {
+                    value = new float[n];
+                    uniformValues[handle] = value;
+                    changed = true;
+                }
+                if(obj instanceof Float) {
+                    changed |= update(value, 0, ((Float)obj).floatValue());
+                } else {
+                    FloatBuffer buffer = (FloatBuffer) obj;
+                    int pos = buffer.position();
+                    for(int i=0; i<n; i++) {
+                        changed |= update(value, i, buffer.get(pos+i));
+                    }
+                }
+            } else if(obj instanceof IntBuffer || obj instanceof Integer) {
+                int[] value = (uniformValues[handle] instanceof int[]) ? (int[]) uniformValues[handle] : null;
+                if(null==value || value.length!=n) {
+                    value = new int[n];
+                    uniformValues[handle] = value;
+                    changed = true;
+                }
+                if(obj instanceof Integer) {
+                    changed |= update(value, 0, ((Integer)obj).intValue());
+                } else {
+                    IntBuffer buffer = (IntBuffer) obj;
+                    int pos = buffer.position();
+                    for(int i=0; i<n; i++) {
+                        changed |= update(value, i, buffer.get(pos+i));
+                    }
+                }
+            } else {
+                // unknown type, let GL sort it out
+                uniformValues[handle] = null;
+                changed = true;
+            }
+            return changed;
         }
+
+        private static boolean update(float[] value, int i, float v) {
+            if(Float.floatToIntBits(value[i])!=Float.floatToIntBits(v)) {
+                value[i] = v;
+                return true;
+            }
+            return false;
+        }
+
+        private static boolean update(int[] value, int i, int v) {
+            if(value[i]!=v) {
+                value[i] = v;
+                return true;
+            }
+            return false;
+        }
+
+        final ShaderProgram program;
+        int linkCount;
+        int[] uniformLocations = new int[0];
+        Object[] uniformValues = new Object[0];
+        int[] attribLocations = new int[0];
     }
 
     public String toString() {
@@ -626,9 +988,9 @@ public class ShaderState {
             }
         }
         buf.append("], [");
-        for(Iterator iter=uniformMap2Data.values().iterator(); iter.hasNext(); ) {
-            GLUniformData data = (GLUniformData) iter.next();
-            if(data.getLocation()>=0) {
+        for(int i=0; i<uniformHandleCount; i++) {
+            GLUniformData data = uniformHandleData[i];
+            if(null!=data && data.getLocation()>=0) {
                 buf.append("\n  ");
                 buf.append(data);
             }
@@ -637,13 +999,28 @@ public class ShaderState {
         return buf.toString();
     }
 
+    protected static final int UNRESOLVED = -2;
+
     protected boolean verbose = false;
     protected ShaderProgram shaderProgram=null;
-    protected HashMap attribMap2Idx = new HashMap();
     protected HashSet enabledVertexAttribArraySet = new HashSet();
     protected HashMap vertexAttribMap2Data = new HashMap();
-    protected HashMap uniformMap2Idx = new HashMap();
-    protected HashMap uniformMap2Data = new HashMap();
+
+    protected HashMap attribName2Handle = new HashMap();
+    protected String[] attribHandleNames = new String[8];
+    protected int attribHandleCount = 0;
+
+    protected HashMap uniformName2Handle = new HashMap();
+    protected String[] uniformHandleNames = new String[16];
+    protected GLUniformData[] uniformHandleData = new GLUniformData[16];
+    protected boolean[] uniformDirty = new boolean[16];
+    protected int uniformHandleCount = 0;
+    protected int uniformDirtyMin = Integer.MAX_VALUE;
+    protected int uniformDirtyMax = -1;
+
+    // ShaderProgram -> ProgramState, and the one of the attached program
+    protected HashMap programStates = new HashMap();
+    private ProgramState programState = null;
 
 }
 
@@ -6,7 +6,9 @@ import javax.media.opengl.*;
 import javax.media.opengl.fixedfunc.*;
 import com.jogamp.opengl.util.*;
 import com.jogamp.opengl.util.glsl.*;
+import com.jogamp.opengl.impl.Debug;
 import java.nio.*;
+import java.security.*;
 
 public class FixedFuncPipeline {
     public static final int MAX_TEXTURE_UNITS = 8;
@@ -33,6 +35,8 @@ public class FixedFuncPipeline {
     }
 
     public FixedFuncPipeline(GL2ES2 gl, PMVMatrix pmvMatrix) {
+        // the generated variants may replace the default shaders only
+        useVariants = variants;
         init(gl, pmvMatrix, FixedFuncPipeline.class, shaderSrcRootDef, shaderBinRootDef, 
              vertexColorFileDef, vertexColorLightFileDef, fragmentColorFileDef, fragmentColorTextureFileDef);
     }
@@ -57,6 +61,31 @@ public class FixedFuncPipeline {
         return shaderState;
     }
 
+    /**
+     * @return the cache of specialized shader variants, 
+     *         or null if the generic shaders are used
+     */
+    public FixedFuncVariantCache getVariantCache() {
+        return variantCache;
+    }
+
+    /**
+     * @return the {@link FixedFuncVariant} mask of the current state
+     */
+    public int getVariant() {
+        int lights = 0;
+        if(lightingEnabled) {
+            for(int i=0; i<MAX_LIGHTS; i++) {
+                if(0!=lightsEnabled.get(i)) {
+                    lights |= 1 << i;
+                }
+            }
+        }
+        return FixedFuncVariant.mask(lights, shaderState.isVertexAttribArrayEnabled(mgl_Color),
+                                     textureEnabled, activeTextureUnit,
+                                     0!=textureCoordsEnabled.get(activeTextureUnit), cullFace);
+    }
+
     public int getActiveTextureUnit() {
         return activeTextureUnit;
     }
@@ -75,10 +104,14 @@ public class FixedFuncPipeline {
     }
 
     public void destroy(GL2ES2 gl) {
-        shaderProgramColor.release(gl, true);
-        shaderProgramColorLight.release(gl, true);
-        shaderProgramColorTexture.release(gl, true);
-        shaderProgramColorTextureLight.release(gl, true);
+        if(null!=variantCache) {
+            variantCache.destroy(gl);
+        } else {
+            shaderProgramColor.release(gl, true);
+            shaderProgramColorLight.release(gl, true);
+            shaderProgramColorTexture.release(gl, true);
+            shaderProgramColorTextureLight.release(gl, true);
+        }
         shaderState.destroy(gl);
     }
 
@@ -116,10 +149,10 @@ public class FixedFuncPipeline {
 
     public void glColor4fv(GL2ES2 gl, FloatBuffer data ) {
         shaderState.glUseProgram(gl, true);
-        GLUniformData ud = shaderState.getUniform(mgl_ColorStatic);
+        GLUniformData ud = shaderState.getUniform(hColorStatic);
         if(null!=ud) {
             ud.setData(data);
-            shaderState.glUniform(gl, ud);
+            shaderState.glUniform(gl, hColorStatic);
         }
     }
 
@@ -138,47 +171,39 @@ public class FixedFuncPipeline {
         shaderState.glUseProgram(gl, true);
         light -=GLLightingFunc.GL_LIGHT0;
         if(0 <= light && light < MAX_LIGHTS) {
-            GLUniformData ud = null;
+            int param;
             switch(pname) {
                 case  GLLightingFunc.GL_AMBIENT:
-                    ud = shaderState.getUniform(mgl_LightSource+"["+light+"].ambient");
-                    break;
+                    param = 0; break;
                 case  GLLightingFunc.GL_DIFFUSE:
-                    ud = shaderState.getUniform(mgl_LightSource+"["+light+"].diffuse");
-                    break;
+                    param = 1; break;
                 case  GLLightingFunc.GL_SPECULAR:
-                    ud = shaderState.getUniform(mgl_LightSource+"["+light+"].specular");
-                    break;
+                    param = 2; break;
                 case GLLightingFunc.GL_POSITION:
-                    ud = shaderState.getUniform(mgl_LightSource+"["+light+"].position");
-                    break;
+                    param = 3; break;
                 case GLLightingFunc.GL_SPOT_DIRECTION:
-                    ud = shaderState.getUniform(mgl_LightSource+"["+light+"].spotDirection");
-                    break;
+                    param = 4; break;
                 case GLLightingFunc.GL_SPOT_EXPONENT:
-                    ud = shaderState.getUniform(mgl_LightSource+"["+light+"].spotExponent");
-                    break;
+                    param = 5; break;
                 case GLLightingFunc.GL_SPOT_CUTOFF:
-                    ud = shaderState.getUniform(mgl_LightSource+"["+light+"].spotCutoff");
-                    break;
+                    param = 6; break;
                 case GLLightingFunc.GL_CONSTANT_ATTENUATION:
-                    ud = shaderState.getUniform(mgl_LightSource+"["+light+"].constantAttenuation");
-                    break;
+                    param = 7; break;
                 case GLLightingFunc.GL_LINEAR_ATTENUATION:
-                    ud = shaderState.getUniform(mgl_LightSource+"["+light+"].linearAttenuation");
-                    break;
+                    param = 8; break;
                 case GLLightingFunc.GL_QUADRATIC_ATTENUATION:
-                    ud = shaderState.getUniform(mgl_LightSource+"["+light+"].quadraticAttenuation");
-                    break;
+                    param = 9; break;
                 default:
                     if(verbose) {
                         System.err.println("glLightfv pname not within [GL_AMBIENT GL_DIFFUSE GL_SPECULAR GL_POSITION GL_SPOT_DIRECTION]: "+pname);
                     }
                     return;
             }
+            int handle = hLightSource[light*mgl_LightSourceParams.length+param];
+            GLUniformData ud = shaderState.getUniform(handle);
             if(null!=ud) {
                 ud.setData(params);
-                shaderState.glUniform(gl, ud);
+                shaderState.glUniform(gl, handle);
             }
         } else if(verbose) {
             System.err.println("glLightfv light not within [0.."+MAX_LIGHTS+"]: "+light);
@@ -200,25 +225,25 @@ public class FixedFuncPipeline {
             default:
         }
 
-        GLUniformData ud = null;
+        int param;
         switch(pname) {
             case  GLLightingFunc.GL_AMBIENT:
-                ud = shaderState.getUniform(mgl_FrontMaterial+".ambient");
+                param = 0;
                 break;
             case  GLLightingFunc.GL_AMBIENT_AND_DIFFUSE:
                 glMaterialfv(gl, face, GLLightingFunc.GL_AMBIENT, params);
                 // fall through intended ..
             case  GLLightingFunc.GL_DIFFUSE:
-                ud = shaderState.getUniform(mgl_FrontMaterial+".diffuse");
+                param = 1;
                 break;
             case  GLLightingFunc.GL_SPECULAR:
-                ud = shaderState.getUniform(mgl_FrontMaterial+".specular");
+                param = 2;
                 break;
             case  GLLightingFunc.GL_EMISSION:
-                ud = shaderState.getUniform(mgl_FrontMaterial+".emission");
+                param = 3;
                 break;
             case  GLLightingFunc.GL_SHININESS:
-                ud = shaderState.getUniform(mgl_FrontMaterial+".shininess");
+                param = 4;
                 break;
             default:
                 if(verbose) {
@@ -226,18 +251,20 @@ public class FixedFuncPipeline {
                 }
                 return;
         }
+        int handle = hFrontMaterial[param];
+        GLUniformData ud = shaderState.getUniform(handle);
         if(null!=ud) {
             ud.setData(params);
-            shaderState.glUniform(gl, ud);
+            shaderState.glUniform(gl, handle);
         }
     }
 
     public void glShadeModel(GL2ES2 gl, int mode) {
         shaderState.glUseProgram(gl, true);
-        GLUniformData ud = shaderState.getUniform(mgl_ShadeModel);
+        GLUniformData ud = shaderState.getUniform(hShadeModel);
         if(null!=ud) {
             ud.setData(mode);
-            shaderState.glUniform(gl, ud);
+            shaderState.glUniform(gl, hShadeModel);
         }
     }
 
@@ -246,15 +273,15 @@ public class FixedFuncPipeline {
         if(0 <= textureUnit && textureUnit<MAX_TEXTURE_UNITS) {
             shaderState.glUseProgram(gl, true);
             GLUniformData ud;
-            ud = shaderState.getUniform(mgl_ActiveTexture);
+            ud = shaderState.getUniform(hActiveTexture);
             if(null!=ud) {
                 ud.setData(textureUnit);
-                shaderState.glUniform(gl, ud);
+                shaderState.glUniform(gl, hActiveTexture);
             }
-            ud = shaderState.getUniform(mgl_ActiveTextureIdx);
+            ud = shaderState.getUniform(hActiveTextureIdx);
             if(null!=ud) {
                 ud.setData(textureUnit);
-                shaderState.glUniform(gl, ud);
+                shaderState.glUniform(gl, hActiveTextureIdx);
             }
             activeTextureUnit = textureUnit;
         } else {
@@ -313,54 +340,46 @@ public class FixedFuncPipeline {
         shaderState.glUseProgram(gl, true);
         GLUniformData ud;
         if(pmvMatrix.update()) {
-            ud = shaderState.getUniform(mgl_PMVMatrix);
-            if(null!=ud) {
-                // same data object ..
-                shaderState.glUniform(gl, ud);
-            } else {
+            if(null==shaderState.getUniform(hPMVMatrix)) {
                 throw new GLException("Failed to update: mgl_PMVMatrix");
             }
-            ud = shaderState.getUniform(mgl_NormalMatrix);
-            if(null!=ud) {
-                // same data object ..
-                shaderState.glUniform(gl, ud);
-            }
+            // same data objects ..
+            shaderState.uniformChanged(hPMVMatrix);
+            shaderState.uniformChanged(hNormalMatrix);
         }
-        ud = shaderState.getUniform(mgl_ColorEnabled);
+        ud = shaderState.getUniform(hColorEnabled);
         if(null!=ud) {
             int ca = (shaderState.isVertexAttribArrayEnabled(mgl_Color)==true)?1:0;
             if(ca!=ud.intValue()) {
                 ud.setData(ca);
-                shaderState.glUniform(gl, ud);
+                shaderState.uniformChanged(hColorEnabled);
             }
         }
-        ud = shaderState.getUniform(mgl_CullFace);
+        ud = shaderState.getUniform(hCullFace);
         if(null!=ud) {
             if(cullFace!=ud.intValue()) {
                 ud.setData(cullFace);
-                shaderState.glUniform(gl, ud);
+                shaderState.uniformChanged(hCullFace);
             }
         }
 
         if(lightsEnabledDirty) {
-            ud = shaderState.getUniform(mgl_LightsEnabled);
-            if(null!=ud) {
-                // same data object 
-                shaderState.glUniform(gl, ud);
-            }
+            // same data object 
+            shaderState.uniformChanged(hLightsEnabled);
             lightsEnabledDirty=false;
         }
 
         if(textureCoordsEnabledDirty) {
-            ud = shaderState.getUniform(mgl_TexCoordEnabled);
-            if(null!=ud) {
-                // same data object 
-                shaderState.glUniform(gl, ud);
-            }
+            // same data object 
+            shaderState.uniformChanged(hTexCoordEnabled);
             textureCoordsEnabledDirty=false;
         }
 
-        if(textureEnabled) {
+        if(null!=variantCache) {
+            shaderState.attachShaderProgram(gl, variantCache.get(gl, getVariant()));
+            // compile at most one requested variant per frame
+            variantCache.glPrewarm(gl);
+        } else if(textureEnabled) {
             if(lightingEnabled) {
                 shaderState.attachShaderProgram(gl, shaderProgramColorTextureLight);
             } else {
@@ -373,6 +392,11 @@ public class FixedFuncPipeline {
                 shaderState.attachShaderProgram(gl, shaderProgramColor);
             }
         }
+
+        // pass all changed uniforms to the program in use at once,
+        // unless switching programs already did
+        shaderState.glFlushUniforms(gl);
+
         if(DEBUG) {
             System.err.println("validate: "+this);
         }
@@ -384,6 +408,7 @@ public class FixedFuncPipeline {
                ", textureCoordsEnabled: "+textureCoordsEnabled+
                ", lightingEnabled: "+lightingEnabled+
                ", lightsEnabled: "+lightsEnabled+
+               "\n\t, variantCache: "+variantCache+
                "\n\t, shaderProgramColor: "+shaderProgramColor+
                "\n\t, shaderProgramColorTexture: "+shaderProgramColorTexture+
                "\n\t, shaderProgramColorLight: "+shaderProgramColorLight+
@@ -404,49 +429,59 @@ public class FixedFuncPipeline {
         this.pmvMatrix=pmvMatrix;
         this.shaderState=new ShaderState();
         this.shaderState.setVerbose(verbose);
-        ShaderCode vertexColor, vertexColorLight, fragmentColor, fragmentColorTexture;
+        if(useVariants && ShaderUtil.isShaderCompilerAvailable(gl)) {
+            variantCache = new FixedFuncVariantCache(VARIANT_CACHE_SIZE) {
+                protected void releaseProgram(GL2ES2 gl, ShaderProgram prog) {
+                    shaderState.forgetShaderProgram(prog);
+                    super.releaseProgram(gl, prog);
+                }
+            };
+            shaderState.attachShaderProgram(gl, variantCache.get(gl, 0));
+        } else {
+            ShaderCode vertexColor, vertexColorLight, fragmentColor, fragmentColorTexture;
 
-        vertexColor = ShaderCode.create( gl, gl.GL_VERTEX_SHADER, 1, shaderRootClass,
-                                         shaderSrcRoot, shaderBinRoot, vertexColorFile);
+            vertexColor = ShaderCode.create( gl, gl.GL_VERTEX_SHADER, 1, shaderRootClass,
+                                             shaderSrcRoot, shaderBinRoot, vertexColorFile);
 
-        vertexColorLight = ShaderCode.create( gl, gl.GL_VERTEX_SHADER, 1, shaderRootClass,
-                                           shaderSrcRoot, shaderBinRoot, vertexColorLightFile);
+            vertexColorLight = ShaderCode.create( gl, gl.GL_VERTEX_SHADER, 1, shaderRootClass,
+                                               shaderSrcRoot, shaderBinRoot, vertexColorLightFile);
 
-        fragmentColor = ShaderCode.create( gl, gl.GL_FRAGMENT_SHADER, 1, shaderRootClass,
-                                           shaderSrcRoot, shaderBinRoot, fragmentColorFile);
+            fragmentColor = ShaderCode.create( gl, gl.GL_FRAGMENT_SHADER, 1, shaderRootClass,
+                                               shaderSrcRoot, shaderBinRoot, fragmentColorFile);
 
-        fragmentColorTexture = ShaderCode.create( gl, gl.GL_FRAGMENT_SHADER, 1, shaderRootClass,
-                                                  shaderSrcRoot, shaderBinRoot, fragmentColorTextureFile);
+            fragmentColorTexture = ShaderCode.create( gl, gl.GL_FRAGMENT_SHADER, 1, shaderRootClass,
+                                                      shaderSrcRoot, shaderBinRoot, fragmentColorTextureFile);
 
-        shaderProgramColor = new ShaderProgram();
-        shaderProgramColor.add(vertexColor);
-        shaderProgramColor.add(fragmentColor);
-        if(!shaderProgramColor.link(gl, System.err)) {
-            throw new GLException("Couldn't link VertexColor program: "+shaderProgramColor);
-        }
+            shaderProgramColor = new ShaderProgram();
+            shaderProgramColor.add(vertexColor);
+            shaderProgramColor.add(fragmentColor);
+            if(!shaderProgramColor.link(gl, System.err)) {
+                throw new GLException("Couldn't link VertexColor program: "+shaderProgramColor);
+            }
 
-        shaderProgramColorTexture = new ShaderProgram();
-        shaderProgramColorTexture.add(vertexColor);
-        shaderProgramColorTexture.add(fragmentColorTexture);
-        if(!shaderProgramColorTexture.link(gl, System.err)) {
-            throw new GLException("Couldn't link VertexColorTexture program: "+shaderProgramColorTexture);
-        }
+            shaderProgramColorTexture = new ShaderProgram();
+            shaderProgramColorTexture.add(vertexColor);
+            shaderProgramColorTexture.add(fragmentColorTexture);
+            if(!shaderProgramColorTexture.link(gl, System.err)) {
+                throw new GLException("Couldn't link VertexColorTexture program: "+shaderProgramColorTexture);
+            }
 
-        shaderProgramColorLight = new ShaderProgram();
-        shaderProgramColorLight.add(vertexColorLight);
-        shaderProgramColorLight.add(fragmentColor);
-        if(!shaderProgramColorLight.link(gl, System.err)) {
-            throw new GLException("Couldn't link VertexColorLight program: "+shaderProgramColorLight);
-        }
+            shaderProgramColorLight = new ShaderProgram();
+            shaderProgramColorLight.add(vertexColorLight);
+            shaderProgramColorLight.add(fragmentColor);
+            if(!shaderProgramColorLight.link(gl, System.err)) {
+                throw new GLException("Couldn't link VertexColorLight program: "+shaderProgramColorLight);
+            }
 
-        shaderProgramColorTextureLight = new ShaderProgram();
-        shaderProgramColorTextureLight.add(vertexColorLight);
-        shaderProgramColorTextureLight.add(fragmentColorTexture);
-        if(!shaderProgramColorTextureLight.link(gl, System.err)) {
-            throw new GLException("Couldn't link VertexColorLight program: "+shaderProgramColorTextureLight);
-        }
+            shaderProgramColorTextureLight = new ShaderProgram();
+            shaderProgramColorTextureLight.add(vertexColorLight);
+            shaderProgramColorTextureLight.add(fragmentColorTexture);
+            if(!shaderProgramColorTextureLight.link(gl, System.err)) {
+                throw new GLException("Couldn't link VertexColorLight program: "+shaderProgramColorTextureLight);
+            }
 
-        shaderState.attachShaderProgram(gl, shaderProgramColor);
+            shaderState.attachShaderProgram(gl, shaderProgramColor);
+        }
         shaderState.glUseProgram(gl, true);
 
         // mandatory ..
@@ -483,10 +518,35 @@ public class FixedFuncPipeline {
         shaderState.glUniform(gl, new GLUniformData(mgl_FrontMaterial+".emission", 4, defMatEmission));
         shaderState.glUniform(gl, new GLUniformData(mgl_FrontMaterial+".shininess", defMatShininess));
 
+        hPMVMatrix        = shaderState.getUniformHandle(mgl_PMVMatrix);
+        hNormalMatrix     = shaderState.getUniformHandle(mgl_NormalMatrix);
+        hColorEnabled     = shaderState.getUniformHandle(mgl_ColorEnabled);
+        hColorStatic      = shaderState.getUniformHandle(mgl_ColorStatic);
+        hTexCoordEnabled  = shaderState.getUniformHandle(mgl_TexCoordEnabled);
+        hActiveTexture    = shaderState.getUniformHandle(mgl_ActiveTexture);
+        hActiveTextureIdx = shaderState.getUniformHandle(mgl_ActiveTextureIdx);
+        hShadeModel       = shaderState.getUniformHandle(mgl_ShadeModel);
+        hCullFace         = shaderState.getUniformHandle(mgl_CullFace);
+        hLightsEnabled    = shaderState.getUniformHandle(mgl_LightsEnabled);
+        for(int i=0; i<MAX_LIGHTS; i++) {
+            for(int j=0; j<mgl_LightSourceParams.length; j++) {
+                hLightSource[i*mgl_LightSourceParams.length+j] = 
+                    shaderState.getUniformHandle(mgl_LightSource+"["+i+"]."+mgl_LightSourceParams[j]);
+            }
+        }
+        for(int j=0; j<mgl_FrontMaterialParams.length; j++) {
+            hFrontMaterial[j] = shaderState.getUniformHandle(mgl_FrontMaterial+"."+mgl_FrontMaterialParams[j]);
+        }
+
         shaderState.glUseProgram(gl, false);
     }
 
     protected static final boolean DEBUG=false;
+
+    // Turns on the generated shader variants instead of the generic shaders
+    protected static final boolean variants = 
+        Debug.isPropertyDefined("jogl.fixedfunc.variants", true, AccessController.getContext());
+    protected static final int VARIANT_CACHE_SIZE = 16;
     protected boolean verbose=false;
 
     protected boolean textureEnabled=false;
@@ -506,6 +566,15 @@ public class FixedFuncPipeline {
     protected ShaderProgram shaderProgramColorTexture;
     protected ShaderProgram shaderProgramColorLight;
     protected ShaderProgram shaderProgramColorTextureLight;
+    protected boolean useVariants = false;
+    protected FixedFuncVariantCache variantCache;
+
+    // uniform handles, resolved once ..
+    protected int hPMVMatrix, hNormalMatrix, hColorEnabled, hColorStatic;
+    protected int hTexCoordEnabled, hActiveTexture, hActiveTextureIdx;
+    protected int hShadeModel, hCullFace, hLightsEnabled;
+    protected int[] hLightSource = new int[MAX_LIGHTS*mgl_LightSourceParams.length];
+    protected int[] hFrontMaterial = new int[mgl_FrontMaterialParams.length];
 
     // uniforms ..
     protected static final String mgl_PMVMatrix        = "mgl_PMVMatrix";       // m4fv[3]
@@ -517,6 +586,13 @@ public class FixedFuncPipeline {
     protected static final String mgl_FrontMaterial    = "mgl_FrontMaterial";   //  struct mgl_MaterialParameters
     protected static final String mgl_LightsEnabled    = "mgl_LightsEnabled";   //  int mgl_LightsEnabled[MAX_LIGHTS];
 
+    // struct members, in the order of the GL_AMBIENT .. GL_QUADRATIC_ATTENUATION cases
+    protected static final String[] mgl_LightSourceParams = new String[] {
+        "ambient", "diffuse", "specular", "position", "spotDirection", "spotExponent", "spotCutoff",
+        "constantAttenuation", "linearAttenuation", "quadraticAttenuation" };
+    protected static final String[] mgl_FrontMaterialParams = new String[] {
+        "ambient", "diffuse", "specular", "emission", "shininess" };
+
     protected static final String mgl_ShadeModel       = "mgl_ShadeModel";      //  1i
 
     protected static final String mgl_TexCoordEnabled  = "mgl_TexCoordEnabled"; //  int mgl_TexCoordEnabled[MAX_TEXTURE_UNITS];
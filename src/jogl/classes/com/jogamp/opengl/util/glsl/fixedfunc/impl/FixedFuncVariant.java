@@ -0,0 +1,270 @@
+/**
+ * Copyright 2010 JogAmp Community. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are
+ * permitted provided that the following conditions are met:
+ * 
+ *    1. Redistributions of source code must retain the above copyright notice, this list of
+ *       conditions and the following disclaimer.
+ * 
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *       of conditions and the following disclaimer in the documentation and/or other materials
+ *       provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY JogAmp Community ``AS IS'' AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL JogAmp Community OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are those of the
+ * authors and should not be interpreted as representing official policies, either expressed
+ * or implied, of JogAmp Community.
+ */
+
+package com.jogamp.opengl.util.glsl.fixedfunc.impl;
+
+/**
+ * Generates GLSL sources of fixed function shader variants,
+ * specialized for the fixed function state encoded in a bitmask.
+ * <p>
+ * Unlike the generic FixedFuncColor* shaders, which branch on uniforms
+ * like <code>mgl_ColorEnabled</code> and <code>mgl_LightsEnabled</code>,
+ * a variant only contains the code of the enabled features: the enabled
+ * lights are unrolled, the texture coordinate of the sampled unit is the
+ * only one passed on and face culling is left out if disabled.
+ * The uniform and attribute names are the same as the generic ones,
+ * so a variant is a drop in replacement; uniforms a variant doesn't use
+ * are simply not found in it.
+ * </p>
+ */
+public class FixedFuncVariant {
+    /** Bits of the enabled lights, only used if {@link #LIGHTING} is set */
+    public static final int LIGHTS_MASK        = 0xff;
+    public static final int LIGHTING           = 1 << 8;
+    public static final int COLOR_ARRAY        = 1 << 9;
+    public static final int TEXTURE            = 1 << 10;
+    /** Shift of the 3 bits of the sampled texture unit, only used if {@link #TEXTURE} is set */
+    public static final int TEXTURE_UNIT_SHIFT = 11;
+    /** The sampled unit's coordinates come from its array, only used if {@link #TEXTURE} is set */
+    public static final int TEXCOORD_ARRAY     = 1 << 14;
+    /** Shift of the 2 bits of the culled faces: 0 none, 1 front, 2 back, 3 front and back */
+    public static final int CULL_FACE_SHIFT    = 15;
+
+    /**
+     * Encodes the fixed function state as a variant mask.
+     * States producing the same shaders produce the same mask,
+     * ie lighting without any enabled light equals no lighting.
+     *
+     * @param lights bit i set if GL_LIGHTi is enabled, 0 if lighting is disabled
+     * @param colorArray true if the color array is enabled
+     * @param texture true if texturing is enabled
+     * @param textureUnit the sampled texture unit [0..7]
+     * @param texCoordArray true if the sampled unit's texture coordinate array is enabled
+     * @param cullFace <=0 disabled, 1: front, 2: back, 3: front and back
+     */
+    public static int mask(int lights, boolean colorArray, boolean texture, int textureUnit,
+                           boolean texCoordArray, int cullFace) {
+        int mask = 0;
+        lights &= LIGHTS_MASK;
+        if(0!=lights) {
+            mask |= LIGHTING | lights;
+        }
+        if(colorArray) {
+            mask |= COLOR_ARRAY;
+        }
+        if(texture) {
+            mask |= TEXTURE | ( (textureUnit & 7) << TEXTURE_UNIT_SHIFT );
+            if(texCoordArray) {
+                mask |= TEXCOORD_ARRAY;
+            }
+        }
+        if(0<cullFace) {
+            mask |= (cullFace & 3) << CULL_FACE_SHIFT;
+        }
+        return mask;
+    }
+
+    public static int getTextureUnit(int mask) {
+        return (mask >> TEXTURE_UNIT_SHIFT) & 7;
+    }
+
+    public static int getCullFace(int mask) {
+        return (mask >> CULL_FACE_SHIFT) & 3;
+    }
+
+    public static String vertexSource(int mask) {
+        boolean lighting = 0 != (mask & LIGHTING);
+        boolean texture  = 0 != (mask & TEXTURE);
+        StringBuffer src = new StringBuffer(2048);
+        precision(src, false);
+
+        src.append("uniform HIGHP mat4 mgl_PMVMatrix[3]; // P, Mv, and Mvi\n");
+        if(lighting) {
+            src.append("uniform HIGHP mat3 mgl_NormalMatrix;\n");
+        }
+        if(0 == (mask & COLOR_ARRAY)) {
+            src.append("uniform HIGHP vec4 mgl_ColorStatic;\n");
+        }
+        if(lighting) {
+            lightDefinitions(src);
+        }
+
+        src.append("attribute HIGHP vec4 mgl_Vertex;\n");
+        if(lighting) {
+            src.append("attribute HIGHP vec3 mgl_Normal;\n");
+        }
+        if(0 != (mask & COLOR_ARRAY)) {
+            src.append("attribute HIGHP vec4 mgl_Color;\n");
+        }
+        if(texture && 0 != (mask & TEXCOORD_ARRAY)) {
+            src.append("attribute HIGHP vec4 mgl_MultiTexCoord").append(getTextureUnit(mask)).append(";\n");
+        }
+        varyings(src, texture);
+
+        src.append("\nvoid main(void)\n{\n");
+        src.append("  frontColor = ").append(0 != (mask & COLOR_ARRAY) ? "mgl_Color" : "mgl_ColorStatic").append(";\n");
+        if(lighting) {
+            src.append("  vec4 position = mgl_PMVMatrix[1] * mgl_Vertex; // vertex eye position\n");
+            src.append("  vec3 normal = normalize(mgl_NormalMatrix * mgl_Normal);\n");
+            src.append("  vec3 cameraDir = normalize( (mgl_PMVMatrix[2] * vec4(0,0,0,1.0)).xyz - mgl_Vertex.xyz );\n");
+            src.append("  vec4 ambient = vec4(0,0,0,0);\n");
+            src.append("  vec4 diffuse = vec4(0,0,0,0);\n");
+            src.append("  vec4 specular = vec4(0,0,0,0);\n");
+            src.append("  vec3 lightDir, halfDir;\n");
+            src.append("  float NdotL, NdotHV, dist, attenuation;\n");
+            for(int i=0; i<FixedFuncPipeline.MAX_LIGHTS; i++) {
+                if(0 != (mask & (1<<i))) {
+                    light(src, "mgl_LightSource["+i+"]");
+                }
+            }
+            src.append("  ambient  += mgl_FrontMaterial.ambient;\n");
+            src.append("  diffuse  *= mgl_FrontMaterial.diffuse;\n");
+            src.append("  specular *= mgl_FrontMaterial.specular;\n");
+            src.append("  frontColor *= ambient + diffuse + specular;\n");
+            src.append("  gl_Position = mgl_PMVMatrix[0] * position;\n");
+        } else {
+            src.append("  gl_Position = mgl_PMVMatrix[0] * mgl_PMVMatrix[1] * mgl_Vertex;\n");
+        }
+        if(texture) {
+            if(0 != (mask & TEXCOORD_ARRAY)) {
+                src.append("  mgl_TexCoord = mgl_MultiTexCoord").append(getTextureUnit(mask)).append(";\n");
+            } else {
+                src.append("  mgl_TexCoord = gl_Position;\n");
+            }
+        }
+        src.append("}\n");
+        return src.toString();
+    }
+
+    public static String fragmentSource(int mask) {
+        boolean texture = 0 != (mask & TEXTURE);
+        StringBuffer src = new StringBuffer(1024);
+        precision(src, true);
+        if(texture) {
+            src.append("uniform sampler2D mgl_ActiveTexture;\n");
+        }
+        varyings(src, texture);
+
+        src.append("\nvoid main (void)\n{\n");
+        switch(getCullFace(mask)) {
+            case 1:
+                src.append("  if( gl_FrontFacing ) {\n    discard;\n  }\n");
+                break;
+            case 2:
+                src.append("  if( !gl_FrontFacing ) {\n    discard;\n  }\n");
+                break;
+            case 3:
+                src.append("  discard;\n");
+                break;
+        }
+        if(texture) {
+            src.append("  vec4 texColor = texture2D(mgl_ActiveTexture, mgl_TexCoord.st);\n");
+            src.append("  if(length(texColor.rgb)>0.0) {\n");
+            src.append("    gl_FragColor = vec4(frontColor.rgb*texColor.rgb, frontColor.a);\n");
+            src.append("  } else {\n");
+            src.append("    gl_FragColor = frontColor;\n");
+            src.append("  }\n");
+        } else {
+            src.append("  gl_FragColor = frontColor;\n");
+        }
+        src.append("}\n");
+        return src.toString();
+    }
+
+    public static String toString(int mask) {
+        StringBuffer buf = new StringBuffer();
+        buf.append("FixedFuncVariant[0x").append(Integer.toHexString(mask));
+        if(0 != (mask & LIGHTING)) {
+            buf.append(", lights 0x").append(Integer.toHexString(mask & LIGHTS_MASK));
+        }
+        if(0 != (mask & COLOR_ARRAY)) {
+            buf.append(", color array");
+        }
+        if(0 != (mask & TEXTURE)) {
+            buf.append(", texture unit ").append(getTextureUnit(mask));
+            if(0 != (mask & TEXCOORD_ARRAY)) {
+                buf.append(" w/ array");
+            }
+        }
+        if(0 != getCullFace(mask)) {
+            buf.append(", cull face ").append(getCullFace(mask));
+        }
+        buf.append("]");
+        return buf.toString();
+    }
+
+    private static void precision(StringBuffer src, boolean fragment) {
+        src.append("#ifdef GL_ES\n");
+        if(fragment) {
+            src.append("  precision mediump float;\n");
+        }
+        src.append("  #define MEDIUMP mediump\n  #define HIGHP highp\n  #define LOWP lowp\n");
+        src.append("#else\n");
+        src.append("  #define MEDIUMP\n  #define HIGHP\n  #define LOWP\n");
+        src.append("#endif\n\n");
+    }
+
+    private static void varyings(StringBuffer src, boolean texture) {
+        src.append("varying vec4 frontColor;\n");
+        if(texture) {
+            src.append("varying vec4 mgl_TexCoord;\n");
+        }
+    }
+
+    // Same layout as mgl_lightdef.glsl and mgl_uniform_light.glsl
+    private static void lightDefinitions(StringBuffer src) {
+        src.append("struct mgl_LightSourceParameters {\n");
+        src.append("   vec4 ambient;\n   vec4 diffuse;\n   vec4 specular;\n   vec4 position;\n");
+        src.append("   vec3 spotDirection;\n   float spotExponent;\n   float spotCutoff;\n");
+        src.append("   float constantAttenuation;\n   float linearAttenuation;\n   float quadraticAttenuation;\n");
+        src.append("};\n");
+        src.append("struct mgl_MaterialParameters {\n");
+        src.append("   vec4 ambient;\n   vec4 diffuse;\n   vec4 specular;\n   vec4 emission;\n   float shininess;\n");
+        src.append("};\n");
+        src.append("uniform mgl_LightSourceParameters mgl_LightSource[").append(FixedFuncPipeline.MAX_LIGHTS).append("];\n");
+        src.append("uniform mgl_MaterialParameters mgl_FrontMaterial;\n");
+    }
+
+    // Same terms as the loop body of FixedFuncColorLight.vp
+    private static void light(StringBuffer src, String light) {
+        src.append("  ambient += ").append(light).append(".ambient;\n");
+        src.append("  lightDir = ").append(light).append(".position.xyz - position.xyz;\n");
+        src.append("  dist     = length(lightDir);\n");
+        src.append("  lightDir = normalize(lightDir);\n");
+        src.append("  attenuation = 1.0 / ( ").append(light).append(".constantAttenuation + ");
+        src.append(light).append(".linearAttenuation * dist + ");
+        src.append(light).append(".quadraticAttenuation * dist * dist );\n");
+        src.append("  NdotL = max(0.0, dot(normal, lightDir));\n");
+        src.append("  diffuse += ").append(light).append(".diffuse * NdotL * attenuation;\n");
+        src.append("  if (NdotL != 0.0) {\n");
+        src.append("    halfDir  = normalize (lightDir + cameraDir);\n");
+        src.append("    NdotHV   = max(0.0, dot(normal, halfDir));\n");
+        src.append("    specular += ").append(light).append(".specular * pow(NdotHV,mgl_FrontMaterial.shininess) * attenuation;\n");
+        src.append("  }\n");
+    }
+}
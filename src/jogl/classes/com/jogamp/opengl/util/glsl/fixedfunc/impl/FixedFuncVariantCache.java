@@ -0,0 +1,209 @@
+/**
+ * Copyright 2010 JogAmp Community. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are
+ * permitted provided that the following conditions are met:
+ * 
+ *    1. Redistributions of source code must retain the above copyright notice, this list of
+ *       conditions and the following disclaimer.
+ * 
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *       of conditions and the following disclaimer in the documentation and/or other materials
+ *       provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY JogAmp Community ``AS IS'' AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL JogAmp Community OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are those of the
+ * authors and should not be interpreted as representing official policies, either expressed
+ * or implied, of JogAmp Community.
+ */
+
+package com.jogamp.opengl.util.glsl.fixedfunc.impl;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.media.opengl.*;
+import com.jogamp.opengl.util.glsl.*;
+
+/**
+ * Least recently used cache of linked fixed function shader variants,
+ * keyed by their {@link FixedFuncVariant} mask.
+ * <p>
+ * Variants may be requested ahead of use with {@link #prewarm(int)};
+ * they are compiled on the GL thread, one per {@link #glPrewarm(GL2ES2)}
+ * call, so the work can be spread over frames.
+ * </p>
+ * <p>
+ * Evicted programs are released with the next GL call on this cache.
+ * The program returned last is never evicted.
+ * </p>
+ */
+public class FixedFuncVariantCache {
+    /**
+     * @param capacity the maximum number of linked programs, at least 2
+     */
+    public FixedFuncVariantCache(int capacity) {
+        if(2>capacity) {
+            throw new IllegalArgumentException("capacity must be >= 2, is: "+capacity);
+        }
+        this.capacity = capacity;
+        this.programs = new LinkedHashMap(16, 0.75f, true) {
+            protected boolean removeEldestEntry(Map.Entry eldest) {
+                if(size() > FixedFuncVariantCache.this.capacity) {
+                    evicted.add(eldest.getValue());
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Returns the linked program of the variant,
+     * compiling and linking it if not cached.
+     *
+     * @throws GLException if the variant couldn't be linked
+     */
+    public synchronized ShaderProgram get(GL2ES2 gl, int mask) {
+        if(null!=lastProgram && mask==lastMask) {
+            hits++;
+            return lastProgram;
+        }
+        Integer key = new Integer(mask);
+        ShaderProgram prog = (ShaderProgram) programs.get(key);
+        if(null!=prog) {
+            hits++;
+        } else {
+            misses++;
+            prog = insert(gl, key);
+        }
+        lastMask = mask;
+        lastKey = key;
+        lastProgram = prog;
+        return prog;
+    }
+
+    /**
+     * Queues the variant to be compiled ahead of use by {@link #glPrewarm(GL2ES2)}.
+     */
+    public synchronized void prewarm(int mask) {
+        Integer key = new Integer(mask);
+        if(!programs.containsKey(key) && !pending.contains(key)) {
+            pending.add(key);
+        }
+    }
+
+    /**
+     * Compiles and links the next queued variant not cached yet.
+     *
+     * @return true if a variant has been compiled
+     */
+    public synchronized boolean glPrewarm(GL2ES2 gl) {
+        while(pending.size()>0) {
+            Integer key = (Integer) pending.remove(0);
+            if(!programs.containsKey(key)) {
+                insert(gl, key);
+                prewarmed++;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** @return true if variants are queued for {@link #glPrewarm(GL2ES2)} */
+    public synchronized boolean hasPending() {
+        return pending.size()>0;
+    }
+
+    /**
+     * Releases all cached programs and drops queued variants.
+     */
+    public synchronized void destroy(GL2ES2 gl) {
+        evicted.addAll(programs.values());
+        programs.clear();
+        pending.clear();
+        lastKey = null;
+        lastProgram = null;
+        releaseEvicted(gl);
+    }
+
+    public synchronized boolean contains(int mask) {
+        return programs.containsKey(new Integer(mask));
+    }
+
+    public synchronized int size() { return programs.size(); }
+
+    public int getCapacity() { return capacity; }
+
+    public synchronized int getHits() { return hits; }
+
+    public synchronized int getMisses() { return misses; }
+
+    public synchronized int getPrewarmed() { return prewarmed; }
+
+    public synchronized String toString() {
+        return "FixedFuncVariantCache[size "+programs.size()+"/"+capacity+", hits "+hits+
+               ", misses "+misses+", prewarmed "+prewarmed+", pending "+pending.size()+"]";
+    }
+
+    /**
+     * Compiles and links the shaders of the variant.
+     */
+    protected ShaderProgram createProgram(GL2ES2 gl, int mask) {
+        ShaderProgram prog = new ShaderProgram();
+        prog.add(new ShaderCode(GL2ES2.GL_VERTEX_SHADER, 1,
+                                new String[][] { { FixedFuncVariant.vertexSource(mask) } }));
+        prog.add(new ShaderCode(GL2ES2.GL_FRAGMENT_SHADER, 1,
+                                new String[][] { { FixedFuncVariant.fragmentSource(mask) } }));
+        if(!prog.link(gl, System.err)) {
+            throw new GLException("Couldn't link "+FixedFuncVariant.toString(mask)+": "+prog);
+        }
+        return prog;
+    }
+
+    /**
+     * Releases an evicted program and its shaders.
+     */
+    protected void releaseProgram(GL2ES2 gl, ShaderProgram prog) {
+        prog.release(gl, true);
+    }
+
+    private ShaderProgram insert(GL2ES2 gl, Integer key) {
+        ShaderProgram prog = createProgram(gl, key.intValue());
+        if(null!=lastKey) {
+            // keep the program in use off the eviction end
+            programs.get(lastKey);
+        }
+        programs.put(key, prog);
+        releaseEvicted(gl);
+        return prog;
+    }
+
+    private void releaseEvicted(GL2ES2 gl) {
+        for(Iterator iter = evicted.iterator(); iter.hasNext(); ) {
+            releaseProgram(gl, (ShaderProgram) iter.next());
+        }
+        evicted.clear();
+    }
+
+    private final int capacity;
+    private final LinkedHashMap programs;
+    private final List evicted = new ArrayList();
+    private final List pending = new ArrayList();
+    private int lastMask;
+    private Integer lastKey;
+    private ShaderProgram lastProgram;
+    private int hits, misses, prewarmed;
+}
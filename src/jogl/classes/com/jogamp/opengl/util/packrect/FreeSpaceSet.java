@@ -0,0 +1,221 @@
+/**
+ * Copyright 2010 JogAmp Community. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are
+ * permitted provided that the following conditions are met:
+ * 
+ *    1. Redistributions of source code must retain the above copyright notice, this list of
+ *       conditions and the following disclaimer.
+ * 
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *       of conditions and the following disclaimer in the documentation and/or other materials
+ *       provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY JogAmp Community ``AS IS'' AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL JogAmp Community OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are those of the
+ * authors and should not be interpreted as representing official policies, either expressed
+ * or implied, of JogAmp Community.
+ */
+ 
+package com.jogamp.opengl.util.packrect;
+
+import java.util.*;
+
+/** Common base of the packing strategies which track the free space
+    of the region explicitly and may therefore place a Rect anywhere
+    in it. Incremental compaction relocates the Rects reaching down
+    the furthest to the lowest free position above them, if there is
+    one. */
+
+abstract class FreeSpaceSet implements PackingStrategy {
+  /** Number of Rects {@link #compactAndAdd compactAndAdd} may move
+      before giving up and letting the packer expand. */
+  static final int COMPACTION_MOVES = 32;
+
+  static class RectBottomComparator implements Comparator {
+    public int compare(Object o1, Object o2) {
+      Rect r1 = (Rect) o1;
+      Rect r2 = (Rect) o2;
+      return (r2.y() + r2.h()) - (r1.y() + r1.h());
+    }
+
+    public boolean equals(Object obj) {
+      return this == obj;
+    }
+  }
+  private static final Comparator rectBottomComparator = new RectBottomComparator();
+
+  protected int w;
+  protected int h;
+  protected List/*<Rect>*/ rects = new ArrayList/*<Rect>*/();
+
+  // Position found by the last successful findPosition()
+  protected int bestX;
+  protected int bestY;
+
+  FreeSpaceSet(int w, int h) {
+    this.w = w;
+    this.h = h;
+  }
+
+  /** Searches a position for a rectangle of the given size, without
+      considering the space of any contained Rect. If
+      <code>lowest</code> is set, the position with the lowest bottom
+      edge is preferred over the best fit. On success, stores the
+      position in bestX / bestY and returns true. */
+  abstract boolean findPosition(int rw, int rh, boolean lowest);
+
+  /** Places the given Rect at the position found by the last call to
+      findPosition() and marks its space as used. */
+  abstract void place(Rect rect);
+
+  /** Marks the given region, previously occupied by a Rect, as free. */
+  abstract void free(int x, int y, int rw, int rh);
+
+  /** Resets the free space to the whole region. */
+  abstract void reset();
+
+  public int w() { return w; }
+  public int h() { return h; }
+
+  public boolean add(Rect rect) {
+    if (rect.w() > w || !findPosition(rect.w(), rect.h(), false))
+      return false;
+    place(rect);
+    rects.add(rect);
+    return true;
+  }
+
+  public boolean remove(Rect rect) {
+    if (!rects.remove(rect))
+      return false;
+    free(rect.x(), rect.y(), rect.w(), rect.h());
+    return true;
+  }
+
+  public boolean compactAndAdd(Rect rect,
+                               Object backingStore,
+                               BackingStoreManager manager) {
+    if (compactIncrementally(COMPACTION_MOVES, backingStore, manager) == 0)
+      return false;
+    return add(rect);
+  }
+
+  public int compactIncrementally(int maxMoves,
+                                  Object backingStore,
+                                  BackingStoreManager manager) {
+    if (maxMoves <= 0 || rects.isEmpty())
+      return 0;
+
+    // Look at the Rects reaching down the furthest first; bound the
+    // number of searches as well as the number of moves
+    List/*<Rect>*/ candidates = new ArrayList/*<Rect>*/(rects);
+    Collections.sort(candidates, rectBottomComparator);
+    int maxAttempts = 4 * maxMoves;
+    int moved = 0;
+    for (int i = 0; i < candidates.size() && i < maxAttempts && moved < maxMoves; i++) {
+      Rect cur = (Rect) candidates.get(i);
+      if (!findPosition(cur.w(), cur.h(), true) ||
+          bestY + cur.h() >= cur.y() + cur.h())
+        continue;
+
+      if (moved == 0) {
+        manager.beginMovement(backingStore, backingStore);
+      }
+      // The found position is disjoint from the current one, since
+      // the Rect's own space is still in use
+      Rect oldLocation = new Rect(cur.x(), cur.y(), cur.w(), cur.h(), null);
+      place(cur);
+      manager.move(backingStore, oldLocation, backingStore, cur);
+      free(oldLocation.x(), oldLocation.y(), oldLocation.w(), oldLocation.h());
+      moved++;
+    }
+    if (moved > 0) {
+      manager.endMovement(backingStore, backingStore);
+    }
+    return moved;
+  }
+
+  public int getUsedHeight() {
+    int usedHeight = 0;
+    for (Iterator iter = rects.iterator(); iter.hasNext(); ) {
+      Rect cur = (Rect) iter.next();
+      usedHeight = Math.max(usedHeight, cur.y() + cur.h());
+    }
+    return usedHeight;
+  }
+
+  /** Returns the fraction of the used height's area not covered by
+      Rects. */
+  public float verticalFragmentationRatio() {
+    int usedHeight = getUsedHeight();
+    if (usedHeight == 0)
+      return 0.0f;
+    long area = 0;
+    for (Iterator iter = rects.iterator(); iter.hasNext(); ) {
+      Rect cur = (Rect) iter.next();
+      area += cur.w() * cur.h();
+    }
+    return 1.0f - (float) area / ((float) usedHeight * w);
+  }
+
+  public void visit(RectVisitor visitor) {
+    for (Iterator iter = rects.iterator(); iter.hasNext(); ) {
+      visitor.visit((Rect) iter.next());
+    }
+  }
+
+  public void updateRectangleReferences() {
+    for (int i = 0; i < rects.size(); i++) {
+      Rect cur = (Rect) rects.get(i);
+      Rect next = cur.getNextLocation();
+      next.setPosition(cur.x(), cur.y());
+      if (cur.w() != next.w() || cur.h() != next.h())
+        throw new RuntimeException("Unexpected disparity in rectangle sizes during updateRectangleReferences");
+      rects.set(i, next);
+    }
+  }
+
+  public void clear() {
+    rects.clear();
+    reset();
+  }
+
+  /** Adds the given free rectangle to the list, merging it with the
+      ones sharing a whole edge with it. Returns the resulting, possibly
+      enlarged rectangle. */
+  static Rect addMerged(List/*<Rect>*/ free, Rect a) {
+    boolean merged = true;
+    while (merged) {
+      merged = false;
+      for (Iterator iter = free.iterator(); iter.hasNext(); ) {
+        Rect b = (Rect) iter.next();
+        if (a.x() == b.x() && a.w() == b.w() &&
+            (a.y() + a.h() == b.y() || b.y() + b.h() == a.y())) {
+          a.setPosition(a.x(), Math.min(a.y(), b.y()));
+          a.setSize(a.w(), a.h() + b.h());
+        } else if (a.y() == b.y() && a.h() == b.h() &&
+                   (a.x() + a.w() == b.x() || b.x() + b.w() == a.x())) {
+          a.setPosition(Math.min(a.x(), b.x()), a.y());
+          a.setSize(a.w() + b.w(), a.h());
+        } else {
+          continue;
+        }
+        iter.remove();
+        merged = true;
+        break;
+      }
+    }
+    free.add(a);
+    return a;
+  }
+}
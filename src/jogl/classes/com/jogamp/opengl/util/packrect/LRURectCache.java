@@ -0,0 +1,300 @@
+/**
+ * Copyright 2010 JogAmp Community. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are
+ * permitted provided that the following conditions are met:
+ * 
+ *    1. Redistributions of source code must retain the above copyright notice, this list of
+ *       conditions and the following disclaimer.
+ * 
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *       of conditions and the following disclaimer in the documentation and/or other materials
+ *       provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY JogAmp Community ``AS IS'' AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL JogAmp Community OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are those of the
+ * authors and should not be interpreted as representing official policies, either expressed
+ * or implied, of JogAmp Community.
+ */
+ 
+package com.jogamp.opengl.util.packrect;
+
+/** A cache of entries keyed by primitive ints whose contents live in
+    {@link Rect}s on a {@link RectanglePacker}'s backing store. Keys
+    are stored sparsely, so any int (for example any Unicode code
+    point) may be used without sizing a table for the whole key
+    range. <P>
+
+    An entry is <em>resident</em> while it owns a Rect on the backing
+    store. Resident entries are kept in least-recently-used order; a
+    {@link BackingStoreManager} may call {@link #evict evict} from
+    {@link BackingStoreManager#preExpand preExpand} to reclaim the
+    space of entries not used during the current frame before the
+    backing store is grown. Non-resident entries keep their value, so
+    that metrics and other per-key data survive an eviction. <P>
+
+    Apart from {@link #evict evict}, the cache never removes Rects
+    from the packer; callers doing so themselves (for example through
+    {@link RectanglePacker#clear}) use {@link #release release} or
+    {@link #clear clear} to keep the cache consistent. <P>
+
+    Hits, misses and evictions are counted for diagnostics. */
+
+public class LRURectCache {
+  static class Entry {
+    int key;
+    Object value;
+    Rect rect;
+    int lastUsedFrame;
+    // Hash chain
+    Entry next;
+    // LRU list of resident entries, most recently used first
+    Entry lruPrev;
+    Entry lruNext;
+
+    Entry(int key, Object value, Entry next) {
+      this.key = key;
+      this.value = value;
+      this.next = next;
+    }
+  }
+
+  private RectanglePacker packer;
+
+  private Entry[] table;
+  private int size;
+  private int resident;
+
+  // Sentinel of the circular LRU list
+  private Entry lru = new Entry(0, null, null);
+
+  private int frame;
+
+  private long hits;
+  private long misses;
+  private long evictions;
+
+  public LRURectCache(RectanglePacker packer) {
+    this.packer = packer;
+    table = new Entry[64];
+    lru.lruPrev = lru;
+    lru.lruNext = lru;
+  }
+
+  /** Returns the value stored for the given key, or null. Does not
+      affect the LRU order or the statistics. */
+  public Object get(int key) {
+    Entry e = find(key);
+    return (e != null) ? e.value : null;
+  }
+
+  /** Returns the Rect of the given key, or null if it is not resident. */
+  public Rect getRect(int key) {
+    Entry e = find(key);
+    return (e != null) ? e.rect : null;
+  }
+
+  /** Stores a value for the given key. An existing entry keeps its
+      Rect and LRU position. */
+  public void put(int key, Object value) {
+    Entry e = find(key);
+    if (e != null) {
+      e.value = value;
+      return;
+    }
+    if (size >= table.length - (table.length >> 2)) {
+      rehash(table.length << 1);
+    }
+    int idx = index(key, table.length);
+    table[idx] = new Entry(key, value, table[idx]);
+    size++;
+  }
+
+  /** Makes the given key resident with the given Rect, which the
+      caller must already have added to the packer, and marks it as
+      the most recently used entry. Creates the entry if necessary. */
+  public void setRect(int key, Object value, Rect rect) {
+    put(key, value);
+    Entry e = find(key);
+    if (e.rect != null) {
+      unlink(e);
+    }
+    e.rect = rect;
+    if (rect != null) {
+      e.lastUsedFrame = frame;
+      linkFirst(e);
+    }
+  }
+
+  /** Records a use of the given key during the current frame. If the
+      entry is resident (a hit), moves it to the front of the LRU order
+      and returns its Rect. Otherwise returns null (a miss) and the
+      caller is expected to add it to the backing store and call {@link
+      #setRect setRect}. */
+  public Rect use(int key) {
+    Entry e = find(key);
+    if (e == null || e.rect == null) {
+      misses++;
+      return null;
+    }
+    hits++;
+    e.lastUsedFrame = frame;
+    if (lru.lruNext != e) {
+      unlink(e);
+      linkFirst(e);
+    }
+    return e.rect;
+  }
+
+  /** Detaches the Rect of the given key without removing it from the
+      packer, for use when the caller has already removed it. The
+      entry's value is kept. Returns the detached Rect, or null. */
+  public Rect release(int key) {
+    Entry e = find(key);
+    if (e == null || e.rect == null) {
+      return null;
+    }
+    Rect r = e.rect;
+    unlink(e);
+    e.rect = null;
+    return r;
+  }
+
+  /** Removes the entry of the given key, returning its value. A
+      resident Rect is not removed from the packer. */
+  public Object remove(int key) {
+    int idx = index(key, table.length);
+    Entry prev = null;
+    for (Entry e = table[idx]; e != null; prev = e, e = e.next) {
+      if (e.key == key) {
+        if (prev == null) {
+          table[idx] = e.next;
+        } else {
+          prev.next = e.next;
+        }
+        if (e.rect != null) {
+          unlink(e);
+        }
+        size--;
+        return e.value;
+      }
+    }
+    return null;
+  }
+
+  /** Removes all entries. Rects are not removed from the packer; this
+      is meant to accompany {@link RectanglePacker#clear}. */
+  public void clear() {
+    for (Entry e = lru.lruNext; e != lru; e = e.lruNext) {
+      e.rect = null;
+    }
+    lru.lruPrev = lru;
+    lru.lruNext = lru;
+    for (int i = 0; i < table.length; i++) {
+      table[i] = null;
+    }
+    size = 0;
+    resident = 0;
+  }
+
+  /** Evicts the least recently used resident entries which were not
+      used during the current frame, removing their Rects from the
+      packer, until at least <code>area</code> pixels have been freed
+      or no such entry remains. Returns the number of evicted entries. */
+  public int evict(int area) {
+    int freed = 0;
+    int count = 0;
+    Entry e = lru.lruPrev;
+    while (e != lru && freed < area && e.lastUsedFrame != frame) {
+      Entry prev = e.lruPrev;
+      Rect r = e.rect;
+      unlink(e);
+      e.rect = null;
+      packer.remove(r);
+      freed += r.w() * r.h();
+      count++;
+      evictions++;
+      e = prev;
+    }
+    return count;
+  }
+
+  /** Starts a new frame; entries used before this call become
+      candidates for eviction. */
+  public void nextFrame() {
+    frame++;
+  }
+
+  /** Returns the number of entries. */
+  public int size()              { return size; }
+  /** Returns the number of entries owning a Rect on the backing store. */
+  public int residentCount()     { return resident; }
+
+  public long getHits()          { return hits; }
+  public long getMisses()        { return misses; }
+  public long getEvictions()     { return evictions; }
+
+  public void resetStatistics() {
+    hits = 0;
+    misses = 0;
+    evictions = 0;
+  }
+
+  //----------------------------------------------------------------------
+  // Internals only below this point
+  //
+
+  private static int index(int key, int length) {
+    int h = key * 0x9E3779B9;
+    return (h ^ (h >>> 16)) & (length - 1);
+  }
+
+  private Entry find(int key) {
+    for (Entry e = table[index(key, table.length)]; e != null; e = e.next) {
+      if (e.key == key) {
+        return e;
+      }
+    }
+    return null;
+  }
+
+  private void rehash(int newLength) {
+    Entry[] newTable = new Entry[newLength];
+    for (int i = 0; i < table.length; i++) {
+      Entry e = table[i];
+      while (e != null) {
+        Entry next = e.next;
+        int idx = index(e.key, newLength);
+        e.next = newTable[idx];
+        newTable[idx] = e;
+        e = next;
+      }
+    }
+    table = newTable;
+  }
+
+  private void linkFirst(Entry e) {
+    e.lruPrev = lru;
+    e.lruNext = lru.lruNext;
+    lru.lruNext.lruPrev = e;
+    lru.lruNext = e;
+    resident++;
+  }
+
+  private void unlink(Entry e) {
+    e.lruPrev.lruNext = e.lruNext;
+    e.lruNext.lruPrev = e.lruPrev;
+    e.lruPrev = null;
+    e.lruNext = null;
+    resident--;
+  }
+}
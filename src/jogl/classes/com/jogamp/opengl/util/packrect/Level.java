@@ -138,6 +138,23 @@ public class Level {
     return false;
   }
 
+  /** Indicates whether {@link #add add} would succeed for the given
+      rectangle without expanding this Level. */
+  public boolean canAddWithoutExpansion(Rect rect) {
+    if (rect.h() > height)
+      return false;
+    if (nextAddX + rect.w() <= width)
+      return true;
+    if (freeList != null) {
+      for (Iterator iter = freeList.iterator(); iter.hasNext(); ) {
+        Rect cur = (Rect) iter.next();
+        if (cur.canContain(rect))
+          return true;
+      }
+    }
+    return false;
+  }
+
   /** Removes the given Rect from this Level. */
   public boolean remove(Rect rect) {
     if (!rects.remove(rect))
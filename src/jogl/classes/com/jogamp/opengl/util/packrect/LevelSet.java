@@ -41,11 +41,11 @@ package com.jogamp.opengl.util.packrect;
 
 import java.util.*;
 
-/** Manages a list of Levels; this is the core data structure
-    contained within the RectanglePacker and encompasses the storage
-    algorithm for the contained Rects. */
+/** Manages a list of Levels; this is the default {@link
+    PackingStrategy} of the RectanglePacker, a shelf algorithm placing
+    Rects side by side on Levels of fixed height. */
 
-public class LevelSet {
+public class LevelSet implements PackingStrategy {
   // Maintained in sorted order by increasing Y coordinate
   private List/*<Level>*/ levels = new ArrayList/*<Level>*/();
   private int nextAddY;
@@ -59,6 +59,10 @@ public class LevelSet {
     this.h = h;
   }
 
+  public PackingStrategy newInstance(int w, int h) {
+    return new LevelSet(w, h);
+  }
+
   public int w() { return w; }
   public int h() { return h; }
 
@@ -133,6 +137,58 @@ public class LevelSet {
     return false;
   }
 
+  /** Moves Rects of the last Level into free space of the Levels
+      above it, at most <code>maxMoves</code> of them, and drops the
+      last Level once it is empty. */
+  public int compactIncrementally(int maxMoves,
+                                  Object backingStore,
+                                  BackingStoreManager manager) {
+    int moved = 0;
+    removeTrailingEmptyLevels();
+    while (moved < maxMoves && levels.size() > 1) {
+      Level last = (Level) levels.get(levels.size() - 1);
+      Rect candidate = null;
+      Level target = null;
+      for (Iterator iter = last.iterator(); iter.hasNext() && target == null; ) {
+        Rect cur = (Rect) iter.next();
+        for (int i = 0; i < levels.size() - 1; i++) {
+          Level level = (Level) levels.get(i);
+          if (level.canAddWithoutExpansion(cur)) {
+            candidate = cur;
+            target = level;
+            break;
+          }
+        }
+      }
+      if (target == null)
+        break;
+
+      if (moved == 0) {
+        manager.beginMovement(backingStore, backingStore);
+      }
+      Rect oldLocation = new Rect(candidate.x(), candidate.y(), candidate.w(), candidate.h(), null);
+      last.remove(candidate);
+      target.add(candidate);
+      manager.move(backingStore, oldLocation, backingStore, candidate);
+      moved++;
+      removeTrailingEmptyLevels();
+    }
+    if (moved > 0) {
+      manager.endMovement(backingStore, backingStore);
+    }
+    return moved;
+  }
+
+  private void removeTrailingEmptyLevels() {
+    while (!levels.isEmpty()) {
+      Level last = (Level) levels.get(levels.size() - 1);
+      if (!last.isEmpty())
+        break;
+      levels.remove(levels.size() - 1);
+      nextAddY -= last.h();
+    }
+  }
+
   /** Indicates whether it's legal to trivially increase the height of
       the given Level. This is only possible if it's the last Level
       added and there's enough room in the backing store. */
@@ -0,0 +1,167 @@
+/**
+ * Copyright 2010 JogAmp Community. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are
+ * permitted provided that the following conditions are met:
+ * 
+ *    1. Redistributions of source code must retain the above copyright notice, this list of
+ *       conditions and the following disclaimer.
+ * 
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *       of conditions and the following disclaimer in the documentation and/or other materials
+ *       provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY JogAmp Community ``AS IS'' AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL JogAmp Community OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are those of the
+ * authors and should not be interpreted as representing official policies, either expressed
+ * or implied, of JogAmp Community.
+ */
+ 
+package com.jogamp.opengl.util.packrect;
+
+import java.util.*;
+
+/** MaxRects bottom-left packing strategy. The free space is kept as a
+    list of maximal, possibly overlapping free rectangles and a Rect
+    is placed where its bottom edge ends up highest. This packs Rects
+    of widely varying sizes densely, at a higher cost per addition.
+    The space of removed Rects is only merged with free rectangles
+    sharing a whole edge with it, so heavy churn fragments the free
+    space more than with the {@link SkylineSet}. */
+
+public class MaxRectsSet extends FreeSpaceSet {
+  private List/*<Rect>*/ freeRects = new ArrayList/*<Rect>*/();
+
+  public MaxRectsSet(int w, int h) {
+    super(w, h);
+    reset();
+  }
+
+  public PackingStrategy newInstance(int w, int h) {
+    return new MaxRectsSet(w, h);
+  }
+
+  public void setHeight(int height) throws IllegalArgumentException {
+    if (height < getUsedHeight()) {
+      throw new IllegalArgumentException("May not reduce height below currently used height");
+    }
+    // Free rectangles touching the bottom edge follow it, others are
+    // clipped to the new height
+    for (Iterator iter = freeRects.iterator(); iter.hasNext(); ) {
+      Rect cur = (Rect) iter.next();
+      int bottom = cur.y() + cur.h();
+      if (cur.y() >= height) {
+        iter.remove();
+      } else if (bottom == h || bottom > height) {
+        cur.setSize(cur.w(), height - cur.y());
+      }
+    }
+    if (height > h) {
+      freeRects.add(new Rect(0, h, w, height - h, null));
+    }
+    pruneFreeRects(freeRects);
+    h = height;
+  }
+
+  void reset() {
+    freeRects.clear();
+    freeRects.add(new Rect(0, 0, w, h, null));
+  }
+
+  boolean findPosition(int rw, int rh, boolean lowest) {
+    int bestBottom = Integer.MAX_VALUE;
+    for (Iterator iter = freeRects.iterator(); iter.hasNext(); ) {
+      Rect cur = (Rect) iter.next();
+      if (cur.w() < rw || cur.h() < rh)
+        continue;
+      int bottom = cur.y() + rh;
+      if (bottom < bestBottom || (bottom == bestBottom && cur.x() < bestX)) {
+        bestBottom = bottom;
+        bestX = cur.x();
+        bestY = cur.y();
+      }
+    }
+    return bestBottom != Integer.MAX_VALUE;
+  }
+
+  void place(Rect rect) {
+    int x0 = bestX;
+    int y0 = bestY;
+    int x1 = x0 + rect.w();
+    int y1 = y0 + rect.h();
+    rect.setPosition(x0, y0);
+
+    // Split every free rectangle intersecting the new Rect into the
+    // up to four maximal parts around it
+    List/*<Rect>*/ added = new ArrayList/*<Rect>*/();
+    for (Iterator iter = freeRects.iterator(); iter.hasNext(); ) {
+      Rect f = (Rect) iter.next();
+      int fx1 = f.x() + f.w();
+      int fy1 = f.y() + f.h();
+      if (x0 >= fx1 || x1 <= f.x() || y0 >= fy1 || y1 <= f.y())
+        continue;
+      iter.remove();
+      if (x0 > f.x())
+        added.add(new Rect(f.x(), f.y(), x0 - f.x(), f.h(), null));
+      if (x1 < fx1)
+        added.add(new Rect(x1, f.y(), fx1 - x1, f.h(), null));
+      if (y0 > f.y())
+        added.add(new Rect(f.x(), f.y(), f.w(), y0 - f.y(), null));
+      if (y1 < fy1)
+        added.add(new Rect(f.x(), y1, f.w(), fy1 - y1, null));
+    }
+    // The remaining free rectangles are maximal among each other, so
+    // only the new parts need to be checked
+    pruneFreeRects(added);
+    freeRects.addAll(added);
+  }
+
+  void free(int x, int y, int rw, int rh) {
+    Rect merged = addMerged(freeRects, new Rect(x, y, rw, rh, null));
+    // The merged rectangle may cover free rectangles next to it
+    for (Iterator iter = freeRects.iterator(); iter.hasNext(); ) {
+      Rect cur = (Rect) iter.next();
+      if (cur != merged && contains(merged, cur)) {
+        iter.remove();
+      }
+    }
+  }
+
+  // Removes the rectangles of the given list contained in others of
+  // the list or of the free list
+  private void pruneFreeRects(List/*<Rect>*/ candidates) {
+    for (int i = 0; i < candidates.size(); i++) {
+      Rect a = (Rect) candidates.get(i);
+      boolean contained = false;
+      for (int j = 0; j < candidates.size() && !contained; j++) {
+        Rect b = (Rect) candidates.get(j);
+        // Of two equal rectangles, keep the first one
+        contained = (j != i && contains(b, a) && (j < i || !contains(a, b)));
+      }
+      for (Iterator iter = freeRects.iterator();
+           candidates != freeRects && iter.hasNext() && !contained; ) {
+        Rect b = (Rect) iter.next();
+        contained = (b != a && contains(b, a));
+      }
+      if (contained) {
+        candidates.remove(i);
+        --i;
+      }
+    }
+  }
+
+  private static boolean contains(Rect a, Rect b) {
+    return (b.x() >= a.x() && b.y() >= a.y() &&
+            b.x() + b.w() <= a.x() + a.w() &&
+            b.y() + b.h() <= a.y() + a.h());
+  }
+}
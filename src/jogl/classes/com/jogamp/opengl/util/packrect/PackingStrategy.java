@@ -0,0 +1,94 @@
+/**
+ * Copyright 2010 JogAmp Community. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are
+ * permitted provided that the following conditions are met:
+ * 
+ *    1. Redistributions of source code must retain the above copyright notice, this list of
+ *       conditions and the following disclaimer.
+ * 
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *       of conditions and the following disclaimer in the documentation and/or other materials
+ *       provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY JogAmp Community ``AS IS'' AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL JogAmp Community OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are those of the
+ * authors and should not be interpreted as representing official policies, either expressed
+ * or implied, of JogAmp Community.
+ */
+ 
+package com.jogamp.opengl.util.packrect;
+
+/** The storage algorithm placing Rects inside a region of fixed width
+    and height, used by the {@link RectanglePacker}. The packer grows
+    or compacts the backing store by laying out all Rects in a new
+    instance created through {@link #newInstance newInstance}. <P>
+
+    Available implementations are the shelf based {@link LevelSet},
+    which is the default, the {@link SkylineSet} and the {@link
+    MaxRectsSet}. */
+
+public interface PackingStrategy {
+  /** Returns an empty instance of the same strategy managing a
+      region of the given width and height. */
+  public PackingStrategy newInstance(int w, int h);
+
+  public int w();
+  public int h();
+
+  /** Returns true if the given rectangle was successfully added
+      given the current dimensions, false if not. Only non-disruptive
+      changes, which don't move existing Rects, are allowed. */
+  public boolean add(Rect rect);
+
+  /** Removes the given Rect, returning true if it was contained. */
+  public boolean remove(Rect rect);
+
+  /** Fallback path to {@link #add add}, which may move existing Rects
+      on the given backing store through the manager to make room.
+      Returns true if allocated successfully, false otherwise
+      (indicating the need to expand the backing store). */
+  public boolean compactAndAdd(Rect rect,
+                               Object backingStore,
+                               BackingStoreManager manager);
+
+  /** Moves at most <code>maxMoves</code> Rects to positions closer to
+      the top of the region on the given backing store, in order to
+      lower the used height without a full re-layout. Returns the
+      number of moved Rects. */
+  public int compactIncrementally(int maxMoves,
+                                  Object backingStore,
+                                  BackingStoreManager manager);
+
+  /** Gets the height of the region used by Rects, measured from the top. */
+  public int getUsedHeight();
+
+  /** Sets the height of the region. It is only legal to reduce the
+      height to greater than or equal to the currently used height. */
+  public void setHeight(int height) throws IllegalArgumentException;
+
+  /** Returns a ratio between 0 and 1 describing how much of the used
+      height is wasted; a high ratio indicates that it may be
+      profitable to perform a compaction. */
+  public float verticalFragmentationRatio();
+
+  /** Visits all contained Rects. */
+  public void visit(RectVisitor visitor);
+
+  /** Updates the references to the contained Rects with their "next
+      locations". This is used after a re-layout to replace the
+      temporary Rects of a new instance with the original ones. */
+  public void updateRectangleReferences();
+
+  /** Removes all Rects. */
+  public void clear();
+}
@@ -45,12 +45,13 @@ import java.util.*;
     image regions) into a larger backing store rectangle (typically
     representing a large texture). Supports automatic compaction of
     the space on the backing store, and automatic expansion of the
-    backing store, when necessary. */
+    backing store, when necessary. The placement algorithm is a
+    pluggable {@link PackingStrategy}, by default the {@link LevelSet}. */
 
 public class RectanglePacker {
   private BackingStoreManager manager;
   private Object backingStore;
-  private LevelSet levels;
+  private PackingStrategy levels;
   private float EXPANSION_FACTOR = 0.5f;
   private float SHRINK_FACTOR = 0.3f;
 
@@ -76,10 +77,18 @@ public class RectanglePacker {
   public RectanglePacker(BackingStoreManager manager,
                          int initialWidth,
                          int initialHeight) {
+    this(manager, new LevelSet(initialWidth, initialHeight));
+  }
+
+  /** Creates a RectanglePacker using the given, empty packing
+      strategy, whose size is the initial size of the backing store,
+      e.g. <code>new SkylineSet(256, 256)</code>. */
+  public RectanglePacker(BackingStoreManager manager,
+                         PackingStrategy strategy) {
     this.manager = manager;
-    levels = new LevelSet(initialWidth, initialHeight);
-    this.initialWidth = initialWidth;
-    this.initialHeight = initialHeight;
+    levels = strategy;
+    this.initialWidth = strategy.w();
+    this.initialHeight = strategy.h();
   }
 
   public Object getBackingStore() {
@@ -153,10 +162,12 @@ public class RectanglePacker {
   }
 
   /** Returns the vertical fragmentation ratio of this
-      RectanglePacker. This is defined as the ratio of the sum of the
-      heights of all completely empty Levels divided by the overall
-      used height of the LevelSet. A high vertical fragmentation ratio
-      indicates that it may be profitable to perform a compaction. */
+      RectanglePacker. For the LevelSet this is defined as the ratio of
+      the sum of the heights of all completely empty Levels divided by
+      the overall used height of the LevelSet; see {@link
+      PackingStrategy#verticalFragmentationRatio}. A high vertical
+      fragmentation ratio indicates that it may be profitable to
+      perform a compaction. */
   public float verticalFragmentationRatio() {
     return levels.verticalFragmentationRatio();
   }
@@ -167,6 +178,30 @@ public class RectanglePacker {
     compactImpl(null);
   }
 
+  /** Performs a bounded step of compaction on the current backing
+      store, moving at most <code>maxMoves</code> Rects through the
+      BackingStoreManager towards the top of the backing store. Unlike
+      {@link #compact compact}, this never allocates a new backing
+      store, so it may be called regularly, e.g. once per frame, to
+      keep fragmentation low. Returns the number of moved Rects. */
+  public int compactIncrementally(int maxMoves) {
+    if (backingStore == null)
+      return 0;
+    return levels.compactIncrementally(maxMoves, backingStore, manager);
+  }
+
+  /** Returns the ratio of the area covered by Rects to the area of
+      the backing store. */
+  public float occupancy() {
+    final long[] area = new long[1];
+    levels.visit(new RectVisitor() {
+        public void visit(Rect rect) {
+          area[0] += rect.w() * rect.h();
+        }
+      });
+    return (float) area[0] / ((float) levels.w() * levels.h());
+  }
+
   // The "cause" rect may be null
   private void compactImpl(Rect cause) {
     // Have to either expand, compact or both. Need to figure out what
@@ -178,7 +213,7 @@ public class RectanglePacker {
     boolean done = false;
     int newWidth = levels.w();
     int newHeight = levels.h();
-    LevelSet nextLevelSet = null;
+    PackingStrategy nextLevelSet = null;
     int attemptNumber = 0;
     boolean needAdditionFailureNotification = false;
 
@@ -202,21 +237,19 @@ public class RectanglePacker {
         needAdditionFailureNotification = true;
       }
 
-      nextLevelSet = new LevelSet(newWidth, newHeight);
+      nextLevelSet = levels.newInstance(newWidth, newHeight);
       
       // Make copies of all existing rectangles
-      List/*<Rect>*/ newRects = new ArrayList/*<Rect>*/();
-      for (Iterator i1 = levels.iterator(); i1.hasNext(); ) {
-        Level level = (Level) i1.next();
-        for (Iterator i2 = level.iterator(); i2.hasNext(); ) {
-          Rect cur = (Rect) i2.next();
-          Rect newRect = new Rect(0, 0, cur.w(), cur.h(), null);
-          cur.setNextLocation(newRect);
-          // Hook up the reverse mapping too for easier replacement
-          newRect.setNextLocation(cur);
-          newRects.add(newRect);
-        }
-      }
+      final List/*<Rect>*/ newRects = new ArrayList/*<Rect>*/();
+      levels.visit(new RectVisitor() {
+          public void visit(Rect cur) {
+            Rect newRect = new Rect(0, 0, cur.w(), cur.h(), null);
+            cur.setNextLocation(newRect);
+            // Hook up the reverse mapping too for easier replacement
+            newRect.setNextLocation(cur);
+            newRects.add(newRect);
+          }
+        });
       // Sort them by decreasing height (note: this isn't really
       // guaranteed to improve the chances of a successful layout)
       Collections.sort(newRects, rectHComparator);
@@ -271,14 +304,14 @@ public class RectanglePacker {
     Object newBackingStore = manager.allocateBackingStore(nextLevelSet.w(),
                                                           nextLevelSet.h());
     manager.beginMovement(backingStore, newBackingStore);
-    for (Iterator i1 = levels.iterator(); i1.hasNext(); ) {
-      Level level = (Level) i1.next();
-      for (Iterator i2 = level.iterator(); i2.hasNext(); ) {
-        Rect cur = (Rect) i2.next();
-        manager.move(backingStore, cur,
-                     newBackingStore, cur.getNextLocation());
-      }
-    }
+    final Object oldBackingStore = backingStore;
+    final Object nextBackingStore = newBackingStore;
+    levels.visit(new RectVisitor() {
+        public void visit(Rect cur) {
+          manager.move(oldBackingStore, cur,
+                       nextBackingStore, cur.getNextLocation());
+        }
+      });
     // Replace references to temporary rectangles with original ones
     nextLevelSet.updateRectangleReferences();
     manager.endMovement(backingStore, newBackingStore);
@@ -0,0 +1,276 @@
+/**
+ * Copyright 2010 JogAmp Community. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are
+ * permitted provided that the following conditions are met:
+ * 
+ *    1. Redistributions of source code must retain the above copyright notice, this list of
+ *       conditions and the following disclaimer.
+ * 
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *       of conditions and the following disclaimer in the documentation and/or other materials
+ *       provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY JogAmp Community ``AS IS'' AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL JogAmp Community OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are those of the
+ * authors and should not be interpreted as representing official policies, either expressed
+ * or implied, of JogAmp Community.
+ */
+ 
+package com.jogamp.opengl.util.packrect;
+
+import java.util.*;
+
+/** Skyline bottom-left packing strategy. The used region is described
+    by a skyline, the lowest used y coordinate of every column, and a
+    Rect is placed where its bottom edge ends up highest. Space wasted
+    below the skyline by a placement, as well as space of removed
+    Rects, is kept in a list of holes which are filled first. <P>
+
+    Compared to the {@link LevelSet}, Rects of varying heights don't
+    waste the remainder of a level, which keeps the used height and
+    therefore the number of compactions lower. */
+
+public class SkylineSet extends FreeSpaceSet {
+  // A horizontal piece of the skyline
+  static class Segment {
+    int x;
+    int y;
+    int w;
+
+    Segment(int x, int y, int w) {
+      this.x = x;
+      this.y = y;
+      this.w = w;
+    }
+  }
+
+  // Sorted by increasing x, covering the whole width
+  private List/*<Segment>*/ segments = new ArrayList/*<Segment>*/();
+  // Free regions below the skyline
+  private List/*<Rect>*/ holes = new ArrayList/*<Rect>*/();
+  // Hole found by the last findPosition(), or null for the skyline
+  private Rect bestHole;
+
+  public SkylineSet(int w, int h) {
+    super(w, h);
+    reset();
+  }
+
+  public PackingStrategy newInstance(int w, int h) {
+    return new SkylineSet(w, h);
+  }
+
+  public void setHeight(int height) throws IllegalArgumentException {
+    if (height < getUsedHeight()) {
+      throw new IllegalArgumentException("May not reduce height below currently used height");
+    }
+    h = height;
+  }
+
+  void reset() {
+    segments.clear();
+    segments.add(new Segment(0, 0, w));
+    holes.clear();
+  }
+
+  boolean findPosition(int rw, int rh, boolean lowest) {
+    bestHole = null;
+    int bestBottom = Integer.MAX_VALUE;
+    int bestArea = Integer.MAX_VALUE;
+
+    // Holes; the best fit unless asked for the lowest position
+    for (Iterator iter = holes.iterator(); iter.hasNext(); ) {
+      Rect hole = (Rect) iter.next();
+      if (!hole.canContain(rect(rw, rh)))
+        continue;
+      int bottom = hole.y() + rh;
+      int area = hole.w() * hole.h();
+      if (lowest ? (bottom < bestBottom) : (area < bestArea)) {
+        bestHole = hole;
+        bestBottom = bottom;
+        bestArea = area;
+      }
+    }
+    if (bestHole != null && !lowest) {
+      bestX = bestHole.x();
+      bestY = bestHole.y();
+      return true;
+    }
+
+    // Skyline
+    for (int i = 0; i < segments.size(); i++) {
+      int y = fit(i, rw, rh);
+      if (y >= 0 && y + rh < bestBottom) {
+        bestHole = null;
+        bestBottom = y + rh;
+        bestX = ((Segment) segments.get(i)).x;
+        bestY = y;
+      }
+    }
+    if (bestHole != null) {
+      bestX = bestHole.x();
+      bestY = bestHole.y();
+    }
+    return bestBottom != Integer.MAX_VALUE;
+  }
+
+  void place(Rect rect) {
+    int rw = rect.w();
+    int rh = rect.h();
+    rect.setPosition(bestX, bestY);
+    if (bestHole != null) {
+      // Guillotine split of the remainder of the hole
+      Rect hole = bestHole;
+      holes.remove(hole);
+      if (hole.w() > rw) {
+        holes.add(new Rect(hole.x() + rw, hole.y(), hole.w() - rw, rh, null));
+      }
+      if (hole.h() > rh) {
+        holes.add(new Rect(hole.x(), hole.y() + rh, hole.w(), hole.h() - rh, null));
+      }
+      bestHole = null;
+      return;
+    }
+
+    // Remember the space left below the new Rect
+    int x1 = bestX + rw;
+    List/*<Rect>*/ waste = null;
+    for (Iterator iter = segments.iterator(); iter.hasNext(); ) {
+      Segment s = (Segment) iter.next();
+      int sx0 = Math.max(s.x, bestX);
+      int sx1 = Math.min(s.x + s.w, x1);
+      if (sx0 < sx1 && s.y < bestY) {
+        if (waste == null) {
+          waste = new ArrayList/*<Rect>*/();
+        }
+        waste.add(new Rect(sx0, s.y, sx1 - sx0, bestY - s.y, null));
+      }
+    }
+    if (waste != null) {
+      for (Iterator iter = waste.iterator(); iter.hasNext(); ) {
+        addMerged(holes, (Rect) iter.next());
+      }
+    }
+    setSkyline(bestX, x1, bestY + rh);
+  }
+
+  void free(int x, int y, int rw, int rh) {
+    if (!skylineEquals(x, x + rw, y + rh)) {
+      addMerged(holes, new Rect(x, y, rw, rh, null));
+      return;
+    }
+
+    // The region was on top of the skyline; lower it, together with
+    // any holes right below
+    setSkyline(x, x + rw, y);
+    boolean lowered = true;
+    while (lowered) {
+      lowered = false;
+      for (Iterator iter = holes.iterator(); iter.hasNext(); ) {
+        Rect hole = (Rect) iter.next();
+        if (skylineEquals(hole.x(), hole.x() + hole.w(), hole.y() + hole.h())) {
+          iter.remove();
+          setSkyline(hole.x(), hole.x() + hole.w(), hole.y());
+          lowered = true;
+          break;
+        }
+      }
+    }
+  }
+
+  //----------------------------------------------------------------------
+  // Internals only below this point
+  //
+
+  // A scratch rectangle for size comparisons
+  private Rect scratch = new Rect();
+
+  private Rect rect(int rw, int rh) {
+    scratch.setSize(rw, rh);
+    return scratch;
+  }
+
+  // Returns the y coordinate of a rectangle of the given size starting
+  // at segment i, or -1 if it doesn't fit
+  private int fit(int i, int rw, int rh) {
+    Segment s = (Segment) segments.get(i);
+    if (s.x + rw > w)
+      return -1;
+    int y = s.y;
+    int left = rw;
+    for (int j = i; left > 0; j++) {
+      Segment sj = (Segment) segments.get(j);
+      y = Math.max(y, sj.y);
+      if (y + rh > h)
+        return -1;
+      left -= sj.w;
+    }
+    return y;
+  }
+
+  private boolean skylineEquals(int x0, int x1, int y) {
+    for (Iterator iter = segments.iterator(); iter.hasNext(); ) {
+      Segment s = (Segment) iter.next();
+      if (s.x < x1 && s.x + s.w > x0 && s.y != y)
+        return false;
+    }
+    return true;
+  }
+
+  // Sets the skyline of the columns [x0, x1) to y
+  private void setSkyline(int x0, int x1, int y) {
+    List/*<Segment>*/ result = new ArrayList/*<Segment>*/(segments.size() + 2);
+    boolean inserted = false;
+    for (Iterator iter = segments.iterator(); iter.hasNext(); ) {
+      Segment s = (Segment) iter.next();
+      int sx1 = s.x + s.w;
+      if (sx1 <= x0) {
+        append(result, s.x, s.y, s.w);
+        continue;
+      }
+      if (s.x >= x1) {
+        if (!inserted) {
+          append(result, x0, y, x1 - x0);
+          inserted = true;
+        }
+        append(result, s.x, s.y, s.w);
+        continue;
+      }
+      if (s.x < x0) {
+        append(result, s.x, s.y, x0 - s.x);
+      }
+      if (!inserted) {
+        append(result, x0, y, x1 - x0);
+        inserted = true;
+      }
+      if (sx1 > x1) {
+        append(result, x1, s.y, sx1 - x1);
+      }
+    }
+    if (!inserted) {
+      append(result, x0, y, x1 - x0);
+    }
+    segments = result;
+  }
+
+  private static void append(List/*<Segment>*/ list, int x, int y, int w) {
+    if (!list.isEmpty()) {
+      Segment last = (Segment) list.get(list.size() - 1);
+      if (last.y == y && last.x + last.w == x) {
+        last.w += w;
+        return;
+      }
+    }
+    list.add(new Segment(x, y, w));
+  }
+}
@@ -0,0 +1,286 @@
+/**
+ * Copyright 2010 JogAmp Community. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are
+ * permitted provided that the following conditions are met:
+ * 
+ *    1. Redistributions of source code must retain the above copyright notice, this list of
+ *       conditions and the following disclaimer.
+ * 
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *       of conditions and the following disclaimer in the documentation and/or other materials
+ *       provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY JogAmp Community ``AS IS'' AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL JogAmp Community OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are those of the
+ * authors and should not be interpreted as representing official policies, either expressed
+ * or implied, of JogAmp Community.
+ */
+
+package com.jogamp.opengl.util.texture;
+
+import java.io.*;
+import java.nio.*;
+
+import javax.media.opengl.*;
+
+import com.jogamp.opengl.util.texture.spi.DDSImage;
+
+/**
+ * Progressive upload of a {@link DDSImage} to a {@link Texture}, coarsest mipmap level first.
+ * <p>
+ * Mipmap levels and cubemap faces are accessed as slices of the image data without copying.
+ * For an image read from a file this is the file mapping, hence the image is not held in the heap
+ * and a level is only paged in when it is {@link #prefetch(int) prefetched} or uploaded.</p>
+ * <p>
+ * Each {@link #uploadNextLevel(GL)} uploads the next finer level of all faces and
+ * moves <code>GL_TEXTURE_BASE_LEVEL</code> to it, so the texture is usable in reduced resolution
+ * right after the first upload of the smallest level. Without <code>GL_TEXTURE_BASE_LEVEL</code>,
+ * i.e. on OpenGL ES, the first upload transfers all levels.</p>
+ * <p>
+ * Uploads must be issued with the GL context current,
+ * {@link #prefetch(int)} may be called from any thread.</p>
+ */
+public class DDSTextureStream {
+    private static final int[] cubemapSides = {
+        DDSImage.DDSCAPS2_CUBEMAP_POSITIVEX,
+        DDSImage.DDSCAPS2_CUBEMAP_NEGATIVEX,
+        DDSImage.DDSCAPS2_CUBEMAP_POSITIVEY,
+        DDSImage.DDSCAPS2_CUBEMAP_NEGATIVEY,
+        DDSImage.DDSCAPS2_CUBEMAP_POSITIVEZ,
+        DDSImage.DDSCAPS2_CUBEMAP_NEGATIVEZ
+    };
+
+    /** Page size used to touch the data in {@link #prefetch(int)} */
+    private static final int PAGE_SIZE = 4096;
+
+    private DDSImage image;
+    private int target;
+    private int[] sides;
+    private int levelCount;
+    private boolean compressed;
+    private int internalFormat;
+    private int pixelFormat;
+
+    private int baseLevel;
+    private Texture texture;
+    private long bytesUploaded = 0;
+    private volatile int prefetchSum;
+
+    /**
+     * Opens the DDS file for streaming, only the header is read.
+     * @throws IOException if an I/O exception occurred
+     * @throws IllegalArgumentException if the image format is not supported
+     */
+    public static DDSTextureStream open(File file) throws IOException {
+        return new DDSTextureStream(DDSImage.read(file));
+    }
+
+    /**
+     * @param image the DDS image, which is closed by {@link #close()}
+     * @throws IllegalArgumentException if the image format is not supported
+     */
+    public DDSTextureStream(DDSImage image) throws IllegalArgumentException {
+        this.image = image;
+        if (image.isCubemap()) {
+            for (int i = 0; i < cubemapSides.length; i++) {
+                if (!image.isCubemapSidePresent(cubemapSides[i])) {
+                    throw new IllegalArgumentException("Incomplete cubemap, side 0x" + Integer.toHexString(cubemapSides[i]) + " missing");
+                }
+            }
+            target = GL2GL3.GL_TEXTURE_CUBE_MAP;
+            sides = cubemapSides;
+        } else {
+            target = GL.GL_TEXTURE_2D;
+            sides = new int[] { 0 };
+        }
+        levelCount = Math.max(image.getNumMipMaps(), 1);
+        compressed = image.isCompressed();
+        if (compressed) {
+            switch (image.getCompressionFormat()) {
+            case DDSImage.D3DFMT_DXT1:
+                internalFormat = GL.GL_COMPRESSED_RGB_S3TC_DXT1_EXT;
+                break;
+            case DDSImage.D3DFMT_DXT3:
+                internalFormat = GL.GL_COMPRESSED_RGBA_S3TC_DXT3_EXT;
+                break;
+            case DDSImage.D3DFMT_DXT5:
+                internalFormat = GL.GL_COMPRESSED_RGBA_S3TC_DXT5_EXT;
+                break;
+            default:
+                throw new IllegalArgumentException("Unsupported DDS compression format \"" +
+                                                   DDSImage.getCompressionFormatName(image.getCompressionFormat()) + "\"");
+            }
+            pixelFormat = GL.GL_RGBA;
+        } else {
+            // same mapping as the DDS TextureProvider of TextureIO
+            pixelFormat = ( DDSImage.D3DFMT_R8G8B8 == image.getPixelFormat() ) ? GL.GL_RGB : GL.GL_RGBA ;
+            internalFormat = pixelFormat;
+        }
+        baseLevel = levelCount;
+    }
+
+    public DDSImage getImage() { return image; }
+
+    /** @return <code>GL_TEXTURE_2D</code> or <code>GL_TEXTURE_CUBE_MAP</code> */
+    public int getTarget() { return target; }
+
+    public int getLevelCount() { return levelCount; }
+
+    /** @return 6 for a cubemap, otherwise 1 */
+    public int getFaceCount() { return sides.length; }
+
+    /**
+     * @param face the face index, [0..getFaceCount()-1] in the order +X, -X, +Y, -Y, +Z, -Z
+     * @param level the mipmap level, 0 being the finest
+     * @return the level data as a slice of the image data
+     */
+    public ByteBuffer getLevelData(int face, int level) {
+        return image.getMipMap(sides[face], level).getData();
+    }
+
+    /** @return the size in bytes of the given level of all faces */
+    public int getLevelSizeInBytes(int level) {
+        return image.getMipMapSizeInBytes(level) * sides.length;
+    }
+
+    /**
+     * Pages in the given level of all faces, e.g. from a loader thread
+     * ahead of its upload on the GL thread.
+     */
+    public void prefetch(int level) {
+        int sum = 0;
+        for (int i = 0; i < sides.length; i++) {
+            ByteBuffer data = getLevelData(i, level);
+            for (int j = 0; j < data.limit(); j += PAGE_SIZE) {
+                sum += data.get(j);
+            }
+        }
+        prefetchSum = sum;
+    }
+
+    /** @return the finest level uploaded so far, or {@link #getLevelCount()} if none */
+    public int getBaseLevel() { return baseLevel; }
+
+    /** @return true if all levels have been uploaded */
+    public boolean isComplete() { return 0 == baseLevel; }
+
+    public long getBytesUploaded() { return bytesUploaded; }
+
+    /** @return the texture, or null before the first upload */
+    public Texture getTexture() { return texture; }
+
+    /**
+     * Uploads the next finer level of all faces.
+     * @return false if all levels had been uploaded already
+     * @throws GLException if any OpenGL-related errors occurred
+     */
+    public boolean uploadNextLevel(GL gl) throws GLException {
+        if (isComplete()) {
+            return false;
+        }
+        boolean progressive = gl.isGL2GL3();
+        if (null == texture) {
+            createTexture(gl, progressive);
+        } else {
+            gl.glBindTexture(target, texture.getTextureObject());
+        }
+        int[] align = new int[1];
+        gl.glGetIntegerv(GL.GL_UNPACK_ALIGNMENT, align, 0); // save alignment
+        gl.glPixelStorei(GL.GL_UNPACK_ALIGNMENT, 1);
+        try {
+            int finest = progressive ? baseLevel - 1 : 0 ;
+            for (int level = baseLevel - 1; level >= finest; level--) {
+                uploadLevel(gl, level);
+            }
+            baseLevel = finest;
+        } finally {
+            gl.glPixelStorei(GL.GL_UNPACK_ALIGNMENT, align[0]); // restore alignment
+        }
+        if (progressive) {
+            gl.glTexParameteri(target, GL2GL3.GL_TEXTURE_BASE_LEVEL, baseLevel);
+        }
+        return true;
+    }
+
+    /**
+     * Uploads levels coarse to fine until the byte budget is spent,
+     * e.g. to stream a large texture over several frames.
+     * At least one level is uploaded, if any is left.
+     * @return the number of uploaded levels
+     * @throws GLException if any OpenGL-related errors occurred
+     */
+    public int uploadLevels(GL gl, long byteBudget) throws GLException {
+        int count = 0;
+        long spent = 0;
+        while (!isComplete() && ( 0 == count || spent + getLevelSizeInBytes(baseLevel - 1) <= byteBudget )) {
+            long before = bytesUploaded;
+            uploadNextLevel(gl);
+            spent += bytesUploaded - before;
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Uploads all remaining levels.
+     * @throws GLException if any OpenGL-related errors occurred
+     */
+    public void uploadAll(GL gl) throws GLException {
+        while (uploadNextLevel(gl)) ;
+    }
+
+    /** Closes the image, the texture is retained. */
+    public void close() {
+        image.close();
+    }
+
+    private void createTexture(GL gl, boolean progressive) {
+        int[] tmp = new int[1];
+        gl.glGenTextures(1, tmp, 0);
+        int width = image.getWidth();
+        int height = image.getHeight();
+        // DDS images are stored top to bottom
+        texture = new Texture(tmp[0], target, width, height, width, height, true);
+        gl.glBindTexture(target, tmp[0]);
+
+        int minFilter = (levelCount > 1 ? GL.GL_LINEAR_MIPMAP_LINEAR : GL.GL_LINEAR);
+        gl.glTexParameteri(target, GL.GL_TEXTURE_MIN_FILTER, minFilter);
+        gl.glTexParameteri(target, GL.GL_TEXTURE_MAG_FILTER, GL.GL_LINEAR);
+        gl.glTexParameteri(target, GL.GL_TEXTURE_WRAP_S, GL.GL_CLAMP_TO_EDGE);
+        gl.glTexParameteri(target, GL.GL_TEXTURE_WRAP_T, GL.GL_CLAMP_TO_EDGE);
+        if (progressive) {
+            if (GL2GL3.GL_TEXTURE_CUBE_MAP == target) {
+                gl.glTexParameteri(target, GL2GL3.GL_TEXTURE_WRAP_R, GL.GL_CLAMP_TO_EDGE);
+            }
+            gl.glTexParameteri(target, GL2GL3.GL_TEXTURE_MAX_LEVEL, levelCount - 1);
+        }
+    }
+
+    private void uploadLevel(GL gl, int level) {
+        for (int i = 0; i < sides.length; i++) {
+            int faceTarget = (GL2GL3.GL_TEXTURE_CUBE_MAP == target) ? GL2GL3.GL_TEXTURE_CUBE_MAP_POSITIVE_X + i : target ;
+            DDSImage.ImageInfo info = image.getMipMap(sides[i], level);
+            ByteBuffer data = info.getData();
+            if (compressed) {
+                gl.glCompressedTexImage2D(faceTarget, level, internalFormat,
+                                          info.getWidth(), info.getHeight(), 0,
+                                          data.remaining(), data);
+            } else {
+                gl.glTexImage2D(faceTarget, level, internalFormat,
+                                info.getWidth(), info.getHeight(), 0,
+                                pixelFormat, GL.GL_UNSIGNED_BYTE, data);
+            }
+            bytesUploaded += data.remaining();
+        }
+    }
+}
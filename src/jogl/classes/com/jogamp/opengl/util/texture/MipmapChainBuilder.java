@@ -0,0 +1,457 @@
+/**
+ * Copyright 2010 JogAmp Community. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are
+ * permitted provided that the following conditions are met:
+ * 
+ *    1. Redistributions of source code must retain the above copyright notice, this list of
+ *       conditions and the following disclaimer.
+ * 
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *       of conditions and the following disclaimer in the documentation and/or other materials
+ *       provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY JogAmp Community ``AS IS'' AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL JogAmp Community OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are those of the
+ * authors and should not be interpreted as representing official policies, either expressed
+ * or implied, of JogAmp Community.
+ */
+
+package com.jogamp.opengl.util.texture;
+
+import java.nio.*;
+
+import javax.media.opengl.*;
+
+import com.jogamp.opengl.util.GLBuffers;
+
+/**
+ * Builds the complete mipmap chain of an 8 bit per component image on the CPU.
+ * <p>
+ * Unlike GLU's gluBuild2DMipmaps no GL context is required, hence the chain
+ * can be built on any background thread and only the upload remains
+ * on the GL thread, see {@link Chain#toTextureData(GLProfile, int, boolean)}.
+ * All levels are stored tightly packed in one direct buffer.
+ * </p>
+ * <p>
+ * Each level is resampled from the previous one in floating point with a separable
+ * box, Kaiser or Lanczos filter. Color components may be averaged in linear space
+ * for sRGB images, and the alpha test coverage of the base level may be preserved
+ * for cutout textures, e.g. foliage.
+ * </p>
+ * <p>
+ * A builder instance is not thread safe, use one instance per thread.
+ * </p>
+ */
+public class MipmapChainBuilder {
+    /** 2x2 average, identical to GLU for power-of-two sizes. */
+    public static final int FILTER_BOX = 0;
+    /** Kaiser windowed sinc, width 3, alpha 4. */
+    public static final int FILTER_KAISER = 1;
+    /** Lanczos windowed sinc with 3 lobes. */
+    public static final int FILTER_LANCZOS = 2;
+
+    private static final float KAISER_ALPHA = 4.0f;
+    private static final int SRGB_LUT_SIZE = 8192;
+
+    private static float[] srgbToLinear;
+    private static byte[] linearToSRGB;
+
+    private final int width;
+    private final int height;
+    private final int pixelFormat;
+    private final int components;
+    private final int alphaIndex;
+    private final ByteBuffer data;
+
+    private int filter = FILTER_BOX;
+    private boolean sRGB = false;
+    private float alphaRef = -1.0f;
+    private int maxLevels = Integer.MAX_VALUE;
+
+    /**
+     * @param width the width of the base level
+     * @param height the height of the base level
+     * @param pixelFormat GL_RGBA, GL_BGRA, GL_RGB, GL_BGR, GL_LUMINANCE_ALPHA,
+     *        GL_LUMINANCE or GL_ALPHA with GL_UNSIGNED_BYTE components
+     * @param data the tightly packed base level, starting at the buffer's position
+     * @throws IllegalArgumentException if the format is not supported
+     *         or the data is too small
+     */
+    public MipmapChainBuilder(int width, int height, int pixelFormat, ByteBuffer data)
+        throws IllegalArgumentException {
+        switch (pixelFormat) {
+            case GL.GL_RGBA:
+            case GL2GL3.GL_BGRA:
+                components = 4; alphaIndex = 3; break;
+            case GL.GL_RGB:
+            case GL2GL3.GL_BGR:
+                components = 3; alphaIndex = -1; break;
+            case GL.GL_LUMINANCE_ALPHA:
+                components = 2; alphaIndex = 1; break;
+            case GL.GL_LUMINANCE:
+                components = 1; alphaIndex = -1; break;
+            case GL.GL_ALPHA:
+                components = 1; alphaIndex = 0; break;
+            default:
+                throw new IllegalArgumentException("Unsupported pixel format 0x"+Integer.toHexString(pixelFormat));
+        }
+        if (width < 1 || height < 1) {
+            throw new IllegalArgumentException("Invalid size "+width+"x"+height);
+        }
+        if (data.remaining() < width * height * components) {
+            throw new IllegalArgumentException("Data too small for "+width+"x"+height+"x"+components+": "+data.remaining());
+        }
+        this.width = width;
+        this.height = height;
+        this.pixelFormat = pixelFormat;
+        this.data = data;
+    }
+
+    /** Sets the resampling filter, one of FILTER_BOX (default), FILTER_KAISER or FILTER_LANCZOS. */
+    public void setFilter(int filter) {
+        if (filter != FILTER_BOX && filter != FILTER_KAISER && filter != FILTER_LANCZOS) {
+            throw new IllegalArgumentException("Unknown filter "+filter);
+        }
+        this.filter = filter;
+    }
+
+    public int getFilter() { return filter; }
+
+    /** If true, color components are sRGB encoded and averaged in linear space. Alpha is always linear. */
+    public void setSRGB(boolean sRGB) { this.sRGB = sRGB; }
+
+    public boolean getSRGB() { return sRGB; }
+
+    /**
+     * Preserves the fraction of pixels with an alpha above the given reference value,
+     * which alpha testing would keep, in all levels.
+     * A negative value disables the adjustment, the default.
+     */
+    public void setAlphaCoverage(float alphaRef) { this.alphaRef = alphaRef; }
+
+    public float getAlphaCoverage() { return alphaRef; }
+
+    /** Limits the number of levels, including the base level. */
+    public void setMaxLevels(int maxLevels) {
+        if (maxLevels < 1) {
+            throw new IllegalArgumentException("Invalid level count "+maxLevels);
+        }
+        this.maxLevels = maxLevels;
+    }
+
+    /** Returns the number of levels of a complete chain down to 1x1. */
+    public static int getLevelCount(int width, int height) {
+        int levels = 1;
+        for (int size = Math.max(width, height); size > 1; size >>= 1) {
+            levels++;
+        }
+        return levels;
+    }
+
+    /** Builds the mipmap chain, may be called on any thread. */
+    public Chain build() {
+        int levels = Math.min(maxLevels, getLevelCount(width, height));
+        int[] widths = new int[levels];
+        int[] heights = new int[levels];
+        int[] offsets = new int[levels + 1];
+        for (int i = 0, w = width, h = height; i < levels; i++) {
+            widths[i] = w;
+            heights[i] = h;
+            offsets[i + 1] = offsets[i] + w * h * components;
+            w = Math.max(1, w / 2);
+            h = Math.max(1, h / 2);
+        }
+        ByteBuffer out = GLBuffers.newDirectByteBuffer(offsets[levels]);
+
+        // base level is copied as is
+        ByteBuffer src = data.duplicate();
+        src.limit(src.position() + offsets[1]);
+        out.put(src);
+
+        if (levels > 1) {
+            float[] level = toFloat();
+            float coverage = (alphaRef >= 0 && alphaIndex >= 0) ? coverage(level, 1.0f) : -1.0f;
+            for (int i = 1; i < levels; i++) {
+                float[] tmp = resample(level, widths[i - 1], heights[i - 1], widths[i], heights[i - 1], true);
+                level = resample(tmp, widths[i], heights[i - 1], widths[i], heights[i], false);
+                float alphaScale = (coverage >= 0) ? findAlphaScale(level, coverage) : 1.0f;
+                out.position(offsets[i]);
+                toBytes(level, alphaScale, out);
+            }
+        }
+        out.rewind();
+        return new Chain(out, pixelFormat, widths, heights, offsets);
+    }
+
+    //----------------------------------------------------------------------
+    // Internals only below this point
+    //
+
+    private float[] toFloat() {
+        int n = width * height * components;
+        float[] res = new float[n];
+        int pos = data.position();
+        if (sRGB) {
+            float[] lut = getSRGBToLinear();
+            for (int i = 0; i < n; i++) {
+                int v = data.get(pos + i) & 0xFF;
+                res[i] = (i % components == alphaIndex) ? v / 255.0f : lut[v];
+            }
+        } else {
+            for (int i = 0; i < n; i++) {
+                res[i] = (data.get(pos + i) & 0xFF) / 255.0f;
+            }
+        }
+        return res;
+    }
+
+    private void toBytes(float[] level, float alphaScale, ByteBuffer out) {
+        byte[] lut = sRGB ? getLinearToSRGB() : null;
+        for (int i = 0; i < level.length; i++) {
+            float v = level[i];
+            int b;
+            if (i % components == alphaIndex) {
+                b = (int) (v * alphaScale * 255.0f + 0.5f);
+            } else if (null != lut) {
+                int idx = (int) (v * (SRGB_LUT_SIZE - 1) + 0.5f);
+                b = lut[Math.max(0, Math.min(SRGB_LUT_SIZE - 1, idx))] & 0xFF;
+            } else {
+                b = (int) (v * 255.0f + 0.5f);
+            }
+            out.put((byte) Math.max(0, Math.min(255, b)));
+        }
+    }
+
+    /** Resamples along one axis, the other dimension stays the same. */
+    private float[] resample(float[] src, int srcWidth, int srcHeight,
+                             int dstWidth, int dstHeight, boolean horizontal) {
+        int srcLen = horizontal ? srcWidth : srcHeight;
+        int dstLen = horizontal ? dstWidth : dstHeight;
+        float[] dst = new float[dstWidth * dstHeight * components];
+        if (srcLen == dstLen) {
+            System.arraycopy(src, 0, dst, 0, dst.length);
+            return dst;
+        }
+        Weights weights = new Weights(filter, srcLen, dstLen);
+        int lines = horizontal ? srcHeight : srcWidth;
+        // distance of neighboring taps and of neighboring lines in floats
+        int srcStep = horizontal ? components : srcWidth * components;
+        int dstStep = horizontal ? components : dstWidth * components;
+        int srcLine = horizontal ? srcWidth * components : components;
+        int dstLine = horizontal ? dstWidth * components : components;
+
+        for (int l = 0; l < lines; l++) {
+            int srcBase = l * srcLine;
+            int dstBase = l * dstLine;
+            for (int d = 0; d < dstLen; d++) {
+                int first = weights.first[d];
+                float[] w = weights.weights[d];
+                for (int c = 0; c < components; c++) {
+                    float sum = 0.0f;
+                    for (int t = 0; t < w.length; t++) {
+                        int s = Math.max(0, Math.min(srcLen - 1, first + t));
+                        sum += w[t] * src[srcBase + s * srcStep + c];
+                    }
+                    dst[dstBase + d * dstStep + c] = sum;
+                }
+            }
+        }
+        return dst;
+    }
+
+    /** Returns the fraction of pixels whose scaled alpha passes the reference value */
+    private float coverage(float[] level, float alphaScale) {
+        int pixels = level.length / components;
+        int passed = 0;
+        for (int i = alphaIndex; i < level.length; i += components) {
+            if (level[i] * alphaScale > alphaRef) {
+                passed++;
+            }
+        }
+        return (float) passed / pixels;
+    }
+
+    /** Binary search for the alpha scale reproducing the given coverage */
+    private float findAlphaScale(float[] level, float coverage) {
+        float lo = 0.0f;
+        float hi = 4.0f;
+        float best = 1.0f;
+        float bestError = Math.abs(coverage(level, 1.0f) - coverage);
+        for (int i = 0; i < 16 && bestError > 0; i++) {
+            float mid = (lo + hi) / 2;
+            float c = coverage(level, mid);
+            float error = Math.abs(c - coverage);
+            if (error < bestError) {
+                best = mid;
+                bestError = error;
+            }
+            if (c < coverage) {
+                lo = mid;
+            } else {
+                hi = mid;
+            }
+        }
+        return best;
+    }
+
+    /** Filter taps for each destination sample along one axis */
+    private static class Weights {
+        final int[] first;
+        final float[][] weights;
+
+        Weights(int filter, int srcLen, int dstLen) {
+            first = new int[dstLen];
+            weights = new float[dstLen][];
+            float scale = (float) srcLen / dstLen;
+            float support = (filter == FILTER_BOX) ? 0.5f : 3.0f;
+            for (int d = 0; d < dstLen; d++) {
+                // filter center in source pixels
+                float center = (d + 0.5f) * scale;
+                int lo = (int) Math.floor(center - support * scale);
+                int hi = (int) Math.ceil(center + support * scale);
+                float[] w = new float[hi - lo + 1];
+                float sum = 0.0f;
+                for (int s = lo; s <= hi; s++) {
+                    float x = (s + 0.5f - center) / scale;
+                    w[s - lo] = eval(filter, x);
+                    sum += w[s - lo];
+                }
+                for (int t = 0; t < w.length; t++) {
+                    w[t] /= sum;
+                }
+                first[d] = lo;
+                weights[d] = w;
+            }
+        }
+
+        static float eval(int filter, float x) {
+            x = Math.abs(x);
+            switch (filter) {
+                case FILTER_BOX:
+                    return (x < 0.5f) ? 1.0f : ((x == 0.5f) ? 0.5f : 0.0f);
+                case FILTER_KAISER:
+                    if (x >= 3.0f) {
+                        return 0.0f;
+                    }
+                    float r = x / 3.0f;
+                    return (float) (sinc(x) * bessel0(KAISER_ALPHA * Math.sqrt(1 - r * r)) / bessel0(KAISER_ALPHA));
+                default:
+                    return (x < 3.0f) ? (float) (sinc(x) * sinc(x / 3.0f)) : 0.0f;
+            }
+        }
+
+        static double sinc(double x) {
+            if (x < 1e-6) {
+                return 1.0;
+            }
+            return Math.sin(Math.PI * x) / (Math.PI * x);
+        }
+
+        /** Zeroth order modified Bessel function of the first kind */
+        static double bessel0(double x) {
+            double sum = 1.0;
+            double term = 1.0;
+            double x2 = x * x / 4.0;
+            for (int k = 1; k < 32 && term > sum * 1e-12; k++) {
+                term *= x2 / (k * k);
+                sum += term;
+            }
+            return sum;
+        }
+    }
+
+    private static synchronized float[] getSRGBToLinear() {
+        if (null == srgbToLinear) {
+            float[] lut = new float[256];
+            for (int i = 0; i < 256; i++) {
+                double c = i / 255.0;
+                lut[i] = (float) ((c <= 0.04045) ? c / 12.92 : Math.pow((c + 0.055) / 1.055, 2.4));
+            }
+            srgbToLinear = lut;
+        }
+        return srgbToLinear;
+    }
+
+    private static synchronized byte[] getLinearToSRGB() {
+        if (null == linearToSRGB) {
+            byte[] lut = new byte[SRGB_LUT_SIZE];
+            for (int i = 0; i < SRGB_LUT_SIZE; i++) {
+                double l = (double) i / (SRGB_LUT_SIZE - 1);
+                double c = (l <= 0.0031308) ? l * 12.92 : 1.055 * Math.pow(l, 1 / 2.4) - 0.055;
+                lut[i] = (byte) (int) (c * 255.0 + 0.5);
+            }
+            linearToSRGB = lut;
+        }
+        return linearToSRGB;
+    }
+
+    /**
+     * A built mipmap chain, all levels stored consecutively in one direct buffer
+     * starting with the base level.
+     */
+    public static class Chain {
+        private final ByteBuffer buffer;
+        private final int pixelFormat;
+        private final int[] widths;
+        private final int[] heights;
+        private final int[] offsets;
+
+        Chain(ByteBuffer buffer, int pixelFormat, int[] widths, int[] heights, int[] offsets) {
+            this.buffer = buffer;
+            this.pixelFormat = pixelFormat;
+            this.widths = widths;
+            this.heights = heights;
+            this.offsets = offsets;
+        }
+
+        public int getLevelCount() { return widths.length; }
+
+        public int getWidth(int level) { return widths[level]; }
+
+        public int getHeight(int level) { return heights[level]; }
+
+        /** Returns the byte offset of the level within {@link #getBuffer()} */
+        public int getOffset(int level) { return offsets[level]; }
+
+        public int getSizeInBytes(int level) { return offsets[level + 1] - offsets[level]; }
+
+        public int getPixelFormat() { return pixelFormat; }
+
+        /** Returns the buffer holding all levels */
+        public ByteBuffer getBuffer() { return buffer; }
+
+        /** Returns a slice of the buffer holding only the given level */
+        public ByteBuffer getLevel(int level) {
+            ByteBuffer dup = buffer.duplicate();
+            dup.position(offsets[level]);
+            dup.limit(offsets[level + 1]);
+            return dup.slice();
+        }
+
+        /**
+         * Returns a TextureData with all levels as mipmap data, sharing the buffer.
+         * A {@link Texture} created from it only uploads the levels.
+         *
+         * @param internalFormat the internal format, e.g. GL_RGBA8 or GL_SRGB8_ALPHA8
+         */
+        public TextureData toTextureData(GLProfile glp, int internalFormat, boolean mustFlipVertically) {
+            Buffer[] levels = new Buffer[widths.length];
+            for (int i = 0; i < levels.length; i++) {
+                levels[i] = getLevel(i);
+            }
+            return new TextureData(glp, internalFormat, widths[0], heights[0], 0,
+                                   pixelFormat, GL.GL_UNSIGNED_BYTE,
+                                   false, mustFlipVertically, levels, null);
+        }
+    }
+}
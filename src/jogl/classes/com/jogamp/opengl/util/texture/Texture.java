@@ -651,7 +651,13 @@ public class Texture {
             }
         }
 
-        int minFilter = (data.getMipmap() ? GL.GL_LINEAR_MIPMAP_LINEAR : GL.GL_LINEAR);
+        int mipmapLevels = (data.getMipmapData() != null) ? data.getMipmapData().length : 0;
+        // An explicit chain not reaching 1x1 is incomplete and samples black,
+        // unless the base and max level are restricted to the given levels
+        boolean limitMaxLevel = mipmapLevels > 1 && gl.isGL2GL3();
+        boolean haveMipmaps = data.getMipmap() ||
+            (mipmapLevels > 1 && ( limitMaxLevel || isMipmapChainComplete(mipmapLevels, texWidth, texHeight) ));
+        int minFilter = (haveMipmaps ? GL.GL_LINEAR_MIPMAP_LINEAR : GL.GL_LINEAR);
         int magFilter = GL.GL_LINEAR;
         int wrapMode = (gl.isExtensionAvailable("GL_VERSION_1_2") || !gl.isGL2()) ? GL.GL_CLAMP_TO_EDGE : GL2.GL_CLAMP;
 
@@ -664,6 +670,9 @@ public class Texture {
             if (this.target == GL2.GL_TEXTURE_CUBE_MAP) {
                 gl.glTexParameteri(texParamTarget, GL2.GL_TEXTURE_WRAP_R, wrapMode);
             }
+            if (limitMaxLevel) {
+                gl.glTexParameteri(texParamTarget, GL2GL3.GL_TEXTURE_MAX_LEVEL, mipmapLevels - 1);
+            }
         }
 
         // Don't overwrite target if we're loading e.g. faces of a cube
@@ -911,6 +920,20 @@ public class Texture {
         return ret;
     }
 
+    /**
+     * Returns true if the given number of mipmap levels, halving the
+     * base size each level, reaches the 1x1 level.
+     */
+    private static boolean isMipmapChainComplete(int levels, int width, int height) {
+        int size = Math.max(width, height);
+        int needed = 1;
+        while (size > 1) {
+            size >>= 1;
+            needed++;
+        }
+        return levels >= needed;
+    }
+
     /**
      * Updates the actual image dimensions; usually only called from
      * <code>updateImage</code>.
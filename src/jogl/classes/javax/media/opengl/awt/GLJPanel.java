@@ -125,6 +125,24 @@ public class GLJPanel extends JPanel implements AWTGLAutoDrawable {
     Java2D.isOGLPipelineActive() &&
     !Debug.isPropertyDefined("jogl.gljpanel.noogl", true, localACC);
 
+  // Reads back through a ring of pixel pack buffers, delivering the
+  // previous frame while the current one renders (pbuffer and
+  // software backends only)
+  private volatile boolean asyncReadback =
+    Debug.isPropertyDefined("jogl.gljpanel.asyncreadback", true, localACC);
+
+  // Milliseconds from issuing glReadPixels to the pixels landing in
+  // the offscreen image, for the most recently delivered frame
+  private volatile long readbackLatency = -1;
+
+  // Pack state set up around glReadPixels by the readback backends
+  private static final int[] packStateNames = new int[] {
+    GL2.GL_PACK_SWAP_BYTES, GL2.GL_PACK_ROW_LENGTH, GL2.GL_PACK_SKIP_ROWS,
+    GL2.GL_PACK_SKIP_PIXELS, GL2.GL_PACK_ALIGNMENT };
+
+  // Number of pixel pack buffers in the asynchronous readback ring
+  private static final int READBACK_BUFFERS = 2;
+
   // For handling reshape events lazily
   private int reshapeX;
   private int reshapeY;
@@ -475,6 +493,36 @@ public class GLJPanel extends JPanel implements AWTGLAutoDrawable {
     return oglPipelineEnabled;
   }
 
+  /** Enables or disables asynchronous readback of the rendered
+      frame. When enabled, and pixel buffer objects are available,
+      the pixels of each frame are read into one of a ring of pixel
+      pack buffers and only copied into the Swing image during the
+      following frame, so the read overlaps with rendering instead of
+      stalling it. The panel then shows the frame rendered one
+      display() call earlier; this suits continuously animated panels
+      rather than ones which render only on demand. Has no effect when
+      the Java 2D / OpenGL pipeline is in use. Defaults to false, or
+      to true if the <code>jogl.gljpanel.asyncreadback</code> property
+      is set. */
+  public void setAsynchronousReadback(boolean onOrOff) {
+    asyncReadback = onOrOff;
+  }
+
+  /** Indicates whether asynchronous readback has been requested.
+      @see #setAsynchronousReadback */
+  public boolean getAsynchronousReadback() {
+    return asyncReadback;
+  }
+
+  /** Returns the time in milliseconds between issuing the read of the
+      most recently displayed frame and its pixels being available in
+      the Swing image, or -1 if no frame has been read back yet. With
+      asynchronous readback this includes the interval until the
+      following frame. */
+  public long getReadbackLatency() {
+    return readbackLatency;
+  }
+
   public GLCapabilities getChosenGLCapabilities() {
     return backend.getChosenGLCapabilities();
   }
@@ -766,12 +814,17 @@ public class GLJPanel extends JPanel implements AWTGLAutoDrawable {
     private int glFormat;
     private int glType;
 
-    // For saving/restoring of OpenGL state during ReadPixels
-    private int[] swapbytes    = new int[1];
-    private int[] rowlength    = new int[1];
-    private int[] skiprows     = new int[1];
-    private int[] skippixels   = new int[1];
-    private int[] alignment    = new int[1];
+    // Pack state required by ReadPixels, and the state it replaced
+    private int[] packState      = new int[packStateNames.length];
+    private int[] savedPackState = new int[packStateNames.length];
+
+    // Ring of pixel pack buffers for asynchronous readback. The
+    // buffer names belong to pboContext and die with it
+    private int[]        pbos;
+    private ReadbackRing pboRing;
+    private int          pboWidth;
+    private int          pboHeight;
+    private GLContext    pboContext;
 
     public void setOpaque(boolean opaque) {
       if (opaque != isOpaque()) {
@@ -823,7 +876,9 @@ public class GLJPanel extends JPanel implements AWTGLAutoDrawable {
             case BufferedImage.TYPE_INT_ARGB:
               glFormat = GL2.GL_BGRA;
               glType   = getGLPixelType();
-              readBackInts = IntBuffer.allocate(readBackWidthInPixels * readBackHeightInPixels);
+              // Allocated on demand, as most reads go straight into
+              // the image raster or a pixel pack buffer
+              readBackInts = null;
               break;
 
             default:
@@ -838,78 +893,158 @@ public class GLJPanel extends JPanel implements AWTGLAutoDrawable {
 
         if (offscreenImage != null) {
           GL2 gl = getGL().getGL2();
-          // Save current modes
-          gl.glGetIntegerv(GL2.GL_PACK_SWAP_BYTES,    swapbytes, 0);
-          gl.glGetIntegerv(GL2.GL_PACK_ROW_LENGTH,    rowlength, 0);
-          gl.glGetIntegerv(GL2.GL_PACK_SKIP_ROWS,     skiprows, 0);
-          gl.glGetIntegerv(GL2.GL_PACK_SKIP_PIXELS,   skippixels, 0);
-          gl.glGetIntegerv(GL2.GL_PACK_ALIGNMENT,     alignment, 0);
-
-          gl.glPixelStorei(GL2.GL_PACK_SWAP_BYTES,    GL.GL_FALSE);
-          gl.glPixelStorei(GL2.GL_PACK_ROW_LENGTH,    readBackWidthInPixels);
-          gl.glPixelStorei(GL2.GL_PACK_SKIP_ROWS,     0);
-          gl.glPixelStorei(GL2.GL_PACK_SKIP_PIXELS,   0);
-          gl.glPixelStorei(GL2.GL_PACK_ALIGNMENT,     1);
+          setPackState(gl);
 
           // Actually read the pixels.
           gl.glReadBuffer(GL2.GL_FRONT);
-          if (readBackBytes != null) {
-            gl.glReadPixels(0, 0, readBackWidthInPixels, readBackHeightInPixels, glFormat, glType, readBackBytes);
-          } else if (readBackInts != null) {
-            gl.glReadPixels(0, 0, readBackWidthInPixels, readBackHeightInPixels, glFormat, glType, readBackInts);
+          if (readBackBytes == null && asyncReadback && isPBOAvailable(gl)) {
+            readPixelsAsync(gl);
+          } else {
+            destroyPBOs(gl);
+            readPixels(gl);
           }
 
-          // Restore saved modes.
-          gl.glPixelStorei(GL2.GL_PACK_SWAP_BYTES,  swapbytes[0]);
-          gl.glPixelStorei(GL2.GL_PACK_ROW_LENGTH,  rowlength[0]);
-          gl.glPixelStorei(GL2.GL_PACK_SKIP_ROWS,   skiprows[0]);
-          gl.glPixelStorei(GL2.GL_PACK_SKIP_PIXELS, skippixels[0]);
-          gl.glPixelStorei(GL2.GL_PACK_ALIGNMENT,   alignment[0]);
-
-          if (readBackBytes != null || readBackInts != null) {
-            // Copy temporary data into raster of BufferedImage for faster
-            // blitting Note that we could avoid this copy in the cases
-            // where !offscreenContext.offscreenImageNeedsVerticalFlip(),
-            // but that's the software rendering path which is very slow
-            // anyway
-            Object src  = null;
-            Object dest = null;
-            int    srcIncr  = 0;
-            int    destIncr = 0;
-
-            if (readBackBytes != null) {
-              src = readBackBytes.array();
-              dest = ((DataBufferByte) offscreenImage.getRaster().getDataBuffer()).getData();
-              srcIncr = readBackWidthInPixels * 3;
-              destIncr = offscreenImage.getWidth() * 3;
-            } else {
-              src = readBackInts.array();
-              dest = ((DataBufferInt) offscreenImage.getRaster().getDataBuffer()).getData();
-              srcIncr = readBackWidthInPixels;
-              destIncr = offscreenImage.getWidth();
-            }
+          restorePackState(gl);
 
-            if (flipVertically()) {
-              int srcPos = 0;
-              int destPos = (offscreenImage.getHeight() - 1) * destIncr;
-              for (; destPos >= 0; srcPos += srcIncr, destPos -= destIncr) {
-                System.arraycopy(src, srcPos, dest, destPos, destIncr);
-              }
-            } else {
-              int srcPos = 0;
-              int destEnd = destIncr * offscreenImage.getHeight();
-              for (int destPos = 0; destPos < destEnd; srcPos += srcIncr, destPos += destIncr) {
-                System.arraycopy(src, srcPos, dest, destPos, destIncr);
-              }
-            }
+          // Note: image will be drawn back in paintComponent() for
+          // correctness on all platforms
+        }
+      }
+    }
 
-            // Note: image will be drawn back in paintComponent() for
-            // correctness on all platforms
-          }
+    // Sets up the pack state for ReadPixels, saving the current one.
+    // The values are taken from the context's state tracker where
+    // possible, and only the ones which differ are changed
+    private void setPackState(GL2 gl) {
+      packState[0] = GL.GL_FALSE;
+      packState[1] = readBackWidthInPixels;
+      packState[2] = 0;
+      packState[3] = 0;
+      packState[4] = 1;
+
+      GLStateTracker tracker = null;
+      GLContext context = getContext();
+      if (context instanceof GLContextImpl) {
+        tracker = ((GLContextImpl) context).getGLStateTracker();
+      }
+      for (int i = 0; i < packStateNames.length; i++) {
+        if (tracker == null || !tracker.getInt(packStateNames[i], savedPackState, i)) {
+          gl.glGetIntegerv(packStateNames[i], savedPackState, i);
+        }
+        if (savedPackState[i] != packState[i]) {
+          gl.glPixelStorei(packStateNames[i], packState[i]);
+        }
+      }
+    }
+
+    private void restorePackState(GL2 gl) {
+      for (int i = 0; i < packStateNames.length; i++) {
+        if (savedPackState[i] != packState[i]) {
+          gl.glPixelStorei(packStateNames[i], savedPackState[i]);
         }
       }
     }
 
+    // Synchronous readback of the current frame
+    private void readPixels(GL2 gl) {
+      long issueTime = System.currentTimeMillis();
+      if (readBackBytes != null) {
+        gl.glReadPixels(0, 0, readBackWidthInPixels, readBackHeightInPixels, glFormat, glType, readBackBytes);
+
+        // Copy temporary data into raster of BufferedImage for faster
+        // blitting
+        byte[] dest = ((DataBufferByte) offscreenImage.getRaster().getDataBuffer()).getData();
+        ReadbackUtil.copyRows(readBackBytes.array(), readBackWidthInPixels * 3,
+                              dest, offscreenImage.getWidth() * 3, offscreenImage.getHeight(),
+                              flipVertically());
+      } else if (!flipVertically() &&
+                 readBackWidthInPixels  == offscreenImage.getWidth() &&
+                 readBackHeightInPixels == offscreenImage.getHeight()) {
+        // Layout matches the image exactly: read straight into its raster
+        int[] dest = ((DataBufferInt) offscreenImage.getRaster().getDataBuffer()).getData();
+        gl.glReadPixels(0, 0, readBackWidthInPixels, readBackHeightInPixels, glFormat, glType,
+                        IntBuffer.wrap(dest));
+      } else {
+        if (readBackInts == null) {
+          readBackInts = IntBuffer.allocate(readBackWidthInPixels * readBackHeightInPixels);
+        }
+        gl.glReadPixels(0, 0, readBackWidthInPixels, readBackHeightInPixels, glFormat, glType, readBackInts);
+        copyToImage(readBackInts);
+      }
+      readbackLatency = System.currentTimeMillis() - issueTime;
+    }
+
+    // Asynchronous readback: reads the current frame into the next
+    // pixel pack buffer of the ring and delivers the oldest frame still
+    // in flight, so the transfer of a frame overlaps with rendering
+    // of the next one
+    private void readPixelsAsync(GL2 gl) {
+      if (pbos != null && (pboContext != getContext() ||
+                           pboWidth  != readBackWidthInPixels ||
+                           pboHeight != readBackHeightInPixels)) {
+        destroyPBOs(gl);
+      }
+
+      int boundPBO = gl.glGetBoundBuffer(GL2.GL_PIXEL_PACK_BUFFER);
+      if (pbos == null) {
+        pbos = new int[READBACK_BUFFERS];
+        pboRing = new ReadbackRing(READBACK_BUFFERS);
+        pboWidth = readBackWidthInPixels;
+        pboHeight = readBackHeightInPixels;
+        pboContext = getContext();
+        gl.glGenBuffers(pbos.length, pbos, 0);
+        for (int i = 0; i < pbos.length; i++) {
+          gl.glBindBuffer(GL2.GL_PIXEL_PACK_BUFFER, pbos[i]);
+          gl.glBufferData(GL2.GL_PIXEL_PACK_BUFFER, pboWidth * pboHeight * 4, null, GL2.GL_STREAM_READ);
+        }
+      }
+
+      int current = pboRing.current();
+      gl.glBindBuffer(GL2.GL_PIXEL_PACK_BUFFER, pbos[current]);
+      gl.glReadPixels(0, 0, readBackWidthInPixels, readBackHeightInPixels, glFormat, glType, 0);
+      int deliver = pboRing.issue(System.currentTimeMillis());
+
+      if (deliver != current) {
+        gl.glBindBuffer(GL2.GL_PIXEL_PACK_BUFFER, pbos[deliver]);
+      }
+      ByteBuffer pixels = gl.glMapBuffer(GL2.GL_PIXEL_PACK_BUFFER, GL2.GL_READ_ONLY);
+      if (pixels != null) {
+        copyToImage(pixels.asIntBuffer());
+        gl.glUnmapBuffer(GL2.GL_PIXEL_PACK_BUFFER);
+        readbackLatency = System.currentTimeMillis() - pboRing.getIssueTime(deliver);
+      }
+      pboRing.delivered(deliver);
+
+      gl.glBindBuffer(GL2.GL_PIXEL_PACK_BUFFER, boundPBO);
+    }
+
+    private boolean isPBOAvailable(GL gl) {
+      return gl.isFunctionAvailable("glMapBuffer") &&
+             (gl.isExtensionAvailable("GL_VERSION_2_1") ||
+              gl.isExtensionAvailable("GL_ARB_pixel_buffer_object"));
+    }
+
+    // Releases the readback ring; buffers of a context which has
+    // already been destroyed are simply forgotten
+    private void destroyPBOs(GL gl) {
+      if (pbos != null) {
+        if (pboContext == getContext()) {
+          gl.glDeleteBuffers(pbos.length, pbos, 0);
+        }
+        pbos = null;
+        pboRing = null;
+        pboContext = null;
+      }
+    }
+
+    // Copies rows of readBackWidthInPixels pixels into the raster of
+    // the offscreen image, flipping them if necessary
+    private void copyToImage(IntBuffer src) {
+      int[] dest = ((DataBufferInt) offscreenImage.getRaster().getDataBuffer()).getData();
+      ReadbackUtil.copyRows(src, readBackWidthInPixels, dest, offscreenImage.getWidth(),
+                            offscreenImage.getHeight(), flipVertically());
+    }
+
     public void doPaintComponent(Graphics g) {
       doPaintComponentImpl();
       if (offscreenImage != null) {
@@ -0,0 +1,190 @@
+/**
+ * Copyright 2010 JogAmp Community. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are
+ * permitted provided that the following conditions are met:
+ * 
+ *    1. Redistributions of source code must retain the above copyright notice, this list of
+ *       conditions and the following disclaimer.
+ * 
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *       of conditions and the following disclaimer in the documentation and/or other materials
+ *       provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY JogAmp Community ``AS IS'' AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL JogAmp Community OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are those of the
+ * authors and should not be interpreted as representing official policies, either expressed
+ * or implied, of JogAmp Community.
+ */
+ 
+package com.jogamp.test.junit.jogl.awt;
+
+import com.jogamp.opengl.impl.awt.ReadbackRing;
+import com.jogamp.opengl.impl.awt.ReadbackUtil;
+
+import java.nio.IntBuffer;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * CPU side of the GLJPanel readback: copying the rows read back into the
+ * raster of the offscreen image, for the int and the byte image format,
+ * and the slot rotation of the asynchronous pixel pack buffer ring.
+ */
+public class TestGLJPanelReadback01 {
+    static final int WIDTH  = 5;
+    static final int HEIGHT = 4;
+
+    // Pixel value of column x in row y as read back by glReadPixels
+    static int pixel(int x, int y) {
+        return 0xFF000000 | (y << 16) | (x << 8) | (x + y);
+    }
+
+    static IntBuffer intRows(int srcWidth, int height) {
+        IntBuffer buf = IntBuffer.allocate(srcWidth * height);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < srcWidth; x++) {
+                buf.put(pixel(x, y));
+            }
+        }
+        buf.rewind();
+        return buf;
+    }
+
+    static byte[] byteRows(int srcWidth, int height) {
+        byte[] buf = new byte[srcWidth * 3 * height];
+        for (int y = 0, i = 0; y < height; y++) {
+            for (int x = 0; x < srcWidth; x++) {
+                int p = pixel(x, y);
+                buf[i++] = (byte) (p >> 16);
+                buf[i++] = (byte) (p >> 8);
+                buf[i++] = (byte) p;
+            }
+        }
+        return buf;
+    }
+
+    void testIntRows(int srcWidth, boolean flip) {
+        IntBuffer src = intRows(srcWidth, HEIGHT);
+        int[] dest = new int[WIDTH * HEIGHT];
+        ReadbackUtil.copyRows(src, srcWidth, dest, WIDTH, HEIGHT, flip);
+        Assert.assertEquals(0, src.position());
+        for (int y = 0; y < HEIGHT; y++) {
+            int srcRow = flip ? HEIGHT - 1 - y : y;
+            for (int x = 0; x < WIDTH; x++) {
+                Assert.assertEquals("pixel "+x+"/"+y, pixel(x, srcRow), dest[y * WIDTH + x]);
+            }
+        }
+    }
+
+    void testByteRows(int srcWidth, boolean flip) {
+        byte[] src = byteRows(srcWidth, HEIGHT);
+        byte[] dest = new byte[WIDTH * 3 * HEIGHT];
+        ReadbackUtil.copyRows(src, srcWidth * 3, dest, WIDTH * 3, HEIGHT, flip);
+        byte[] srcRow = new byte[srcWidth * 3];
+        for (int y = 0; y < HEIGHT; y++) {
+            System.arraycopy(src, (flip ? HEIGHT - 1 - y : y) * srcWidth * 3, srcRow, 0, srcRow.length);
+            for (int i = 0; i < WIDTH * 3; i++) {
+                Assert.assertEquals("byte "+i+" of row "+y, srcRow[i], dest[y * WIDTH * 3 + i]);
+            }
+        }
+    }
+
+    @Test
+    public void test01IntRows() {
+        testIntRows(WIDTH, false);
+        testIntRows(WIDTH, true);
+    }
+
+    @Test
+    public void test02IntRowsPadded() {
+        // Read back area wider than the image
+        testIntRows(WIDTH + 3, false);
+        testIntRows(WIDTH + 3, true);
+    }
+
+    @Test
+    public void test03ByteRows() {
+        testByteRows(WIDTH, false);
+        testByteRows(WIDTH, true);
+    }
+
+    @Test
+    public void test04ByteRowsPadded() {
+        testByteRows(WIDTH + 3, false);
+        testByteRows(WIDTH + 3, true);
+    }
+
+    // Issues frames into the ring and checks which slot each one delivers
+    static void assertRotation(ReadbackRing ring, int[] expCurrent, int[] expDeliver) {
+        for (int i = 0; i < expDeliver.length; i++) {
+            Assert.assertEquals("current of frame "+i, expCurrent[i], ring.current());
+            long time = 100 + i;
+            int deliver = ring.issue(time);
+            Assert.assertEquals("delivered by frame "+i, expDeliver[i], deliver);
+            Assert.assertTrue(ring.isInFlight(deliver));
+            // Except for the restart, the frame delivered was issued earlier
+            Assert.assertTrue(ring.getIssueTime(deliver) <= time);
+            ring.delivered(deliver);
+        }
+    }
+
+    @Test
+    public void test05RingOfTwo() {
+        ReadbackRing ring = new ReadbackRing(2);
+        Assert.assertEquals(2, ring.size());
+        // The first frame is shown right away, then the ring runs one frame behind
+        assertRotation(ring, new int[] { 0, 1, 0, 1, 0, 1 },
+                             new int[] { 0, 0, 1, 0, 1, 0 });
+        Assert.assertEquals(104, ring.getIssueTime(0));
+        Assert.assertEquals(105, ring.getIssueTime(1));
+    }
+
+    @Test
+    public void test06RingOfThree() {
+        ReadbackRing ring = new ReadbackRing(3);
+        // Only one frame is queued behind the current one, so a ring
+        // of three still delivers the previous frame
+        assertRotation(ring, new int[] { 0, 1, 2, 0, 1, 2, 0 },
+                             new int[] { 0, 0, 1, 2, 0, 1, 2 });
+        Assert.assertTrue(ring.isInFlight(0));
+        Assert.assertFalse(ring.isInFlight(1));
+        Assert.assertFalse(ring.isInFlight(2));
+    }
+
+    @Test
+    public void test07RingReset() {
+        ReadbackRing ring = new ReadbackRing(2);
+        assertRotation(ring, new int[] { 0, 1, 0 },
+                             new int[] { 0, 0, 1 });
+        ring.reset();
+        Assert.assertFalse(ring.isInFlight(0));
+        Assert.assertFalse(ring.isInFlight(1));
+        // After a reset the ring restarts like a new one
+        assertRotation(ring, new int[] { 0, 1, 0 },
+                             new int[] { 0, 0, 1 });
+    }
+
+    @Test
+    public void test08RingInvalidSize() {
+        try {
+            new ReadbackRing(0);
+            Assert.fail("ring of size 0 accepted");
+        } catch (IllegalArgumentException e) {
+        }
+    }
+
+    public static void main(String args[]) {
+        org.junit.runner.JUnitCore.main(TestGLJPanelReadback01.class.getName());
+    }
+}
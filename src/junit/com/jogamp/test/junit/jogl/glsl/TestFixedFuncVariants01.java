@@ -0,0 +1,154 @@
+/**
+ * Copyright 2010 JogAmp Community. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are
+ * permitted provided that the following conditions are met:
+ * 
+ *    1. Redistributions of source code must retain the above copyright notice, this list of
+ *       conditions and the following disclaimer.
+ * 
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *       of conditions and the following disclaimer in the documentation and/or other materials
+ *       provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY JogAmp Community ``AS IS'' AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL JogAmp Community OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are those of the
+ * authors and should not be interpreted as representing official policies, either expressed
+ * or implied, of JogAmp Community.
+ */
+ 
+package com.jogamp.test.junit.jogl.glsl;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.media.opengl.GL2ES2;
+
+import com.jogamp.opengl.util.glsl.ShaderProgram;
+import com.jogamp.opengl.util.glsl.fixedfunc.impl.FixedFuncVariant;
+import com.jogamp.opengl.util.glsl.fixedfunc.impl.FixedFuncVariantCache;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Checks the state mask and generated sources of the fixed function variants,
+ * and the LRU policy of their cache without compiling any shader.
+ */
+public class TestFixedFuncVariants01 {
+
+    /** Hands out unlinked programs and records the released ones. */
+    static class RecordingCache extends FixedFuncVariantCache {
+        final List<Integer> created = new ArrayList<Integer>();
+        final List<ShaderProgram> released = new ArrayList<ShaderProgram>();
+
+        RecordingCache(int capacity) {
+            super(capacity);
+        }
+
+        protected ShaderProgram createProgram(GL2ES2 gl, int mask) {
+            created.add(Integer.valueOf(mask));
+            return new ShaderProgram();
+        }
+
+        protected void releaseProgram(GL2ES2 gl, ShaderProgram prog) {
+            released.add(prog);
+        }
+    }
+
+    @Test
+    public void testMaskCanonical() {
+        // lighting without lights equals no lighting
+        Assert.assertEquals(0, FixedFuncVariant.mask(0, false, false, 0, false, 0));
+        // texture unit and coords are irrelevant while texturing is disabled
+        Assert.assertEquals(FixedFuncVariant.mask(0, true, false, 0, false, 0),
+                            FixedFuncVariant.mask(0, true, false, 5, true, 0));
+
+        int mask = FixedFuncVariant.mask(0x5, false, true, 3, true, 2);
+        Assert.assertTrue(0 != (mask & FixedFuncVariant.LIGHTING));
+        Assert.assertEquals(0x5, mask & FixedFuncVariant.LIGHTS_MASK);
+        Assert.assertEquals(3, FixedFuncVariant.getTextureUnit(mask));
+        Assert.assertEquals(2, FixedFuncVariant.getCullFace(mask));
+        Assert.assertTrue(0 != (mask & FixedFuncVariant.TEXCOORD_ARRAY));
+    }
+
+    @Test
+    public void testSourcesOnlyContainEnabledState() {
+        String vp = FixedFuncVariant.vertexSource(FixedFuncVariant.mask(0, false, false, 0, false, 0));
+        String fp = FixedFuncVariant.fragmentSource(FixedFuncVariant.mask(0, false, false, 0, false, 0));
+        Assert.assertTrue(vp.indexOf("mgl_ColorStatic") >= 0);
+        Assert.assertTrue(vp.indexOf("mgl_LightSource") < 0);
+        Assert.assertTrue(vp.indexOf("mgl_Normal") < 0);
+        Assert.assertTrue(vp.indexOf("mgl_TexCoord") < 0);
+        Assert.assertTrue(fp.indexOf("mgl_ActiveTexture") < 0);
+        Assert.assertTrue(fp.indexOf("discard") < 0);
+
+        int mask = FixedFuncVariant.mask(0x5, true, true, 2, true, 2);
+        vp = FixedFuncVariant.vertexSource(mask);
+        fp = FixedFuncVariant.fragmentSource(mask);
+        Assert.assertTrue(vp.indexOf("mgl_LightSource[0]") >= 0);
+        Assert.assertTrue(vp.indexOf("mgl_LightSource[1]") < 0);
+        Assert.assertTrue(vp.indexOf("mgl_LightSource[2]") >= 0);
+        Assert.assertTrue(vp.indexOf("mgl_ColorStatic") < 0);
+        Assert.assertTrue(vp.indexOf("attribute HIGHP vec4 mgl_Color;") >= 0);
+        Assert.assertTrue(vp.indexOf("mgl_MultiTexCoord2") >= 0);
+        Assert.assertTrue(fp.indexOf("mgl_ActiveTexture") >= 0);
+        Assert.assertTrue(fp.indexOf("!gl_FrontFacing") >= 0);
+    }
+
+    @Test
+    public void testCacheHitsAndEviction() {
+        RecordingCache cache = new RecordingCache(2);
+        ShaderProgram p0 = cache.get(null, 0);
+        Assert.assertSame(p0, cache.get(null, 0));
+        ShaderProgram p1 = cache.get(null, 1);
+        Assert.assertSame(p0, cache.get(null, 0));
+        Assert.assertEquals(2, cache.getMisses());
+        Assert.assertEquals(2, cache.getHits());
+
+        // 1 is least recently used
+        cache.get(null, 2);
+        Assert.assertEquals(1, cache.released.size());
+        Assert.assertSame(p1, cache.released.get(0));
+        Assert.assertTrue(cache.contains(0));
+        Assert.assertTrue(cache.contains(2));
+        Assert.assertEquals(2, cache.size());
+
+        cache.destroy(null);
+        Assert.assertEquals(3, cache.released.size());
+        Assert.assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testPrewarmKeepsCurrentProgram() {
+        RecordingCache cache = new RecordingCache(2);
+        ShaderProgram p0 = cache.get(null, 0);
+        cache.prewarm(1);
+        cache.prewarm(1);
+        cache.prewarm(2);
+        Assert.assertTrue(cache.hasPending());
+        Assert.assertTrue(cache.glPrewarm(null));
+        Assert.assertTrue(cache.glPrewarm(null));
+        Assert.assertFalse(cache.glPrewarm(null));
+        Assert.assertEquals(2, cache.getPrewarmed());
+
+        // the program in use survives prewarming past the capacity
+        Assert.assertTrue(cache.contains(0));
+        Assert.assertFalse(cache.released.contains(p0));
+        Assert.assertSame(p0, cache.get(null, 0));
+        Assert.assertEquals(1, cache.getMisses());
+    }
+
+    public static void main(String args[]) {
+        org.junit.runner.JUnitCore.main(TestFixedFuncVariants01.class.getName());
+    }
+}
@@ -0,0 +1,133 @@
+/**
+ * Copyright 2010 JogAmp Community. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are
+ * permitted provided that the following conditions are met:
+ * 
+ *    1. Redistributions of source code must retain the above copyright notice, this list of
+ *       conditions and the following disclaimer.
+ * 
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *       of conditions and the following disclaimer in the documentation and/or other materials
+ *       provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY JogAmp Community ``AS IS'' AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL JogAmp Community OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are those of the
+ * authors and should not be interpreted as representing official policies, either expressed
+ * or implied, of JogAmp Community.
+ */
+ 
+package com.jogamp.test.junit.jogl.glsl;
+
+import javax.media.opengl.GL2ES2;
+import javax.media.opengl.GLAutoDrawable;
+import javax.media.opengl.GLCapabilities;
+import javax.media.opengl.GLEventListener;
+import javax.media.opengl.GLProfile;
+
+import com.jogamp.newt.opengl.GLWindow;
+import com.jogamp.opengl.util.glsl.ShaderProgram;
+import com.jogamp.opengl.util.glsl.ShaderUtil;
+import com.jogamp.opengl.util.glsl.fixedfunc.impl.FixedFuncPipeline;
+import com.jogamp.opengl.util.glsl.fixedfunc.impl.FixedFuncVariant;
+import com.jogamp.opengl.util.glsl.fixedfunc.impl.FixedFuncVariantCache;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Compiles and links generated fixed function variants on a GL2ES2 context.
+ */
+public class TestFixedFuncVariantsGL01NEWT {
+    static {
+        GLProfile.initSingleton();
+    }
+
+    static final int[] masks = new int[] {
+        FixedFuncVariant.mask(0, false, false, 0, false, 0),
+        FixedFuncVariant.mask(0, true, true, 0, true, 0),
+        FixedFuncVariant.mask(0x5, false, true, 1, false, 2),
+        FixedFuncVariant.mask((1<<FixedFuncPipeline.MAX_LIGHTS)-1, true, true, 7, true, 3)
+    };
+
+    static class LinkVariants implements GLEventListener {
+        int linked = 0;
+        Throwable error = null;
+        boolean compilerAvailable = true;
+
+        public void init(GLAutoDrawable drawable) {
+            GL2ES2 gl = drawable.getGL().getGL2ES2();
+            if(!ShaderUtil.isShaderCompilerAvailable(gl)) {
+                compilerAvailable = false;
+                return;
+            }
+            FixedFuncVariantCache cache = new FixedFuncVariantCache(2);
+            try {
+                for(int i=0; i<masks.length; i++) {
+                    ShaderProgram prog = cache.get(gl, masks[i]);
+                    if(prog.linked() && ShaderUtil.isProgramValid(gl, prog.program())) {
+                        linked++;
+                    } else {
+                        System.err.println("Not linked: "+FixedFuncVariant.toString(masks[i])+": "+prog);
+                    }
+                }
+            } catch (Throwable t) {
+                error = t;
+            } finally {
+                cache.destroy(gl);
+            }
+        }
+
+        public void reshape(GLAutoDrawable drawable, int x, int y, int width, int height) {
+        }
+
+        public void display(GLAutoDrawable drawable) {
+        }
+
+        public void dispose(GLAutoDrawable drawable) {
+        }
+    }
+
+    @Test
+    public void test01LinkVariants() {
+        if(!GLProfile.isGL2ES2Available()) {
+            System.out.println("GLProfile GL2ES2 n/a");
+            return;
+        }
+        GLCapabilities caps = new GLCapabilities(GLProfile.getGL2ES2());
+        GLWindow glWindow = GLWindow.create(caps, false);
+        Assert.assertNotNull(glWindow);
+        glWindow.setTitle("TestFixedFuncVariantsGL01NEWT");
+
+        LinkVariants linkVariants = new LinkVariants();
+        glWindow.addGLEventListener(linkVariants);
+
+        glWindow.setSize(64, 64);
+        glWindow.setVisible(true);
+        glWindow.display();
+        glWindow.destroy(true);
+
+        if(!linkVariants.compilerAvailable) {
+            System.out.println("GLSL compiler n/a");
+            return;
+        }
+        if(null!=linkVariants.error) {
+            linkVariants.error.printStackTrace();
+        }
+        Assert.assertNull(linkVariants.error);
+        Assert.assertEquals(masks.length, linkVariants.linked);
+    }
+
+    public static void main(String args[]) {
+        org.junit.runner.JUnitCore.main(TestFixedFuncVariantsGL01NEWT.class.getName());
+    }
+}
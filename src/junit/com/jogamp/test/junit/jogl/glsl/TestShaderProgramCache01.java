@@ -0,0 +1,159 @@
+/**
+ * Copyright 2010 JogAmp Community. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are
+ * permitted provided that the following conditions are met:
+ * 
+ *    1. Redistributions of source code must retain the above copyright notice, this list of
+ *       conditions and the following disclaimer.
+ * 
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *       of conditions and the following disclaimer in the documentation and/or other materials
+ *       provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY JogAmp Community ``AS IS'' AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL JogAmp Community OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are those of the
+ * authors and should not be interpreted as representing official policies, either expressed
+ * or implied, of JogAmp Community.
+ */
+ 
+package com.jogamp.test.junit.jogl.glsl;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import javax.media.opengl.GL2ES2;
+
+import com.jogamp.opengl.util.glsl.ShaderCode;
+import com.jogamp.opengl.util.glsl.ShaderProgram;
+import com.jogamp.opengl.util.glsl.ShaderProgramCache;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Checks the keys and the on-disk entries of the program binary cache,
+ * without a GL context.
+ */
+public class TestShaderProgramCache01 {
+    static final String VP = "attribute vec4 mgl_Vertex;\nvoid main(void) { gl_Position = mgl_Vertex; }\n";
+    static final String FP = "void main(void) { gl_FragColor = vec4(1.0); }\n";
+
+    File dir;
+
+    @Before
+    public void setUp() throws IOException {
+        dir = File.createTempFile("jogl-glsl-cache", "");
+        dir.delete();
+    }
+
+    @After
+    public void tearDown() {
+        File[] files = dir.listFiles();
+        for(int i=0; null!=files && i<files.length; i++) {
+            files[i].delete();
+        }
+        dir.delete();
+    }
+
+    static ShaderProgram program(String vp, String fp, boolean fragmentFirst) {
+        ShaderCode v = new ShaderCode(GL2ES2.GL_VERTEX_SHADER, 1, new String[][] { { vp } });
+        ShaderCode f = new ShaderCode(GL2ES2.GL_FRAGMENT_SHADER, 1, new String[][] { { fp } });
+        ShaderProgram prog = new ShaderProgram();
+        prog.add(fragmentFirst ? f : v);
+        prog.add(fragmentFirst ? v : f);
+        return prog;
+    }
+
+    static ByteBuffer binary(int size, int seed) {
+        ByteBuffer buf = ByteBuffer.allocateDirect(size);
+        for(int i=0; i<size; i++) {
+            buf.put((byte)(seed+i));
+        }
+        buf.rewind();
+        return buf;
+    }
+
+    @Test
+    public void testKey() {
+        String k = ShaderProgramCache.key("vendor\nrenderer\n4.1\n", program(VP, FP, false));
+        Assert.assertEquals(40, k.length());
+        Assert.assertEquals(k, ShaderProgramCache.key("vendor\nrenderer\n4.1\n", program(VP, FP, true)));
+        Assert.assertFalse(k.equals(ShaderProgramCache.key("vendor\nrenderer\n4.2\n", program(VP, FP, false))));
+        Assert.assertFalse(k.equals(ShaderProgramCache.key("vendor\nrenderer\n4.1\n", program(VP, FP+" ", false))));
+        // swapping the sources between stages changes the key
+        Assert.assertFalse(k.equals(ShaderProgramCache.key("vendor\nrenderer\n4.1\n", program(FP, VP, false))));
+
+        ShaderProgram noSource = new ShaderProgram();
+        noSource.add(new ShaderCode(GL2ES2.GL_VERTEX_SHADER, 1, 0, binary(4, 0)));
+        Assert.assertNull(ShaderProgramCache.key("vendor", noSource));
+    }
+
+    @Test
+    public void testReadWrite() {
+        ShaderProgramCache cache = new ShaderProgramCache(dir, 1024*1024);
+        int[] format = new int[1];
+        Assert.assertNull(cache.read("abc", format));
+
+        Assert.assertTrue(cache.write("abc", 0x1234, binary(100, 7)));
+        Assert.assertTrue(cache.contains("abc"));
+        ByteBuffer res = cache.read("abc", format);
+        Assert.assertNotNull(res);
+        Assert.assertEquals(0x1234, format[0]);
+        Assert.assertEquals(binary(100, 7), res);
+
+        cache.remove("abc");
+        Assert.assertFalse(cache.contains("abc"));
+    }
+
+    @Test
+    public void testCorruptEntryDropped() throws IOException {
+        ShaderProgramCache cache = new ShaderProgramCache(dir, 1024*1024);
+        cache.write("abc", 1, binary(100, 0));
+        FileOutputStream out = new FileOutputStream(new File(dir, "abc"+ShaderProgramCache.SUFFIX));
+        out.write(new byte[] { 1, 2, 3 });
+        out.close();
+        Assert.assertNull(cache.read("abc", new int[1]));
+        Assert.assertFalse(cache.contains("abc"));
+    }
+
+    @Test
+    public void testLRUEviction() {
+        // room for two entries
+        ShaderProgramCache cache = new ShaderProgramCache(dir, 2*(1000+16));
+        cache.write("a", 1, binary(1000, 1));
+        cache.write("b", 1, binary(1000, 2));
+        // a becomes the most recently used
+        Assert.assertNotNull(cache.read("a", new int[1]));
+        cache.write("c", 1, binary(1000, 3));
+
+        Assert.assertTrue(cache.contains("a"));
+        Assert.assertFalse(cache.contains("b"));
+        Assert.assertTrue(cache.contains("c"));
+        Assert.assertTrue(cache.size() <= cache.getMaxSize());
+
+        // larger than the whole cache
+        Assert.assertFalse(cache.write("d", 1, binary(4000, 4)));
+        Assert.assertFalse(cache.contains("d"));
+
+        cache.clear();
+        Assert.assertEquals(0, cache.size());
+    }
+
+    public static void main(String args[]) {
+        org.junit.runner.JUnitCore.main(TestShaderProgramCache01.class.getName());
+    }
+}
@@ -0,0 +1,207 @@
+/**
+ * Copyright 2010 JogAmp Community. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are
+ * permitted provided that the following conditions are met:
+ * 
+ *    1. Redistributions of source code must retain the above copyright notice, this list of
+ *       conditions and the following disclaimer.
+ * 
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *       of conditions and the following disclaimer in the documentation and/or other materials
+ *       provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY JogAmp Community ``AS IS'' AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL JogAmp Community OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are those of the
+ * authors and should not be interpreted as representing official policies, either expressed
+ * or implied, of JogAmp Community.
+ */
+ 
+package com.jogamp.test.junit.jogl.glsl;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.jogamp.opengl.util.glsl.ShaderSourceCache;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Checks include expansion, memoization and invalidation
+ * of the shader source cache on files.
+ */
+public class TestShaderSourceCache01 {
+    File dir;
+    File main, other, common;
+    ShaderSourceCache cache;
+    long time = System.currentTimeMillis() - 100000;
+
+    @Before
+    public void setUp() throws IOException {
+        dir = File.createTempFile("jogl-glsl-src", "");
+        dir.delete();
+        new File(dir, "inc").mkdirs();
+        common = write("inc/common.glsl", "uniform mat4 mgl_PMVMatrix[3];\n");
+        main   = write("main.vp", "#version 100\n#include inc/common.glsl\nvoid main() {}\n");
+        other  = write("other.vp", "#include inc/common.glsl\nvoid other() {}\n");
+        cache  = new ShaderSourceCache();
+    }
+
+    @After
+    public void tearDown() {
+        new File(dir, "alt/inc/common.glsl").delete();
+        new File(dir, "alt/inc").delete();
+        new File(dir, "alt").delete();
+        new File(dir, "inc/common.glsl").delete();
+        new File(dir, "inc/loop.glsl").delete();
+        new File(dir, "inc").delete();
+        main.delete();
+        other.delete();
+        dir.delete();
+    }
+
+    File write(String name, String content) throws IOException {
+        File f = new File(dir, name);
+        FileWriter w = new FileWriter(f);
+        w.write(content);
+        w.close();
+        // distinct modification times regardless of the file system resolution
+        time += 10000;
+        f.setLastModified(time);
+        return f;
+    }
+
+    String get(File f) throws IOException {
+        return cache.get(null, f.getPath(), f.toURI().toURL());
+    }
+
+    @Test
+    public void testExpandAndMemoize() throws IOException {
+        Assert.assertEquals("#version 100\nuniform mat4 mgl_PMVMatrix[3];\nvoid main() {}\n", get(main));
+        Assert.assertEquals("uniform mat4 mgl_PMVMatrix[3];\nvoid other() {}\n", get(other));
+        // the shared include is read once
+        Assert.assertEquals(3, cache.getReads());
+        Assert.assertEquals(3, cache.size());
+
+        get(main);
+        get(other);
+        Assert.assertEquals(3, cache.getReads());
+    }
+
+    @Test
+    public void testIncludeChangeInvalidatesDependents() throws IOException {
+        get(main);
+        get(other);
+        write("inc/common.glsl", "uniform mat4 mgl_PMVMatrix[2];\n");
+
+        List changed = cache.checkModified();
+        Assert.assertEquals(3, changed.size());
+        Assert.assertFalse(cache.isCached(main.toURI().toURL()));
+
+        Assert.assertEquals("uniform mat4 mgl_PMVMatrix[2];\nvoid other() {}\n", get(other));
+        // only the include has been read again
+        Assert.assertEquals(4, cache.getReads());
+        get(main);
+        Assert.assertEquals(4, cache.getReads());
+    }
+
+    @Test
+    public void testChangeDetectedOnGet() throws IOException {
+        get(main);
+        get(other);
+        write("main.vp", "#include inc/common.glsl\nvoid main2() {}\n");
+
+        Assert.assertEquals("uniform mat4 mgl_PMVMatrix[3];\nvoid main2() {}\n", get(main));
+        Assert.assertEquals(4, cache.getReads());
+        Assert.assertTrue(cache.isCached(other.toURI().toURL()));
+    }
+
+    @Test
+    public void testPollNotifiesListeners() throws IOException {
+        final List notified = new ArrayList();
+        cache.addListener(new ShaderSourceCache.Listener() {
+            public void sourceChanged(URL url) {
+                notified.add(url);
+            }
+        });
+        get(main);
+        cache.poll();
+        Assert.assertEquals(0, notified.size());
+
+        write("main.vp", "void main() {}\n");
+        cache.poll();
+        Assert.assertEquals(1, notified.size());
+        Assert.assertEquals(main.toURI().toURL().toExternalForm(), ((URL) notified.get(0)).toExternalForm());
+    }
+
+    @Test
+    public void testRecursiveInclude() throws IOException {
+        write("inc/loop.glsl", "#include loop.glsl\n");
+        try {
+            get(new File(dir, "inc/loop.glsl"));
+            Assert.fail("recursive include not detected");
+        } catch (IOException ioe) {
+        }
+    }
+
+    @Test
+    public void testIncludesResolvedPerClassLoader() throws IOException {
+        new File(dir, "alt/inc").mkdirs();
+        write("alt/inc/common.glsl", "uniform mat4 mgl_PMVMatrix[1];\n");
+        URL mainURL = main.toURI().toURL();
+        ClassLoader cl1 = new URLClassLoader(new URL[] { dir.toURI().toURL() }, null);
+        ClassLoader cl2 = new URLClassLoader(new URL[] { new File(dir, "alt").toURI().toURL() }, null);
+
+        Assert.assertEquals("#version 100\nuniform mat4 mgl_PMVMatrix[3];\nvoid main() {}\n",
+                            cache.get(cl1, "main.vp", mainURL));
+        // same URL, the include is resolved by the other ClassLoader
+        Assert.assertEquals("#version 100\nuniform mat4 mgl_PMVMatrix[1];\nvoid main() {}\n",
+                            cache.get(cl2, "main.vp", mainURL));
+        Assert.assertEquals(4, cache.size());
+    }
+
+    @Test
+    public void testSizeBound() throws IOException {
+        cache = new ShaderSourceCache(2);
+        Assert.assertEquals("#version 100\nuniform mat4 mgl_PMVMatrix[3];\nvoid main() {}\n", get(main));
+        Assert.assertEquals(2, cache.size());
+
+        // main is least recently used, common is still in use by other
+        Assert.assertEquals("uniform mat4 mgl_PMVMatrix[3];\nvoid other() {}\n", get(other));
+        Assert.assertEquals(2, cache.size());
+        Assert.assertFalse(cache.isCached(main.toURI().toURL()));
+        Assert.assertEquals(3, cache.getReads());
+
+        // main and its include are resolved again
+        Assert.assertEquals("#version 100\nuniform mat4 mgl_PMVMatrix[3];\nvoid main() {}\n", get(main));
+        Assert.assertTrue(cache.size() <= 2);
+    }
+
+    @Test
+    public void testMemoizationOptIn() {
+        Assert.assertEquals(null!=System.getProperty("jogl.glsl.sourcecache") ||
+                            null!=System.getProperty("jogl.glsl.hotreload"),
+                            ShaderSourceCache.ENABLED);
+    }
+
+    public static void main(String args[]) {
+        org.junit.runner.JUnitCore.main(TestShaderSourceCache01.class.getName());
+    }
+}
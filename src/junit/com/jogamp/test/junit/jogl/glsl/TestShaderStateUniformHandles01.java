@@ -0,0 +1,297 @@
+/**
+ * Copyright 2010 JogAmp Community. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are
+ * permitted provided that the following conditions are met:
+ * 
+ *    1. Redistributions of source code must retain the above copyright notice, this list of
+ *       conditions and the following disclaimer.
+ * 
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *       of conditions and the following disclaimer in the documentation and/or other materials
+ *       provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY JogAmp Community ``AS IS'' AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL JogAmp Community OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are those of the
+ * authors and should not be interpreted as representing official policies, either expressed
+ * or implied, of JogAmp Community.
+ */
+ 
+package com.jogamp.test.junit.jogl.glsl;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.nio.FloatBuffer;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.media.opengl.GL2ES2;
+import javax.media.opengl.GLArrayData;
+import javax.media.opengl.GLUniformData;
+
+import com.jogamp.common.nio.Buffers;
+import com.jogamp.opengl.util.glsl.ShaderProgram;
+import com.jogamp.opengl.util.glsl.ShaderState;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Drives ShaderState with a GL2ES2 mock counting the GL calls it receives,
+ * checking that unchanged uniforms are not passed again and that locations
+ * are resolved once per linked program.
+ */
+public class TestShaderStateUniformHandles01 {
+
+    /** Counts calls by method name and hands out stable locations per program. */
+    static class CountingGL implements InvocationHandler {
+        final Map<String, Integer> calls = new HashMap<String, Integer>();
+        final Map<String, Integer> locations = new HashMap<String, Integer>();
+
+        public Object invoke(Object proxy, Method method, Object[] args) {
+            String name = method.getName();
+            Integer n = calls.get(name);
+            calls.put(name, Integer.valueOf(null == n ? 1 : n.intValue() + 1));
+            if (name.equals("glGetUniformLocation") || name.equals("glGetAttribLocation")) {
+                String key = args[0] + ":" + args[1];
+                if (((String) args[1]).startsWith("absent")) {
+                    return Integer.valueOf(-1);
+                }
+                Integer loc = locations.get(key);
+                if (null == loc) {
+                    loc = Integer.valueOf(locations.size());
+                    locations.put(key, loc);
+                }
+                return loc;
+            }
+            Class<?> type = method.getReturnType();
+            if (type == int.class) {
+                return Integer.valueOf(0);
+            } else if (type == boolean.class) {
+                return Boolean.FALSE;
+            }
+            return null;
+        }
+
+        int count(String name) {
+            Integer n = calls.get(name);
+            return null == n ? 0 : n.intValue();
+        }
+    }
+
+    /** A program considered linked without a GL round trip. */
+    static class MockProgram extends ShaderProgram {
+        MockProgram(int program) {
+            shaderProgram = program;
+            programLinked = true;
+            linkCount = 1;
+        }
+
+        void use(GL2ES2 gl) {
+            glUseProgram(gl, true);
+        }
+
+        void relink() {
+            linkCount++;
+        }
+    }
+
+    CountingGL counter;
+    GL2ES2 gl;
+
+    @Before
+    public void setUp() {
+        counter = new CountingGL();
+        gl = (GL2ES2) Proxy.newProxyInstance(GL2ES2.class.getClassLoader(),
+                                             new Class<?>[] { GL2ES2.class }, counter);
+    }
+
+    /** Attribute data only knowing its name and location. */
+    static GLArrayData newArrayData(final String name) {
+        return (GLArrayData) Proxy.newProxyInstance(GLArrayData.class.getClassLoader(),
+                                                    new Class<?>[] { GLArrayData.class },
+                                                    new InvocationHandler() {
+            int location = -1;
+            public Object invoke(Object proxy, Method method, Object[] args) {
+                String m = method.getName();
+                if (m.equals("getName")) {
+                    return name;
+                } else if (m.equals("setLocation")) {
+                    location = ((Integer) args[0]).intValue();
+                } else if (m.equals("getLocation")) {
+                    return Integer.valueOf(location);
+                } else if (method.getReturnType() == boolean.class) {
+                    return Boolean.FALSE;
+                } else if (method.getReturnType() == int.class) {
+                    return Integer.valueOf(0);
+                }
+                return null;
+            }
+        });
+    }
+
+    ShaderState newState(MockProgram prog) {
+        ShaderState st = new ShaderState();
+        st.attachShaderProgram(gl, prog);
+        prog.use(gl);
+        return st;
+    }
+
+    @Test
+    public void testUnchangedUniformsNotPassed() {
+        ShaderState st = newState(new MockProgram(1));
+        FloatBuffer color = Buffers.newDirectFloatBuffer(new float[] { 1, 0, 0, 1 });
+        GLUniformData ucolor = new GLUniformData("color", 4, color);
+        GLUniformData umode = new GLUniformData("mode", 2);
+        GLUniformData uscale = new GLUniformData("scale", 0.5f);
+
+        for (int frame = 0; frame < 10; frame++) {
+            st.glUniform(gl, ucolor);
+            st.glUniform(gl, umode);
+            st.glUniform(gl, uscale);
+        }
+        Assert.assertEquals(3, counter.count("glUniform"));
+        Assert.assertEquals(3, counter.count("glGetUniformLocation"));
+
+        color.put(1, 1f);
+        umode.setData(2);
+        st.glUniform(gl, ucolor);
+        st.glUniform(gl, umode);
+        Assert.assertEquals(4, counter.count("glUniform"));
+        Assert.assertSame(ucolor, st.getUniform("color"));
+        Assert.assertEquals(0, ucolor.getLocation());
+
+        // not part of the program: stored, but never passed on
+        GLUniformData absent = new GLUniformData("absentValue", 1);
+        st.glUniform(gl, absent);
+        st.glUniform(gl, absent);
+        Assert.assertEquals(4, counter.count("glUniform"));
+        Assert.assertEquals(4, counter.count("glGetUniformLocation"));
+        Assert.assertEquals(-1, absent.getLocation());
+        Assert.assertSame(absent, st.getUniform("absentValue"));
+    }
+
+    @Test
+    public void testDeferredFlush() {
+        ShaderState st = newState(new MockProgram(1));
+        int[] handles = new int[8];
+        FloatBuffer[] values = new FloatBuffer[handles.length];
+        for (int i = 0; i < handles.length; i++) {
+            handles[i] = st.getUniformHandle("u" + i);
+            values[i] = Buffers.newDirectFloatBuffer(new float[] { i, i, i });
+            st.setUniform(handles[i], new GLUniformData("u" + i, 3, values[i]));
+        }
+        Assert.assertEquals(handles[3], st.getUniformHandle("u3"));
+        Assert.assertEquals(0, counter.count("glUniform"));
+
+        st.glFlushUniforms(gl);
+        Assert.assertEquals(handles.length, counter.count("glUniform"));
+
+        // all marked, two modified in place
+        values[2].put(0, 42f);
+        values[5].put(2, -1f);
+        for (int i = 0; i < handles.length; i++) {
+            st.uniformChanged(handles[i]);
+        }
+        st.glFlushUniforms(gl);
+        Assert.assertEquals(handles.length + 2, counter.count("glUniform"));
+
+        st.glFlushUniforms(gl);
+        Assert.assertEquals(handles.length + 2, counter.count("glUniform"));
+        Assert.assertEquals(handles.length, counter.count("glGetUniformLocation"));
+
+        try {
+            st.setUniform(handles[0], new GLUniformData("u1", 1f));
+            Assert.fail("mismatching name accepted");
+        } catch (javax.media.opengl.GLException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testProgramSwitch() {
+        MockProgram a = new MockProgram(1);
+        MockProgram b = new MockProgram(2);
+        ShaderState st = newState(a);
+        FloatBuffer pmv = Buffers.newDirectFloatBuffer(16);
+        GLUniformData upmv = new GLUniformData("pmv", 4, 4, pmv);
+        GLUniformData ucolor = new GLUniformData("color", 1);
+        st.glUniform(gl, upmv);
+        st.glUniform(gl, ucolor);
+        st.glVertexAttribPointer(gl, newArrayData("vertex"));
+        st.glVertexAttribPointer(gl, newArrayData("normal"));
+
+        st.attachShaderProgram(gl, b);
+        int uniformCalls = counter.count("glUniform");
+        int locationCalls = counter.count("glGetUniformLocation") + counter.count("glGetAttribLocation");
+        Assert.assertEquals(4, uniformCalls);
+        Assert.assertEquals(8, locationCalls);
+
+        for (int frame = 0; frame < 20; frame++) {
+            st.attachShaderProgram(gl, 0 == (frame & 1) ? a : b);
+            st.glUniform(gl, upmv);
+            st.glUniform(gl, ucolor);
+        }
+        Assert.assertEquals(uniformCalls, counter.count("glUniform"));
+        Assert.assertEquals(locationCalls,
+                            counter.count("glGetUniformLocation") + counter.count("glGetAttribLocation"));
+
+        // a change reaches each program once
+        pmv.put(0, 1f);
+        st.glUniform(gl, upmv);
+        st.attachShaderProgram(gl, a);
+        st.attachShaderProgram(gl, b);
+        st.attachShaderProgram(gl, a);
+        Assert.assertEquals(uniformCalls + 2, counter.count("glUniform"));
+    }
+
+    @Test
+    public void testRelinkResolvesAgain() {
+        MockProgram a = new MockProgram(1);
+        ShaderState st = newState(a);
+        GLUniformData ucolor = new GLUniformData("color", 3);
+        st.glUniform(gl, ucolor);
+        st.glUniform(gl, ucolor);
+        Assert.assertEquals(1, counter.count("glUniform"));
+
+        a.relink();
+        st.glUniform(gl, ucolor);
+        Assert.assertEquals(2, counter.count("glUniform"));
+        Assert.assertEquals(2, counter.count("glGetUniformLocation"));
+    }
+
+    @Test
+    public void testBufferPositionRespected() {
+        ShaderState st = newState(new MockProgram(1));
+        FloatBuffer values = Buffers.newDirectFloatBuffer(new float[] { 0, 1, 2, 3, 4, 5, 6, 7 });
+        GLUniformData uvalue = new GLUniformData("value", 4, values);
+        values.position(4);
+        st.glUniform(gl, uvalue);
+        st.glUniform(gl, uvalue);
+        Assert.assertEquals(1, counter.count("glUniform"));
+
+        // before the position, not passed to GL
+        values.put(0, 42f);
+        st.glUniform(gl, uvalue);
+        Assert.assertEquals(1, counter.count("glUniform"));
+
+        values.put(7, 42f);
+        st.glUniform(gl, uvalue);
+        Assert.assertEquals(2, counter.count("glUniform"));
+    }
+
+    public static void main(String args[]) {
+        org.junit.runner.JUnitCore.main(TestShaderStateUniformHandles01.class.getName());
+    }
+}
@@ -0,0 +1,213 @@
+/**
+ * Copyright 2010 JogAmp Community. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are
+ * permitted provided that the following conditions are met:
+ * 
+ *    1. Redistributions of source code must retain the above copyright notice, this list of
+ *       conditions and the following disclaimer.
+ * 
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *       of conditions and the following disclaimer in the documentation and/or other materials
+ *       provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY JogAmp Community ``AS IS'' AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL JogAmp Community OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are those of the
+ * authors and should not be interpreted as representing official policies, either expressed
+ * or implied, of JogAmp Community.
+ */
+ 
+package com.jogamp.test.junit.jogl.glu;
+
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.util.Random;
+
+import javax.media.opengl.glu.GLU;
+
+import com.jogamp.opengl.util.BatchTessellator;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Checks the packed output of BatchTessellator: triangle areas, per polygon
+ * error reporting and independence of the thread count.
+ */
+public class TestBatchTessellator01 {
+
+    /** Random corpus in the BatchTessellator input layout */
+    static class Corpus {
+        double[] coords;
+        int[] contourStarts;
+        int[] polygonStarts;
+
+        Corpus(long seed, int polygons) {
+            Random rnd = new Random(seed);
+            int[] contours = new int[polygons];
+            int contourCount = 0;
+            for(int p=0; p<polygons; p++) {
+                contours[p] = 1 + (rnd.nextInt(4) == 0 ? rnd.nextInt(3) : 0);
+                contourCount += contours[p];
+            }
+            int[] sizes = new int[contourCount];
+            int vertexCount = 0;
+            for(int c=0; c<contourCount; c++) {
+                sizes[c] = 3 + rnd.nextInt(rnd.nextInt(8) == 0 ? 60 : 12);
+                vertexCount += sizes[c];
+            }
+            coords = new double[2 * vertexCount];
+            contourStarts = new int[contourCount + 1];
+            polygonStarts = new int[polygons + 1];
+            int c = 0, v = 0;
+            for(int p=0; p<polygons; p++) {
+                polygonStarts[p] = c;
+                double cx = rnd.nextDouble() * 1000, cy = rnd.nextDouble() * 1000;
+                for(int k=0; k<contours[p]; k++, c++) {
+                    contourStarts[c] = v;
+                    boolean star = rnd.nextBoolean();
+                    for(int i=0; i<sizes[c]; i++, v++) {
+                        if(star) {
+                            double a = 2 * Math.PI * i / sizes[c];
+                            double r = 5 + rnd.nextDouble() * 20;
+                            coords[2*v] = cx + r * Math.cos(a);
+                            coords[2*v+1] = cy + r * Math.sin(a);
+                        } else {
+                            // self intersecting
+                            coords[2*v] = cx + rnd.nextInt(20);
+                            coords[2*v+1] = cy + rnd.nextInt(20);
+                        }
+                    }
+                }
+            }
+            polygonStarts[polygons] = c;
+            contourStarts[contourCount] = v;
+        }
+    }
+
+    static double triangleArea(FloatBuffer v, IntBuffer idx, int first, int count) {
+        double area = 0;
+        for(int i=first; i<first+count; i+=3) {
+            int a = idx.get(i), b = idx.get(i+1), c = idx.get(i+2);
+            double ax = v.get(3*a), ay = v.get(3*a+1);
+            double bx = v.get(3*b), by = v.get(3*b+1);
+            double cx = v.get(3*c), cy = v.get(3*c+1);
+            area += 0.5 * ((bx-ax)*(cy-ay) - (cx-ax)*(by-ay));
+        }
+        return area;
+    }
+
+    @Test
+    public void testSquareWithHole() {
+        double[] coords = {
+            0,0, 4,0, 4,4, 0,4,          // outer, ccw
+            1,1, 1,3, 3,3, 3,1,          // hole, cw
+            10,10, 12,10, 12,12, 10,12 };// second polygon
+        int[] contourStarts = { 0, 4, 8, 12 };
+        int[] polygonStarts = { 0, 2, 3 };
+        BatchTessellator bt = new BatchTessellator();
+        bt.setNormal(0, 0, 1);
+        BatchTessellator.Result r = bt.tessellate(coords, 2, contourStarts, polygonStarts);
+        Assert.assertEquals(2, r.getPolygonCount());
+        Assert.assertEquals(0, r.getErrorCount());
+        Assert.assertEquals(12, r.getVertexCount());
+        Assert.assertEquals(8, r.getVertexStart(1));
+        Assert.assertEquals(8 * 3, r.getIndexCount(0));
+        Assert.assertEquals(2 * 3, r.getIndexCount(1));
+        Assert.assertEquals(10, r.getTriangleCount());
+        Assert.assertEquals(12.0, triangleArea(r.getVertices(), r.getIndices(), r.getIndexStart(0), r.getIndexCount(0)), 1e-9);
+        Assert.assertEquals(4.0, triangleArea(r.getVertices(), r.getIndices(), r.getIndexStart(1), r.getIndexCount(1)), 1e-9);
+        for(int i=r.getIndexStart(1); i<r.getIndexStart(1)+r.getIndexCount(1); i++) {
+            int index = r.getIndices().get(i);
+            Assert.assertTrue(index >= r.getVertexStart(1) && index < r.getVertexStart(1) + r.getVertexCount(1));
+        }
+    }
+
+    @Test
+    public void testIntersectionVertices() {
+        // bow tie, the crossing at (1,1) becomes a combined vertex
+        double[] coords = { 0,0,0, 2,2,0, 2,0,0, 0,2,0 };
+        BatchTessellator bt = new BatchTessellator();
+        BatchTessellator.Result r = bt.tessellate(coords, 3, new int[] { 0, 4 }, new int[] { 0, 1 });
+        Assert.assertEquals(0, r.getError(0));
+        Assert.assertEquals(5, r.getVertexCount());
+        Assert.assertEquals(1.0f, r.getVertices().get(12), 1e-6f);
+        Assert.assertEquals(1.0f, r.getVertices().get(13), 1e-6f);
+        Assert.assertEquals(2, r.getTriangleCount());
+        Assert.assertEquals(2.0, Math.abs(triangleArea(r.getVertices(), r.getIndices(), 0, 3)) +
+                                 Math.abs(triangleArea(r.getVertices(), r.getIndices(), 3, 3)), 1e-6);
+    }
+
+    @Test
+    public void testPerPolygonError() {
+        double huge = 1e200;
+        double[] coords = { 0,0, 1,0, 1,1,   0,0, huge,0, 0,huge,   5,5, 6,5, 6,6 };
+        BatchTessellator bt = new BatchTessellator();
+        BatchTessellator.Result r = bt.tessellate(coords, 2, new int[] { 0, 3, 6, 9 }, new int[] { 0, 1, 2, 3 });
+        Assert.assertEquals(1, r.getErrorCount());
+        Assert.assertEquals(0, r.getError(0));
+        Assert.assertEquals(GLU.GLU_TESS_COORD_TOO_LARGE, r.getError(1));
+        Assert.assertEquals(0, r.getError(2));
+        Assert.assertEquals(0, r.getVertexCount(1));
+        Assert.assertEquals(0, r.getIndexCount(1));
+        Assert.assertEquals(3, r.getVertexStart(2));
+        Assert.assertEquals(2, r.getTriangleCount());
+        Assert.assertEquals(5f, r.getVertices().get(3 * r.getVertexStart(2)), 0f);
+    }
+
+    @Test(expected=IllegalArgumentException.class)
+    public void testBadOffsets() {
+        new BatchTessellator().tessellate(new double[6], 2, new int[] { 0, 4 }, new int[] { 0, 1 });
+    }
+
+    @Test
+    public void testThreadCountIndependence() {
+        Corpus corpus = new Corpus(4711, 2000);
+        BatchTessellator bt = new BatchTessellator();
+        bt.setWindingRule(GLU.GLU_TESS_WINDING_NONZERO);
+        bt.setMaxThreads(1);
+        BatchTessellator.Result single = bt.tessellate(corpus.coords, 2, corpus.contourStarts, corpus.polygonStarts);
+        bt.setMaxThreads(4);
+        BatchTessellator.Result multi = bt.tessellate(corpus.coords, 2, corpus.contourStarts, corpus.polygonStarts);
+        Assert.assertEquals(single.getErrorCount(), multi.getErrorCount());
+        Assert.assertTrue(single.getTriangleCount() > 2000);
+        Assert.assertEquals(single.getVertices(), multi.getVertices());
+        Assert.assertEquals(single.getIndices(), multi.getIndices());
+        for(int p=0; p<single.getPolygonCount(); p++) {
+            Assert.assertEquals(single.getIndexStart(p), multi.getIndexStart(p));
+            Assert.assertEquals(single.getVertexStart(p), multi.getVertexStart(p));
+        }
+    }
+
+    @Test
+    public void testThroughput() {
+        Corpus corpus = new Corpus(1234, 20000);
+        int threads = Runtime.getRuntime().availableProcessors();
+        BatchTessellator bt = new BatchTessellator();
+        long single = Long.MAX_VALUE, multi = Long.MAX_VALUE;
+        for(int r=0; r<3; r++) {
+            bt.setMaxThreads(1);
+            long t0 = System.nanoTime();
+            bt.tessellate(corpus.coords, 2, corpus.contourStarts, corpus.polygonStarts);
+            single = Math.min(single, System.nanoTime() - t0);
+            bt.setMaxThreads(threads);
+            t0 = System.nanoTime();
+            bt.tessellate(corpus.coords, 2, corpus.contourStarts, corpus.polygonStarts);
+            multi = Math.min(multi, System.nanoTime() - t0);
+        }
+        System.err.println("20000 polygons: 1 thread "+(single/1000000)+" ms, "+threads+" threads "+(multi/1000000)+" ms");
+    }
+
+    public static void main(String args[]) {
+        org.junit.runner.JUnitCore.main(TestBatchTessellator01.class.getName());
+    }
+}
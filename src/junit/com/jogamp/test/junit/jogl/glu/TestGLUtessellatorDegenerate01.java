@@ -0,0 +1,254 @@
+/**
+ * Copyright 2010 JogAmp Community. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are
+ * permitted provided that the following conditions are met:
+ * 
+ *    1. Redistributions of source code must retain the above copyright notice, this list of
+ *       conditions and the following disclaimer.
+ * 
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *       of conditions and the following disclaimer in the documentation and/or other materials
+ *       provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY JogAmp Community ``AS IS'' AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL JogAmp Community OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are those of the
+ * authors and should not be interpreted as representing official policies, either expressed
+ * or implied, of JogAmp Community.
+ */
+ 
+package com.jogamp.test.junit.jogl.glu;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import javax.media.opengl.glu.GLU;
+import javax.media.opengl.glu.GLUtessellator;
+import javax.media.opengl.glu.GLUtessellatorCallbackAdapter;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Feeds the tessellator contours with coincident, repeated and collinear
+ * vertices, which produce many equal keys in the sweep event queue, and
+ * checks that the emitted triangles cover exactly the area of the input.
+ */
+public class TestGLUtessellatorDegenerate01 {
+    static final double EPSILON = 1e-9;
+
+    /** Collects triangles; the edge flag callback forces GL_TRIANGLES. */
+    static class AreaRecorder extends GLUtessellatorCallbackAdapter {
+        double[][] tri = new double[3][];
+        int n;
+        int triangles;
+        double area;
+        int errors;
+
+        public void begin(int type) {
+            Assert.assertEquals(javax.media.opengl.GL.GL_TRIANGLES, type);
+            n = 0;
+        }
+        public void edgeFlag(boolean boundaryEdge) {
+        }
+        public void vertex(Object data) {
+            tri[n++] = (double[]) data;
+            if(n == 3) {
+                area += 0.5 * ((tri[1][0] - tri[0][0]) * (tri[2][1] - tri[0][1]) -
+                               (tri[2][0] - tri[0][0]) * (tri[1][1] - tri[0][1]));
+                triangles++;
+                n = 0;
+            }
+        }
+        public void end() {
+            Assert.assertEquals(0, n);
+        }
+        public void combine(double[] coords, Object[] data, float[] weight, Object[] outData) {
+            outData[0] = new double[] { coords[0], coords[1], coords[2] };
+        }
+        public void error(int errnum) {
+            errors++;
+        }
+    }
+
+    static AreaRecorder tessellate(int windingRule, List<double[][]> contours) {
+        AreaRecorder rec = new AreaRecorder();
+        GLUtessellator tess = GLU.gluNewTess();
+        GLU.gluTessCallback(tess, GLU.GLU_TESS_BEGIN, rec);
+        GLU.gluTessCallback(tess, GLU.GLU_TESS_EDGE_FLAG, rec);
+        GLU.gluTessCallback(tess, GLU.GLU_TESS_VERTEX, rec);
+        GLU.gluTessCallback(tess, GLU.GLU_TESS_END, rec);
+        GLU.gluTessCallback(tess, GLU.GLU_TESS_COMBINE, rec);
+        GLU.gluTessCallback(tess, GLU.GLU_TESS_ERROR, rec);
+        GLU.gluTessProperty(tess, GLU.GLU_TESS_WINDING_RULE, windingRule);
+        GLU.gluTessNormal(tess, 0, 0, 1);
+        GLU.gluTessBeginPolygon(tess, null);
+        for(int c=0; c<contours.size(); c++) {
+            double[][] contour = contours.get(c);
+            GLU.gluTessBeginContour(tess);
+            for(int i=0; i<contour.length; i++) {
+                GLU.gluTessVertex(tess, contour[i], 0, contour[i]);
+            }
+            GLU.gluTessEndContour(tess);
+        }
+        GLU.gluTessEndPolygon(tess);
+        GLU.gluDeleteTess(tess);
+        Assert.assertEquals(0, rec.errors);
+        return rec;
+    }
+
+    static AreaRecorder tessellate(double[][] contour) {
+        List<double[][]> contours = new ArrayList<double[][]>();
+        contours.add(contour);
+        return tessellate(GLU.GLU_TESS_WINDING_NONZERO, contours);
+    }
+
+    static double[][] contour(double[] xy) {
+        double[][] c = new double[xy.length / 2][];
+        for(int i=0; i<c.length; i++) {
+            c[i] = new double[] { xy[2*i], xy[2*i+1], 0 };
+        }
+        return c;
+    }
+
+    static double shoelace(double[][] c) {
+        double a = 0;
+        for(int i=0, j=c.length-1; i<c.length; j=i++) {
+            a += c[j][0] * c[i][1] - c[i][0] * c[j][1];
+        }
+        return 0.5 * a;
+    }
+
+    @Test
+    public void testRepeatedVertices() {
+        double[][] square = contour(new double[] { 0,0, 1,0, 1,1, 0,1 });
+        List<double[]> repeated = new ArrayList<double[]>();
+        for(int i=0; i<square.length; i++) {
+            for(int k=0; k<=i+1; k++) {
+                repeated.add(new double[] { square[i][0], square[i][1], 0 });
+            }
+        }
+        AreaRecorder rec = tessellate(repeated.toArray(new double[0][]));
+        Assert.assertEquals(1.0, rec.area, EPSILON);
+    }
+
+    @Test
+    public void testCollinearVertices() {
+        // 10x1 rectangle with a vertex every 0.5 units along its boundary
+        List<double[]> c = new ArrayList<double[]>();
+        for(int i=0; i<20; i++) c.add(new double[] { i * 0.5, 0, 0 });
+        for(int i=0; i<2; i++)  c.add(new double[] { 10, i * 0.5, 0 });
+        for(int i=20; i>0; i--) c.add(new double[] { i * 0.5, 1, 0 });
+        for(int i=2; i>0; i--)  c.add(new double[] { 0, i * 0.5, 0 });
+        AreaRecorder rec = tessellate(c.toArray(new double[0][]));
+        Assert.assertEquals(10.0, rec.area, EPSILON);
+
+        // vertical runs: many events sharing the same sweep coordinate
+        c.clear();
+        for(int i=0; i<=50; i++) c.add(new double[] { 3, i, 0 });
+        for(int i=50; i>=0; i--) c.add(new double[] { 3 - (i % 2), i, 0 });
+        rec = tessellate(c.toArray(new double[0][]));
+        Assert.assertEquals(shoelace(c.toArray(new double[0][])), rec.area, EPSILON);
+    }
+
+    @Test
+    public void testPinchedContour() {
+        // two unit squares that touch in one corner, traced as one contour
+        AreaRecorder rec = tessellate(contour(new double[] { 0,0, 1,0, 1,1, 2,1, 2,2, 1,2, 1,1, 0,1 }));
+        Assert.assertEquals(2.0, rec.area, EPSILON);
+    }
+
+    @Test
+    public void testCollapsedContours() {
+        AreaRecorder rec = tessellate(contour(new double[] { 5,5, 5,5, 5,5, 5,5 }));
+        Assert.assertEquals(0, rec.triangles);
+        rec = tessellate(contour(new double[] { 0,0, 1,1, 2,2, 3,3, 1,1 }));
+        Assert.assertEquals(0, rec.triangles);
+    }
+
+    @Test
+    public void testCoincidentContours() {
+        // the same square three times: covered once under ODD, NONZERO and ABS_GEQ_TWO
+        List<double[][]> contours = new ArrayList<double[][]>();
+        for(int i=0; i<3; i++) {
+            contours.add(contour(new double[] { 0,0, 4,0, 4,4, 0,4 }));
+        }
+        Assert.assertEquals(16.0, tessellate(GLU.GLU_TESS_WINDING_ODD, contours).area, EPSILON);
+        Assert.assertEquals(16.0, tessellate(GLU.GLU_TESS_WINDING_NONZERO, contours).area, EPSILON);
+        Assert.assertEquals(16.0, tessellate(GLU.GLU_TESS_WINDING_ABS_GEQ_TWO, contours).area, EPSILON);
+        Assert.assertEquals(0.0, tessellate(GLU.GLU_TESS_WINDING_NEGATIVE, contours).area, EPSILON);
+    }
+
+    /**
+     * Convex hulls of random points on a small grid, with collinear hull
+     * points kept and vertices repeated, so that most sweep events tie.
+     */
+    @Test
+    public void testGridSnappedHulls() {
+        Random rnd = new Random(2718);
+        for(int p=0; p<2000; p++) {
+            int grid = 2 + rnd.nextInt(12);
+            int n = 3 + rnd.nextInt(60);
+            double[][] pts = new double[n][];
+            for(int i=0; i<n; i++) {
+                pts[i] = new double[] { rnd.nextInt(grid), rnd.nextInt(grid), 0 };
+            }
+            double[][] hull = hull(pts);
+            if(hull.length < 3) continue;
+            List<double[]> c = new ArrayList<double[]>();
+            for(int i=0; i<hull.length; i++) {
+                int copies = rnd.nextInt(4) == 0 ? 2 + rnd.nextInt(3) : 1;
+                for(int k=0; k<copies; k++) c.add(new double[] { hull[i][0], hull[i][1], 0 });
+            }
+            AreaRecorder rec = tessellate(c.toArray(new double[0][]));
+            Assert.assertEquals("polygon "+p, shoelace(hull), rec.area, EPSILON);
+        }
+    }
+
+    /** Monotone chain convex hull, counter clockwise, keeping collinear points. */
+    static double[][] hull(double[][] pts) {
+        double[][] s = pts.clone();
+        java.util.Arrays.sort(s, new java.util.Comparator<double[]>() {
+            public int compare(double[] a, double[] b) {
+                return a[0] != b[0] ? Double.compare(a[0], b[0]) : Double.compare(a[1], b[1]);
+            }
+        });
+        List<double[]> u = new ArrayList<double[]>();
+        for(int i=0; i<s.length; i++) {
+            if(i > 0 && s[i][0] == s[i-1][0] && s[i][1] == s[i-1][1]) continue;
+            u.add(s[i]);
+        }
+        if(u.size() < 3) return new double[0][];
+        int k = 0;
+        double[][] h = new double[2 * u.size()][];
+        for(int i=0; i<u.size(); i++) {
+            while(k >= 2 && cross(h[k-2], h[k-1], u.get(i)) < 0) k--;
+            h[k++] = u.get(i);
+        }
+        for(int i=u.size()-2, t=k+1; i>=0; i--) {
+            while(k >= t && cross(h[k-2], h[k-1], u.get(i)) < 0) k--;
+            h[k++] = u.get(i);
+        }
+        double[][] r = new double[k-1][];
+        System.arraycopy(h, 0, r, 0, k-1);
+        return r;
+    }
+
+    static double cross(double[] o, double[] a, double[] b) {
+        return (a[0] - o[0]) * (b[1] - o[1]) - (a[1] - o[1]) * (b[0] - o[0]);
+    }
+
+    public static void main(String args[]) {
+        org.junit.runner.JUnitCore.main(TestGLUtessellatorDegenerate01.class.getName());
+    }
+}
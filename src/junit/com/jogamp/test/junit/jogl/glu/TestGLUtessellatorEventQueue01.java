@@ -0,0 +1,184 @@
+/**
+ * Copyright 2010 JogAmp Community. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are
+ * permitted provided that the following conditions are met:
+ * 
+ *    1. Redistributions of source code must retain the above copyright notice, this list of
+ *       conditions and the following disclaimer.
+ * 
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *       of conditions and the following disclaimer in the documentation and/or other materials
+ *       provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY JogAmp Community ``AS IS'' AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL JogAmp Community OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are those of the
+ * authors and should not be interpreted as representing official policies, either expressed
+ * or implied, of JogAmp Community.
+ */
+package com.jogamp.test.junit.jogl.glu;
+
+import java.util.Random;
+
+import javax.media.opengl.glu.GLU;
+import javax.media.opengl.glu.GLUtessellator;
+import javax.media.opengl.glu.GLUtessellatorCallbackAdapter;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Microbenchmark of the sweep event queue: long, jagged bands, whose
+ * vertices all pass through the sorted phase of the queue, and twisted
+ * ribbons, whose intersection vertices are inserted into the heap during
+ * the sweep. Verifies the output and reports the time per input vertex.
+ */
+public class TestGLUtessellatorEventQueue01 {
+    static final int BENCH_ROUNDS = 3;
+    static final int[] SIZES = { 1000, 10000, 50000 };
+    // each intersection also splices the long faces of the ribbon,
+    // which grows faster than the queue operations
+    static final int[] RIBBON_SIZES = { 500, 1000, 2000 };
+
+    static class Recorder extends GLUtessellatorCallbackAdapter {
+        double[][] tri = new double[3][];
+        int n;
+        int triangles;
+        int combines;
+        double area;
+        int errors;
+
+        public void edgeFlag(boolean boundaryEdge) {
+        }
+        public void vertex(Object data) {
+            tri[n++] = (double[]) data;
+            if(n == 3) {
+                area += 0.5 * ((tri[1][0] - tri[0][0]) * (tri[2][1] - tri[0][1]) -
+                               (tri[2][0] - tri[0][0]) * (tri[1][1] - tri[0][1]));
+                triangles++;
+                n = 0;
+            }
+        }
+        public void combine(double[] coords, Object[] data, float[] weight, Object[] outData) {
+            combines++;
+            outData[0] = new double[] { coords[0], coords[1], coords[2] };
+        }
+        public void error(int errnum) {
+            errors++;
+        }
+    }
+
+    static Recorder tessellate(int windingRule, double[][][] contours) {
+        Recorder rec = new Recorder();
+        GLUtessellator tess = GLU.gluNewTess();
+        // the edge flag callback forces GL_TRIANGLES
+        GLU.gluTessCallback(tess, GLU.GLU_TESS_EDGE_FLAG, rec);
+        GLU.gluTessCallback(tess, GLU.GLU_TESS_VERTEX, rec);
+        GLU.gluTessCallback(tess, GLU.GLU_TESS_COMBINE, rec);
+        GLU.gluTessCallback(tess, GLU.GLU_TESS_ERROR, rec);
+        GLU.gluTessProperty(tess, GLU.GLU_TESS_WINDING_RULE, windingRule);
+        GLU.gluTessNormal(tess, 0, 0, 1);
+        GLU.gluTessBeginPolygon(tess, null);
+        for(int c=0; c<contours.length; c++) {
+            double[][] contour = contours[c];
+            GLU.gluTessBeginContour(tess);
+            for(int i=0; i<contour.length; i++) {
+                GLU.gluTessVertex(tess, contour[i], 0, contour[i]);
+            }
+            GLU.gluTessEndContour(tess);
+        }
+        GLU.gluTessEndPolygon(tess);
+        GLU.gluDeleteTess(tess);
+        Assert.assertEquals(0, rec.errors);
+        return rec;
+    }
+
+    /**
+     * Simple, concave band along the x axis with jagged borders. The sweep
+     * line crosses only two edges at a time, so the event queue dominates.
+     */
+    static double[][] band(int n, long seed) {
+        Random rnd = new Random(seed);
+        int half = n / 2;
+        double[][] c = new double[2 * half][];
+        for(int i=0; i<half; i++) {
+            c[i] = new double[] { i, -1 - rnd.nextDouble(), 0 };
+            c[half + i] = new double[] { half - 1 - i, 1 + rnd.nextDouble(), 0 };
+        }
+        return c;
+    }
+
+    /**
+     * Twisted ribbon along the x axis, the way forth and the way back
+     * cross once per unit, each crossing adding an intersection vertex
+     * to the queue during the sweep.
+     */
+    static double[][] ribbon(int n) {
+        int half = n / 2;
+        double[][] c = new double[2 * half][];
+        for(int i=0; i<half; i++) {
+            c[i] = new double[] { i, (i % 2 == 0) ? 1 : -1, 0 };
+            int x = half - 1 - i;
+            c[half + i] = new double[] { x, (x % 2 == 0) ? -1 : 1, 0 };
+        }
+        return c;
+    }
+
+    static double shoelace(double[][] c) {
+        double a = 0;
+        for(int i=0, j=c.length-1; i<c.length; j=i++) {
+            a += c[j][0] * c[i][1] - c[i][0] * c[j][1];
+        }
+        return 0.5 * a;
+    }
+
+    @Test
+    public void testSortedEvents() {
+        for(int s=0; s<SIZES.length; s++) {
+            double[][] c = band(SIZES[s], 4711);
+            long best = Long.MAX_VALUE;
+            for(int r=0; r<BENCH_ROUNDS; r++) {
+                long t0 = System.nanoTime();
+                Recorder rec = tessellate(GLU.GLU_TESS_WINDING_NONZERO, new double[][][] { c });
+                best = Math.min(best, System.nanoTime() - t0);
+                Assert.assertEquals(c.length - 2, rec.triangles);
+                Assert.assertEquals(0, rec.combines);
+                Assert.assertEquals(shoelace(c), rec.area, 1e-6 * Math.abs(shoelace(c)));
+            }
+            System.err.println("band, "+c.length+" vertices, best of "+BENCH_ROUNDS+": "+(best / 1000000)+" ms, "+
+                               (best / c.length)+" ns/vertex");
+        }
+    }
+
+    @Test
+    public void testIntersectionEvents() {
+        for(int s=0; s<RIBBON_SIZES.length; s++) {
+            double[][] c = ribbon(RIBBON_SIZES[s]);
+            long best = Long.MAX_VALUE;
+            for(int r=0; r<BENCH_ROUNDS; r++) {
+                long t0 = System.nanoTime();
+                Recorder rec = tessellate(GLU.GLU_TESS_WINDING_ODD, new double[][][] { c });
+                best = Math.min(best, System.nanoTime() - t0);
+                // one intersection and two triangles per unit
+                Assert.assertEquals(c.length / 2 - 1, rec.combines);
+                Assert.assertEquals(c.length - 2, rec.triangles);
+                Assert.assertEquals(c.length / 2 - 1, Math.abs(rec.area), 1e-6 * c.length);
+            }
+            System.err.println("ribbon, "+c.length+" vertices, best of "+BENCH_ROUNDS+": "+(best / 1000000)+" ms, "+
+                               (best / c.length)+" ns/vertex");
+        }
+    }
+
+    public static void main(String args[]) {
+        org.junit.runner.JUnitCore.main(TestGLUtessellatorEventQueue01.class.getName());
+    }
+}
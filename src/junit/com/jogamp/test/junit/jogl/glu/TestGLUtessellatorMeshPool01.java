@@ -0,0 +1,263 @@
+/**
+ * Copyright 2010 JogAmp Community. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are
+ * permitted provided that the following conditions are met:
+ * 
+ *    1. Redistributions of source code must retain the above copyright notice, this list of
+ *       conditions and the following disclaimer.
+ * 
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *       of conditions and the following disclaimer in the documentation and/or other materials
+ *       provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY JogAmp Community ``AS IS'' AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL JogAmp Community OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are those of the
+ * authors and should not be interpreted as representing official policies, either expressed
+ * or implied, of JogAmp Community.
+ */
+ 
+package com.jogamp.test.junit.jogl.glu;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import javax.media.opengl.glu.GLU;
+import javax.media.opengl.glu.GLUtessellator;
+import javax.media.opengl.glu.GLUtessellatorCallbackAdapter;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Runs a corpus of random polygons through a tessellator with and without
+ * GLU_TESS_REUSE_MESH_STORAGE, which must produce identical callback streams,
+ * and reports the throughput of both modes.
+ */
+public class TestGLUtessellatorMeshPool01 {
+    static final int CORPUS_SIZE = 1500;
+    static final int BENCH_ROUNDS = 3;
+
+    static final int[] WINDING_RULES = {
+        GLU.GLU_TESS_WINDING_ODD, GLU.GLU_TESS_WINDING_NONZERO, GLU.GLU_TESS_WINDING_POSITIVE,
+        GLU.GLU_TESS_WINDING_NEGATIVE, GLU.GLU_TESS_WINDING_ABS_GEQ_TWO };
+
+    static class Vertex {
+        final int id;
+        final double[] coords;
+
+        Vertex(int id, double x, double y, double z) {
+            this.id = id;
+            this.coords = new double[] { x, y, z };
+        }
+    }
+
+    static class Polygon {
+        int windingRule;
+        boolean boundaryOnly;
+        boolean edgeFlags;
+        List<Vertex[]> contours = new ArrayList<Vertex[]>();
+    }
+
+    /** Records every callback as text; null log only counts vertices (benchmark). */
+    static class Recorder extends GLUtessellatorCallbackAdapter {
+        StringBuilder log;
+        int nextId;
+        int vertices;
+
+        public void begin(int type) {
+            if(log != null) log.append("B").append(type).append(' ');
+        }
+        public void edgeFlag(boolean boundaryEdge) {
+            if(log != null) log.append(boundaryEdge ? "F1 " : "F0 ");
+        }
+        public void vertex(Object data) {
+            vertices++;
+            if(log != null) log.append(((Vertex) data).id).append(' ');
+        }
+        public void end() {
+            if(log != null) log.append("E\n");
+        }
+        public void combine(double[] coords, Object[] data, float[] weight, Object[] outData) {
+            Vertex v = new Vertex(nextId++, coords[0], coords[1], coords[2]);
+            if(log != null) {
+                log.append("C").append(v.id).append('(').append(coords[0]).append(',').append(coords[1]).append(')');
+                for(int i=0; i<data.length; i++) {
+                    if(data[i] != null) log.append(' ').append(((Vertex) data[i]).id).append(':').append(weight[i]);
+                }
+                log.append(' ');
+            }
+            outData[0] = v;
+        }
+        public void error(int errnum) {
+            if(log != null) log.append("X").append(errnum).append(' ');
+        }
+    }
+
+    static List<Polygon> corpus(long seed, int count) {
+        Random rnd = new Random(seed);
+        List<Polygon> polys = new ArrayList<Polygon>(count);
+        for(int p=0; p<count; p++) {
+            Polygon poly = new Polygon();
+            poly.windingRule = WINDING_RULES[rnd.nextInt(WINDING_RULES.length)];
+            poly.boundaryOnly = rnd.nextInt(8) == 0;
+            poly.edgeFlags = rnd.nextInt(4) == 0;
+            int id = 0;
+            int contours = 1 + (rnd.nextInt(3) == 0 ? rnd.nextInt(4) : 0);
+            for(int c=0; c<contours; c++) {
+                int n = 3 + rnd.nextInt(rnd.nextInt(4) == 0 ? 100 : 24);
+                Vertex[] contour = new Vertex[n];
+                double cx = rnd.nextDouble() * 100, cy = rnd.nextDouble() * 100;
+                int shape = rnd.nextInt(3);
+                for(int i=0; i<n; i++) {
+                    double x, y;
+                    if(shape == 0) {
+                        // convex, exercises the single contour cache path
+                        double a = 2 * Math.PI * i / n;
+                        x = cx + 20 * Math.cos(a);
+                        y = cy + 20 * Math.sin(a);
+                    } else if(shape == 1) {
+                        // star shaped, concave
+                        double a = 2 * Math.PI * i / n;
+                        double r = 5 + rnd.nextDouble() * 30;
+                        x = cx + r * Math.cos(a);
+                        y = cy + r * Math.sin(a);
+                    } else {
+                        // random walk on a grid, self intersecting with coincident vertices
+                        x = rnd.nextInt(16) * 4;
+                        y = rnd.nextInt(16) * 4;
+                    }
+                    contour[i] = new Vertex(id++, x, y, 0);
+                }
+                poly.contours.add(contour);
+            }
+            polys.add(poly);
+        }
+        return polys;
+    }
+
+    static GLUtessellator newTess(Recorder rec, boolean reuse) {
+        GLUtessellator tess = GLU.gluNewTess();
+        GLU.gluTessCallback(tess, GLU.GLU_TESS_BEGIN, rec);
+        GLU.gluTessCallback(tess, GLU.GLU_TESS_VERTEX, rec);
+        GLU.gluTessCallback(tess, GLU.GLU_TESS_END, rec);
+        GLU.gluTessCallback(tess, GLU.GLU_TESS_COMBINE, rec);
+        GLU.gluTessCallback(tess, GLU.GLU_TESS_ERROR, rec);
+        GLU.gluTessProperty(tess, GLU.GLU_TESS_REUSE_MESH_STORAGE, reuse ? 1 : 0);
+        return tess;
+    }
+
+    static void tessellate(GLUtessellator tess, Recorder rec, Polygon poly) {
+        rec.nextId = 100000;
+        GLU.gluTessProperty(tess, GLU.GLU_TESS_WINDING_RULE, poly.windingRule);
+        GLU.gluTessProperty(tess, GLU.GLU_TESS_BOUNDARY_ONLY, poly.boundaryOnly ? 1 : 0);
+        GLU.gluTessCallback(tess, GLU.GLU_TESS_EDGE_FLAG, poly.edgeFlags ? rec : null);
+        GLU.gluTessBeginPolygon(tess, null);
+        for(int c=0; c<poly.contours.size(); c++) {
+            Vertex[] contour = poly.contours.get(c);
+            GLU.gluTessBeginContour(tess);
+            for(int i=0; i<contour.length; i++) {
+                GLU.gluTessVertex(tess, contour[i].coords, 0, contour[i]);
+            }
+            GLU.gluTessEndContour(tess);
+        }
+        GLU.gluTessEndPolygon(tess);
+    }
+
+    @Test
+    public void testProperty() {
+        Recorder rec = new Recorder();
+        GLUtessellator tess = newTess(rec, false);
+        double[] value = new double[1];
+        GLU.gluGetTessProperty(tess, GLU.GLU_TESS_REUSE_MESH_STORAGE, value, 0);
+        Assert.assertEquals(0.0, value[0], 0.0);
+        GLU.gluTessProperty(tess, GLU.GLU_TESS_REUSE_MESH_STORAGE, 1);
+        GLU.gluGetTessProperty(tess, GLU.GLU_TESS_REUSE_MESH_STORAGE, value, 0);
+        Assert.assertEquals(1.0, value[0], 0.0);
+        GLU.gluDeleteTess(tess);
+    }
+
+    @Test
+    public void testIdenticalOutput() {
+        List<Polygon> polys = corpus(4711, CORPUS_SIZE);
+        Recorder plainRec = new Recorder();
+        Recorder pooledRec = new Recorder();
+        GLUtessellator plain = newTess(plainRec, false);
+        GLUtessellator pooled = newTess(pooledRec, true);
+        int output = 0;
+        for(int p=0; p<polys.size(); p++) {
+            Polygon poly = polys.get(p);
+            plainRec.log = new StringBuilder();
+            pooledRec.log = new StringBuilder();
+            tessellate(plain, plainRec, poly);
+            tessellate(pooled, pooledRec, poly);
+            Assert.assertEquals("polygon "+p, plainRec.log.toString(), pooledRec.log.toString());
+            output += plainRec.vertices;
+        }
+        Assert.assertTrue(output > 0);
+        GLU.gluDeleteTess(plain);
+        GLU.gluDeleteTess(pooled);
+    }
+
+    @Test
+    public void testToggleBetweenPolygons() {
+        List<Polygon> polys = corpus(815, 200);
+        Recorder plainRec = new Recorder();
+        Recorder toggledRec = new Recorder();
+        GLUtessellator plain = newTess(plainRec, false);
+        GLUtessellator toggled = newTess(toggledRec, true);
+        for(int p=0; p<polys.size(); p++) {
+            Polygon poly = polys.get(p);
+            GLU.gluTessProperty(toggled, GLU.GLU_TESS_REUSE_MESH_STORAGE, (p / 7) % 2 == 0 ? 1 : 0);
+            plainRec.log = new StringBuilder();
+            toggledRec.log = new StringBuilder();
+            tessellate(plain, plainRec, poly);
+            tessellate(toggled, toggledRec, poly);
+            Assert.assertEquals("polygon "+p, plainRec.log.toString(), toggledRec.log.toString());
+        }
+    }
+
+    @Test
+    public void testThroughput() {
+        List<Polygon> polys = corpus(1234, CORPUS_SIZE);
+        long plainTime = Long.MAX_VALUE, pooledTime = Long.MAX_VALUE;
+        int plainVertices = 0, pooledVertices = 0;
+        for(int r=0; r<BENCH_ROUNDS; r++) {
+            Recorder rec = new Recorder();
+            GLUtessellator tess = newTess(rec, false);
+            long t0 = System.nanoTime();
+            for(int p=0; p<polys.size(); p++) {
+                tessellate(tess, rec, polys.get(p));
+            }
+            plainTime = Math.min(plainTime, System.nanoTime() - t0);
+            plainVertices = rec.vertices;
+
+            rec = new Recorder();
+            tess = newTess(rec, true);
+            t0 = System.nanoTime();
+            for(int p=0; p<polys.size(); p++) {
+                tessellate(tess, rec, polys.get(p));
+            }
+            pooledTime = Math.min(pooledTime, System.nanoTime() - t0);
+            pooledVertices = rec.vertices;
+        }
+        Assert.assertEquals(plainVertices, pooledVertices);
+        System.err.println("tessellated "+polys.size()+" polygons, best of "+BENCH_ROUNDS+": plain "+
+                           (plainTime / 1000000)+" ms ("+(long) (polys.size() * 1e9 / plainTime)+" polys/s), reused storage "+
+                           (pooledTime / 1000000)+" ms ("+(long) (polys.size() * 1e9 / pooledTime)+" polys/s)");
+    }
+
+    public static void main(String args[]) {
+        org.junit.runner.JUnitCore.main(TestGLUtessellatorMeshPool01.class.getName());
+    }
+}
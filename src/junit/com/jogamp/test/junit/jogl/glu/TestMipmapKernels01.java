@@ -0,0 +1,305 @@
+/**
+ * Copyright 2010 JogAmp Community. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are
+ * permitted provided that the following conditions are met:
+ * 
+ *    1. Redistributions of source code must retain the above copyright notice, this list of
+ *       conditions and the following disclaimer.
+ * 
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *       of conditions and the following disclaimer in the documentation and/or other materials
+ *       provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY JogAmp Community ``AS IS'' AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL JogAmp Community OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are those of the
+ * authors and should not be interpreted as representing official policies, either expressed
+ * or implied, of JogAmp Community.
+ */
+ 
+package com.jogamp.test.junit.jogl.glu;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.ShortBuffer;
+import java.util.Random;
+
+import com.jogamp.opengl.impl.glu.mipmap.Extract;
+import com.jogamp.opengl.impl.glu.mipmap.Extract1010102;
+import com.jogamp.opengl.impl.glu.mipmap.Extract1555rev;
+import com.jogamp.opengl.impl.glu.mipmap.Extract2101010rev;
+import com.jogamp.opengl.impl.glu.mipmap.Extract233rev;
+import com.jogamp.opengl.impl.glu.mipmap.Extract332;
+import com.jogamp.opengl.impl.glu.mipmap.Extract4444;
+import com.jogamp.opengl.impl.glu.mipmap.Extract4444rev;
+import com.jogamp.opengl.impl.glu.mipmap.Extract5551;
+import com.jogamp.opengl.impl.glu.mipmap.Extract565;
+import com.jogamp.opengl.impl.glu.mipmap.Extract565rev;
+import com.jogamp.opengl.impl.glu.mipmap.Extract8888;
+import com.jogamp.opengl.impl.glu.mipmap.Extract8888rev;
+import com.jogamp.opengl.impl.glu.mipmap.HalveImage;
+import com.jogamp.opengl.impl.glu.mipmap.MipmapKernels;
+import com.jogamp.opengl.impl.glu.mipmap.ScaleInternal;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Compares the bulk mipmap kernels against the per element reference
+ * kernels, which must produce bit identical results.
+ */
+public class TestMipmapKernels01 {
+    static final int[][] SIZES = { { 2, 2 }, { 4, 2 }, { 8, 16 }, { 64, 64 }, { 17, 9 }, { 1024, 512 } };
+    static final int[][] PACKED_SIZES = { { 2, 2 }, { 4, 2 }, { 8, 16 }, { 64, 64 }, { 18, 10 }, { 1024, 512 } };
+    static final int[][] SCALES = { { 16, 16, 5, 7 }, { 7, 5, 16, 16 }, { 100, 60, 33, 33 }, { 512, 512, 300, 200 }, { 1024, 512, 600, 300 } };
+
+    Random rnd = new Random(4711);
+
+    @After
+    public void restoreThreads() {
+        MipmapKernels.setMaxThreads(Runtime.getRuntime().availableProcessors());
+    }
+
+    ByteBuffer image(int bytes, boolean floats) {
+        ByteBuffer buf = ByteBuffer.allocateDirect(bytes).order(ByteOrder.nativeOrder());
+        if(floats) {
+            for(int i=0; i<bytes/4; i++) {
+                buf.putFloat(i*4, rnd.nextFloat() * 1000f - 500f);
+            }
+        } else {
+            for(int i=0; i<bytes; i++) {
+                buf.put(i, (byte) rnd.nextInt());
+            }
+        }
+        return buf;
+    }
+
+    static ByteBuffer out(int bytes) {
+        return ByteBuffer.allocateDirect(bytes).order(ByteOrder.nativeOrder());
+    }
+
+    static void assertEquals(String msg, ByteBuffer expected, ByteBuffer actual) {
+        Assert.assertEquals(msg+" position", expected.position(), actual.position());
+        for(int i=0; i<expected.capacity(); i++) {
+            if(expected.get(i) != actual.get(i)) {
+                Assert.fail(msg+" differs at byte "+i+": "+expected.get(i)+" != "+actual.get(i));
+            }
+        }
+    }
+
+    void testHalve(int threads) {
+        MipmapKernels.setMaxThreads(threads);
+        for(int s=0; s<SIZES.length; s++) {
+            int width = SIZES[s][0], height = SIZES[s][1];
+            for(int components=1; components<=4; components++) {
+                for(int swap=0; swap<2; swap++) {
+                    boolean myswap = swap != 0;
+                    String msg = width+"x"+height+"x"+components+" swap "+myswap+" threads "+threads;
+                    int outElems = (width/2)*(height/2)*components;
+
+                    ByteBuffer in = image(width*height*components, false);
+                    ByteBuffer ref = out(outElems), res = out(outElems);
+                    HalveImage.halveImage_ubyte(components, width, height, in, ref, 1, width*components, components);
+                    MipmapKernels.halveImage_ubyte(components, width, height, in, res, 1, width*components, components);
+                    assertEquals("ubyte "+msg, ref, res);
+
+                    in = image(width*height*components*2, false);
+                    ref = out(outElems*2); res = out(outElems*2);
+                    ShortBuffer refs = ref.asShortBuffer(), ress = res.asShortBuffer();
+                    HalveImage.halveImage_ushort(components, width, height, in, refs, 2, width*components*2, components*2, myswap);
+                    MipmapKernels.halveImage_ushort(components, width, height, in, ress, 2, width*components*2, components*2, myswap);
+                    Assert.assertEquals(refs.position(), ress.position());
+                    assertEquals("ushort "+msg, ref, res);
+
+                    in = image(width*height*components*4, true);
+                    ref = out(outElems*4); res = out(outElems*4);
+                    FloatBuffer reff = ref.asFloatBuffer(), resf = res.asFloatBuffer();
+                    HalveImage.halveImage_float(components, width, height, in, reff, 4, width*components*4, components*4, myswap);
+                    MipmapKernels.halveImage_float(components, width, height, in, resf, 4, width*components*4, components*4, myswap);
+                    Assert.assertEquals(reff.position(), resf.position());
+                    assertEquals("float "+msg, ref, res);
+
+                    in = image(width*height*components, false);
+                    ref = out(outElems); res = out(outElems);
+                    HalveImage.halveImage_byte(components, width, height, in, ref, 1, width*components, components);
+                    MipmapKernels.halveImage_byte(components, width, height, in, res, 1, width*components, components);
+                    assertEquals("byte "+msg, ref, res);
+
+                    in = image(width*height*components*2, false);
+                    ref = out(outElems*2); res = out(outElems*2);
+                    refs = ref.asShortBuffer(); ress = res.asShortBuffer();
+                    HalveImage.halveImage_short(components, width, height, in, refs, 2, width*components*2, components*2, myswap);
+                    MipmapKernels.halveImage_short(components, width, height, in, ress, 2, width*components*2, components*2, myswap);
+                    Assert.assertEquals(refs.position(), ress.position());
+                    assertEquals("short "+msg, ref, res);
+
+                    in = image(width*height*components*4, false);
+                    ref = out(outElems*4); res = out(outElems*4);
+                    IntBuffer refi = ref.asIntBuffer(), resi = res.asIntBuffer();
+                    HalveImage.halveImage_uint(components, width, height, in, refi, 4, width*components*4, components*4, myswap);
+                    MipmapKernels.halveImage_uint(components, width, height, in, resi, 4, width*components*4, components*4, myswap);
+                    Assert.assertEquals(refi.position(), resi.position());
+                    assertEquals("uint "+msg, ref, res);
+
+                    ref = out(outElems*4); res = out(outElems*4);
+                    refi = ref.asIntBuffer(); resi = res.asIntBuffer();
+                    HalveImage.halveImage_int(components, width, height, in, refi, 4, width*components*4, components*4, myswap);
+                    MipmapKernels.halveImage_int(components, width, height, in, resi, 4, width*components*4, components*4, myswap);
+                    Assert.assertEquals(refi.position(), resi.position());
+                    assertEquals("int "+msg, ref, res);
+                }
+            }
+        }
+    }
+
+    // The packed pixel formats BuildMipmap halves, with their components and pixel size
+    static final Extract[] PACKED = { new Extract332(), new Extract233rev(),
+                                      new Extract565(), new Extract565rev(),
+                                      new Extract4444(), new Extract4444rev(),
+                                      new Extract5551(), new Extract1555rev(),
+                                      new Extract8888(), new Extract8888rev(),
+                                      new Extract1010102(), new Extract2101010rev() };
+    static final int[] PACKED_COMPONENTS = { 3, 3, 3, 3, 4, 4, 4, 4, 4, 4, 4, 4 };
+    static final int[] PACKED_BYTES      = { 1, 1, 2, 2, 2, 2, 2, 2, 4, 4, 4, 4 };
+
+    void testHalvePacked(int threads) {
+        MipmapKernels.setMaxThreads(threads);
+        for(int s=0; s<PACKED_SIZES.length; s++) {
+            int width = PACKED_SIZES[s][0], height = PACKED_SIZES[s][1];
+            for(int p=0; p<PACKED.length; p++) {
+                for(int swap=0; swap<2; swap++) {
+                    boolean myswap = swap != 0;
+                    String msg = PACKED[p].getClass().getName()+" "+width+"x"+height+" swap "+myswap+" threads "+threads;
+                    int pixelSize = PACKED_BYTES[p];
+                    int outBytes = (width/2)*(height/2)*pixelSize;
+
+                    ByteBuffer in = image(width*height*pixelSize, false);
+                    // the 32 bit extracts sign extend, keep the pixels positive
+                    for(int i=0; i<in.capacity(); i++) {
+                        in.put(i, (byte) (in.get(i) & 0x7F));
+                    }
+                    ByteBuffer ref = out(outBytes), res = out(outBytes);
+                    HalveImage.halveImagePackedPixel(PACKED_COMPONENTS[p], PACKED[p], width, height, in, ref,
+                                                     pixelSize, width*pixelSize, myswap);
+                    MipmapKernels.halveImagePackedPixel(PACKED_COMPONENTS[p], PACKED[p], width, height, in, res,
+                                                        pixelSize, width*pixelSize, myswap);
+                    // Extract233rev moves the output position, the others do not
+                    ref.rewind();
+                    assertEquals(msg, ref, res);
+                }
+            }
+        }
+    }
+
+    void testScale(int threads) {
+        MipmapKernels.setMaxThreads(threads);
+        for(int s=0; s<SCALES.length; s++) {
+            int win = SCALES[s][0], hin = SCALES[s][1], wout = SCALES[s][2], hout = SCALES[s][3];
+            for(int components=1; components<=4; components++) {
+                for(int swap=0; swap<2; swap++) {
+                    boolean myswap = swap != 0;
+                    String msg = win+"x"+hin+" -> "+wout+"x"+hout+"x"+components+" swap "+myswap+" threads "+threads;
+                    int outElems = wout*hout*components;
+
+                    ByteBuffer in = image(win*hin*components, false);
+                    ByteBuffer ref = out(outElems), res = out(outElems);
+                    ScaleInternal.scale_internal_ubyte(components, win, hin, in, wout, hout, ref, 1, win*components, components);
+                    MipmapKernels.scale_internal_ubyte(components, win, hin, in, wout, hout, res, 1, win*components, components);
+                    assertEquals("ubyte "+msg, ref, res);
+
+                    in = image(win*hin*components*2, false);
+                    ref = out(outElems*2); res = out(outElems*2);
+                    ScaleInternal.scale_internal_ushort(components, win, hin, in, wout, hout, ref.asShortBuffer(), 2, win*components*2, components*2, myswap);
+                    MipmapKernels.scale_internal_ushort(components, win, hin, in, wout, hout, res.asShortBuffer(), 2, win*components*2, components*2, myswap);
+                    assertEquals("ushort "+msg, ref, res);
+
+                    in = image(win*hin*components*4, true);
+                    ref = out(outElems*4); res = out(outElems*4);
+                    ScaleInternal.scale_internal_float(components, win, hin, in, wout, hout, ref.asFloatBuffer(), 4, win*components*4, components*4, myswap);
+                    MipmapKernels.scale_internal_float(components, win, hin, in, wout, hout, res.asFloatBuffer(), 4, win*components*4, components*4, myswap);
+                    assertEquals("float "+msg, ref, res);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testHalveSerial() {
+        testHalve(1);
+    }
+
+    @Test
+    public void testHalveParallel() {
+        testHalve(4);
+    }
+
+    @Test
+    public void testHalvePackedSerial() {
+        testHalvePacked(1);
+    }
+
+    @Test
+    public void testHalvePackedParallel() {
+        testHalvePacked(4);
+    }
+
+    @Test
+    public void testScaleSerial() {
+        testScale(1);
+    }
+
+    @Test
+    public void testScaleParallel() {
+        testScale(4);
+    }
+
+    @Test
+    public void testPerformance() {
+        final int size = 2048, components = 4, loops = 5;
+        ByteBuffer in = image(size*size*components, false);
+        ByteBuffer out = out(size*size*components/4);
+        // warm up both kernels, so neither timing includes compilation
+        for(int i=0; i<loops; i++) {
+            out.clear();
+            HalveImage.halveImage_ubyte(components, size, size, in, out, 1, size*components, components);
+            out.clear();
+            MipmapKernels.halveImage_ubyte(components, size, size, in, out, 1, size*components, components);
+        }
+        long t0 = System.currentTimeMillis();
+        for(int i=0; i<loops; i++) {
+            out.clear();
+            HalveImage.halveImage_ubyte(components, size, size, in, out, 1, size*components, components);
+        }
+        long t1 = System.currentTimeMillis();
+        MipmapKernels.setMaxThreads(1);
+        for(int i=0; i<loops; i++) {
+            out.clear();
+            MipmapKernels.halveImage_ubyte(components, size, size, in, out, 1, size*components, components);
+        }
+        long t2 = System.currentTimeMillis();
+        MipmapKernels.setMaxThreads(Runtime.getRuntime().availableProcessors());
+        for(int i=0; i<loops; i++) {
+            out.clear();
+            MipmapKernels.halveImage_ubyte(components, size, size, in, out, 1, size*components, components);
+        }
+        long t3 = System.currentTimeMillis();
+        System.err.println("halveImage_ubyte "+size+"x"+size+" RGBA: reference "+(t1-t0)/loops+" ms, bulk "+
+                           (t2-t1)/loops+" ms, bulk parallel "+(t3-t2)/loops+" ms");
+    }
+
+    public static void main(String args[]) {
+        org.junit.runner.JUnitCore.main(TestMipmapKernels01.class.getName());
+    }
+}
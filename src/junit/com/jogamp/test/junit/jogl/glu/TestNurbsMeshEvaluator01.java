@@ -0,0 +1,302 @@
+/**
+ * Copyright 2010 JogAmp Community. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are
+ * permitted provided that the following conditions are met:
+ * 
+ *    1. Redistributions of source code must retain the above copyright notice, this list of
+ *       conditions and the following disclaimer.
+ * 
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *       of conditions and the following disclaimer in the documentation and/or other materials
+ *       provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY JogAmp Community ``AS IS'' AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL JogAmp Community OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are those of the
+ * authors and should not be interpreted as representing official policies, either expressed
+ * or implied, of JogAmp Community.
+ */
+ 
+package com.jogamp.test.junit.jogl.glu;
+
+import java.util.Random;
+
+import javax.media.opengl.GL2;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.jogamp.opengl.impl.glu.nurbs.CArrayOfFloats;
+import com.jogamp.opengl.impl.glu.nurbs.Knotvector;
+import com.jogamp.opengl.impl.glu.nurbs.Mapdesc;
+import com.jogamp.opengl.impl.glu.nurbs.MeshBackend;
+import com.jogamp.opengl.impl.glu.nurbs.NurbsMesh;
+import com.jogamp.opengl.impl.glu.nurbs.NurbsMeshCache;
+import com.jogamp.opengl.impl.glu.nurbs.Quilt;
+import com.jogamp.opengl.impl.glu.nurbs.Subdivider;
+
+/**
+ * Evaluates NURBS surfaces with the CPU mesh backend, without a GL context,
+ * and checks vertex counts and the distance between mesh and surface
+ * against an independent de Boor evaluation.
+ */
+public class TestNurbsMeshEvaluator01 {
+
+    /** Clamped uniform cubic knots with the given number of spans */
+    static float[] knots(int spans) {
+        float[] k = new float[spans + 7];
+        for(int i=0; i<k.length; i++) {
+            k[i] = Math.max(0, Math.min(spans, i - 3));
+        }
+        return k;
+    }
+
+    /** Greville abscissa of control point i, linear control nets stay planar */
+    static float greville(float[] k, int i, int order) {
+        float s = 0;
+        for(int j=1; j<order; j++) s += k[i+j];
+        return s / (order - 1);
+    }
+
+    static class Surface {
+        int type, ncoords, rational;
+        float[] sknot, tknot, ctl;
+        int sorder, torder, scount, tcount;
+
+        int sStride() { return tcount * ncoords; }
+        int tStride() { return ncoords; }
+
+        float[] cp(int i, int j) {
+            float[] p = new float[ncoords];
+            System.arraycopy(ctl, i * sStride() + j * tStride(), p, 0, ncoords);
+            return p;
+        }
+
+        NurbsMesh evaluate(float tolerance, double rate) {
+            Mapdesc mapdesc = new Mapdesc(type, rational, ncoords, null);
+            Knotvector sknots = new Knotvector(sknot.length, sStride(), sorder, sknot);
+            Knotvector tknots = new Knotvector(tknot.length, tStride(), torder, tknot);
+            Quilt quilt = new Quilt(mapdesc);
+            quilt.toBezier(sknots, tknots, new CArrayOfFloats(ctl.clone()), ncoords);
+            Subdivider subdivider = new Subdivider();
+            subdivider.set_domain_distance_u_rate(rate);
+            subdivider.set_domain_distance_v_rate(rate);
+            MeshBackend backend = new MeshBackend(mapdesc, tolerance);
+            subdivider.beginQuilts(backend);
+            subdivider.addQuilt(quilt);
+            subdivider.endQuilts();
+            subdivider.drawSurfaces();
+            return backend.getMesh();
+        }
+
+        /** Reference point by de Boor's algorithm */
+        double[] point(double u, double v) {
+            double[] nu = basis(sknot, sorder, scount, u);
+            double[] nv = basis(tknot, torder, tcount, v);
+            double[] h = new double[4];
+            for(int i=0; i<scount; i++) {
+                for(int j=0; j<tcount; j++) {
+                    float[] p = cp(i, j);
+                    double b = nu[i] * nv[j];
+                    for(int k=0; k<3; k++) h[k] += b * p[k];
+                    h[3] += b * (ncoords == 4 ? p[3] : 1);
+                }
+            }
+            return new double[] { h[0] / h[3], h[1] / h[3], h[2] / h[3] };
+        }
+    }
+
+    /** B-spline basis functions by the Cox-de Boor recurrence */
+    static double[] basis(float[] k, int order, int count, double u) {
+        int span = order - 1;
+        while(span < count - 1 && u >= k[span + 1]) span++;
+        double[] n = new double[k.length];
+        n[span] = 1;
+        for(int d=1; d<order; d++) {
+            for(int i=span-d; i<=span; i++) {
+                double a = k[i+d] > k[i] ? (u - k[i]) / (k[i+d] - k[i]) * n[i] : 0;
+                double b = k[i+d+1] > k[i+1] ? (k[i+d+1] - u) / (k[i+d+1] - k[i+1]) * n[i+1] : 0;
+                n[i] = a + b;
+            }
+        }
+        return n;
+    }
+
+    /** Bicubic surface over spans x spans patches, z given per control point */
+    static Surface bicubic(int spans, float[] z) {
+        Surface s = new Surface();
+        s.type = GL2.GL_MAP2_VERTEX_3;
+        s.ncoords = 3;
+        s.sorder = s.torder = 4;
+        s.sknot = s.tknot = knots(spans);
+        s.scount = s.tcount = spans + 3;
+        s.ctl = new float[s.scount * s.tcount * 3];
+        for(int i=0, c=0; i<s.scount; i++) {
+            for(int j=0; j<s.tcount; j++, c++) {
+                s.ctl[3*c]   = greville(s.sknot, i, 4);
+                s.ctl[3*c+1] = greville(s.tknot, j, 4);
+                s.ctl[3*c+2] = z != null ? z[c] : 0;
+            }
+        }
+        return s;
+    }
+
+    static Surface bumpy(int spans, long seed, float height) {
+        Random rnd = new Random(seed);
+        float[] z = new float[(spans + 3) * (spans + 3)];
+        for(int i=0; i<z.length; i++) z[i] = rnd.nextFloat() * height;
+        return bicubic(spans, z);
+    }
+
+    /** Largest distance between mesh and surface at centroid and edge midpoints of every triangle */
+    static double measuredError(Surface s, NurbsMesh mesh) {
+        final double[][] bary = { {1/3., 1/3., 1/3.}, {.5, .5, 0}, {0, .5, .5}, {.5, 0, .5} };
+        float[] v = mesh.getVertices(), p = mesh.getParameters();
+        int[] idx = mesh.getIndices();
+        double max = 0;
+        for(int t=0; t<idx.length; t+=3) {
+            for(int b=0; b<bary.length; b++) {
+                double x = 0, y = 0, z = 0, u = 0, w = 0;
+                for(int k=0; k<3; k++) {
+                    int i = idx[t+k];
+                    x += bary[b][k] * v[3*i];
+                    y += bary[b][k] * v[3*i+1];
+                    z += bary[b][k] * v[3*i+2];
+                    u += bary[b][k] * p[2*i];
+                    w += bary[b][k] * p[2*i+1];
+                }
+                double[] e = s.point(u, w);
+                double d = Math.sqrt((x-e[0])*(x-e[0]) + (y-e[1])*(y-e[1]) + (z-e[2])*(z-e[2]));
+                max = Math.max(max, d);
+            }
+        }
+        return max;
+    }
+
+    @Test
+    public void testPlanarPatchesAreSingleQuads() {
+        NurbsMesh mesh = bicubic(3, null).evaluate(0.001f, 100);
+        Assert.assertEquals(9, mesh.getPatchCount());
+        Assert.assertEquals(4 * 9, mesh.getVertexCount());
+        Assert.assertEquals(2 * 9, mesh.getTriangleCount());
+        Assert.assertTrue(mesh.getErrorBound() < 1e-5);
+        for(int i=0; i<mesh.getVertexCount(); i++) {
+            Assert.assertEquals(1f, Math.abs(mesh.getNormals()[3*i+2]), 1e-5f);
+        }
+    }
+
+    @Test
+    public void testGridSampling() {
+        // without tolerance every span gets rate * width steps per direction
+        NurbsMesh mesh = bumpy(2, 1, 1f).evaluate(0, 8);
+        Assert.assertEquals(4, mesh.getPatchCount());
+        Assert.assertEquals(4 * 9 * 9, mesh.getVertexCount());
+        Assert.assertEquals(4 * 8 * 8 * 2, mesh.getTriangleCount());
+        Assert.assertEquals(4 * 8 * 8 * 2 * 3, mesh.getIndexBuffer().remaining());
+        Assert.assertEquals(4 * 9 * 9 * 3, mesh.getVertexBuffer().remaining());
+    }
+
+    @Test
+    public void testErrorBound() {
+        Surface s = bumpy(4, 42, 2f);
+        int lastVertices = 0;
+        float[] tolerances = { 0.05f, 0.01f, 0.002f };
+        for(int i=0; i<tolerances.length; i++) {
+            NurbsMesh mesh = s.evaluate(tolerances[i], 100);
+            double measured = measuredError(s, mesh);
+            System.err.println("tolerance "+tolerances[i]+": "+mesh.getVertexCount()+" vertices, bound "+
+                               mesh.getErrorBound()+", measured "+measured);
+            Assert.assertTrue(mesh.getErrorBound() <= tolerances[i]);
+            Assert.assertTrue(measured <= mesh.getErrorBound() * 1.0001 + 1e-6);
+            Assert.assertTrue(mesh.getVertexCount() > lastVertices);
+            lastVertices = mesh.getVertexCount();
+        }
+        // adaptive sampling needs far fewer vertices than the default grid
+        Assert.assertTrue(s.evaluate(0.01f, 100).getVertexCount() * 4 < s.evaluate(0, 100).getVertexCount());
+    }
+
+    @Test
+    public void testRationalCylinder() {
+        // quarter cylinder of radius 1: rational quadratic in s, linear in t
+        Surface s = new Surface();
+        s.type = GL2.GL_MAP2_VERTEX_4;
+        s.ncoords = 4;
+        s.rational = 1;
+        s.sorder = 3;
+        s.torder = 2;
+        s.sknot = new float[] { 0, 0, 0, 1, 1, 1 };
+        s.tknot = new float[] { 0, 0, 1, 1 };
+        s.scount = 3;
+        s.tcount = 2;
+        float w = (float) Math.sqrt(0.5);
+        float[][] arc = { {1, 0, 1}, {w, w, w}, {0, 1, 1} };
+        s.ctl = new float[3 * 2 * 4];
+        for(int i=0, c=0; i<3; i++) {
+            for(int j=0; j<2; j++, c+=4) {
+                s.ctl[c] = arc[i][0];
+                s.ctl[c+1] = arc[i][1];
+                s.ctl[c+2] = j * arc[i][2];
+                s.ctl[c+3] = arc[i][2];
+            }
+        }
+        NurbsMesh mesh = s.evaluate(0.001f, 100);
+        float[] v = mesh.getVertices();
+        for(int i=0; i<mesh.getVertexCount(); i++) {
+            Assert.assertEquals(1.0, Math.sqrt(v[3*i]*v[3*i] + v[3*i+1]*v[3*i+1]), 1e-5);
+        }
+        // straight in t: a single row of quads
+        Assert.assertEquals(1, mesh.getPatchCount());
+        float[] p = mesh.getParameters();
+        for(int i=0; i<mesh.getVertexCount(); i++) {
+            Assert.assertTrue(p[2*i+1] == 0 || p[2*i+1] == 1);
+        }
+        Assert.assertTrue(measuredError(s, mesh) <= 0.001);
+    }
+
+    @Test
+    public void testCache() {
+        Surface s = bumpy(2, 7, 1f);
+        NurbsMeshCache cache = new NurbsMeshCache(2);
+        Object key = key(s, 0.01f);
+        Assert.assertNull(cache.get(key));
+        NurbsMesh mesh = s.evaluate(0.01f, 100);
+        cache.put(key, mesh);
+        Assert.assertSame(mesh, cache.get(key(s, 0.01f)));
+        Assert.assertNull(cache.get(key(s, 0.02f)));
+
+        // a changed control point in the caller's array is a miss
+        s.ctl[5] += 0.5f;
+        Assert.assertNull(cache.get(key(s, 0.01f)));
+        s.ctl[5] -= 0.5f;
+        Assert.assertSame(mesh, cache.get(key(s, 0.01f)));
+
+        // least recently used entry is evicted
+        Surface a = bumpy(2, 8, 1f), b = bumpy(2, 9, 1f);
+        cache.put(key(a, 0.01f), mesh);
+        cache.get(key(s, 0.01f));
+        cache.put(key(b, 0.01f), mesh);
+        Assert.assertEquals(2, cache.size());
+        Assert.assertNotNull(cache.get(key(s, 0.01f)));
+        Assert.assertNull(cache.get(key(a, 0.01f)));
+        Assert.assertEquals(4, cache.getHits());
+        Assert.assertEquals(4, cache.getMisses());
+    }
+
+    static Object key(Surface s, float tolerance) {
+        return NurbsMeshCache.key(s.type, s.sknot.length, s.sknot, s.tknot.length, s.tknot,
+                                  s.sStride(), s.tStride(), s.ctl, s.ncoords, s.sorder, s.torder, tolerance);
+    }
+
+    public static void main(String args[]) {
+        org.junit.runner.JUnitCore.main(TestNurbsMeshEvaluator01.class.getName());
+    }
+}
@@ -0,0 +1,198 @@
+/**
+ * Copyright 2010 JogAmp Community. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are
+ * permitted provided that the following conditions are met:
+ * 
+ *    1. Redistributions of source code must retain the above copyright notice, this list of
+ *       conditions and the following disclaimer.
+ * 
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *       of conditions and the following disclaimer in the documentation and/or other materials
+ *       provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY JogAmp Community ``AS IS'' AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL JogAmp Community OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are those of the
+ * authors and should not be interpreted as representing official policies, either expressed
+ * or implied, of JogAmp Community.
+ */
+ 
+package com.jogamp.test.junit.jogl.texture;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.media.opengl.GL;
+import javax.media.opengl.GL2GL3;
+
+import com.jogamp.opengl.util.StreamUtil;
+import com.jogamp.opengl.util.texture.DDSTextureStream;
+import com.jogamp.opengl.util.texture.spi.DDSImage;
+
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class TestDDSTextureStream01 {
+    static final int SIZE = 2048;
+    static File ddsFile;
+
+    @BeforeClass
+    public static void createFile() throws IOException {
+        int levels = 0;
+        for(int s=SIZE; s>0; s>>=1) {
+            levels++;
+        }
+        ByteBuffer[] mipmaps = new ByteBuffer[levels];
+        for(int i=0, s=SIZE; i<levels; i++, s>>=1) {
+            mipmaps[i] = ByteBuffer.allocate(s*s*4);
+            for(int j=0; j<mipmaps[i].capacity(); j+=4) {
+                mipmaps[i].put(j, (byte)i);
+            }
+        }
+        DDSImage image = DDSImage.createFromData(DDSImage.D3DFMT_A8R8G8B8, SIZE, SIZE, mipmaps);
+        ddsFile = File.createTempFile("TestDDSTextureStream01", ".dds");
+        image.write(ddsFile);
+    }
+
+    @AfterClass
+    public static void deleteFile() {
+        ddsFile.delete();
+    }
+
+    /** Recording mock GL, only tracking texture uploads. */
+    static class RecordingGL implements InvocationHandler {
+        final List<Integer> uploadedLevels = new ArrayList<Integer>();
+        final List<Integer> baseLevels = new ArrayList<Integer>();
+        final boolean gl2gl3;
+        final GL gl;
+
+        RecordingGL(boolean gl2gl3) {
+            this.gl2gl3 = gl2gl3;
+            gl = (GL) Proxy.newProxyInstance(GL2GL3.class.getClassLoader(), new Class[] { GL2GL3.class }, this);
+        }
+
+        public Object invoke(Object proxy, Method m, Object[] args) {
+            String name = m.getName();
+            if(name.equals("isGL2GL3")) {
+                return Boolean.valueOf(gl2gl3);
+            } else if(name.equals("glGenTextures")) {
+                ((int[])args[1])[((Integer)args[2]).intValue()] = 1;
+            } else if(name.equals("glTexImage2D")) {
+                int level = ((Integer)args[1]).intValue();
+                Buffer data = (Buffer) args[8];
+                Assert.assertEquals(4 * ((Integer)args[3]).intValue() * ((Integer)args[4]).intValue(), data.remaining());
+                Assert.assertEquals(level, ((ByteBuffer)data).get(0));
+                uploadedLevels.add(new Integer(level));
+            } else if(name.equals("glTexParameteri") && ((Integer)args[1]).intValue() == GL2GL3.GL_TEXTURE_BASE_LEVEL) {
+                baseLevels.add((Integer)args[2]);
+            }
+            if(m.getReturnType() == boolean.class) {
+                return Boolean.FALSE;
+            }
+            return null;
+        }
+    }
+
+    @Test
+    public void test01ZeroCopyLevels() throws IOException {
+        long t0 = System.currentTimeMillis();
+        DDSTextureStream stream = DDSTextureStream.open(ddsFile);
+        int coarsest = stream.getLevelCount()-1;
+        ByteBuffer first = stream.getLevelData(0, coarsest);
+        long t1 = System.currentTimeMillis();
+        Assert.assertEquals(4, first.remaining());
+        Assert.assertEquals(coarsest, first.get(0));
+        // mapped, not copied to the heap
+        Assert.assertTrue(first.isDirect());
+        long mappedBytes = 0;
+        for(int i=0; i<stream.getLevelCount(); i++) {
+            ByteBuffer level = stream.getLevelData(0, i);
+            Assert.assertTrue(level.isDirect());
+            Assert.assertEquals(stream.getLevelSizeInBytes(i), level.remaining());
+            mappedBytes += level.remaining();
+        }
+        stream.prefetch(0);
+        stream.close();
+
+        // the TextureIO stream path reads the complete file into the heap
+        long t2 = System.currentTimeMillis();
+        java.io.InputStream in = new java.io.BufferedInputStream(new java.io.FileInputStream(ddsFile));
+        byte[] heapData = StreamUtil.readAll2Array(in);
+        in.close();
+        DDSImage image = DDSImage.read(ByteBuffer.wrap(heapData));
+        image.getMipMap(coarsest);
+        long t3 = System.currentTimeMillis();
+        System.out.println("streamed: first level after "+(t1-t0)+" ms, heap 0 bytes, mapped "+mappedBytes+" bytes");
+        System.out.println("stream copy: first level after "+(t3-t2)+" ms, heap "+heapData.length+" bytes");
+        Assert.assertTrue(heapData.length > mappedBytes);
+    }
+
+    @Test
+    public void test02ProgressiveUpload() throws IOException {
+        DDSTextureStream stream = DDSTextureStream.open(ddsFile);
+        RecordingGL rec = new RecordingGL(true);
+        int levels = stream.getLevelCount();
+        Assert.assertEquals(12, levels);
+        Assert.assertNull(stream.getTexture());
+
+        Assert.assertTrue(stream.uploadNextLevel(rec.gl));
+        Assert.assertNotNull(stream.getTexture());
+        Assert.assertEquals(levels-1, stream.getBaseLevel());
+
+        // 2x2, 4x4 and 8x8 fit into the budget, 16x16 exceeds it
+        int n = stream.uploadLevels(rec.gl, 16+64+256+1);
+        Assert.assertEquals(3, n);
+        Assert.assertEquals(levels-4, stream.getBaseLevel());
+        // at least one level
+        Assert.assertEquals(1, stream.uploadLevels(rec.gl, 0));
+        stream.uploadAll(rec.gl);
+        Assert.assertTrue(stream.isComplete());
+        Assert.assertFalse(stream.uploadNextLevel(rec.gl));
+
+        Assert.assertEquals(levels, rec.uploadedLevels.size());
+        for(int i=0; i<levels; i++) {
+            // coarse first
+            Assert.assertEquals(levels-1-i, rec.uploadedLevels.get(i).intValue());
+            Assert.assertEquals(levels-1-i, rec.baseLevels.get(i).intValue());
+        }
+        long total = 0;
+        for(int i=0; i<levels; i++) {
+            total += stream.getLevelSizeInBytes(i);
+        }
+        Assert.assertEquals(total, stream.getBytesUploaded());
+        stream.close();
+    }
+
+    @Test
+    public void test03NonProgressiveUpload() throws IOException {
+        DDSTextureStream stream = DDSTextureStream.open(ddsFile);
+        RecordingGL rec = new RecordingGL(false);
+        Assert.assertTrue(stream.uploadNextLevel(rec.gl));
+        Assert.assertTrue(stream.isComplete());
+        Assert.assertEquals(stream.getLevelCount(), rec.uploadedLevels.size());
+        Assert.assertEquals(0, rec.baseLevels.size());
+        stream.close();
+    }
+
+    public static void main(String args[]) {
+        org.junit.runner.JUnitCore.main(TestDDSTextureStream01.class.getName());
+    }
+}
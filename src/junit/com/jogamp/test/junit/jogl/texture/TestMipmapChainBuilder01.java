@@ -0,0 +1,216 @@
+/**
+ * Copyright 2010 JogAmp Community. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are
+ * permitted provided that the following conditions are met:
+ * 
+ *    1. Redistributions of source code must retain the above copyright notice, this list of
+ *       conditions and the following disclaimer.
+ * 
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *       of conditions and the following disclaimer in the documentation and/or other materials
+ *       provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY JogAmp Community ``AS IS'' AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL JogAmp Community OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are those of the
+ * authors and should not be interpreted as representing official policies, either expressed
+ * or implied, of JogAmp Community.
+ */
+ 
+package com.jogamp.test.junit.jogl.texture;
+
+import java.nio.ByteBuffer;
+
+import javax.media.opengl.GL;
+
+import com.jogamp.opengl.util.texture.MipmapChainBuilder;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TestMipmapChainBuilder01 {
+
+    static ByteBuffer image(int w, int h, int comps, int seed) {
+        ByteBuffer b = ByteBuffer.allocateDirect(w * h * comps);
+        for (int i = 0; i < w * h * comps; i++) {
+            b.put((byte) ((i * 37 + seed * 11 + (i / comps) * 5) & 0xFF));
+        }
+        b.rewind();
+        return b;
+    }
+
+    static ByteBuffer constant(int w, int h, int comps, int value) {
+        ByteBuffer b = ByteBuffer.allocateDirect(w * h * comps);
+        while (b.hasRemaining()) {
+            b.put((byte) value);
+        }
+        b.rewind();
+        return b;
+    }
+
+    @Test
+    public void testLevelSizes() {
+        Assert.assertEquals(1, MipmapChainBuilder.getLevelCount(1, 1));
+        Assert.assertEquals(9, MipmapChainBuilder.getLevelCount(256, 256));
+        Assert.assertEquals(8, MipmapChainBuilder.getLevelCount(129, 7));
+
+        MipmapChainBuilder.Chain chain =
+            new MipmapChainBuilder(13, 5, GL.GL_RGB, image(13, 5, 3, 1)).build();
+        int[] expW = { 13, 6, 3, 1 };
+        int[] expH = { 5, 2, 1, 1 };
+        Assert.assertEquals(expW.length, chain.getLevelCount());
+        int offset = 0;
+        for (int i = 0; i < expW.length; i++) {
+            Assert.assertEquals(expW[i], chain.getWidth(i));
+            Assert.assertEquals(expH[i], chain.getHeight(i));
+            Assert.assertEquals(offset, chain.getOffset(i));
+            Assert.assertEquals(expW[i] * expH[i] * 3, chain.getSizeInBytes(i));
+            Assert.assertEquals(expW[i] * expH[i] * 3, chain.getLevel(i).remaining());
+            offset += chain.getSizeInBytes(i);
+        }
+        Assert.assertEquals(offset, chain.getBuffer().capacity());
+
+        MipmapChainBuilder limited = new MipmapChainBuilder(64, 64, GL.GL_LUMINANCE, image(64, 64, 1, 2));
+        limited.setMaxLevels(3);
+        Assert.assertEquals(3, limited.build().getLevelCount());
+    }
+
+    @Test
+    public void testBaseLevelUnchanged() {
+        ByteBuffer src = image(16, 8, 4, 3);
+        MipmapChainBuilder.Chain chain = new MipmapChainBuilder(16, 8, GL.GL_RGBA, src).build();
+        Assert.assertEquals(0, src.position());
+        Assert.assertEquals(src, chain.getLevel(0));
+    }
+
+    @Test
+    public void testBoxMatchesAverage() {
+        final int w = 32, h = 16, comps = 4;
+        ByteBuffer src = image(w, h, comps, 4);
+        MipmapChainBuilder.Chain chain = new MipmapChainBuilder(w, h, GL.GL_RGBA, src).build();
+        ByteBuffer l1 = chain.getLevel(1);
+        for (int y = 0; y < h / 2; y++) {
+            for (int x = 0; x < w / 2; x++) {
+                for (int c = 0; c < comps; c++) {
+                    int sum = 0;
+                    for (int j = 0; j < 2; j++) {
+                        for (int i = 0; i < 2; i++) {
+                            sum += src.get(((2 * y + j) * w + 2 * x + i) * comps + c) & 0xFF;
+                        }
+                    }
+                    int got = l1.get((y * (w / 2) + x) * comps + c) & 0xFF;
+                    Assert.assertTrue("box at " + x + "/" + y + "/" + c + ": " + got + " vs " + sum / 4f,
+                                      Math.abs(got - sum / 4f) <= 0.5f);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testConstantImageAllFilters() {
+        int[] filters = { MipmapChainBuilder.FILTER_BOX,
+                          MipmapChainBuilder.FILTER_KAISER,
+                          MipmapChainBuilder.FILTER_LANCZOS };
+        for (int f = 0; f < filters.length; f++) {
+            for (int srgb = 0; srgb < 2; srgb++) {
+                MipmapChainBuilder builder =
+                    new MipmapChainBuilder(37, 20, GL.GL_RGBA, constant(37, 20, 4, 77));
+                builder.setFilter(filters[f]);
+                builder.setSRGB(srgb == 1);
+                MipmapChainBuilder.Chain chain = builder.build();
+                for (int l = 0; l < chain.getLevelCount(); l++) {
+                    ByteBuffer level = chain.getLevel(l);
+                    while (level.hasRemaining()) {
+                        Assert.assertEquals("filter " + filters[f] + " level " + l, 77, level.get() & 0xFF);
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testSRGBAveraging() {
+        final int w = 8, h = 8;
+        ByteBuffer src = ByteBuffer.allocateDirect(w * h);
+        for (int y = 0; y < h; y++) {
+            for (int x = 0; x < w; x++) {
+                src.put((byte) (((x + y) & 1) == 0 ? 0 : 255));
+            }
+        }
+        src.rewind();
+
+        MipmapChainBuilder linear = new MipmapChainBuilder(w, h, GL.GL_LUMINANCE, src);
+        int l = linear.build().getLevel(1).get(0) & 0xFF;
+        Assert.assertTrue("linear " + l, Math.abs(l - 128) <= 1);
+
+        MipmapChainBuilder srgb = new MipmapChainBuilder(w, h, GL.GL_LUMINANCE, src);
+        srgb.setSRGB(true);
+        int s = srgb.build().getLevel(1).get(0) & 0xFF;
+        Assert.assertTrue("sRGB " + s, Math.abs(s - 188) <= 1);
+    }
+
+    @Test
+    public void testAlphaCoverage() {
+        final int w = 64, h = 64;
+        final int alphaRef = 160;
+        java.util.Random rnd = new java.util.Random(4711);
+        ByteBuffer src = ByteBuffer.allocateDirect(w * h * 2);
+        int covered = 0;
+        for (int y = 0; y < h; y++) {
+            for (int x = 0; x < w; x++) {
+                // high frequency alpha, typical of foliage cutouts
+                int a = rnd.nextInt(256);
+                if (a > alphaRef) {
+                    covered++;
+                }
+                src.put((byte) 200);
+                src.put((byte) a);
+            }
+        }
+        src.rewind();
+        float baseCoverage = covered / (float) (w * h);
+
+        MipmapChainBuilder plain = new MipmapChainBuilder(w, h, GL.GL_LUMINANCE_ALPHA, src);
+        MipmapChainBuilder preserving = new MipmapChainBuilder(w, h, GL.GL_LUMINANCE_ALPHA, src);
+        preserving.setAlphaCoverage(alphaRef / 255f);
+        MipmapChainBuilder.Chain plainChain = plain.build();
+        MipmapChainBuilder.Chain chain = preserving.build();
+
+        // levels down to 8x8, below that the coverage is too coarse to compare
+        for (int l = 1; l <= 3; l++) {
+            float c = coverage(chain.getLevel(l), alphaRef);
+            Assert.assertTrue("level " + l + " coverage " + c + " vs " + baseCoverage,
+                              Math.abs(c - baseCoverage) < 0.1f);
+        }
+        // without preservation the stripes average away below the reference
+        Assert.assertTrue(coverage(plainChain.getLevel(3), alphaRef) < baseCoverage / 2);
+    }
+
+    static float coverage(ByteBuffer la, int alphaRef) {
+        int n = la.remaining() / 2, covered = 0;
+        for (int i = 0; i < n; i++) {
+            if ((la.get(i * 2 + 1) & 0xFF) > alphaRef) {
+                covered++;
+            }
+        }
+        return covered / (float) n;
+    }
+
+    @Test(expected=IllegalArgumentException.class)
+    public void testBadSize() {
+        new MipmapChainBuilder(16, 16, GL.GL_RGBA, ByteBuffer.allocateDirect(16 * 16 * 3));
+    }
+
+    public static void main(String args[]) {
+        org.junit.runner.JUnitCore.main(TestMipmapChainBuilder01.class.getName());
+    }
+}
@@ -0,0 +1,323 @@
+/**
+ * Copyright 2010 JogAmp Community. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are
+ * permitted provided that the following conditions are met:
+ * 
+ *    1. Redistributions of source code must retain the above copyright notice, this list of
+ *       conditions and the following disclaimer.
+ * 
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *       of conditions and the following disclaimer in the documentation and/or other materials
+ *       provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY JogAmp Community ``AS IS'' AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL JogAmp Community OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are those of the
+ * authors and should not be interpreted as representing official policies, either expressed
+ * or implied, of JogAmp Community.
+ */
+ 
+package com.jogamp.test.junit.jogl.texture;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import javax.media.opengl.GL;
+import javax.media.opengl.GL2GL3;
+
+import com.jogamp.opengl.util.texture.spi.TGAImage;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Decodes in memory TGA images without a current GL context,
+ * hence true color images are expected as RGB(A) unless BGR(A)
+ * is explicitly kept.
+ */
+public class TestTGAImage01 {
+
+    static void header(ByteArrayOutputStream out, int imageType, int colorMapType,
+                       int mapLength, int mapEntrySize,
+                       int width, int height, int pixelDepth, int descriptor) {
+        out.write(0);                   // ID length
+        out.write(colorMapType);
+        out.write(imageType);
+        short16(out, 0);                // first map entry
+        short16(out, mapLength);
+        out.write(mapEntrySize);
+        short16(out, 0);                // x origin
+        short16(out, 0);                // y origin
+        short16(out, width);
+        short16(out, height);
+        out.write(pixelDepth);
+        out.write(descriptor);
+    }
+
+    static void short16(ByteArrayOutputStream out, int v) {
+        out.write(v & 0xFF);
+        out.write((v >> 8) & 0xFF);
+    }
+
+    static byte[] pixel(ByteBuffer data, int x, int y, int width, int bpp) {
+        byte[] res = new byte[bpp];
+        for(int i=0; i<bpp; i++) {
+            res[i] = data.get((y*width + x)*bpp + i);
+        }
+        return res;
+    }
+
+    static void assertPixel(int[] expected, byte[] actual) {
+        Assert.assertEquals(expected.length, actual.length);
+        for(int i=0; i<expected.length; i++) {
+            Assert.assertEquals("component "+i, expected[i], actual[i] & 0xFF);
+        }
+    }
+
+    /** 2x2 image, rows given bottom-to-top as BGR(A) pixels */
+    static byte[] trueColor(int imageType, int pixelDepth, boolean topToBottom) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        header(out, imageType, 0, 0, 0, 2, 2, pixelDepth, (topToBottom ? 0x20 : 0) | (pixelDepth==32 ? 8 : 0));
+        int bpp = pixelDepth / 8;
+        int[][] pixels = { { 1, 2, 3, 4 }, { 5, 6, 7, 8 }, { 9, 10, 11, 12 }, { 13, 14, 15, 16 } };
+        for(int r=0; r<2; r++) {
+            int row = topToBottom ? 1-r : r;
+            for(int x=0; x<2; x++) {
+                out.write(0);           // raw packet of 1 pixel if RLE
+                for(int c=0; c<bpp; c++) {
+                    out.write(pixels[row*2+x][c]);
+                }
+            }
+        }
+        byte[] res = out.toByteArray();
+        if(imageType == 2) {
+            // strip the packet headers
+            ByteArrayOutputStream raw = new ByteArrayOutputStream();
+            raw.write(res, 0, 18);
+            for(int i=18; i<res.length; i+=bpp+1) {
+                raw.write(res, i+1, bpp);
+            }
+            res = raw.toByteArray();
+        }
+        return res;
+    }
+
+    @Test
+    public void testTrueColor24() throws IOException {
+        for(int pass=0; pass<4; pass++) {
+            boolean topToBottom = (pass & 1) != 0;
+            int imageType = (pass & 2) != 0 ? 10 : 2;
+            TGAImage image = TGAImage.read(ByteBuffer.wrap(trueColor(imageType, 24, topToBottom)));
+            Assert.assertEquals(2, image.getWidth());
+            Assert.assertEquals(2, image.getHeight());
+            Assert.assertEquals(3, image.getBytesPerPixel());
+            Assert.assertEquals(GL.GL_RGB, image.getGLFormat());
+            ByteBuffer data = image.getData();
+            assertPixel(new int[] { 3, 2, 1 }, pixel(data, 0, 0, 2, 3));
+            assertPixel(new int[] { 7, 6, 5 }, pixel(data, 1, 0, 2, 3));
+            assertPixel(new int[] { 11, 10, 9 }, pixel(data, 0, 1, 2, 3));
+            assertPixel(new int[] { 15, 14, 13 }, pixel(data, 1, 1, 2, 3));
+        }
+    }
+
+    @Test
+    public void testTrueColor32() throws IOException {
+        for(int pass=0; pass<4; pass++) {
+            boolean topToBottom = (pass & 1) != 0;
+            int imageType = (pass & 2) != 0 ? 10 : 2;
+            TGAImage image = TGAImage.read(new ByteArrayInputStream(trueColor(imageType, 32, topToBottom)));
+            Assert.assertEquals(4, image.getBytesPerPixel());
+            Assert.assertEquals(GL.GL_RGBA, image.getGLFormat());
+            ByteBuffer data = image.getData();
+            assertPixel(new int[] { 3, 2, 1, 4 }, pixel(data, 0, 0, 2, 4));
+            assertPixel(new int[] { 15, 14, 13, 16 }, pixel(data, 1, 1, 2, 4));
+        }
+    }
+
+    @Test
+    public void testKeepBGR() throws IOException {
+        for(int pass=0; pass<4; pass++) {
+            int pixelDepth = (pass & 1) != 0 ? 32 : 24;
+            int imageType = (pass & 2) != 0 ? 10 : 2;
+            int bpp = pixelDepth / 8;
+            TGAImage image = TGAImage.read(ByteBuffer.wrap(trueColor(imageType, pixelDepth, false)), true);
+            Assert.assertEquals(bpp == 4 ? GL2GL3.GL_BGRA : GL2GL3.GL_BGR, image.getGLFormat());
+            ByteBuffer data = image.getData();
+            assertPixel(bpp == 4 ? new int[] { 1, 2, 3, 4 } : new int[] { 1, 2, 3 }, pixel(data, 0, 0, 2, bpp));
+            assertPixel(bpp == 4 ? new int[] { 13, 14, 15, 16 } : new int[] { 13, 14, 15 }, pixel(data, 1, 1, 2, bpp));
+
+            image = TGAImage.read(ByteBuffer.wrap(trueColor(imageType, pixelDepth, false)), false);
+            Assert.assertEquals(bpp == 4 ? GL.GL_RGBA : GL.GL_RGB, image.getGLFormat());
+            assertPixel(bpp == 4 ? new int[] { 3, 2, 1, 4 } : new int[] { 3, 2, 1 }, pixel(image.getData(), 0, 0, 2, bpp));
+        }
+        // uncompressed bottom-to-top BGR is shared with a direct source
+        byte[] bytes = trueColor(2, 24, false);
+        ByteBuffer src = ByteBuffer.allocateDirect(bytes.length);
+        src.put(bytes);
+        src.rewind();
+        ByteBuffer data = TGAImage.read(src, true).getData();
+        src.put(18, (byte) 99);
+        Assert.assertEquals(99, data.get(0));
+    }
+
+    @Test
+    public void testTrueColor16() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        header(out, 2, 0, 0, 0, 2, 1, 16, 1);
+        short16(out, 0x8000 | (31 << 10));      // opaque red
+        short16(out, 31);                       // transparent blue
+        TGAImage image = TGAImage.read(ByteBuffer.wrap(out.toByteArray()));
+        Assert.assertEquals(4, image.getBytesPerPixel());
+        assertPixel(new int[] { 255, 0, 0, 255 }, pixel(image.getData(), 0, 0, 2, 4));
+        assertPixel(new int[] { 0, 0, 255, 0 }, pixel(image.getData(), 1, 0, 2, 4));
+    }
+
+    @Test
+    public void testRunLengthAcrossRows() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        header(out, 10, 0, 0, 0, 3, 2, 24, 0);
+        out.write(0x80 | 3);            // run of 4 pixels, spans both rows
+        out.write(new byte[] { 30, 20, 10 }, 0, 3);
+        out.write(1);                   // raw packet of 2 pixels
+        out.write(new byte[] { 1, 2, 3, 4, 5, 6 }, 0, 6);
+        ByteBuffer data = TGAImage.read(ByteBuffer.wrap(out.toByteArray())).getData();
+        assertPixel(new int[] { 10, 20, 30 }, pixel(data, 0, 0, 3, 3));
+        assertPixel(new int[] { 10, 20, 30 }, pixel(data, 2, 0, 3, 3));
+        assertPixel(new int[] { 10, 20, 30 }, pixel(data, 0, 1, 3, 3));
+        assertPixel(new int[] { 3, 2, 1 }, pixel(data, 1, 1, 3, 3));
+        assertPixel(new int[] { 6, 5, 4 }, pixel(data, 2, 1, 3, 3));
+    }
+
+    @Test
+    public void testColorMapped() throws IOException {
+        for(int imageType=1; imageType<=9; imageType+=8) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            header(out, imageType, 1, 2, 24, 2, 1, 8, 0);
+            out.write(new byte[] { 0, 0, (byte) 255, (byte) 255, 0, 0 }, 0, 6); // red, blue
+            if(imageType == 9) {
+                out.write(0);           // raw packet of 1 pixel
+                out.write(1);
+                out.write(0x80);        // run of 1 pixel
+                out.write(0);
+            } else {
+                out.write(1);
+                out.write(0);
+            }
+            TGAImage image = TGAImage.read(ByteBuffer.wrap(out.toByteArray()));
+            Assert.assertEquals(GL.GL_RGB, image.getGLFormat());
+            assertPixel(new int[] { 0, 0, 255 }, pixel(image.getData(), 0, 0, 2, 3));
+            assertPixel(new int[] { 255, 0, 0 }, pixel(image.getData(), 1, 0, 2, 3));
+        }
+    }
+
+    @Test
+    public void testGrayscale() throws IOException {
+        for(int imageType=3; imageType<=11; imageType+=8) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            header(out, imageType, 0, 0, 0, 4, 1, 8, 0);
+            if(imageType == 11) {
+                out.write(0x80 | 1);    // run of 2 pixels
+                out.write(7);
+                out.write(1);           // raw packet of 2 pixels
+            }
+            out.write(9);
+            out.write(11);
+            if(imageType == 3) {
+                out.write(13);
+                out.write(15);
+            }
+            TGAImage image = TGAImage.read(ByteBuffer.wrap(out.toByteArray()));
+            Assert.assertEquals(GL.GL_LUMINANCE, image.getGLFormat());
+            Assert.assertEquals(1, image.getBytesPerPixel());
+            int[] expected = (imageType == 11) ? new int[] { 7, 7, 9, 11 } : new int[] { 9, 11, 13, 15 };
+            for(int x=0; x<4; x++) {
+                Assert.assertEquals(expected[x], image.getData().get(x) & 0xFF);
+            }
+        }
+    }
+
+    @Test
+    public void testZeroCopy() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        header(out, 3, 0, 0, 0, 4, 4, 8, 0);
+        for(int i=0; i<16; i++) {
+            out.write(i);
+        }
+        byte[] bytes = out.toByteArray();
+        ByteBuffer src = ByteBuffer.allocateDirect(bytes.length);
+        src.put(bytes);
+        src.rewind();
+        ByteBuffer data = TGAImage.read(src).getData();
+        Assert.assertEquals(16, data.remaining());
+        // shares the source buffer
+        src.put(18 + 5, (byte) 99);
+        Assert.assertEquals(99, data.get(5));
+    }
+
+    @Test
+    public void testFile() throws IOException {
+        File file = File.createTempFile("TestTGAImage01", ".tga");
+        try {
+            FileOutputStream fos = new FileOutputStream(file);
+            fos.write(trueColor(10, 32, true));
+            fos.close();
+            ByteBuffer data = TGAImage.read(file).getData();
+            assertPixel(new int[] { 3, 2, 1, 4 }, pixel(data, 0, 0, 2, 4));
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test(expected=IOException.class)
+    public void testTruncated() throws IOException {
+        byte[] bytes = trueColor(2, 24, false);
+        byte[] truncated = new byte[bytes.length - 1];
+        System.arraycopy(bytes, 0, truncated, 0, truncated.length);
+        TGAImage.read(ByteBuffer.wrap(truncated));
+    }
+
+    @Test
+    public void testDecodeThroughput() throws IOException {
+        final int size = 1024;
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        header(out, 10, 0, 0, 0, size, size, 32, 0x28);
+        for(int i=0; i<size*size; i+=8) {
+            // alternating runs and raw packets
+            if((i & 8) == 0) {
+                out.write(0x80 | 7);
+                out.write(new byte[] { 1, 2, 3, 4 }, 0, 4);
+            } else {
+                out.write(7);
+                for(int j=0; j<8*4; j++) {
+                    out.write(j);
+                }
+            }
+        }
+        ByteBuffer src = ByteBuffer.wrap(out.toByteArray());
+        final int loops = 10;
+        long t0 = System.currentTimeMillis();
+        for(int i=0; i<loops; i++) {
+            TGAImage image = TGAImage.read(src);
+            Assert.assertEquals(size*size*4, image.getData().remaining());
+        }
+        long dt = Math.max(1, System.currentTimeMillis() - t0);
+        System.err.println("TGA RLE decode: "+(loops*size*size*4L/1024/1024*1000/dt)+" MB/s");
+    }
+
+    public static void main(String args[]) {
+        org.junit.runner.JUnitCore.main(TestTGAImage01.class.getName());
+    }
+}
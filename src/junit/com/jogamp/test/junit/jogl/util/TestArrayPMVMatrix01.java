@@ -0,0 +1,168 @@
+/**
+ * Copyright 2010 JogAmp Community. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are
+ * permitted provided that the following conditions are met:
+ * 
+ *    1. Redistributions of source code must retain the above copyright notice, this list of
+ *       conditions and the following disclaimer.
+ * 
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *       of conditions and the following disclaimer in the documentation and/or other materials
+ *       provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY JogAmp Community ``AS IS'' AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL JogAmp Community OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are those of the
+ * authors and should not be interpreted as representing official policies, either expressed
+ * or implied, of JogAmp Community.
+ */
+ 
+package com.jogamp.test.junit.jogl.util;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.FloatBuffer;
+
+import javax.media.opengl.GL;
+import javax.media.opengl.fixedfunc.GLMatrixFunc;
+
+import com.jogamp.opengl.util.ArrayPMVMatrix;
+import com.jogamp.opengl.util.PMVMatrix;
+
+public class TestArrayPMVMatrix01 {
+    static final float EPSILON = 0.0001f;
+    static final int LOOPS = 20000;
+
+    static void assertEquals(String msg, FloatBuffer expected, float[] has, int len) {
+        for(int i=0; i<len; i++) {
+            Assert.assertEquals(msg+"["+i+"]", expected.get(i), has[i], EPSILON);
+        }
+    }
+
+    static void transform(GLMatrixFunc m, int i) {
+        m.glMatrixMode(GLMatrixFunc.GL_PROJECTION);
+        m.glLoadIdentity();
+        m.glOrthof(-1f, 1f, -1f, 1f, 1f, 100f);
+        m.glMatrixMode(GLMatrixFunc.GL_MODELVIEW);
+        m.glLoadIdentity();
+        m.glTranslatef(0f, 0f, -10f);
+        m.glPushMatrix();
+        m.glRotatef(i%360, 0f, 1f, 0.5f);
+        m.glScalef(1.5f, 0.5f, 2f);
+        m.glPushMatrix();
+        m.glTranslatef(1f, 2f, 3f);
+        m.glPopMatrix();
+        m.glTranslatef(-2f, 0.5f, 1f);
+    }
+
+    @Test
+    public void test01Equality() {
+        PMVMatrix pmv = new PMVMatrix();
+        ArrayPMVMatrix apmv = new ArrayPMVMatrix();
+
+        for(int i=0; i<360; i+=15) {
+            transform(pmv, i);
+            transform(apmv, i);
+            pmv.update();
+            apmv.update();
+            assertEquals("P", pmv.glGetPMatrixf(), apmv.glGetPMatrixf(), 16);
+            assertEquals("Mv", pmv.glGetMvMatrixf(), apmv.glGetMvMatrixf(), 16);
+            assertEquals("Mvi", pmv.glGetMviMatrixf(), apmv.glGetMviMatrixf(), 16);
+            assertEquals("Pmv", pmv.glGetPmvMatrixf(), apmv.glGetPmvMatrixf(), 16);
+            assertEquals("Normal", pmv.glGetNormalMatrixf(), apmv.glGetNormalMatrixf(), 9);
+        }
+        apmv.glMatrixMode(GLMatrixFunc.GL_PROJECTION);
+        apmv.glLoadIdentity();
+        apmv.glFrustumf(-1f, 1f, -1f, 1f, 1f, 100f);
+        pmv.glMatrixMode(GLMatrixFunc.GL_PROJECTION);
+        pmv.glLoadIdentity();
+        pmv.glFrustumf(-1f, 1f, -1f, 1f, 1f, 100f);
+        pmv.update();
+        assertEquals("Frustum", pmv.glGetPMatrixf(), apmv.glGetPMatrixf(), 16);
+        assertEquals("Frustum Pmv", pmv.glGetPmvMatrixf(), apmv.glGetPmvMatrixf(), 16);
+
+        pmv.destroy();
+        apmv.destroy();
+    }
+
+    @Test
+    public void test02LazyDerived() {
+        ArrayPMVMatrix apmv = new ArrayPMVMatrix();
+        float[] mvi = apmv.glGetMviMatrixf();
+        Assert.assertEquals(1f, mvi[0], EPSILON);
+
+        apmv.glMatrixMode(GLMatrixFunc.GL_MODELVIEW);
+        apmv.glScalef(2f, 2f, 2f);
+        Assert.assertTrue(apmv.isDirty(GLMatrixFunc.GL_MODELVIEW));
+        Assert.assertTrue(apmv.update());
+        Assert.assertFalse(apmv.isDirty());
+        // derived matrices are computed on demand, independent of update()
+        Assert.assertEquals(0.5f, apmv.glGetMviMatrixf()[0], EPSILON);
+        Assert.assertEquals(0.5f, apmv.glGetNormalMatrixf()[4], EPSILON);
+
+        // texture changes don't touch derived matrices
+        apmv.glMatrixMode(GL.GL_TEXTURE);
+        apmv.glScalef(3f, 3f, 3f);
+        Assert.assertSame(mvi, apmv.glGetMviMatrixf());
+        Assert.assertEquals(0.5f, mvi[0], EPSILON);
+        apmv.destroy();
+    }
+
+    @Test
+    public void test03StackGrowth() {
+        ArrayPMVMatrix apmv = new ArrayPMVMatrix(2);
+        apmv.glMatrixMode(GLMatrixFunc.GL_MODELVIEW);
+        for(int i=0; i<10; i++) {
+            apmv.glPushMatrix();
+            apmv.glTranslatef(1f, 0f, 0f);
+        }
+        Assert.assertEquals(10f, apmv.glGetMvMatrixf()[12], EPSILON);
+        for(int i=0; i<10; i++) {
+            apmv.glPopMatrix();
+        }
+        Assert.assertEquals(0f, apmv.glGetMvMatrixf()[12], EPSILON);
+        try {
+            apmv.glPopMatrix();
+            Assert.fail("stack underflow not detected");
+        } catch (javax.media.opengl.GLException gle) { }
+        apmv.destroy();
+    }
+
+    @Test
+    public void test10Perf() {
+        PMVMatrix pmv = new PMVMatrix();
+        ArrayPMVMatrix apmv = new ArrayPMVMatrix();
+        for(int i=0; i<LOOPS/10; i++) {
+            transform(pmv, i); pmv.update(); pmv.glGetNormalMatrixf();
+            transform(apmv, i); apmv.update(); apmv.glGetNormalMatrixf();
+        }
+
+        long t0 = System.currentTimeMillis();
+        for(int i=0; i<LOOPS; i++) {
+            transform(pmv, i); pmv.update(); pmv.glGetPmvMatrixf();
+        }
+        long t1 = System.currentTimeMillis();
+        for(int i=0; i<LOOPS; i++) {
+            transform(apmv, i); apmv.update(); apmv.glGetPmvMatrixf();
+        }
+        long t2 = System.currentTimeMillis();
+        System.out.println("PMVMatrix      "+LOOPS+" frames: "+(t1-t0)+" ms");
+        System.out.println("ArrayPMVMatrix "+LOOPS+" frames: "+(t2-t1)+" ms");
+        pmv.destroy();
+        apmv.destroy();
+    }
+
+    public static void main(String args[]) {
+        org.junit.runner.JUnitCore.main(TestArrayPMVMatrix01.class.getName());
+    }
+}
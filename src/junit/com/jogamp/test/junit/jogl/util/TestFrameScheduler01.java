@@ -0,0 +1,287 @@
+/**
+ * Copyright 2010 JogAmp Community. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are
+ * permitted provided that the following conditions are met:
+ * 
+ *    1. Redistributions of source code must retain the above copyright notice, this list of
+ *       conditions and the following disclaimer.
+ * 
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *       of conditions and the following disclaimer in the documentation and/or other materials
+ *       provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY JogAmp Community ``AS IS'' AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL JogAmp Community OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are those of the
+ * authors and should not be interpreted as representing official policies, either expressed
+ * or implied, of JogAmp Community.
+ */
+ 
+package com.jogamp.test.junit.jogl.util;
+
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+
+import javax.media.opengl.GLAutoDrawable;
+import javax.media.opengl.GLProfile;
+
+import com.jogamp.opengl.util.FPSAnimator;
+import com.jogamp.opengl.util.FrameScheduler;
+import com.jogamp.opengl.util.FrameStatistics;
+
+public class TestFrameScheduler01 {
+
+    @BeforeClass
+    public static void initClass() {
+        GLProfile.initSingleton();
+    }
+
+    /** Fake drawable, only counting display() calls. */
+    static class CountingDrawable implements InvocationHandler {
+        final GLAutoDrawable drawable;
+        volatile int displayCount = 0;
+        volatile long displayDelay = 0;
+
+        CountingDrawable() {
+            drawable = (GLAutoDrawable) Proxy.newProxyInstance(GLAutoDrawable.class.getClassLoader(), new Class[] { GLAutoDrawable.class }, this);
+        }
+
+        public Object invoke(Object proxy, Method m, Object[] args) throws InterruptedException {
+            String name = m.getName();
+            if(name.equals("display")) {
+                displayCount++;
+                if(displayDelay>0) {
+                    Thread.sleep(displayDelay);
+                }
+            } else if(name.equals("hashCode")) {
+                return new Integer(System.identityHashCode(proxy));
+            } else if(name.equals("equals")) {
+                return Boolean.valueOf(proxy==args[0]);
+            } else if(name.equals("toString")) {
+                return "CountingDrawable";
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Scheduler on a simulated clock, waiting and spinning advance the time.
+     * The origin is negative, as it may be for <code>System.nanoTime()</code>.
+     */
+    static class SimulatedScheduler extends FrameScheduler {
+        long now = -5000000000L;
+        int waits = 0;
+
+        SimulatedScheduler(int fps, int policy) {
+            super(fps, policy);
+        }
+
+        protected long currentTimeNanos() { return now; }
+
+        protected void waitNanos(long nanos) {
+            waits++;
+            now += nanos;
+        }
+
+        protected void spin() {
+            now += 1000;
+        }
+
+        void sleep(long ms) {
+            now += ms * 1000000L;
+        }
+    }
+
+    @Test
+    public void test01PacingNoDrift() {
+        int[] rates = { 60, 240 };
+        for(int j=0; j<rates.length; j++) {
+            SimulatedScheduler scheduler = new SimulatedScheduler(rates[j], FrameScheduler.SKIP);
+            final int frames = rates[j] + 1;
+            long t0 = scheduler.now;
+            for(int i=0; i<frames; i++) {
+                Assert.assertTrue(scheduler.waitForNextFrame());
+                // each frame starts exactly at its deadline
+                Assert.assertEquals(t0 + i * scheduler.getFramePeriod(), scheduler.now);
+            }
+            long dur = scheduler.now - t0;
+            System.out.println(rates[j]+" fps, "+frames+" frames in "+dur+" ns: "+scheduler);
+            // one second minus the truncation of the period, no accumulated rounding
+            Assert.assertEquals(rates[j] * ( 1000000000L / rates[j] ), dur);
+            Assert.assertEquals(0, scheduler.getMissedFrames());
+            Assert.assertEquals(frames, scheduler.getFrameCount());
+            Assert.assertEquals(frames-1, scheduler.waits);
+        }
+    }
+
+    @Test
+    public void test02SkipMissedFrames() {
+        SimulatedScheduler scheduler = new SimulatedScheduler(100, FrameScheduler.SKIP);
+        long t0 = scheduler.now;
+        scheduler.waitForNextFrame();
+        scheduler.waitForNextFrame();
+        scheduler.sleep(55); // misses the deadlines at 20, 30, 40 and 50 ms
+        scheduler.waitForNextFrame();
+        Assert.assertEquals(4, scheduler.getDroppedFrames());
+        Assert.assertEquals(4, scheduler.getMissedFrames());
+        Assert.assertEquals(t0 + 65000000L, scheduler.now);
+        for(int i=0; i<10; i++) {
+            scheduler.waitForNextFrame();
+        }
+        // schedule stays aligned to the start time
+        long dur = scheduler.now - t0;
+        System.out.println("skip: "+dur+" ns: "+scheduler);
+        Assert.assertEquals(( 1 + 4 + 11 ) * 10000000L, dur);
+    }
+
+    @Test
+    public void test03CatchUpMissedFrames() {
+        SimulatedScheduler scheduler = new SimulatedScheduler(100, FrameScheduler.CATCH_UP);
+        scheduler.waitForNextFrame();
+        scheduler.waitForNextFrame();
+        scheduler.sleep(45); // 3 frames behind
+        long t0 = scheduler.now;
+        scheduler.waitForNextFrame();
+        scheduler.waitForNextFrame();
+        scheduler.waitForNextFrame();
+        System.out.println("catch-up: "+scheduler);
+        // rendered back to back
+        Assert.assertEquals(t0, scheduler.now);
+        Assert.assertEquals(0, scheduler.getDroppedFrames());
+        Assert.assertEquals(3, scheduler.getMissedFrames());
+        // the frame due at 50 ms is late, but within its period
+        scheduler.waitForNextFrame();
+        Assert.assertEquals(t0, scheduler.now);
+        Assert.assertEquals(3, scheduler.getMissedFrames());
+        // on schedule again
+        scheduler.waitForNextFrame();
+        Assert.assertEquals(t0 + 5000000L, scheduler.now);
+
+        // too far behind: reset
+        scheduler.sleep(100);
+        scheduler.waitForNextFrame();
+        Assert.assertEquals(1, scheduler.getResyncCount());
+        Assert.assertEquals(9, scheduler.getDroppedFrames());
+    }
+
+    @Test
+    public void test04WakeUp() throws InterruptedException {
+        final FrameScheduler scheduler = new FrameScheduler(1, FrameScheduler.SKIP);
+        scheduler.waitForNextFrame();
+        new Thread() {
+            public void run() {
+                try { Thread.sleep(50); } catch (InterruptedException ie) { }
+                scheduler.wakeUp();
+            }
+        }.start();
+        long t0 = System.currentTimeMillis();
+        Assert.assertFalse(scheduler.waitForNextFrame());
+        // well before the deadline at 1000 ms
+        Assert.assertTrue(System.currentTimeMillis() - t0 < 900);
+    }
+
+    @Test
+    public void test05FrameStatistics() {
+        FrameStatistics stats = new FrameStatistics();
+        Assert.assertEquals(0, stats.getP50FrameTime());
+        for(int i=1; i<=100; i++) {
+            stats.addFrame(i*1000, i>90);
+        }
+        stats.addFrame(5000000, true);
+        Assert.assertEquals(101, stats.getFrameCount());
+        Assert.assertEquals(11, stats.getMissedDeadlines());
+        Assert.assertEquals(51000, stats.getP50FrameTime());
+        Assert.assertEquals(100000, stats.getP99FrameTime());
+        Assert.assertEquals(5000000, stats.getFrameTimePercentile(100f));
+        Assert.assertEquals(5000000, stats.getMaxFrameTime());
+        stats.reset();
+        Assert.assertEquals(0, stats.getFrameCount());
+        Assert.assertEquals(0, stats.getP99FrameTime());
+
+        // sub-millisecond resolution, e.g. 240 fps
+        for(int i=0; i<100; i++) {
+            stats.addFrame(4166 + i%2, false);
+        }
+        Assert.assertEquals(4166, stats.getFrameTimePercentile(50f));
+        Assert.assertEquals(4167, stats.getP99FrameTime());
+    }
+
+    @Test
+    public void test06FrameStatisticsWindow() {
+        FrameStatistics stats = new FrameStatistics(10);
+        for(int i=1; i<=20; i++) {
+            stats.addFrame(i*1000, false);
+        }
+        // percentiles of the last 10 frames, totals of all frames
+        Assert.assertEquals(11000, stats.getFrameTimePercentile(0f));
+        Assert.assertEquals(15000, stats.getP50FrameTime());
+        Assert.assertEquals(20000, stats.getP99FrameTime());
+        Assert.assertEquals(20, stats.getFrameCount());
+        Assert.assertEquals(10500f, stats.getAverageFrameTime(), 0.01f);
+    }
+
+    @Test
+    public void test07RealClockPacing() {
+        FrameScheduler scheduler = new FrameScheduler(60, FrameScheduler.SKIP);
+        final int frames = 31;
+        long t0 = System.nanoTime();
+        for(int i=0; i<frames; i++) {
+            Assert.assertTrue(scheduler.waitForNextFrame());
+        }
+        long dur = System.nanoTime() - t0;
+        System.out.println("60 fps, "+frames+" frames in "+dur+" ns: "+scheduler);
+        // never early, the upper bound only guards against a stuck schedule
+        Assert.assertTrue("duration "+dur, dur >= ( frames - 1 ) * scheduler.getFramePeriod());
+        Assert.assertTrue("duration "+dur, dur < 5000000000L);
+        Assert.assertEquals(frames, scheduler.getFrameCount());
+    }
+
+    @Test
+    public void test08FPSAnimatorStatistics() throws InterruptedException {
+        CountingDrawable fast = new CountingDrawable();
+        CountingDrawable slow = new CountingDrawable();
+        FPSAnimator animator = new FPSAnimator(fast.drawable, 50);
+        animator.add(slow.drawable);
+        animator.start();
+        Thread.sleep(500);
+        slow.displayDelay = 30; // exceeds the 20 ms period
+        Thread.sleep(500);
+        animator.stop();
+
+        FrameStatistics fastStats = animator.getFrameStatistics(fast.drawable);
+        FrameStatistics slowStats = animator.getFrameStatistics(slow.drawable);
+        System.out.println("fast: "+fastStats);
+        System.out.println("slow: "+slowStats);
+        System.out.println(animator.getFrameScheduler());
+        Assert.assertNotNull(fastStats);
+        // at most 50 frames within one second, at least a few on a loaded machine
+        Assert.assertTrue("frames "+fast.displayCount, fast.displayCount >= 10 && fast.displayCount <= 55);
+        // frames start at 20 ms deadlines, only a late predecessor shortens the interval
+        long p50 = fastStats.getP50FrameTime();
+        Assert.assertTrue("p50 "+p50, p50 >= 15000 && p50 <= 500000);
+        Assert.assertTrue(slowStats.getMissedDeadlines() > 0);
+        Assert.assertTrue(animator.getFrameScheduler().getMissedFrames() > 0);
+        Assert.assertTrue(slowStats.getP99FrameTime() >= 30000);
+
+        animator.remove(fast.drawable);
+        Assert.assertNull(animator.getFrameStatistics(fast.drawable));
+    }
+
+    public static void main(String args[]) {
+        org.junit.runner.JUnitCore.main(TestFrameScheduler01.class.getName());
+    }
+}
@@ -0,0 +1,186 @@
+/**
+ * Copyright 2010 JogAmp Community. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are
+ * permitted provided that the following conditions are met:
+ * 
+ *    1. Redistributions of source code must retain the above copyright notice, this list of
+ *       conditions and the following disclaimer.
+ * 
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *       of conditions and the following disclaimer in the documentation and/or other materials
+ *       provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY JogAmp Community ``AS IS'' AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL JogAmp Community OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are those of the
+ * authors and should not be interpreted as representing official policies, either expressed
+ * or implied, of JogAmp Community.
+ */
+ 
+package com.jogamp.test.junit.jogl.util;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+
+import javax.media.opengl.GL;
+
+import com.jogamp.opengl.util.DirectBufferPool;
+import com.jogamp.opengl.util.GLArrayDataClient;
+
+public class TestGLArrayDataClientGrowth01 {
+
+    /** Client side array without GL handler, sufficient for filling. */
+    static class ArrayData extends GLArrayDataClient {
+        final DirectBufferPool pool;
+        ArrayData(int comps, int initialSize) {
+            this(comps, initialSize, GLArrayDataClient.getBufferPool());
+        }
+        ArrayData(int comps, int initialSize, DirectBufferPool pool) {
+            this.pool = pool;
+            init("vertices", -1, comps, GL.GL_FLOAT, false, 0, null, initialSize, true, null, 0, 0);
+        }
+        protected DirectBufferPool getPool() {
+            return pool;
+        }
+        void release() {
+            releaseBuffer();
+            buffer = null;
+        }
+    }
+
+    @Test
+    public void test01PoolSizeClasses() {
+        Assert.assertEquals(DirectBufferPool.MIN_SIZE_CLASS, DirectBufferPool.getSizeClass(1));
+        Assert.assertEquals(128, DirectBufferPool.getSizeClass(65));
+        Assert.assertEquals(128, DirectBufferPool.getSizeClass(128));
+        Assert.assertEquals(DirectBufferPool.MAX_SIZE_CLASS+1, DirectBufferPool.getSizeClass(DirectBufferPool.MAX_SIZE_CLASS+1));
+    }
+
+    @Test
+    public void test02PoolReuse() {
+        DirectBufferPool pool = new DirectBufferPool(2);
+        ByteBuffer b0 = pool.acquire(1000);
+        Assert.assertEquals(1024, b0.capacity());
+        Assert.assertTrue(b0.isDirect());
+        Assert.assertEquals(1024, pool.getHeldBytes());
+        pool.release(b0);
+        Assert.assertEquals(0, pool.getHeldBytes());
+        Assert.assertEquals(1024, pool.getPooledBytes());
+
+        ByteBuffer b1 = pool.acquire(600);
+        Assert.assertSame(b0, b1);
+        Assert.assertEquals(1, pool.getHits());
+        Assert.assertEquals(1, pool.getMisses());
+        Assert.assertEquals(1024, pool.getAllocatedBytes());
+
+        // surplus beyond maxPerClass is dropped
+        ByteBuffer b2 = pool.acquire(1024);
+        ByteBuffer b3 = pool.acquire(1024);
+        pool.release(b1); pool.release(b2); pool.release(b3);
+        Assert.assertEquals(2*1024, pool.getPooledBytes());
+        Assert.assertEquals(2*1024, pool.getAllocatedBytes());
+        pool.clear();
+        Assert.assertEquals(0, pool.getAllocatedBytes());
+    }
+
+    @Test
+    public void test02bPoolByteLimit() {
+        DirectBufferPool pool = new DirectBufferPool(8, 3*1024);
+        ByteBuffer[] b = new ByteBuffer[4];
+        for(int i=0; i<b.length; i++) {
+            b[i] = pool.acquire(1024);
+        }
+        for(int i=0; i<b.length; i++) {
+            pool.release(b[i]);
+        }
+        // the fourth buffer exceeds the byte limit
+        Assert.assertEquals(3*1024, pool.getPooledBytes());
+        Assert.assertEquals(3*1024, pool.getAllocatedBytes());
+        Assert.assertEquals(DirectBufferPool.DEFAULT_MAX_POOLED_BYTES, DirectBufferPool.getDefault().getMaxPooledBytes());
+    }
+
+    @Test
+    public void test02cPoolOptIn() {
+        if(null == System.getProperty("jogl.glarray.pool")) {
+            Assert.assertNull(GLArrayDataClient.getBufferPool());
+        }
+    }
+
+    @Test
+    public void test03GeometricGrowth() {
+        final int vertices = 100000;
+        ArrayData ad = new ArrayData(3, 16);
+        for(int i=0; i<vertices; i++) {
+            ad.putf(i); ad.putf(i+1); ad.putf(i+2);
+        }
+        ad.seal(true);
+        FloatBuffer fb = (FloatBuffer) ad.getBuffer();
+        Assert.assertEquals(vertices*3, fb.limit());
+        Assert.assertEquals(vertices-1, fb.get((vertices-1)*3), 0f);
+        Assert.assertEquals(vertices, ad.getElementNumber());
+
+        // amortized: each element is copied less than twice, not O(n^2)
+        final long payload = (long) vertices * 3 * 4;
+        System.out.println("bytes payload "+payload+", copied "+ad.getBytesCopied()+", held "+ad.getDirectBytesHeld());
+        Assert.assertTrue(ad.getBytesCopied() < 2 * payload);
+        Assert.assertTrue(ad.getDirectBytesHeld() >= payload);
+        Assert.assertTrue(ad.getDirectBytesHeld() < 4 * payload);
+        ad.release();
+    }
+
+    @Test
+    public void test04ReuseAfterRelease() {
+        DirectBufferPool pool = new DirectBufferPool(8);
+        ArrayData ad0 = new ArrayData(4, 256, pool);
+        long held = pool.getHeldBytes();
+        ad0.release();
+        Assert.assertTrue(pool.getHeldBytes() < held);
+        long hits = pool.getHits();
+        ArrayData ad1 = new ArrayData(4, 256, pool);
+        Assert.assertEquals(hits+1, pool.getHits());
+        ad1.release();
+    }
+
+    @Test
+    public void test05HandedOutBufferNotRecycled() {
+        DirectBufferPool pool = new DirectBufferPool(8);
+        ArrayData ad0 = new ArrayData(4, 256, pool);
+        FloatBuffer fb = (FloatBuffer) ad0.getBuffer();
+        fb.put(0, 42f);
+        ad0.release();
+        Assert.assertEquals(0, pool.getPooledBytes());
+        Assert.assertEquals(0, pool.getHeldBytes());
+        Assert.assertEquals(0, pool.getAllocatedBytes());
+
+        // a later array gets fresh memory, the caller's data stays intact
+        ArrayData ad1 = new ArrayData(4, 256, pool);
+        Assert.assertEquals(0, pool.getHits());
+        ad1.putf(7f);
+        Assert.assertEquals(42f, fb.get(0), 0f);
+        ad1.release();
+
+        // buffers replaced by growth before being handed out are recycled
+        ArrayData ad2 = new ArrayData(4, 16, pool);
+        for(int i=0; i<1000; i++) {
+            ad2.putf(i);
+        }
+        Assert.assertTrue(pool.getPooledBytes() > 0);
+        ad2.release();
+    }
+
+    public static void main(String args[]) {
+        org.junit.runner.JUnitCore.main(TestGLArrayDataClientGrowth01.class.getName());
+    }
+}
@@ -0,0 +1,246 @@
+/**
+ * Copyright 2010 JogAmp Community. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are
+ * permitted provided that the following conditions are met:
+ * 
+ *    1. Redistributions of source code must retain the above copyright notice, this list of
+ *       conditions and the following disclaimer.
+ * 
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *       of conditions and the following disclaimer in the documentation and/or other materials
+ *       provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY JogAmp Community ``AS IS'' AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL JogAmp Community OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are those of the
+ * authors and should not be interpreted as representing official policies, either expressed
+ * or implied, of JogAmp Community.
+ */
+ 
+package com.jogamp.test.junit.jogl.util;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+
+import javax.imageio.ImageIO;
+
+import com.jogamp.opengl.util.ImageEncoder;
+import com.jogamp.opengl.util.ImageWriterQueue;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Encodes synthetic framebuffers as Targa and PNG and decodes them again,
+ * checks the output doesn't depend on the number of threads
+ * and prints the encoding throughput.
+ */
+public class TestImageEncoder01 {
+
+    /** A framebuffer with flat areas, gradients and noise, rows bottom to top */
+    static byte[] framebuffer(int width, int height, int bpp) {
+        byte[] pixels = new byte[width * height * bpp];
+        int seed = 12345;
+        for(int y=0; y<height; y++) {
+            for(int x=0; x<width; x++) {
+                int p = (y * width + x) * bpp;
+                for(int c=0; c<bpp; c++) {
+                    int v;
+                    if(x < width / 3) {
+                        v = 40 * c;
+                    } else if(x < 2 * width / 3) {
+                        v = x + y * c;
+                    } else {
+                        seed = seed * 1103515245 + 12345;
+                        v = seed >>> 24;
+                    }
+                    pixels[p + c] = (byte) v;
+                }
+            }
+        }
+        return pixels;
+    }
+
+    static byte[] encode(ImageEncoder encoder, byte[] pixels, int width, int height, int bpp) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        encoder.encode(out, pixels, 0, width, height, bpp);
+        return out.toByteArray();
+    }
+
+    /** Decodes a run length encoded Targa, rows bottom to top */
+    static byte[] decodeRLETGA(byte[] tga, int bpp) {
+        Assert.assertEquals(10, tga[2]);
+        Assert.assertEquals(bpp * 8, tga[16] & 0xff);
+        int width = (tga[12] & 0xff) | (tga[13] & 0xff) << 8;
+        int height = (tga[14] & 0xff) | (tga[15] & 0xff) << 8;
+        byte[] pixels = new byte[width * height * bpp];
+        int src = 18;
+        int dst = 0;
+        while(dst < pixels.length) {
+            int head = tga[src++] & 0xff;
+            int count = (head & 0x7f) + 1;
+            if(0 != (head & 0x80)) {
+                for(int i=0; i<count; i++) {
+                    System.arraycopy(tga, src, pixels, dst, bpp);
+                    dst += bpp;
+                }
+                src += bpp;
+            } else {
+                System.arraycopy(tga, src, pixels, dst, count * bpp);
+                src += count * bpp;
+                dst += count * bpp;
+            }
+        }
+        Assert.assertEquals(tga.length, src);
+        return pixels;
+    }
+
+    static void assertPNG(byte[] png, byte[] pixels, int width, int height, int bpp) throws IOException {
+        BufferedImage image = ImageIO.read(new ByteArrayInputStream(png));
+        Assert.assertEquals(width, image.getWidth());
+        Assert.assertEquals(height, image.getHeight());
+        for(int y=0; y<height; y++) {
+            for(int x=0; x<width; x++) {
+                // the image is top down
+                int argb = image.getRGB(x, height - 1 - y);
+                int p = (y * width + x) * bpp;
+                int r = pixels[p] & 0xff, g = pixels[p+1] & 0xff, b = pixels[p+2] & 0xff;
+                int a = 4 == bpp ? pixels[p+3] & 0xff : 0xff;
+                Assert.assertEquals("pixel "+x+"/"+y, (a << 24) | (r << 16) | (g << 8) | b, argb);
+            }
+        }
+    }
+
+    @Test
+    public void testRLETGA() throws IOException {
+        for(int bpp=3; bpp<=4; bpp++) {
+            byte[] pixels = framebuffer(301, 97, bpp);
+            ImageEncoder encoder = new ImageEncoder(ImageEncoder.TGA_RLE);
+            byte[] tga = encode(encoder, pixels, 301, 97, bpp);
+            Assert.assertArrayEquals(pixels, decodeRLETGA(tga, bpp));
+            // the flat third compresses
+            Assert.assertTrue(tga.length < pixels.length);
+
+            encoder.setMaxThreads(1);
+            Assert.assertArrayEquals(tga, encode(encoder, pixels, 301, 97, bpp));
+        }
+    }
+
+    @Test
+    public void testUncompressedTGA() throws IOException {
+        byte[] pixels = framebuffer(20, 10, 3);
+        byte[] tga = encode(new ImageEncoder(ImageEncoder.TGA), pixels, 20, 10, 3);
+        Assert.assertEquals(18 + pixels.length, tga.length);
+        Assert.assertEquals(2, tga[2]);
+        for(int i=0; i<pixels.length; i++) {
+            Assert.assertEquals(pixels[i], tga[18 + i]);
+        }
+    }
+
+    @Test
+    public void testPNG() throws IOException {
+        for(int bpp=3; bpp<=4; bpp++) {
+            byte[] pixels = framebuffer(301, 97, bpp);
+            ImageEncoder encoder = new ImageEncoder(ImageEncoder.PNG);
+            byte[] png = encode(encoder, pixels, 301, 97, bpp);
+            assertPNG(png, pixels, 301, 97, bpp);
+
+            encoder.setMaxThreads(1);
+            Assert.assertArrayEquals(png, encode(encoder, pixels, 301, 97, bpp));
+        }
+    }
+
+    @Test
+    public void testFormatBySuffix() {
+        Assert.assertEquals(ImageEncoder.TGA_RLE, ImageEncoder.getFormat("TGA"));
+        Assert.assertEquals(ImageEncoder.PNG, ImageEncoder.getFormat("png"));
+        Assert.assertEquals(0, ImageEncoder.getFormat("jpg"));
+        Assert.assertTrue(new ImageEncoder(ImageEncoder.TGA_RLE).isBGR());
+        Assert.assertFalse(new ImageEncoder(ImageEncoder.PNG).isBGR());
+    }
+
+    @Test
+    public void testWriterQueue() throws IOException {
+        File dir = File.createTempFile("jogl-images", "");
+        dir.delete();
+        dir.mkdirs();
+        ImageWriterQueue queue = new ImageWriterQueue(2, 2);
+        ImageEncoder encoder = new ImageEncoder(ImageEncoder.PNG);
+        encoder.setMaxThreads(1);
+        byte[] pixels = framebuffer(64, 48, 4);
+        File[] files = new File[6];
+        for(int i=0; i<files.length; i++) {
+            files[i] = new File(dir, "frame"+i+".png");
+            queue.write(files[i], encoder, (byte[]) pixels.clone(), 64, 48, 4);
+            Assert.assertTrue(queue.getPending() <= 2);
+        }
+        queue.flush();
+        Assert.assertEquals(0, queue.getPending());
+        Assert.assertEquals(files.length, queue.getWritten());
+        for(int i=0; i<files.length; i++) {
+            Assert.assertEquals(files[i].getName(), 64, ImageIO.read(files[i]).getWidth());
+        }
+
+        // a failed write is reported by the next call
+        queue.write(new File(new File(dir, "missing"), "frame.png"), encoder, pixels, 64, 48, 4);
+        try {
+            queue.flush();
+            Assert.fail("failed write not reported");
+        } catch (IOException ioe) {
+        }
+        queue.close();
+        try {
+            queue.write(files[0], encoder, pixels, 64, 48, 4);
+            Assert.fail("closed queue accepted an image");
+        } catch (IOException ioe) {
+        }
+
+        for(int i=0; i<files.length; i++) {
+            files[i].delete();
+        }
+        dir.delete();
+    }
+
+    @Test
+    public void testThroughput() throws IOException {
+        int width = 1280, height = 720;
+        byte[] pixels = framebuffer(width, height, 3);
+        int[] formats = { ImageEncoder.TGA_RLE, ImageEncoder.PNG };
+        String[] names = { "tga rle", "png" };
+        int cores = Runtime.getRuntime().availableProcessors();
+        int[] threadCounts = 1 < cores ? new int[] { 1, cores } : new int[] { 1 };
+        for(int f=0; f<formats.length; f++) {
+            ImageEncoder encoder = new ImageEncoder(formats[f]);
+            for(int t=0; t<threadCounts.length; t++) {
+                int threads = threadCounts[t];
+                encoder.setMaxThreads(threads);
+                encode(encoder, pixels, width, height, 3); // warm up
+                int frames = 5;
+                long t0 = System.currentTimeMillis();
+                int size = 0;
+                for(int i=0; i<frames; i++) {
+                    size = encode(encoder, pixels, width, height, 3).length;
+                }
+                long dt = Math.max(1, System.currentTimeMillis() - t0);
+                System.err.println(names[f]+" "+width+"x"+height+", "+threads+" threads: "+
+                                   (frames * 1000L / dt)+" frames/s, "+size+" bytes");
+            }
+        }
+    }
+
+    public static void main(String args[]) {
+        org.junit.runner.JUnitCore.main(TestImageEncoder01.class.getName());
+    }
+}
@@ -0,0 +1,200 @@
+/**
+ * Copyright 2010 JogAmp Community. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are
+ * permitted provided that the following conditions are met:
+ * 
+ *    1. Redistributions of source code must retain the above copyright notice, this list of
+ *       conditions and the following disclaimer.
+ * 
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *       of conditions and the following disclaimer in the documentation and/or other materials
+ *       provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY JogAmp Community ``AS IS'' AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL JogAmp Community OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are those of the
+ * authors and should not be interpreted as representing official policies, either expressed
+ * or implied, of JogAmp Community.
+ */
+ 
+package com.jogamp.test.junit.jogl.util;
+
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.nio.ShortBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.media.opengl.GL;
+import javax.media.opengl.GL2ES1;
+import javax.media.opengl.GLProfile;
+
+import com.jogamp.opengl.util.ImmModeSink;
+
+public class TestImmModeSinkStreaming01 {
+    static GLProfile glp;
+
+    @BeforeClass
+    public static void initClass() {
+        GLProfile.initSingleton();
+        glp = GLProfile.getDefault();
+        Assert.assertNotNull(glp);
+    }
+
+    /** Recording mock GL, only tracking draw calls. */
+    static class RecordingGL implements InvocationHandler {
+        final List<int[]> drawCalls = new ArrayList<int[]>();
+        final List<short[]> drawIndices = new ArrayList<short[]>();
+        final GL2ES1 gl;
+
+        RecordingGL() {
+            gl = (GL2ES1) Proxy.newProxyInstance(GL2ES1.class.getClassLoader(), new Class[] { GL2ES1.class }, this);
+        }
+
+        public Object invoke(Object proxy, Method m, Object[] args) {
+            String name = m.getName();
+            if(name.equals("getGLProfile")) {
+                return glp;
+            }
+            if(name.startsWith("getGL") || name.equals("getGL")) {
+                return gl;
+            }
+            if(name.equals("glDrawArrays")) {
+                drawCalls.add(new int[] { ((Integer)args[0]).intValue(), ((Integer)args[2]).intValue() });
+            } else if(name.equals("glDrawElements") && args[3] instanceof ShortBuffer) {
+                ShortBuffer sb = (ShortBuffer) args[3];
+                short[] idx = new short[sb.remaining()];
+                sb.get(idx);
+                drawIndices.add(idx);
+                drawCalls.add(new int[] { ((Integer)args[0]).intValue(), ((Integer)args[1]).intValue() });
+            }
+            Class<?> rt = m.getReturnType();
+            if(rt==boolean.class) return Boolean.FALSE;
+            if(rt==int.class) return Integer.valueOf(0);
+            if(rt==long.class) return Long.valueOf(0);
+            if(rt==float.class) return Float.valueOf(0);
+            if(rt==double.class) return Double.valueOf(0);
+            return null;
+        }
+    }
+
+    static ImmModeSink createSink(GL gl) {
+        return ImmModeSink.createFixed(gl, GL.GL_STATIC_DRAW, 16,
+                                       3, GL.GL_FLOAT,  // vertex
+                                       4, GL.GL_FLOAT,  // color
+                                       0, GL.GL_FLOAT,  // normal
+                                       0, GL.GL_FLOAT); // texture
+    }
+
+    static void quad(ImmModeSink sink, int mode, float x) {
+        sink.glBegin(mode);
+        sink.glVertex3f(x, 0f, 0f); sink.glColor4f(1f, 0f, 0f, 1f);
+        sink.glVertex3f(x+1f, 0f, 0f); sink.glColor4f(1f, 0f, 0f, 1f);
+        sink.glVertex3f(x, 1f, 0f); sink.glColor4f(1f, 0f, 0f, 1f);
+        sink.glVertex3f(x+1f, 1f, 0f); sink.glColor4f(1f, 0f, 0f, 1f);
+    }
+
+    @Test
+    public void test01LegacyDrawCallPerBatch() {
+        RecordingGL rgl = new RecordingGL();
+        ImmModeSink sink = createSink(rgl.gl);
+        for(int i=0; i<100; i++) {
+            quad(sink, GL.GL_TRIANGLE_STRIP, i);
+            sink.glEnd(rgl.gl, false);
+        }
+        sink.draw(rgl.gl, true);
+        Assert.assertEquals(100, rgl.drawCalls.size());
+        sink.destroy(rgl.gl);
+    }
+
+    @Test
+    public void test02StreamingMergesBatches() {
+        RecordingGL rgl = new RecordingGL();
+        ImmModeSink sink = createSink(rgl.gl);
+        sink.setStreaming(true);
+        for(int i=0; i<100; i++) {
+            quad(sink, GL.GL_TRIANGLE_STRIP, i);
+            sink.glEnd(rgl.gl, false);
+            quad(sink, ImmModeSink.GL_QUAD_STRIP, i);
+            sink.glEnd(rgl.gl);
+            quad(sink, ImmModeSink.GL_POLYGON, i);
+            sink.glEnd(rgl.gl);
+        }
+        Assert.assertEquals(1, sink.getStreamBatchCount());
+        Assert.assertEquals(0, rgl.drawCalls.size());
+        sink.draw(rgl.gl, true);
+        Assert.assertEquals(1, rgl.drawCalls.size());
+        Assert.assertEquals(GL.GL_TRIANGLES, rgl.drawCalls.get(0)[0]);
+        Assert.assertEquals(100*3*2*3, rgl.drawCalls.get(0)[1]);
+
+        // strip: (0,1,2),(2,1,3); quad strip: (4,5,6),(6,5,7); polygon: (8,9,10),(8,10,11)
+        short[] idx = rgl.drawIndices.get(0);
+        short[] expected = { 0,1,2, 2,1,3,  4,5,6, 6,5,7,  8,9,10, 8,10,11 };
+        for(int i=0; i<expected.length; i++) {
+            Assert.assertEquals("index "+i, expected[i], idx[i]);
+        }
+
+        // retained until reset
+        sink.draw(rgl.gl, true);
+        Assert.assertEquals(2, rgl.drawCalls.size());
+        sink.reset(rgl.gl);
+        Assert.assertEquals(0, sink.getStreamBatchCount());
+        sink.destroy(rgl.gl);
+    }
+
+    @Test
+    public void test03StreamingPrimitiveChanges() {
+        RecordingGL rgl = new RecordingGL();
+        ImmModeSink sink = createSink(rgl.gl);
+        sink.setStreaming(true);
+        quad(sink, GL.GL_TRIANGLES, 0); sink.glEnd(rgl.gl);     // 4 vertices -> 1 triangle
+        quad(sink, GL.GL_LINE_LOOP, 1); sink.glEnd(rgl.gl);     // 4 lines
+        quad(sink, GL.GL_LINE_STRIP, 2); sink.glEnd(rgl.gl);    // 3 lines, merged
+        quad(sink, GL.GL_TRIANGLE_FAN, 3); sink.glEnd(rgl.gl);  // 2 triangles
+        sink.draw(rgl.gl, true);
+        Assert.assertEquals(3, rgl.drawCalls.size());
+        Assert.assertEquals(GL.GL_TRIANGLES, rgl.drawCalls.get(0)[0]);
+        Assert.assertEquals(3, rgl.drawCalls.get(0)[1]);
+        Assert.assertEquals(GL.GL_LINES, rgl.drawCalls.get(1)[0]);
+        Assert.assertEquals((4+3)*2, rgl.drawCalls.get(1)[1]);
+        Assert.assertEquals(GL.GL_TRIANGLES, rgl.drawCalls.get(2)[0]);
+        Assert.assertEquals(2*3, rgl.drawCalls.get(2)[1]);
+        sink.destroy(rgl.gl);
+    }
+
+    @Test
+    public void test04StreamingOverflowFlush() {
+        RecordingGL rgl = new RecordingGL();
+        ImmModeSink sink = createSink(rgl.gl);
+        sink.setStreaming(true);
+        final int quads = ImmModeSink.MAX_STREAM_ELEMENTS / 4 + 10;
+        for(int i=0; i<quads; i++) {
+            quad(sink, GL.GL_TRIANGLE_STRIP, i);
+            sink.glEnd(rgl.gl);
+        }
+        // the batch crossing the 16bit index range flushed the previous ones
+        Assert.assertEquals(1, rgl.drawCalls.size());
+        sink.draw(rgl.gl, true);
+        Assert.assertEquals(2, rgl.drawCalls.size());
+        Assert.assertEquals(quads*6, rgl.drawCalls.get(0)[1] + rgl.drawCalls.get(1)[1]);
+        sink.destroy(rgl.gl);
+    }
+
+    public static void main(String args[]) {
+        org.junit.runner.JUnitCore.main(TestImmModeSinkStreaming01.class.getName());
+    }
+}
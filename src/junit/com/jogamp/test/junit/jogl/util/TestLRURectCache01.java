@@ -0,0 +1,210 @@
+/**
+ * Copyright 2010 JogAmp Community. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are
+ * permitted provided that the following conditions are met:
+ * 
+ *    1. Redistributions of source code must retain the above copyright notice, this list of
+ *       conditions and the following disclaimer.
+ * 
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *       of conditions and the following disclaimer in the documentation and/or other materials
+ *       provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY JogAmp Community ``AS IS'' AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL JogAmp Community OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are those of the
+ * authors and should not be interpreted as representing official policies, either expressed
+ * or implied, of JogAmp Community.
+ */
+ 
+package com.jogamp.test.junit.jogl.util;
+
+import com.jogamp.opengl.util.packrect.BackingStoreManager;
+import com.jogamp.opengl.util.packrect.LRURectCache;
+import com.jogamp.opengl.util.packrect.Rect;
+import com.jogamp.opengl.util.packrect.RectanglePacker;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Drives an {@link LRURectCache} the way TextRenderer's glyph cache does,
+ * against an in-memory backing store.
+ */
+public class TestLRURectCache01 {
+
+    /** Backing store without pixels, evicting from the cache before growing */
+    static class MemoryStore implements BackingStoreManager {
+        LRURectCache cache;
+        int allocations;
+
+        public Object allocateBackingStore(int w, int h) {
+            allocations++;
+            return new int[] { w, h };
+        }
+        public void deleteBackingStore(Object backingStore) { }
+        public boolean canCompact() { return true; }
+        public boolean preExpand(Rect cause, int attemptNumber) {
+            if (attemptNumber == 0) {
+                cache.evict(cause.w() * cause.h());
+                return true;
+            }
+            return false;
+        }
+        public boolean additionFailed(Rect cause, int attemptNumber) { return false; }
+        public void beginMovement(Object oldBackingStore, Object newBackingStore) { }
+        public void move(Object oldBackingStore, Rect oldLocation,
+                         Object newBackingStore, Rect newLocation) { }
+        public void endMovement(Object oldBackingStore, Object newBackingStore) { }
+    }
+
+    MemoryStore store;
+    RectanglePacker packer;
+    LRURectCache cache;
+    int rasterized;
+
+    void setup(int maxSize) {
+        store = new MemoryStore();
+        packer = new RectanglePacker(store, 128, 64);
+        if (maxSize > 0) {
+            packer.setMaxSize(maxSize, maxSize);
+        }
+        cache = new LRURectCache(packer);
+        store.cache = cache;
+        rasterized = 0;
+    }
+
+    /** Draws the given code points as one frame, rasterizing cache misses */
+    void frame(String text) {
+        for (int i = 0; i < text.length(); i++) {
+            int unicodeID = text.charAt(i);
+            Rect rect = cache.use(unicodeID);
+            if (rect == null) {
+                rasterized++;
+                rect = new Rect(0, 0, 16, 18, new Integer(unicodeID));
+                packer.add(rect);
+                cache.setRect(unicodeID, new Integer(unicodeID), rect);
+            }
+            Assert.assertEquals(new Integer(unicodeID), rect.getUserData());
+        }
+        cache.nextFrame();
+    }
+
+    static String cjk(int first, int count) {
+        StringBuffer buf = new StringBuffer();
+        for (int i = 0; i < count; i++) {
+            buf.append((char) (first + i));
+        }
+        return buf.toString();
+    }
+
+    @Test
+    public void testSteadyStateNoRasterization() {
+        setup(-1);
+        String text = cjk(0x4E00, 200) + "\u0416\u2603" + cjk(0x4E00, 50);
+        frame(text);
+        Assert.assertEquals(202, rasterized);
+        Assert.assertEquals(202, cache.residentCount());
+
+        cache.resetStatistics();
+        for (int f = 0; f < 10; f++) {
+            frame(text);
+        }
+        Assert.assertEquals(202, rasterized);
+        Assert.assertEquals(10 * text.length(), cache.getHits());
+        Assert.assertEquals(0, cache.getMisses());
+        Assert.assertEquals(0, cache.getEvictions());
+    }
+
+    @Test
+    public void testSparseKeys() {
+        setup(-1);
+        int[] keys = { 0, 0x1FF, 0x200, 0x4E00, 0xFFFF, 0x1F600, 0x10FFFF, -1 };
+        for (int i = 0; i < keys.length; i++) {
+            cache.put(keys[i], new Integer(i));
+        }
+        for (int i = 0; i < 5000; i++) {
+            cache.put(0x20000 + i * 7, null);
+        }
+        for (int i = 0; i < keys.length; i++) {
+            Assert.assertEquals(new Integer(i), cache.get(keys[i]));
+            Assert.assertNull(cache.getRect(keys[i]));
+        }
+        Assert.assertEquals(keys.length + 5000, cache.size());
+        Assert.assertEquals(new Integer(3), cache.remove(0x4E00));
+        Assert.assertNull(cache.get(0x4E00));
+        Assert.assertEquals(keys.length + 4999, cache.size());
+    }
+
+    @Test
+    public void testLRUEviction() {
+        // 128x128 holds 8x7 glyphs of 16x18; a frame must fit, since
+        // glyphs of the current frame are never evicted
+        setup(128);
+        String a = cjk(0x4E00, 40);
+        String b = cjk(0x5000, 40);
+        frame(a);
+        frame(b);
+        Assert.assertEquals(80, rasterized);
+        Assert.assertTrue(cache.getEvictions() > 0);
+        // b was drawn last and must be fully resident
+        for (int i = 0; i < b.length(); i++) {
+            Assert.assertNotNull(cache.getRect(b.charAt(i)));
+        }
+        // evicted entries keep their value
+        Assert.assertEquals(new Integer(0x4E00), cache.get(0x4E00));
+        Assert.assertEquals(80, cache.size());
+        Assert.assertEquals(cache.size() - cache.getEvictions(), cache.residentCount());
+
+        // alternating between both sets still never evicts a glyph of the current frame
+        rasterized = 0;
+        frame(b);
+        Assert.assertEquals(0, rasterized);
+    }
+
+    @Test
+    public void testEvictionSkipsCurrentFrame() {
+        setup(-1);
+        frame(cjk(0x4E00, 4));
+        cache.use(0x4E01);
+        // 0x4E01 was used in the current frame, the others in the last one
+        Assert.assertEquals(3, cache.evict(Integer.MAX_VALUE));
+        Assert.assertNotNull(cache.getRect(0x4E01));
+        Assert.assertNull(cache.getRect(0x4E00));
+        Assert.assertEquals(1, cache.residentCount());
+        Assert.assertEquals(0, cache.evict(Integer.MAX_VALUE));
+    }
+
+    @Test
+    public void testReleaseAndClear() {
+        setup(-1);
+        frame(cjk(0x4E00, 8));
+        Rect r = cache.getRect(0x4E03);
+        packer.remove(r);
+        Assert.assertSame(r, cache.release(0x4E03));
+        Assert.assertNull(cache.release(0x4E03));
+        Assert.assertEquals(7, cache.residentCount());
+        Assert.assertEquals(8, cache.size());
+
+        packer.clear();
+        cache.clear();
+        Assert.assertEquals(0, cache.size());
+        Assert.assertEquals(0, cache.residentCount());
+        Assert.assertNull(cache.use(0x4E00));
+        frame(cjk(0x4E00, 8));
+        Assert.assertEquals(8, cache.residentCount());
+    }
+
+    public static void main(String args[]) {
+        org.junit.runner.JUnitCore.main(TestLRURectCache01.class.getName());
+    }
+}
@@ -0,0 +1,209 @@
+/**
+ * Copyright 2010 JogAmp Community. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are
+ * permitted provided that the following conditions are met:
+ * 
+ *    1. Redistributions of source code must retain the above copyright notice, this list of
+ *       conditions and the following disclaimer.
+ * 
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *       of conditions and the following disclaimer in the documentation and/or other materials
+ *       provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY JogAmp Community ``AS IS'' AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL JogAmp Community OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are those of the
+ * authors and should not be interpreted as representing official policies, either expressed
+ * or implied, of JogAmp Community.
+ */
+ 
+package com.jogamp.test.junit.jogl.util;
+
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import javax.media.opengl.GLAutoDrawable;
+import javax.media.opengl.GLProfile;
+
+import com.jogamp.opengl.util.Animator;
+
+public class TestParallelAnimator01 {
+
+    @BeforeClass
+    public static void initClass() {
+        GLProfile.initSingleton();
+    }
+
+    /** Fake drawable without context, simulating render time with sleep. */
+    static class SleepingDrawable implements InvocationHandler {
+        final GLAutoDrawable drawable;
+        final long renderTime;
+        final boolean fail;
+        final Set<Thread> threads = Collections.synchronizedSet(new HashSet<Thread>());
+        volatile Thread animator = null;
+        volatile int displayCount = 0;
+
+        SleepingDrawable(long renderTime, boolean fail) {
+            this.renderTime = renderTime;
+            this.fail = fail;
+            drawable = (GLAutoDrawable) Proxy.newProxyInstance(GLAutoDrawable.class.getClassLoader(), new Class[] { GLAutoDrawable.class }, this);
+        }
+
+        public Object invoke(Object proxy, Method m, Object[] args) throws InterruptedException {
+            String name = m.getName();
+            if(name.equals("display")) {
+                threads.add(Thread.currentThread());
+                displayCount++;
+                if(renderTime>0) {
+                    Thread.sleep(renderTime);
+                }
+                if(fail) {
+                    throw new RuntimeException("display failure");
+                }
+            } else if(name.equals("setAnimator")) {
+                animator = (Thread) args[0];
+            } else if(name.equals("getAnimator")) {
+                return animator;
+            } else if(name.equals("hashCode")) {
+                return new Integer(System.identityHashCode(proxy));
+            } else if(name.equals("equals")) {
+                return Boolean.valueOf(proxy==args[0]);
+            } else if(name.equals("toString")) {
+                return "SleepingDrawable";
+            }
+            return null;
+        }
+    }
+
+    static SleepingDrawable[] createDrawables(Animator animator, int count, long renderTime) {
+        SleepingDrawable[] drawables = new SleepingDrawable[count];
+        for(int i=0; i<count; i++) {
+            drawables[i] = new SleepingDrawable(renderTime, false);
+            animator.add(drawables[i].drawable);
+        }
+        return drawables;
+    }
+
+    static float run(Animator animator, long duration) throws InterruptedException {
+        animator.start();
+        Thread.sleep(duration);
+        animator.stop();
+        float fps = animator.getDrawableFramesPerSecond();
+        System.out.println("drawable frames "+animator.getTotalDrawableFrames()+", skipped "+animator.getSkippedDrawableFrames()+
+                           ", "+fps+" frames/s");
+        return fps;
+    }
+
+    @Test
+    public void test01Throughput() throws InterruptedException {
+        Animator serial = new Animator();
+        createDrawables(serial, 8, 10);
+        float serialFPS = run(serial, 500);
+
+        Animator parallel = new Animator();
+        parallel.setParallelDisplay(Animator.WORKER_PER_DRAWABLE, true);
+        SleepingDrawable[] drawables = createDrawables(parallel, 8, 10);
+        float parallelFPS = run(parallel, 500);
+
+        Assert.assertTrue("serial "+serialFPS+", parallel "+parallelFPS, parallelFPS > 3 * serialFPS);
+        for(int i=0; i<drawables.length; i++) {
+            Assert.assertEquals(1, drawables[i].threads.size());
+            Assert.assertNull(drawables[i].animator);
+        }
+    }
+
+    @Test
+    public void test02FrameBarrier() throws InterruptedException {
+        Animator animator = new Animator();
+        animator.setParallelDisplay(Animator.WORKER_PER_DRAWABLE, true);
+        SleepingDrawable[] drawables = createDrawables(animator, 4, 1);
+        SleepingDrawable slow = new SleepingDrawable(20, false);
+        animator.add(slow.drawable);
+        run(animator, 500);
+        // all drawables in sync with the slow one
+        for(int i=0; i<drawables.length; i++) {
+            Assert.assertEquals(slow.displayCount, drawables[i].displayCount);
+        }
+        Assert.assertEquals(0, animator.getSkippedDrawableFrames());
+    }
+
+    @Test
+    public void test03NoFrameBarrier() throws InterruptedException {
+        Animator animator = new Animator();
+        animator.setParallelDisplay(Animator.WORKER_PER_DRAWABLE, false);
+        SleepingDrawable[] drawables = createDrawables(animator, 4, 1);
+        SleepingDrawable slow = new SleepingDrawable(50, false);
+        animator.add(slow.drawable);
+        run(animator, 500);
+        // the slow drawable does not stall the others
+        for(int i=0; i<drawables.length; i++) {
+            Assert.assertTrue(drawables[i].displayCount > 4 * slow.displayCount);
+        }
+        Assert.assertTrue(animator.getSkippedDrawableFrames() > 0);
+    }
+
+    @Test
+    public void test04BoundedWorkers() throws InterruptedException {
+        Animator animator = new Animator();
+        animator.setParallelDisplay(2, true);
+        SleepingDrawable[] drawables = createDrawables(animator, 6, 1);
+        run(animator, 200);
+        Set<Thread> threads = new HashSet<Thread>();
+        for(int i=0; i<drawables.length; i++) {
+            Assert.assertTrue(drawables[i].displayCount > 0);
+            threads.addAll(drawables[i].threads);
+        }
+        Assert.assertEquals(2, threads.size());
+    }
+
+    @Test
+    public void test05ExceptionIsolation() throws InterruptedException {
+        Animator animator = new Animator();
+        animator.setParallelDisplay(Animator.WORKER_PER_DRAWABLE, true);
+        animator.setIgnoreExceptions(true);
+        SleepingDrawable[] drawables = createDrawables(animator, 3, 1);
+        SleepingDrawable failing = new SleepingDrawable(1, true);
+        animator.add(failing.drawable);
+        run(animator, 200);
+        Assert.assertTrue(failing.displayCount > 1);
+        for(int i=0; i<drawables.length; i++) {
+            Assert.assertEquals(failing.displayCount, drawables[i].displayCount);
+        }
+
+        // not ignored: stops the Animator after the frame
+        animator = new Animator();
+        animator.setParallelDisplay(Animator.WORKER_PER_DRAWABLE, true);
+        drawables = createDrawables(animator, 3, 1);
+        failing = new SleepingDrawable(1, true);
+        animator.add(failing.drawable);
+        animator.start();
+        Thread.sleep(200);
+        Assert.assertFalse(animator.isAnimating());
+        Assert.assertEquals(1, failing.displayCount);
+        for(int i=0; i<drawables.length; i++) {
+            Assert.assertEquals(1, drawables[i].displayCount);
+        }
+        animator.stop();
+    }
+
+    public static void main(String args[]) {
+        org.junit.runner.JUnitCore.main(TestParallelAnimator01.class.getName());
+    }
+}
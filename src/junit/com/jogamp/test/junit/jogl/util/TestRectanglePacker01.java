@@ -0,0 +1,316 @@
+/**
+ * Copyright 2010 JogAmp Community. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are
+ * permitted provided that the following conditions are met:
+ * 
+ *    1. Redistributions of source code must retain the above copyright notice, this list of
+ *       conditions and the following disclaimer.
+ * 
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *       of conditions and the following disclaimer in the documentation and/or other materials
+ *       provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY JogAmp Community ``AS IS'' AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL JogAmp Community OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are those of the
+ * authors and should not be interpreted as representing official policies, either expressed
+ * or implied, of JogAmp Community.
+ */
+ 
+package com.jogamp.test.junit.jogl.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import com.jogamp.opengl.util.packrect.BackingStoreManager;
+import com.jogamp.opengl.util.packrect.LevelSet;
+import com.jogamp.opengl.util.packrect.MaxRectsSet;
+import com.jogamp.opengl.util.packrect.PackingStrategy;
+import com.jogamp.opengl.util.packrect.Rect;
+import com.jogamp.opengl.util.packrect.RectVisitor;
+import com.jogamp.opengl.util.packrect.RectanglePacker;
+import com.jogamp.opengl.util.packrect.SkylineSet;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Replays recorded style add/remove workloads against all packing strategies,
+ * verifying the layout and the moved contents, and reports occupancy and
+ * compaction cost.
+ */
+public class TestRectanglePacker01 {
+
+    /** In-memory backing store; every pixel holds the id of its Rect */
+    static class Store {
+        final int w, h;
+        final int[] pixels;
+        Store(int w, int h) { this.w = w; this.h = h; pixels = new int[w * h]; }
+
+        void fill(Rect r, int id) {
+            for (int y = r.y(); y < r.y() + r.h(); y++) {
+                for (int x = r.x(); x < r.x() + r.w(); x++) {
+                    pixels[y * w + x] = id;
+                }
+            }
+        }
+    }
+
+    static class Manager implements BackingStoreManager {
+        int allocations;
+        int moves;
+        /** Movements into a new backing store, i.e. growth or full compaction */
+        int relocations;
+        /** Movements within the current backing store, i.e. incremental compaction */
+        int inPlaceMovements;
+
+        public Object allocateBackingStore(int w, int h) {
+            allocations++;
+            return new Store(w, h);
+        }
+        public void deleteBackingStore(Object backingStore) { }
+        public boolean canCompact() { return true; }
+        public boolean preExpand(Rect cause, int attemptNumber) { return false; }
+        public boolean additionFailed(Rect cause, int attemptNumber) { return false; }
+        public void beginMovement(Object oldBackingStore, Object newBackingStore) {
+            if (oldBackingStore == newBackingStore) {
+                inPlaceMovements++;
+            } else {
+                relocations++;
+            }
+        }
+        public void move(Object oldBackingStore, Rect oldLocation,
+                         Object newBackingStore, Rect newLocation) {
+            Store src = (Store) oldBackingStore;
+            Store dst = (Store) newBackingStore;
+            int w = oldLocation.w(), h = oldLocation.h();
+            int[] tmp = new int[w * h];
+            for (int y = 0; y < h; y++) {
+                System.arraycopy(src.pixels, (oldLocation.y() + y) * src.w + oldLocation.x(), tmp, y * w, w);
+            }
+            for (int y = 0; y < h; y++) {
+                System.arraycopy(tmp, y * w, dst.pixels, (newLocation.y() + y) * dst.w + newLocation.x(), w);
+            }
+            moves++;
+        }
+        public void endMovement(Object oldBackingStore, Object newBackingStore) { }
+    }
+
+    /** A workload: per frame, the sizes to add and the fraction of live Rects to remove */
+    static abstract class Workload {
+        final String name;
+        Workload(String name) { this.name = name; }
+        abstract int width(Random rnd);
+        abstract int height(Random rnd, int width);
+    }
+
+    static final Workload GLYPHS = new Workload("glyphs") {
+        int width(Random rnd) { return 6 + rnd.nextInt(30); }
+        int height(Random rnd, int width) { return 18 + rnd.nextInt(3) * 6; }
+    };
+
+    static final Workload SPRITES = new Workload("sprites") {
+        int width(Random rnd) { return 8 << rnd.nextInt(4); }
+        int height(Random rnd, int width) { return 8 + rnd.nextInt(120); }
+    };
+
+    static final float MAX_VERTICAL_FRAGMENTATION = 0.7f;
+
+    static class Result {
+        float occupancy;
+        int growths;
+        int fullCompactions;
+        int incrementalSteps;
+        int incrementalMoves;
+        int moves;
+    }
+
+    static Result replay(Workload workload, PackingStrategy strategy, int incrementalMoves) {
+        Random rnd = new Random(1234);
+        Manager manager = new Manager();
+        RectanglePacker packer = new RectanglePacker(manager, strategy);
+        List live = new ArrayList();
+        int nextId = 1;
+        float occupancySum = 0;
+        Result res = new Result();
+        int frames = 300;
+        for (int frame = 0; frame < frames; frame++) {
+            int adds = (frame < 20) ? 40 : 12;
+            for (int i = 0; i < adds; i++) {
+                int w = workload.width(rnd);
+                Rect r = new Rect(0, 0, w, workload.height(rnd, w), new Integer(nextId++));
+                packer.add(r);
+                ((Store) packer.getBackingStore()).fill(r, ((Integer) r.getUserData()).intValue());
+                live.add(r);
+            }
+            // Steady state churn: drop about as many as were added
+            int removes = (frame < 20) ? 10 : 12;
+            for (int i = 0; i < removes && !live.isEmpty(); i++) {
+                Rect r = (Rect) live.remove(rnd.nextInt(live.size()));
+                packer.remove(r);
+            }
+            // Periodically a change of scene drops everything but the
+            // newest entries, which were placed last, i.e. towards the bottom
+            if (frame % 60 == 59) {
+                int keep = live.size() / 10;
+                while (live.size() > keep) {
+                    packer.remove((Rect) live.remove(0));
+                }
+            }
+            // Compaction policy of the TextRenderer; with incremental
+            // compaction a full compaction is only a fallback
+            if (packer.verticalFragmentationRatio() > MAX_VERTICAL_FRAGMENTATION) {
+                int moved = 0;
+                if (incrementalMoves > 0) {
+                    moved = packer.compactIncrementally(incrementalMoves);
+                    Assert.assertTrue(moved <= incrementalMoves);
+                    if (moved > 0) {
+                        res.incrementalSteps++;
+                        res.incrementalMoves += moved;
+                    }
+                }
+                if (0 == moved) {
+                    packer.compact();
+                    res.fullCompactions++;
+                }
+            }
+            if (frame % 50 == 49) {
+                verify(packer, live);
+            }
+            occupancySum += packer.occupancy();
+        }
+        verify(packer, live);
+        res.occupancy = occupancySum / frames;
+        // Growth and full compaction both relocate into a new backing store
+        Assert.assertEquals(manager.allocations - 1, manager.relocations);
+        res.growths = manager.relocations - res.fullCompactions;
+        res.moves = manager.moves;
+        return res;
+    }
+
+    /** Checks bounds, overlaps and that every Rect's contents moved along with it */
+    static void verify(RectanglePacker packer, List live) {
+        final Store store = (Store) packer.getBackingStore();
+        final int[] owner = new int[store.w * store.h];
+        final int[] count = new int[1];
+        packer.visit(new RectVisitor() {
+            public void visit(Rect r) {
+                int id = ((Integer) r.getUserData()).intValue();
+                Assert.assertTrue(r.toString(), r.x() >= 0 && r.y() >= 0 &&
+                                  r.x() + r.w() <= store.w && r.y() + r.h() <= store.h);
+                for (int y = r.y(); y < r.y() + r.h(); y++) {
+                    for (int x = r.x(); x < r.x() + r.w(); x++) {
+                        Assert.assertEquals("overlap at " + x + "/" + y, 0, owner[y * store.w + x]);
+                        owner[y * store.w + x] = id;
+                        Assert.assertEquals("contents at " + x + "/" + y, id, store.pixels[y * store.w + x]);
+                    }
+                }
+                count[0]++;
+            }
+        });
+        Assert.assertEquals(live.size(), count[0]);
+    }
+
+    static int usedHeight(RectanglePacker packer) {
+        final int[] bottom = new int[1];
+        packer.visit(new RectVisitor() {
+            public void visit(Rect r) {
+                bottom[0] = Math.max(bottom[0], r.y() + r.h());
+            }
+        });
+        return bottom[0];
+    }
+
+    static PackingStrategy[] strategies() {
+        return new PackingStrategy[] { new LevelSet(256, 256),
+                                       new SkylineSet(256, 256),
+                                       new MaxRectsSet(256, 256) };
+    }
+
+    void run(Workload workload) {
+        long t0 = System.currentTimeMillis();
+        Result[] plain = new Result[3];
+        Result[] incremental = new Result[3];
+        PackingStrategy[] s0 = strategies();
+        PackingStrategy[] s1 = strategies();
+        for (int i = 0; i < s0.length; i++) {
+            plain[i] = replay(workload, s0[i], 0);
+            incremental[i] = replay(workload, s1[i], 16);
+            System.err.println(workload.name + " " + s0[i].getClass().getName() +
+                               ": occupancy " + plain[i].occupancy +
+                               ", growths " + plain[i].growths +
+                               ", full compactions " + plain[i].fullCompactions +
+                               ", moves " + plain[i].moves +
+                               " | incremental: occupancy " + incremental[i].occupancy +
+                               ", growths " + incremental[i].growths +
+                               ", full compactions " + incremental[i].fullCompactions +
+                               ", incremental steps " + incremental[i].incrementalSteps +
+                               " / moves " + incremental[i].incrementalMoves +
+                               ", moves " + incremental[i].moves);
+            // The trace fragments enough to trigger the compaction policy
+            Assert.assertTrue(plain[i].fullCompactions > 0);
+            Assert.assertEquals(0, plain[i].incrementalSteps);
+            Assert.assertTrue(incremental[i].incrementalSteps > 0);
+            Assert.assertTrue(incremental[i].fullCompactions < plain[i].fullCompactions);
+        }
+        System.err.println(workload.name + ": " + (System.currentTimeMillis() - t0) + " ms");
+    }
+
+    @Test
+    public void testGlyphWorkload() {
+        run(GLYPHS);
+    }
+
+    @Test
+    public void testSpriteWorkload() {
+        run(SPRITES);
+    }
+
+    @Test
+    public void testIncrementalCompactionIsBounded() {
+        PackingStrategy[] s = strategies();
+        for (int i = 0; i < s.length; i++) {
+            Manager manager = new Manager();
+            RectanglePacker packer = new RectanglePacker(manager, s[i]);
+            List rects = new ArrayList();
+            for (int j = 0; j < 200; j++) {
+                Rect r = new Rect(0, 0, 10 + (j % 7) * 3, 12 + (j % 3) * 4, new Integer(j + 1));
+                packer.add(r);
+                ((Store) packer.getBackingStore()).fill(r, j + 1);
+                rects.add(r);
+            }
+            // Remove everything but the last few, leaving them stranded at the bottom
+            for (int j = 0; j < 190; j++) {
+                packer.remove((Rect) rects.get(j));
+            }
+            List live = rects.subList(190, 200);
+            int allocations = manager.allocations;
+            int total = 0;
+            int moved;
+            while ((moved = packer.compactIncrementally(3)) > 0) {
+                Assert.assertTrue(moved <= 3);
+                total += moved;
+                verify(packer, live);
+            }
+            Assert.assertTrue(s[i].getClass().getName(), total > 0);
+            Assert.assertEquals(allocations, manager.allocations);
+            int usedHeight = usedHeight(packer);
+            Assert.assertTrue(s[i].getClass().getName() + " used height " + usedHeight,
+                              usedHeight <= 2 * 20);
+        }
+    }
+
+    public static void main(String args[]) {
+        org.junit.runner.JUnitCore.main(TestRectanglePacker01.class.getName());
+    }
+}
@@ -0,0 +1,182 @@
+/**
+ * Copyright 2010 JogAmp Community. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are
+ * permitted provided that the following conditions are met:
+ * 
+ *    1. Redistributions of source code must retain the above copyright notice, this list of
+ *       conditions and the following disclaimer.
+ * 
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *       of conditions and the following disclaimer in the documentation and/or other materials
+ *       provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY JogAmp Community ``AS IS'' AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL JogAmp Community OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are those of the
+ * authors and should not be interpreted as representing official policies, either expressed
+ * or implied, of JogAmp Community.
+ */
+ 
+package com.jogamp.test.junit.jogl.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+
+import com.jogamp.opengl.util.StreamUtil;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TestStreamUtil01 {
+
+    /** Network like stream, short reads and nothing available */
+    static class TrickleInputStream extends InputStream {
+        final byte[] data;
+        int pos = 0;
+
+        TrickleInputStream(byte[] data) {
+            this.data = data;
+        }
+
+        public int read() {
+            return (pos < data.length) ? (data[pos++] & 0xFF) : -1;
+        }
+
+        public int read(byte[] b, int off, int len) {
+            if (len == 0) {
+                return 0;
+            }
+            if (pos >= data.length) {
+                return -1;
+            }
+            int n = Math.min(Math.min(len, 1000), data.length - pos);
+            System.arraycopy(data, pos, b, off, n);
+            pos += n;
+            return n;
+        }
+
+        public int available() {
+            return 0;
+        }
+    }
+
+    static byte[] data(int size) {
+        byte[] data = new byte[size];
+        for(int i=0; i<size; i++) {
+            data[i] = (byte) (i * 31 + (i >> 8));
+        }
+        return data;
+    }
+
+    static void assertData(byte[] expected, ByteBuffer actual) {
+        Assert.assertTrue(actual.isDirect());
+        Assert.assertEquals(ByteOrder.nativeOrder(), actual.order());
+        Assert.assertEquals(0, actual.position());
+        Assert.assertEquals(expected.length, actual.remaining());
+        for(int i=0; i<expected.length; i++) {
+            Assert.assertEquals(expected[i], actual.get(i));
+        }
+    }
+
+    @Test
+    public void testArray() throws IOException {
+        int[] sizes = { 0, 1, 1000, 100000 };
+        for(int i=0; i<sizes.length; i++) {
+            byte[] data = data(sizes[i]);
+            // unknown, exact, too small and too large expected length
+            Assert.assertArrayEquals(data, StreamUtil.readAll2Array(new TrickleInputStream(data)));
+            Assert.assertArrayEquals(data, StreamUtil.readAll2Array(new TrickleInputStream(data), data.length));
+            Assert.assertArrayEquals(data, StreamUtil.readAll2Array(new TrickleInputStream(data), data.length/2));
+            Assert.assertArrayEquals(data, StreamUtil.readAll2Array(new TrickleInputStream(data), data.length*2+1));
+            Assert.assertArrayEquals(data, StreamUtil.readAll2Array(new ByteArrayInputStream(data)));
+        }
+    }
+
+    @Test
+    public void testBuffer() throws IOException {
+        int[] sizes = { 0, 1, 1000, 100000 };
+        for(int i=0; i<sizes.length; i++) {
+            byte[] data = data(sizes[i]);
+            assertData(data, StreamUtil.readAll2Buffer(new TrickleInputStream(data)));
+            assertData(data, StreamUtil.readAll2Buffer(new TrickleInputStream(data), data.length));
+            assertData(data, StreamUtil.readAll2Buffer(new TrickleInputStream(data), data.length/2));
+            assertData(data, StreamUtil.readAll2Buffer(new ByteArrayInputStream(data)));
+            assertData(data, StreamUtil.readAll2Buffer(Channels.newChannel(new TrickleInputStream(data)), -1));
+        }
+    }
+
+    @Test
+    public void testFile() throws IOException {
+        int[] sizes = { 0, 1000, StreamUtil.MAP_THRESHOLD, 1000000 };
+        for(int i=0; i<sizes.length; i++) {
+            byte[] data = data(sizes[i]);
+            File file = File.createTempFile("TestStreamUtil01", ".bin");
+            try {
+                FileOutputStream out = new FileOutputStream(file);
+                out.write(data);
+                out.close();
+                assertData(data, StreamUtil.readAll2Buffer(file));
+
+                FileInputStream in = new FileInputStream(file);
+                try {
+                    assertData(data, StreamUtil.readAll2Buffer(in));
+                } finally {
+                    in.close();
+                }
+            } finally {
+                file.delete();
+            }
+        }
+    }
+
+    @Test
+    public void testThroughput() throws IOException {
+        final int size = 16 * 1024 * 1024;
+        final int loops = 4;
+        byte[] data = data(size);
+        File file = File.createTempFile("TestStreamUtil01", ".bin");
+        try {
+            FileOutputStream out = new FileOutputStream(file);
+            out.write(data);
+            out.close();
+
+            long t0 = System.currentTimeMillis();
+            for(int i=0; i<loops; i++) {
+                Assert.assertEquals(size, StreamUtil.readAll2Buffer(new TrickleInputStream(data)).remaining());
+            }
+            long t1 = System.currentTimeMillis();
+            for(int i=0; i<loops; i++) {
+                Assert.assertEquals(size, StreamUtil.readAll2Buffer(new TrickleInputStream(data), size).remaining());
+            }
+            long t2 = System.currentTimeMillis();
+            for(int i=0; i<loops; i++) {
+                Assert.assertEquals(size, StreamUtil.readAll2Buffer(file).remaining());
+            }
+            long t3 = System.currentTimeMillis();
+            System.err.println("readAll2Buffer 16MB: stream "+(t1-t0)/loops+" ms, stream with length "+
+                               (t2-t1)/loops+" ms, mapped file "+(t3-t2)/loops+" ms");
+        } finally {
+            file.delete();
+        }
+    }
+
+    public static void main(String args[]) {
+        org.junit.runner.JUnitCore.main(TestStreamUtil01.class.getName());
+    }
+}
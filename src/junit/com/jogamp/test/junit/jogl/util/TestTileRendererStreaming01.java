@@ -0,0 +1,193 @@
+/**
+ * Copyright 2010 JogAmp Community. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are
+ * permitted provided that the following conditions are met:
+ * 
+ *    1. Redistributions of source code must retain the above copyright notice, this list of
+ *       conditions and the following disclaimer.
+ * 
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *       of conditions and the following disclaimer in the documentation and/or other materials
+ *       provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY JogAmp Community ``AS IS'' AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL JogAmp Community OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are those of the
+ * authors and should not be interpreted as representing official policies, either expressed
+ * or implied, of JogAmp Community.
+ */
+ 
+package com.jogamp.test.junit.jogl.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.media.opengl.GL;
+import javax.media.opengl.GL2;
+
+import com.jogamp.opengl.util.TiledImageWriter;
+import com.jogamp.opengl.util.gl2.TileRenderer;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Streams tiles through the pixel buffer objects of the TileRenderer
+ * with a GL2 mock, checking that an aborted image releases them
+ * and leaves no pending tile behind.
+ */
+public class TestTileRendererStreaming01 {
+    static final int TILE = 16;
+    static final int COLUMNS = 2;
+    static final int ROWS = 2;
+
+    /** Counts calls by method name, hands out buffer names and mapped tiles. */
+    static class PBOGL implements InvocationHandler {
+        final Map<String, Integer> calls = new HashMap<String, Integer>();
+        int nextName = 1;
+
+        public Object invoke(Object proxy, Method method, Object[] args) {
+            String name = method.getName();
+            Integer n = calls.get(name);
+            calls.put(name, Integer.valueOf(null == n ? 1 : n.intValue() + 1));
+            if (name.equals("glGenBuffers")) {
+                int[] names = (int[]) args[1];
+                int offset = ((Integer) args[2]).intValue();
+                for (int i = 0; i < ((Integer) args[0]).intValue(); i++) {
+                    names[offset + i] = nextName++;
+                }
+            } else if (name.equals("glMapBuffer")) {
+                return ByteBuffer.allocateDirect(TILE * TILE * 3);
+            } else if (name.equals("isFunctionAvailable") || name.equals("isExtensionAvailable")) {
+                return Boolean.TRUE;
+            }
+            Class<?> type = method.getReturnType();
+            if (type == int.class) {
+                return Integer.valueOf(0);
+            } else if (type == boolean.class) {
+                return Boolean.FALSE;
+            }
+            return null;
+        }
+
+        int count(String name) {
+            Integer n = calls.get(name);
+            return null == n ? 0 : n.intValue();
+        }
+    }
+
+    File file;
+    PBOGL counter;
+    GL2 gl;
+
+    @Before
+    public void setUp() throws IOException {
+        file = File.createTempFile("jogl-tiles", ".raw");
+        counter = new PBOGL();
+        gl = (GL2) Proxy.newProxyInstance(GL2.class.getClassLoader(),
+                                          new Class<?>[] { GL2.class }, counter);
+    }
+
+    @After
+    public void tearDown() {
+        file.delete();
+    }
+
+    TileRenderer newRenderer(TiledImageWriter writer) {
+        TileRenderer tr = new TileRenderer();
+        tr.setTileSize(TILE, TILE, 0);
+        tr.setImageSize(COLUMNS * TILE, ROWS * TILE);
+        tr.setImageWriter(GL.GL_RGB, GL.GL_UNSIGNED_BYTE, writer);
+        tr.trOrtho(0, 1, 0, 1, -1, 1);
+        return tr;
+    }
+
+    static void closeIncomplete(TiledImageWriter writer) {
+        try {
+            writer.close();
+            Assert.fail("incomplete image not detected");
+        } catch (IOException expected) {
+        }
+    }
+
+    @Test
+    public void testAbortReleasesPBOs() throws IOException {
+        TiledImageWriter writer = TiledImageWriter.openRaw(file, COLUMNS * TILE, ROWS * TILE, TILE, TILE, 3);
+        TileRenderer tr = newRenderer(writer);
+
+        tr.beginTile(gl);
+        Assert.assertTrue(tr.endTile(gl));
+        Assert.assertEquals(1, counter.count("glGenBuffers"));
+        // the first tile is still in flight
+        Assert.assertEquals(0, counter.count("glMapBuffer"));
+
+        tr.abort(gl);
+        Assert.assertEquals(1, counter.count("glDeleteBuffers"));
+        Assert.assertEquals(0, counter.count("glMapBuffer"));
+        closeIncomplete(writer);
+
+        // a new image doesn't see the dropped tile, the writer enforces the row order
+        writer = TiledImageWriter.openRaw(file, COLUMNS * TILE, ROWS * TILE, TILE, TILE, 3);
+        tr.setImageWriter(GL.GL_RGB, GL.GL_UNSIGNED_BYTE, writer);
+        int tiles = 0;
+        do {
+            tr.beginTile(gl);
+            tiles++;
+        } while (tr.endTile(gl));
+        Assert.assertEquals(COLUMNS * ROWS, tiles);
+        Assert.assertTrue(writer.isComplete());
+        Assert.assertEquals(COLUMNS * ROWS, counter.count("glMapBuffer"));
+        Assert.assertEquals(counter.count("glMapBuffer"), counter.count("glUnmapBuffer"));
+        Assert.assertEquals(2, counter.count("glGenBuffers"));
+        Assert.assertEquals(2, counter.count("glDeleteBuffers"));
+        writer.close();
+    }
+
+    @Test
+    public void testRestartReusesPBOs() throws IOException {
+        TiledImageWriter writer = TiledImageWriter.openRaw(file, COLUMNS * TILE, ROWS * TILE, TILE, TILE, 3);
+        TileRenderer tr = newRenderer(writer);
+
+        tr.beginTile(gl);
+        tr.endTile(gl);
+        tr.beginTile(gl);
+        tr.endTile(gl);
+        // the first tile has been written, the second is in flight
+        Assert.assertEquals(1, counter.count("glMapBuffer"));
+        closeIncomplete(writer);
+
+        // restart with the same tile size without aborting
+        writer = TiledImageWriter.openRaw(file, COLUMNS * TILE, ROWS * TILE, TILE, TILE, 3);
+        tr.setImageWriter(GL.GL_RGB, GL.GL_UNSIGNED_BYTE, writer);
+        tr.setImageSize(COLUMNS * TILE, ROWS * TILE);
+        do {
+            tr.beginTile(gl);
+        } while (tr.endTile(gl));
+        Assert.assertTrue(writer.isComplete());
+        Assert.assertEquals(1 + COLUMNS * ROWS, counter.count("glMapBuffer"));
+        Assert.assertEquals(1, counter.count("glGenBuffers"));
+        Assert.assertEquals(1, counter.count("glDeleteBuffers"));
+        writer.close();
+    }
+
+    public static void main(String args[]) {
+        org.junit.runner.JUnitCore.main(TestTileRendererStreaming01.class.getName());
+    }
+}
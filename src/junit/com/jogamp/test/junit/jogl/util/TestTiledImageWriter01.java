@@ -0,0 +1,186 @@
+/**
+ * Copyright 2010 JogAmp Community. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are
+ * permitted provided that the following conditions are met:
+ * 
+ *    1. Redistributions of source code must retain the above copyright notice, this list of
+ *       conditions and the following disclaimer.
+ * 
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *       of conditions and the following disclaimer in the documentation and/or other materials
+ *       provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY JogAmp Community ``AS IS'' AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL JogAmp Community OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are those of the
+ * authors and should not be interpreted as representing official policies, either expressed
+ * or implied, of JogAmp Community.
+ */
+ 
+package com.jogamp.test.junit.jogl.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+
+import com.jogamp.opengl.util.TiledImageWriter;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Stitches synthetic tiles into Targa and raw files and checks every pixel,
+ * for both tile row orders and partial edge tiles.
+ */
+public class TestTiledImageWriter01 {
+    static final int WIDTH = 100;
+    static final int HEIGHT = 70;
+    static final int TILE_WIDTH = 32;
+    static final int TILE_HEIGHT = 16;
+
+    File file;
+
+    @Before
+    public void setUp() throws IOException {
+        file = File.createTempFile("jogl-tiles", ".tga");
+    }
+
+    @After
+    public void tearDown() {
+        file.delete();
+    }
+
+    /** Channel c of the pixel at x, y counted from the bottom left */
+    static byte pixel(int x, int y, int c) {
+        return (byte) (x * 7 + y * 13 + c * 101);
+    }
+
+    /** A tile as read by glReadPixels, rows from bottom to top */
+    static ByteBuffer tile(TiledImageWriter w, int column, int row) {
+        int tw = w.getTileWidth(column);
+        int th = w.getTileHeight(row);
+        int bpp = w.getBytesPerPixel();
+        ByteBuffer buf = ByteBuffer.allocateDirect(tw * th * bpp);
+        for(int y=0; y<th; y++) {
+            for(int x=0; x<tw; x++) {
+                for(int c=0; c<bpp; c++) {
+                    buf.put(pixel(column * TILE_WIDTH + x, row * TILE_HEIGHT + y, c));
+                }
+            }
+        }
+        buf.rewind();
+        return buf;
+    }
+
+    static void writeAll(TiledImageWriter w, boolean topToBottom) throws IOException {
+        for(int i=0; i<w.getRows(); i++) {
+            int row = topToBottom ? w.getRows() - 1 - i : i;
+            // columns in reverse, any order within a row is fine
+            for(int column=w.getColumns()-1; column>=0; column--) {
+                w.writeTile(column, row, tile(w, column, row));
+            }
+        }
+        Assert.assertTrue(w.isComplete());
+        w.close();
+    }
+
+    void check(int offset, int bpp) throws IOException {
+        RandomAccessFile in = new RandomAccessFile(file, "r");
+        try {
+            Assert.assertEquals(offset + WIDTH * HEIGHT * bpp, in.length());
+            byte[] data = new byte[(int) in.length()];
+            in.readFully(data);
+            for(int y=0; y<HEIGHT; y++) {
+                for(int x=0; x<WIDTH; x++) {
+                    for(int c=0; c<bpp; c++) {
+                        Assert.assertEquals("pixel "+x+"/"+y+" channel "+c, pixel(x, y, c),
+                                            data[offset + (y * WIDTH + x) * bpp + c]);
+                    }
+                }
+            }
+        } finally {
+            in.close();
+        }
+    }
+
+    @Test
+    public void testTGABottomToTop() throws IOException {
+        TiledImageWriter w = TiledImageWriter.openTGA(file, WIDTH, HEIGHT, TILE_WIDTH, TILE_HEIGHT, false);
+        Assert.assertEquals(4, w.getColumns());
+        Assert.assertEquals(5, w.getRows());
+        Assert.assertEquals(WIDTH - 3 * TILE_WIDTH, w.getTileWidth(3));
+        Assert.assertEquals(HEIGHT - 4 * TILE_HEIGHT, w.getTileHeight(4));
+        // memory is bounded by one row of tiles
+        Assert.assertEquals(WIDTH * TILE_HEIGHT * 3, w.getBufferSize());
+        writeAll(w, false);
+        check(18, 3);
+
+        RandomAccessFile in = new RandomAccessFile(file, "r");
+        byte[] header = new byte[18];
+        in.readFully(header);
+        in.close();
+        Assert.assertEquals(2, header[2]);
+        Assert.assertEquals(WIDTH, (header[12] & 0xff) | (header[13] & 0xff) << 8);
+        Assert.assertEquals(HEIGHT, (header[14] & 0xff) | (header[15] & 0xff) << 8);
+        Assert.assertEquals(24, header[16]);
+    }
+
+    @Test
+    public void testRawTopToBottom() throws IOException {
+        TiledImageWriter w = TiledImageWriter.openRaw(file, WIDTH, HEIGHT, TILE_WIDTH, TILE_HEIGHT, 4);
+        writeAll(w, true);
+        check(0, 4);
+    }
+
+    @Test
+    public void testSingleTile() throws IOException {
+        TiledImageWriter w = TiledImageWriter.openRaw(file, WIDTH, HEIGHT, 256, 256, 3);
+        Assert.assertEquals(1, w.getColumns());
+        Assert.assertEquals(1, w.getRows());
+        Assert.assertEquals(WIDTH * HEIGHT * 3, w.getBufferSize());
+        writeAll(w, false);
+        check(0, 3);
+    }
+
+    @Test
+    public void testRowOrderEnforced() throws IOException {
+        TiledImageWriter w = TiledImageWriter.openRaw(file, WIDTH, HEIGHT, TILE_WIDTH, TILE_HEIGHT, 3);
+        w.writeTile(0, 0, tile(w, 0, 0));
+        try {
+            w.writeTile(0, 1, tile(w, 0, 1));
+            Assert.fail("tile of next row accepted before row complete");
+        } catch (IllegalStateException ise) {
+        }
+        try {
+            w.writeTile(0, 0, tile(w, 0, 0));
+            Assert.fail("tile written twice");
+        } catch (IllegalStateException ise) {
+        }
+        try {
+            w.writeTile(1, 0, tile(w, 3, 0));
+            Assert.fail("short tile accepted");
+        } catch (IllegalArgumentException iae) {
+        }
+        try {
+            w.close();
+            Assert.fail("incomplete image closed silently");
+        } catch (IOException ioe) {
+        }
+    }
+
+    public static void main(String args[]) {
+        org.junit.runner.JUnitCore.main(TestTiledImageWriter01.class.getName());
+    }
+}
@@ -0,0 +1,139 @@
+/**
+ * Copyright 2010 JogAmp Community. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are
+ * permitted provided that the following conditions are met:
+ * 
+ *    1. Redistributions of source code must retain the above copyright notice, this list of
+ *       conditions and the following disclaimer.
+ * 
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *       of conditions and the following disclaimer in the documentation and/or other materials
+ *       provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY JogAmp Community ``AS IS'' AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL JogAmp Community OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are those of the
+ * authors and should not be interpreted as representing official policies, either expressed
+ * or implied, of JogAmp Community.
+ */
+ 
+package com.jogamp.test.junit.newt;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.jogamp.newt.util.DefaultEDTUtil;
+
+/**
+ * Headless EDT tests, the native message pump is a counting NOP.
+ */
+public class TestDefaultEDTUtil01 {
+
+    static class CountingPump implements Runnable {
+        volatile int count = 0;
+        public void run() { count++; }
+    }
+
+    @Test
+    public void test01InvokeWait() {
+        CountingPump pump = new CountingPump();
+        DefaultEDTUtil edt = new DefaultEDTUtil(Thread.currentThread().getThreadGroup(), "test01", pump);
+        edt.start();
+        final int[] counter = new int[] { 0 };
+        final int loops = 1000;
+        long t0 = System.currentTimeMillis();
+        for(int i=0; i<loops; i++) {
+            edt.invoke(true, new Runnable() {
+                public void run() { counter[0]++; }
+            });
+        }
+        long t1 = System.currentTimeMillis();
+        Assert.assertEquals(loops, counter[0]);
+        System.out.println("invoke(wait) "+loops+" x in "+(t1-t0)+" ms: "+edt);
+        // no polling delay between submission and execution
+        Assert.assertTrue("invoke(wait) latency too high: "+(t1-t0)+" ms", (t1-t0) < loops * DefaultEDTUtil.defaultEDTPollGranularity / 4);
+        Assert.assertEquals(loops, edt.getTaskCount());
+        edt.stop();
+        edt.waitUntilStopped();
+    }
+
+    @Test
+    public void test02BatchedTasks() {
+        CountingPump pump = new CountingPump();
+        DefaultEDTUtil edt = new DefaultEDTUtil(Thread.currentThread().getThreadGroup(), "test02", pump);
+        edt.start();
+        final Object gate = new Object();
+        final boolean[] open = new boolean[] { false };
+        // block the EDT, so the following tasks queue up
+        edt.invoke(false, new Runnable() {
+            public void run() {
+                synchronized(gate) {
+                    while(!open[0]) {
+                        try { gate.wait(); } catch (InterruptedException ie) { }
+                    }
+                }
+            }
+        });
+        final int[] counter = new int[] { 0 };
+        final int tasks = 100;
+        for(int i=0; i<tasks; i++) {
+            edt.invoke(false, new Runnable() {
+                public void run() { counter[0]++; }
+            });
+        }
+        Assert.assertTrue(edt.getQueueDepth() >= tasks - 1);
+        synchronized(gate) {
+            open[0] = true;
+            gate.notifyAll();
+        }
+        edt.waitUntilIdle();
+        Assert.assertEquals(tasks, counter[0]);
+        Assert.assertEquals(tasks+1, edt.getTaskCount());
+        // the queued tasks ran in at most 2 batches, i.e. wakeups
+        Assert.assertTrue("batches: "+edt.getBatchCount(), edt.getBatchCount() <= 3);
+        Assert.assertTrue(edt.getMaxQueueDepth() >= tasks - 1);
+        System.out.println(edt);
+        edt.stop();
+        edt.waitUntilStopped();
+    }
+
+    @Test
+    public void test03AdaptivePolling() throws InterruptedException {
+        CountingPump pumpFixed = new CountingPump();
+        CountingPump pumpAdaptive = new CountingPump();
+        DefaultEDTUtil edtFixed = new DefaultEDTUtil(Thread.currentThread().getThreadGroup(), "test03f", pumpFixed);
+        DefaultEDTUtil edtAdaptive = new DefaultEDTUtil(Thread.currentThread().getThreadGroup(), "test03a", pumpAdaptive);
+        edtAdaptive.setPollPeriod(10, 160);
+        edtFixed.start();
+        edtAdaptive.start();
+        Thread.sleep(1000);
+        System.out.println("fixed:    "+edtFixed);
+        System.out.println("adaptive: "+edtAdaptive);
+        Assert.assertTrue(edtAdaptive.getIdleWakeups() < edtFixed.getIdleWakeups());
+        // 10+20+40+80 ms, then every 160 ms
+        Assert.assertTrue(edtAdaptive.getIdleWakeups() <= 12);
+
+        // a task resets the poll period
+        edtAdaptive.invoke(true, new Runnable() { public void run() { } });
+        long w0 = edtAdaptive.getIdleWakeups();
+        Thread.sleep(50);
+        Assert.assertTrue(edtAdaptive.getIdleWakeups() > w0);
+        edtFixed.stop();
+        edtAdaptive.stop();
+        edtFixed.waitUntilStopped();
+        edtAdaptive.waitUntilStopped();
+    }
+
+    public static void main(String args[]) {
+        org.junit.runner.JUnitCore.main(TestDefaultEDTUtil01.class.getName());
+    }
+}
@@ -0,0 +1,174 @@
+/**
+ * Copyright 2010 JogAmp Community. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are
+ * permitted provided that the following conditions are met:
+ * 
+ *    1. Redistributions of source code must retain the above copyright notice, this list of
+ *       conditions and the following disclaimer.
+ * 
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *       of conditions and the following disclaimer in the documentation and/or other materials
+ *       provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY JogAmp Community ``AS IS'' AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL JogAmp Community OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are those of the
+ * authors and should not be interpreted as representing official policies, either expressed
+ * or implied, of JogAmp Community.
+ */
+ 
+package com.jogamp.test.junit.newt;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.jogamp.newt.event.MouseEvent;
+import com.jogamp.newt.event.NEWTEvent;
+import com.jogamp.newt.event.NEWTEventFiFo;
+import com.jogamp.newt.event.WindowEvent;
+
+public class TestNEWTEventFiFo01 {
+    static final Object source1 = new Object();
+    static final Object source2 = new Object();
+
+    static MouseEvent mouse(int type, Object source, int x) {
+        return new MouseEvent(type, source, System.currentTimeMillis(), 0, x, x, 0, 0, 0);
+    }
+
+    @Test
+    public void test01FiFoOrder() {
+        NEWTEventFiFo fifo = new NEWTEventFiFo();
+        for(int i=0; i<1000; i++) {
+            fifo.put(mouse(MouseEvent.EVENT_MOUSE_MOVED, source1, i));
+        }
+        Assert.assertEquals(1000, fifo.size());
+        for(int i=0; i<1000; i++) {
+            Assert.assertEquals(i, ((MouseEvent)fifo.get()).getX());
+        }
+        Assert.assertNull(fifo.get());
+    }
+
+    @Test
+    public void test02Coalescing() {
+        NEWTEventFiFo fifo = new NEWTEventFiFo(16, NEWTEventFiFo.OVERFLOW_GROW, true);
+        for(int i=0; i<100; i++) {
+            fifo.put(mouse(MouseEvent.EVENT_MOUSE_MOVED, source1, i));
+        }
+        Assert.assertEquals(1, fifo.size());
+        fifo.put(mouse(MouseEvent.EVENT_MOUSE_MOVED, source2, 200));   // other source
+        fifo.put(mouse(MouseEvent.EVENT_MOUSE_PRESSED, source2, 201)); // not coalescable
+        fifo.put(mouse(MouseEvent.EVENT_MOUSE_PRESSED, source2, 202));
+        fifo.put(new WindowEvent(WindowEvent.EVENT_WINDOW_RESIZED, source1, 0));
+        fifo.put(new WindowEvent(WindowEvent.EVENT_WINDOW_RESIZED, source1, 1));
+        Assert.assertEquals(5, fifo.size());
+        Assert.assertEquals(99+1, fifo.getCoalescedCount());
+
+        Assert.assertEquals(99, ((MouseEvent)fifo.get()).getX());
+        Assert.assertEquals(200, ((MouseEvent)fifo.get()).getX());
+        Assert.assertEquals(201, ((MouseEvent)fifo.get()).getX());
+        Assert.assertEquals(202, ((MouseEvent)fifo.get()).getX());
+        Assert.assertEquals(1, fifo.get().getWhen());
+    }
+
+    @Test
+    public void test03OverflowPolicies() {
+        NEWTEventFiFo fifoOld = new NEWTEventFiFo(4, NEWTEventFiFo.OVERFLOW_DROP_OLDEST, false);
+        NEWTEventFiFo fifoNew = new NEWTEventFiFo(4, NEWTEventFiFo.OVERFLOW_DROP_NEWEST, false);
+        for(int i=0; i<10; i++) {
+            Assert.assertTrue(fifoOld.offer(mouse(MouseEvent.EVENT_MOUSE_PRESSED, source1, i)));
+            Assert.assertEquals(i<4, fifoNew.offer(mouse(MouseEvent.EVENT_MOUSE_PRESSED, source1, i)));
+        }
+        Assert.assertEquals(4, fifoOld.getCapacity());
+        Assert.assertEquals(6, fifoOld.getDroppedCount());
+        Assert.assertEquals(6, fifoNew.getDroppedCount());
+        Assert.assertEquals(6, ((MouseEvent)fifoOld.get()).getX());
+        Assert.assertEquals(0, ((MouseEvent)fifoNew.get()).getX());
+    }
+
+    @Test
+    public void test04BlockingProducer() throws InterruptedException {
+        final NEWTEventFiFo fifo = new NEWTEventFiFo(2, NEWTEventFiFo.OVERFLOW_BLOCK, false);
+        final int events = 1000;
+        Thread producer = new Thread(new Runnable() {
+            public void run() {
+                for(int i=0; i<events; i++) {
+                    fifo.put(mouse(MouseEvent.EVENT_MOUSE_PRESSED, source1, i));
+                }
+            }
+        });
+        producer.start();
+        for(int i=0; i<events; i++) {
+            NEWTEvent e = fifo.get(5000);
+            Assert.assertNotNull(e);
+            Assert.assertEquals(i, ((MouseEvent)e).getX());
+        }
+        producer.join();
+        Assert.assertEquals(0, fifo.getDroppedCount());
+        Assert.assertTrue(fifo.getMaxSize()<=2);
+    }
+
+    static void benchmark(final NEWTEventFiFo fifo, final int producers, final int eventsPerProducer) throws InterruptedException {
+        final Thread[] threads = new Thread[producers];
+        final MouseEvent[][] pool = new MouseEvent[producers][];
+        for(int p=0; p<producers; p++) {
+            pool[p] = new MouseEvent[eventsPerProducer];
+            for(int i=0; i<eventsPerProducer; i++) {
+                pool[p][i] = mouse(MouseEvent.EVENT_MOUSE_PRESSED, source1, i);
+            }
+        }
+        final long[] putTime = new long[producers*eventsPerProducer];
+        final long t0 = System.nanoTime();
+        for(int p=0; p<producers; p++) {
+            final int pid = p;
+            threads[p] = new Thread(new Runnable() {
+                public void run() {
+                    for(int i=0; i<eventsPerProducer; i++) {
+                        MouseEvent e = pool[pid][i];
+                        e.setAttachment(Integer.valueOf(pid*eventsPerProducer+i));
+                        putTime[pid*eventsPerProducer+i] = System.nanoTime();
+                        fifo.put(e);
+                    }
+                }
+            });
+            threads[p].start();
+        }
+        long latencySum = 0, latencyMax = 0;
+        int received = 0;
+        final int total = producers*eventsPerProducer;
+        while(received < total) {
+            NEWTEvent e = fifo.get(5000);
+            Assert.assertNotNull(e);
+            long l = System.nanoTime() - putTime[((Integer)e.getAttachment()).intValue()];
+            latencySum += l;
+            latencyMax = Math.max(latencyMax, l);
+            received++;
+        }
+        final long t1 = System.nanoTime();
+        for(int p=0; p<producers; p++) {
+            threads[p].join();
+        }
+        System.out.println(fifo+": "+producers+" producer(s), "+total+" events in "+(t1-t0)/1000000+" ms, "+
+                           (total*1000000L/Math.max(1, (t1-t0)/1000))+" events/s, latency avg "+
+                           (latencySum/total/1000)+" us, max "+(latencyMax/1000)+" us");
+    }
+
+    @Test
+    public void test10Throughput() throws InterruptedException {
+        benchmark(new NEWTEventFiFo(), 1, 100000);
+        benchmark(new NEWTEventFiFo(), 4, 25000);
+        benchmark(new NEWTEventFiFo(1024, NEWTEventFiFo.OVERFLOW_BLOCK, false), 4, 25000);
+    }
+
+    public static void main(String args[]) {
+        org.junit.runner.JUnitCore.main(TestNEWTEventFiFo01.class.getName());
+    }
+}
@@ -46,6 +46,8 @@ import java.util.*;
 public abstract class Display {
     public static final boolean DEBUG = Debug.debug("Display");
     public static final boolean DEBUG_TEST_EDT_MAINTHREAD = Debug.isPropertyDefined("newt.test.EDTMainThread", true); // JAU EDT Test ..
+    /** If set, a queued motion or resize event is replaced by a following one, see {@link NEWTEventFiFo#isCoalescable(NEWTEvent, NEWTEvent)} */
+    public static final boolean COALESCE_EVENTS = Debug.isPropertyDefined("newt.event.coalesce", true);
 
     private static Class getDisplayClass(String type) 
         throws ClassNotFoundException 
@@ -383,6 +385,13 @@ public abstract class Display {
         NEWTEventTask eTask = new NEWTEventTask(e, wait?lock:null);
         synchronized(lock) {
             synchronized(eventsLock) {
+                if( COALESCE_EVENTS && !wait && !events.isEmpty() ) {
+                    // only replace a tail event nobody waits for
+                    NEWTEventTask tail = (NEWTEventTask) events.getLast();
+                    if( !tail.hasIssuer() && NEWTEventFiFo.isCoalescable(tail.get(), e) ) {
+                        events.removeLast();
+                    }
+                }
                 events.addLast(eTask);
                 eventsLock.notifyAll();
             }
@@ -28,36 +28,237 @@
  
 package com.jogamp.newt.event;
 
-import com.jogamp.newt.*;
-import java.util.LinkedList;
-
+/**
+ * FIFO of NEWTEvents, implemented as an array ring buffer,
+ * hence enqueuing doesn't allocate any memory, except for an unbounded queue's growth.
+ * <p>
+ * The queue may be bounded, where the {@link #OVERFLOW_DROP_OLDEST overflow policy}
+ * determines the behavior of {@link #put(NEWTEvent)} and {@link #offer(NEWTEvent)} on a full queue.</p>
+ * <p>
+ * If coalescing is enabled, an enqueued event replaces the tail event if both are of the same
+ * type and source and the type is one of
+ * {@link MouseEvent#EVENT_MOUSE_MOVED}, {@link MouseEvent#EVENT_MOUSE_DRAGGED} (with same modifiers) or 
+ * {@link WindowEvent#EVENT_WINDOW_RESIZED}, 
+ * i.e. the consumer only sees the latest of consecutive motion or resize events.
+ * The same rule is used by the {@link com.jogamp.newt.Display} event queue,
+ * see {@link #isCoalescable(NEWTEvent, NEWTEvent)}.</p>
+ * <p>
+ * Producers only notify the consumer if it is waiting in {@link #get(long)}.</p>
+ */
 public class NEWTEventFiFo
 {
-    private LinkedList/*<NEWTEvent>*/ events = new LinkedList/*<NEWTEvent>*/();
+    /** Unbounded queue, the capacity grows if required. The default policy. */
+    public static final int OVERFLOW_GROW = 0;
+    /** Bounded queue, the oldest event is dropped if full. */
+    public static final int OVERFLOW_DROP_OLDEST = 1;
+    /** Bounded queue, the new event is dropped if full. */
+    public static final int OVERFLOW_DROP_NEWEST = 2;
+    /** Bounded queue, the producer blocks until space is available. */
+    public static final int OVERFLOW_BLOCK = 3;
+
+    private static final int DEFAULT_CAPACITY = 64;
+
+    private NEWTEvent[] events;
+    private int head, size;
+    private final int overflowPolicy;
+    private final boolean coalesce;
+    private int waitingConsumer, waitingProducer;
+    private long putCount, coalescedCount, droppedCount;
+    private int maxSize;
+
+    /** Creates an unbounded FIFO without coalescing. */
+    public NEWTEventFiFo() {
+        this(DEFAULT_CAPACITY, OVERFLOW_GROW, false);
+    }
+
+    /**
+     * @param capacity the bound, or the initial capacity in case of {@link #OVERFLOW_GROW}
+     * @param overflowPolicy one of {@link #OVERFLOW_GROW}, {@link #OVERFLOW_DROP_OLDEST},
+     *                       {@link #OVERFLOW_DROP_NEWEST} or {@link #OVERFLOW_BLOCK}
+     * @param coalesce if true, consecutive motion and resize events are coalesced
+     */
+    public NEWTEventFiFo(int capacity, int overflowPolicy, boolean coalesce) {
+        if(0>=capacity) {
+            throw new IllegalArgumentException("Invalid capacity: "+capacity);
+        }
+        if(OVERFLOW_GROW>overflowPolicy || OVERFLOW_BLOCK<overflowPolicy) {
+            throw new IllegalArgumentException("Invalid overflow policy: "+overflowPolicy);
+        }
+        this.events = new NEWTEvent[capacity];
+        this.overflowPolicy = overflowPolicy;
+        this.coalesce = coalesce;
+    }
 
     /** Add NEWTEvent to tail */
     public synchronized void put(NEWTEvent event) {
-        events.addLast(event);
-        notifyAll();
+        offer(event);
     }
 
-    /** Remove NEWTEvent from head */
+    /** 
+     * Add NEWTEvent to tail 
+     * 
+     * @return false if the event has been dropped due to {@link #OVERFLOW_DROP_NEWEST}
+     *         or an interrupted {@link #OVERFLOW_BLOCK}, otherwise true
+     */
+    public synchronized boolean offer(NEWTEvent event) {
+        putCount++;
+        if( coalesce && 0 < size ) {
+            final int tail = ( head + size - 1 ) % events.length ;
+            if( isCoalescable(events[tail], event) ) {
+                events[tail] = event;
+                coalescedCount++;
+                return true;
+            }
+        }
+        if( size == events.length ) {
+            switch(overflowPolicy) {
+                case OVERFLOW_GROW:
+                    grow();
+                    break;
+                case OVERFLOW_DROP_OLDEST:
+                    events[head] = null;
+                    head = ( head + 1 ) % events.length;
+                    size--;
+                    droppedCount++;
+                    break;
+                case OVERFLOW_DROP_NEWEST:
+                    droppedCount++;
+                    return false;
+                case OVERFLOW_BLOCK:
+                    while( size == events.length ) {
+                        waitingProducer++;
+                        try {
+                            wait();
+                        } catch (InterruptedException ie) {
+                            droppedCount++;
+                            return false;
+                        } finally {
+                            waitingProducer--;
+                        }
+                    }
+                    break;
+            }
+        }
+        events[ ( head + size ) % events.length ] = event;
+        size++;
+        if( size > maxSize ) {
+            maxSize = size;
+        }
+        if( 0 < waitingConsumer ) {
+            notifyAll();
+        }
+        return true;
+    }
+
+    /** Remove NEWTEvent from head, returns null if empty */
     public synchronized NEWTEvent get() {
-        if (0 == events.size()) {
+        if (0 == size) {
             return null;
         }
+        return removeHead();
+    }
 
-        return (NEWTEvent) events.removeFirst();
+    /**
+     * Remove NEWTEvent from head, waits if empty
+     *
+     * @param timeoutMillis maximum time to wait, 0 waits forever
+     * @return the head event or null if none was available within the given time or the thread was interrupted 
+     */
+    public synchronized NEWTEvent get(long timeoutMillis) {
+        final long deadline = System.currentTimeMillis() + timeoutMillis;
+        while (0 == size) {
+            long wait = 0;
+            if( 0 < timeoutMillis ) {
+                wait = deadline - System.currentTimeMillis();
+                if( 0 >= wait ) {
+                    return null;
+                }
+            }
+            waitingConsumer++;
+            try {
+                wait(wait);
+            } catch (InterruptedException ie) {
+                return null;
+            } finally {
+                waitingConsumer--;
+            }
+        }
+        return removeHead();
     }
 
     /** Get NEWTEvents in queue */
     public synchronized int size() {
-        return events.size();
+        return size;
     }
 
     /** Clear all NEWTEvents from queue */
     public synchronized void clear() {
-        events.clear();
+        for(int i=0; i<size; i++) {
+            events[ ( head + i ) % events.length ] = null;
+        }
+        head = 0;
+        size = 0;
+        if( 0 < waitingProducer ) {
+            notifyAll();
+        }
+    }
+
+    /** @return the current capacity */
+    public synchronized int getCapacity() { return events.length; }
+
+    /** @return the number of {@link #put(NEWTEvent) put} and {@link #offer(NEWTEvent) offer} calls */
+    public synchronized long getPutCount() { return putCount; }
+
+    /** @return the number of events replaced by coalescing */
+    public synchronized long getCoalescedCount() { return coalescedCount; }
+
+    /** @return the number of events dropped due to the overflow policy */
+    public synchronized long getDroppedCount() { return droppedCount; }
+
+    /** @return the maximum queue size reached */
+    public synchronized int getMaxSize() { return maxSize; }
+
+    public synchronized String toString() {
+        return "NEWTEventFiFo[size "+size+"/"+events.length+", policy "+overflowPolicy+", coalesce "+coalesce+
+               ", put "+putCount+", coalesced "+coalescedCount+", dropped "+droppedCount+", max "+maxSize+"]";
     }
 
+    private NEWTEvent removeHead() {
+        final NEWTEvent event = events[head];
+        events[head] = null;
+        head = ( head + 1 ) % events.length;
+        size--;
+        if( 0 < waitingProducer ) {
+            notifyAll();
+        }
+        return event;
+    }
+
+    private void grow() {
+        NEWTEvent[] newEvents = new NEWTEvent[events.length*2];
+        for(int i=0; i<size; i++) {
+            newEvents[i] = events[ ( head + i ) % events.length ];
+        }
+        events = newEvents;
+        head = 0;
+    }
+
+    /**
+     * @return true if <code>event</code> may replace the queued <code>tail</code> event,
+     *         i.e. both are motion or resize events of the same type, source and modifiers
+     */
+    public static boolean isCoalescable(NEWTEvent tail, NEWTEvent event) {
+        if( tail.getEventType() != event.getEventType() || tail.getSource() != event.getSource() ) {
+            return false;
+        }
+        switch( event.getEventType() ) {
+            case MouseEvent.EVENT_MOUSE_MOVED:
+            case MouseEvent.EVENT_MOUSE_DRAGGED:
+                return ( tail instanceof MouseEvent ) && ( event instanceof MouseEvent ) &&
+                       ((MouseEvent)tail).getModifiers() == ((MouseEvent)event).getModifiers() ;
+            case WindowEvent.EVENT_WINDOW_RESIZED:
+                return ( tail instanceof WindowEvent ) && ( event instanceof WindowEvent ) ;
+        }
+        return false;
+    }
 }
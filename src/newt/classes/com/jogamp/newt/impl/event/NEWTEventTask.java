@@ -45,6 +45,9 @@ public class NEWTEventTask {
 
     public NEWTEvent get() { return event; }
 
+    /** @return true if the issuer waits for this event being sent */
+    public boolean hasIssuer() { return null != notifyObject; }
+
     public void notifyIssuer() {
         if(null != notifyObject) {
             synchronized (notifyObject) {
@@ -37,6 +37,7 @@
 package com.jogamp.newt.util;
 
 import com.jogamp.common.util.RunnableTask;
+import com.jogamp.nativewindow.impl.Clock;
 import com.jogamp.newt.Display;
 import com.jogamp.newt.impl.Debug;
 import java.util.*;
@@ -49,8 +50,18 @@ public class DefaultEDTUtil implements EDTUtil {
     private EventDispatchThread edt = null;
     private Object edtLock = new Object();
     private ArrayList tasks = new ArrayList(); // one shot tasks
+    private long[] taskTimes = new long[8]; // submission time of tasks in nanoseconds, same order
+    private boolean batchRunning = false;
     private String name;
     private Runnable pumpMessages;
+    private long pollPeriodMin = defaultEDTPollGranularity;
+    private long pollPeriodMax = defaultEDTPollGranularity;
+
+    // metrics, guarded by edtLock
+    private int maxQueueDepth = 0;
+    private long taskCount = 0, batchCount = 0;
+    private long taskLatencySum = 0, taskLatencyMax = 0; // nanoseconds
+    private long idleWakeups = 0, pumpCount = 0;
 
     public DefaultEDTUtil(ThreadGroup tg, String name, Runnable pumpMessages) {
         this.threadGroup = tg;
@@ -58,6 +69,27 @@ public class DefaultEDTUtil implements EDTUtil {
         this.pumpMessages=pumpMessages;
     }
 
+    /**
+     * Sets the period, in milliseconds, in which native messages are pumped while no tasks are submitted.
+     * <p>
+     * Task submission wakes up the EDT immediately, runs all pending tasks as one batch 
+     * and resets the period to <code>min</code>.
+     * Each idle period without tasks doubles the period up to <code>max</code>,
+     * i.e. <code>max</code> bounds the latency of native message dispatching for idle displays.</p>
+     * <p>
+     * The default is {@link EDTUtil#defaultEDTPollGranularity} for both, i.e. a fixed period.</p>
+     */
+    public void setPollPeriod(long min, long max) {
+        if(0>=min || min>max) {
+            throw new IllegalArgumentException("Invalid poll period: min "+min+", max "+max);
+        }
+        synchronized(edtLock) { 
+            pollPeriodMin = min;
+            pollPeriodMax = max;
+            edtLock.notifyAll();
+        }
+    }
+
     public void start() {
         synchronized(edtLock) { 
             if(null==edt) {
@@ -94,7 +126,17 @@ public class DefaultEDTUtil implements EDTUtil {
     private void invokeLater(Runnable task) {
         synchronized(edtLock) {
             if(null!=edt && edt.isRunning() && edt != Thread.currentThread() ) {
+                final int i = tasks.size();
+                if(taskTimes.length<=i) {
+                    long[] t = new long[taskTimes.length*2];
+                    System.arraycopy(taskTimes, 0, t, 0, i);
+                    taskTimes = t;
+                }
+                taskTimes[i] = Clock.currentTimeNanos();
                 tasks.add(task);
+                if(tasks.size()>maxQueueDepth) {
+                    maxQueueDepth = tasks.size();
+                }
                 edtLock.notifyAll();
             } else {
                 // if !running or isEDTThread, do it right away
@@ -131,11 +173,12 @@ public class DefaultEDTUtil implements EDTUtil {
 
     public void waitUntilIdle() {
         synchronized(edtLock) {
-            if(null!=edt && edt.isRunning() && tasks.size()>0 && edt != Thread.currentThread() ) {
+            while(null!=edt && edt.isRunning() && ( tasks.size()>0 || batchRunning ) && edt != Thread.currentThread() ) {
                 try {
                     edtLock.wait();
                 } catch (InterruptedException e) {
                     e.printStackTrace();
+                    return;
                 }
             }
         }
@@ -153,6 +196,53 @@ public class DefaultEDTUtil implements EDTUtil {
         }
     }
 
+    /** @return the number of tasks currently queued */
+    public int getQueueDepth() {
+        synchronized(edtLock) { return tasks.size(); }
+    }
+
+    /** @return the maximum number of tasks queued at once */
+    public int getMaxQueueDepth() {
+        synchronized(edtLock) { return maxQueueDepth; }
+    }
+
+    /** @return the number of tasks executed by the EDT */
+    public long getTaskCount() {
+        synchronized(edtLock) { return taskCount; }
+    }
+
+    /** @return the number of task batches executed by the EDT, each batch requiring one wakeup */
+    public long getBatchCount() {
+        synchronized(edtLock) { return batchCount; }
+    }
+
+    /** @return the average time in microseconds from task submission until its execution start */
+    public float getAverageTaskLatency() {
+        synchronized(edtLock) { return 0<taskCount ? (float)taskLatencySum / 1000f / (float)taskCount : 0f ; }
+    }
+
+    /** @return the maximum time in microseconds from task submission until its execution start */
+    public long getMaxTaskLatency() {
+        synchronized(edtLock) { return taskLatencyMax / 1000; }
+    }
+
+    /** @return the number of EDT wakeups without any task to execute */
+    public long getIdleWakeups() {
+        synchronized(edtLock) { return idleWakeups; }
+    }
+
+    /** @return the number of native message pumps */
+    public long getPumpCount() {
+        synchronized(edtLock) { return pumpCount; }
+    }
+
+    public String toString() {
+        synchronized(edtLock) { 
+            return "DefaultEDTUtil["+name+", queue "+tasks.size()+"/"+maxQueueDepth+", tasks "+taskCount+", batches "+batchCount+
+                   ", latency avg "+getAverageTaskLatency()+"us max "+getMaxTaskLatency()+"us, idle wakeups "+idleWakeups+", pumps "+pumpCount+"]";
+        }
+    }
+
     class EventDispatchThread extends Thread {
         boolean isRunning = false;
 
@@ -180,29 +270,67 @@ public class DefaultEDTUtil implements EDTUtil {
                 System.out.println(Thread.currentThread()+": EDT run() START");
             }
             try {
+                long pollPeriod = pollPeriodMin;
+                Object[] batch = new Object[8];
+                long[] batchTimes = new long[8];
                 while(!shouldStop) {
-                    // wait for something todo
-                    while(!shouldStop && tasks.size()==0) {
-                        synchronized(edtLock) {
+                    int batchSize = 0;
+                    synchronized(edtLock) {
+                        // wait for something todo
+                        if(!shouldStop && tasks.size()==0) {
+                            try {
+                                edtLock.wait(pollPeriod);
+                            } catch (InterruptedException e) {
+                                e.printStackTrace();
+                            }
                             if(!shouldStop && tasks.size()==0) {
-                                try {
-                                    edtLock.wait(defaultEDTPollGranularity);
-                                } catch (InterruptedException e) {
-                                    e.printStackTrace();
-                                }
+                                idleWakeups++;
+                                pollPeriod = Math.min(pollPeriod*2, pollPeriodMax);
                             }
                         }
-                        pumpMessages.run(); // event dispatch
+                        // fetch all pending tasks as one batch
+                        if(!shouldStop && tasks.size()>0) {
+                            batchSize = tasks.size();
+                            if(batch.length<batchSize) {
+                                batch = new Object[batchSize*2];
+                            }
+                            for(int i=0; i<batchSize; i++) {
+                                batch[i] = tasks.get(i);
+                            }
+                            tasks.clear();
+                            // swap the submission times with the spare array of the last batch
+                            long[] t = batchTimes;
+                            batchTimes = taskTimes;
+                            taskTimes = t;
+                            batchRunning = true;
+                            pollPeriod = pollPeriodMin;
+                        }
                     }
-                    if(!shouldStop && tasks.size()>0) {
-                        synchronized(edtLock) {
-                            if(!shouldStop && tasks.size()>0) {
-                                Runnable task = (Runnable) tasks.remove(0);
-                                task.run(); // FIXME: could be run outside of lock
+                    if(0<batchSize) {
+                        long latencySum = 0, latencyMax = 0;
+                        try {
+                            for(int i=0; i<batchSize; i++) {
+                                final long latency = Clock.currentTimeNanos() - batchTimes[i];
+                                latencySum += latency;
+                                latencyMax = Math.max(latencyMax, latency);
+                                final Runnable task = (Runnable) batch[i];
+                                batch[i] = null;
+                                task.run();
+                            }
+                        } finally {
+                            synchronized(edtLock) {
+                                batchRunning = false;
+                                taskCount += batchSize;
+                                batchCount++;
+                                taskLatencySum += latencySum;
+                                taskLatencyMax = Math.max(taskLatencyMax, latencyMax);
                                 edtLock.notifyAll();
                             }
                         }
-                        pumpMessages.run(); // event dispatch
+                    }
+                    pumpMessages.run(); // event dispatch
+                    synchronized(edtLock) {
+                        pumpCount++;
                     }
                 }
             } catch (Throwable t) {